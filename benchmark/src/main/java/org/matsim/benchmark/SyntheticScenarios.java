@@ -0,0 +1,289 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Creates the scenarios the benchmarks run on: a square grid network, a population of car commuters with
+ * routed home-work-home plans, and a bus schedule on the grid. Everything is derived from a fixed seed, so all runs of a benchmark see the same
+ * scenario, and no files are needed.
+ */
+public final class SyntheticScenarios {
+
+	public static final double LINK_LENGTH = 500.0;
+
+	private SyntheticScenarios() {
+	}
+
+	/**
+	 * Keeps the log of the mobsim, the readers and the writers out of the output of the benchmarks.
+	 */
+	public static void reduceLogging() {
+		Logger.getRootLogger().setLevel(Level.WARN);
+	}
+
+	/**
+	 * @return a config with the scoring parameters for the activities of the synthetic population
+	 */
+	public static Config createConfig() {
+		Config config = ConfigUtils.createConfig();
+		ActivityParams home = new ActivityParams("home");
+		home.setTypicalDuration(14 * 3600);
+		config.planCalcScore().addActivityParams(home);
+		ActivityParams work = new ActivityParams("work");
+		work.setTypicalDuration(8 * 3600);
+		work.setOpeningTime(7 * 3600);
+		work.setClosingTime(19 * 3600);
+		config.planCalcScore().addActivityParams(work);
+		return config;
+	}
+
+	/**
+	 * @param gridSize the number of nodes in each direction; neighbouring nodes are connected by links in both directions
+	 * @param numberOfPersons the number of commuters, 0 for an empty population
+	 * @return a scenario that is prepared for the mobsim, i.e. with the vehicles of the persons
+	 */
+	public static Scenario createScenario(final int gridSize, final int numberOfPersons) {
+		Scenario scenario = ScenarioUtils.createScenario(createConfig());
+		createGridNetwork(scenario.getNetwork(), gridSize);
+		createPopulation(scenario, numberOfPersons, 4711);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		return scenario;
+	}
+
+	public static void createGridNetwork(final Network network, final int gridSize) {
+		network.setCapacityPeriod(3600.0);
+		NetworkFactory factory = network.getFactory();
+		Node[][] nodes = new Node[gridSize][gridSize];
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				nodes[x][y] = factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * LINK_LENGTH, y * LINK_LENGTH));
+				network.addNode(nodes[x][y]);
+			}
+		}
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				if (x + 1 < gridSize) {
+					addLink(network, nodes[x][y], nodes[x + 1][y]);
+					addLink(network, nodes[x + 1][y], nodes[x][y]);
+				}
+				if (y + 1 < gridSize) {
+					addLink(network, nodes[x][y], nodes[x][y + 1]);
+					addLink(network, nodes[x][y + 1], nodes[x][y]);
+				}
+			}
+		}
+	}
+
+	private static void addLink(final Network network, final Node fromNode, final Node toNode) {
+		Link link = network.getFactory().createLink(Id.createLinkId(fromNode.getId() + "-" + toNode.getId()), fromNode, toNode);
+		link.setLength(LINK_LENGTH);
+		// main roads every fifth row and column
+		boolean mainRoad = (fromNode.getCoord().getX() == toNode.getCoord().getX() && fromNode.getCoord().getX() % (5 * LINK_LENGTH) == 0)
+				|| (fromNode.getCoord().getY() == toNode.getCoord().getY() && fromNode.getCoord().getY() % (5 * LINK_LENGTH) == 0);
+		link.setFreespeed(mainRoad ? 50 / 3.6 : 30 / 3.6);
+		link.setCapacity(mainRoad ? 1800 : 600);
+		link.setNumberOfLanes(mainRoad ? 2 : 1);
+		network.addLink(link);
+	}
+
+	/**
+	 * Adds commuters with one selected home-work-home plan by car. The legs are routed on free speed, and all
+	 * activities and legs carry times, so the plans can be scored without running the mobsim.
+	 */
+	public static void createPopulation(final Scenario scenario, final int numberOfPersons, final long seed) {
+		Network network = scenario.getNetwork();
+		Population population = scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(scenario.getConfig().planCalcScore());
+		LeastCostPathCalculator router = new FastDijkstraFactory().createPathCalculator(network, freespeed, freespeed);
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		Random random = new Random(seed);
+
+		for (int i = 0; i < numberOfPersons; i++) {
+			Link homeLink = links[random.nextInt(links.length)];
+			Link workLink = links[random.nextInt(links.length)];
+			while (workLink == homeLink) {
+				workLink = links[random.nextInt(links.length)];
+			}
+			double homeEnd = 6 * 3600 + random.nextInt(3 * 3600);
+			double workDuration = 7 * 3600 + random.nextInt(2 * 3600);
+
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity morning = factory.createActivityFromCoord("home", homeLink.getCoord());
+			morning.setLinkId(homeLink.getId());
+			morning.setEndTime(homeEnd);
+			plan.addActivity(morning);
+			Leg toWork = createLeg(factory, router, homeLink, workLink, homeEnd);
+			plan.addLeg(toWork);
+			Activity work = factory.createActivityFromCoord("work", workLink.getCoord());
+			work.setLinkId(workLink.getId());
+			work.setStartTime(homeEnd + toWork.getTravelTime());
+			work.setEndTime(work.getStartTime() + workDuration);
+			plan.addActivity(work);
+			Leg toHome = createLeg(factory, router, workLink, homeLink, work.getEndTime());
+			plan.addLeg(toHome);
+			Activity evening = factory.createActivityFromCoord("home", homeLink.getCoord());
+			evening.setLinkId(homeLink.getId());
+			evening.setStartTime(work.getEndTime() + toHome.getTravelTime());
+			plan.addActivity(evening);
+			person.addPlan(plan);
+			person.setSelectedPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	private static Leg createLeg(final PopulationFactory factory, final LeastCostPathCalculator router,
+			final Link fromLink, final Link toLink, final double departureTime) {
+		Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null, null);
+		List<Id<Link>> routeLinkIds = new ArrayList<>(path.links.size());
+		double distance = toLink.getLength();
+		for (Link link : path.links) {
+			routeLinkIds.add(link.getId());
+			distance += link.getLength();
+		}
+		double travelTime = path.travelTime + toLink.getLength() / toLink.getFreespeed();
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(fromLink.getId(), routeLinkIds, toLink.getId());
+		route.setDistance(distance);
+		route.setTravelTime(travelTime);
+		Leg leg = factory.createLeg(TransportMode.car);
+		leg.setDepartureTime(departureTime);
+		leg.setTravelTime(travelTime);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	/**
+	 * Adds bus lines along every fifth row and column of a grid created by {@link #createGridNetwork}, one route
+	 * per direction, with a stop at every node and a departure every ten minutes from 5am to 11pm. The stops of
+	 * a direction are on the links that lead to the nodes, so the schedule is consistent with the network.
+	 *
+	 * @param scenario a scenario with transit enabled and a grid network
+	 */
+	public static void createTransitSchedule(final Scenario scenario, final int gridSize) {
+		Network network = scenario.getNetwork();
+		for (int i = 0; i < gridSize; i += 5) {
+			List<Node> row = new ArrayList<>();
+			List<Node> column = new ArrayList<>();
+			for (int j = 0; j < gridSize; j++) {
+				row.add(network.getNodes().get(Id.createNodeId(j + "_" + i)));
+				column.add(network.getNodes().get(Id.createNodeId(i + "_" + j)));
+			}
+			TransitLine rowLine = scenario.getTransitSchedule().getFactory().createTransitLine(Id.create("row" + i, TransitLine.class));
+			addTransitRoute(scenario, rowLine, "east", row);
+			Collections.reverse(row);
+			addTransitRoute(scenario, rowLine, "west", row);
+			scenario.getTransitSchedule().addTransitLine(rowLine);
+			TransitLine columnLine = scenario.getTransitSchedule().getFactory().createTransitLine(Id.create("column" + i, TransitLine.class));
+			addTransitRoute(scenario, columnLine, "north", column);
+			Collections.reverse(column);
+			addTransitRoute(scenario, columnLine, "south", column);
+			scenario.getTransitSchedule().addTransitLine(columnLine);
+		}
+	}
+
+	private static void addTransitRoute(final Scenario scenario, final TransitLine line, final String direction, final List<Node> nodes) {
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory factory = schedule.getFactory();
+		List<Id<Link>> linkIds = new ArrayList<>();
+		List<TransitRouteStop> stops = new ArrayList<>();
+		double time = 0;
+		for (int i = 1; i < nodes.size(); i++) {
+			Link link = NetworkUtils.getConnectingLink(nodes.get(i - 1), nodes.get(i));
+			linkIds.add(link.getId());
+			time += link.getLength() / link.getFreespeed();
+			Id<TransitStopFacility> stopId = Id.create(link.getId(), TransitStopFacility.class);
+			TransitStopFacility stop = schedule.getFacilities().get(stopId);
+			if (stop == null) {
+				stop = factory.createTransitStopFacility(stopId, nodes.get(i).getCoord(), false);
+				stop.setLinkId(link.getId());
+				schedule.addStopFacility(stop);
+			}
+			stops.add(factory.createTransitRouteStop(stop, time, time + 20));
+			time += 20;
+		}
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(linkIds.get(0), linkIds.subList(1, linkIds.size() - 1), linkIds.get(linkIds.size() - 1));
+		TransitRoute transitRoute = factory.createTransitRoute(Id.create(line.getId() + direction, TransitRoute.class), route, stops, "bus");
+		for (int departure = 5 * 3600; departure < 23 * 3600; departure += 600) {
+			transitRoute.addDeparture(factory.createDeparture(Id.create(direction + departure, Departure.class), departure));
+		}
+		line.addRoute(transitRoute);
+	}
+
+	/**
+	 * Runs the default QSim on the scenario once.
+	 *
+	 * @return all events of the run, in the order they were created
+	 */
+	public static List<Event> simulate(final Scenario scenario) {
+		List<Event> events = new ArrayList<>();
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler((BasicEventHandler) events::add);
+		new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, manager).run();
+		return events;
+	}
+
+}
@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.collections;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.collections.IdMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link IdMap} with the {@link HashMap} and {@link LinkedHashMap} it replaces in the core containers,
+ * for lookups in random order, insertion of all keys and iteration over all values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdMapBenchmark {
+
+	@Param({"HashMap", "LinkedHashMap", "IdMap"})
+	public String mapType;
+
+	@Param({"100000"})
+	public int size;
+
+	private Id<Link>[] ids;
+	private Id<Link>[] lookupOrder;
+	private Map<Id<Link>, Object> map;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup() {
+		this.ids = new Id[this.size];
+		for (int i = 0; i < this.size; i++) {
+			this.ids[i] = Id.createLinkId("bm" + i);
+		}
+		this.lookupOrder = this.ids.clone();
+		Random r = new Random(4711);
+		for (int i = this.lookupOrder.length - 1; i > 0; i--) {
+			int j = r.nextInt(i + 1);
+			Id<Link> tmp = this.lookupOrder[i];
+			this.lookupOrder[i] = this.lookupOrder[j];
+			this.lookupOrder[j] = tmp;
+		}
+		this.map = createMap();
+		for (Id<Link> id : this.ids) {
+			this.map.put(id, id);
+		}
+	}
+
+	private Map<Id<Link>, Object> createMap() {
+		switch (this.mapType) {
+			case "HashMap":
+				return new HashMap<>();
+			case "LinkedHashMap":
+				return new LinkedHashMap<>();
+			case "IdMap":
+				return new IdMap<>(Link.class);
+			default:
+				throw new IllegalArgumentException(this.mapType);
+		}
+	}
+
+	@Benchmark
+	public void get(Blackhole bh) {
+		for (Id<Link> id : this.lookupOrder) {
+			bh.consume(this.map.get(id));
+		}
+	}
+
+	@Benchmark
+	public Map<Id<Link>, Object> put() {
+		Map<Id<Link>, Object> m = createMap();
+		for (Id<Link> id : this.ids) {
+			m.put(id, id);
+		}
+		return m;
+	}
+
+	@Benchmark
+	public void iterate(Blackhole bh) {
+		for (Object o : this.map.values()) {
+			bh.consume(o);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(IdMapBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
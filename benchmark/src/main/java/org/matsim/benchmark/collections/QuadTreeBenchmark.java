@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.PackedQuadTree;
+import org.matsim.core.utils.collections.QuadTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link PackedQuadTree} with {@link QuadTree} for building the tree from random points, and for the
+ * queries of the closest point and of the points within a distance, like those for the facilities or the transit
+ * stops around an activity. The reported time of the queries is the time per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadTreeBenchmark {
+
+	private static final int QUERIES = 1000;
+
+	@Param({"QuadTree", "PackedQuadTree"})
+	public String treeType;
+
+	@Param({"100000"})
+	public int size;
+
+	/** the radius of the disk queries */
+	@Param({"500"})
+	public double distance;
+
+	private List<Coord> points;
+	private QuadTree<Coord> tree;
+	private final double[] queryXs = new double[QUERIES];
+	private final double[] queryYs = new double[QUERIES];
+	private final List<Coord> buffer = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		Random random = new Random(4711);
+		this.points = new ArrayList<>(this.size);
+		for (int i = 0; i < this.size; i++) {
+			this.points.add(new Coord(random.nextDouble() * 50000, random.nextDouble() * 50000));
+		}
+		this.tree = build();
+		for (int i = 0; i < QUERIES; i++) {
+			this.queryXs[i] = random.nextDouble() * 50000;
+			this.queryYs[i] = random.nextDouble() * 50000;
+		}
+	}
+
+	@Benchmark
+	public QuadTree<Coord> build() {
+		if (this.treeType.equals("PackedQuadTree")) {
+			return PackedQuadTree.create(this.points, coord -> coord);
+		}
+		QuadTree<Coord> quadTree = new QuadTree<>(0, 0, 50000, 50000);
+		for (Coord point : this.points) {
+			quadTree.put(point.getX(), point.getY(), point);
+		}
+		return quadTree;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getClosest(Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			blackhole.consume(this.tree.getClosest(this.queryXs[i], this.queryYs[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getDisk(Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			blackhole.consume(this.tree.getDisk(this.queryXs[i], this.queryYs[i], this.distance));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getDiskIntoBuffer(Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			this.buffer.clear();
+			blackhole.consume(this.tree.getDisk(this.queryXs[i], this.queryYs[i], this.distance, this.buffer));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(QuadTreeBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
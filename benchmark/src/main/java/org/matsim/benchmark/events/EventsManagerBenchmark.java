@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.analysis.LegHistogram;
+import org.matsim.analysis.VolumesAnalyzer;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Replays an events file against different events managers, like the mobsim would: all events of a time step
+ * are passed to {@link EventsManager#processEvent(Event)}, followed by {@link EventsManager#afterSimStep(double)}.
+ * <p></p>
+ * The events are read into memory once, so only the hand-off to the handlers and the handlers themselves are measured.
+ * By default the events of the equil example are used, larger files can be given with
+ * <code>-p eventsFile=... -p networkFile=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsManagerBenchmark {
+
+	@Param({"single", "simStepParallel", "ringBuffer"})
+	public String eventsManager;
+
+	/** <code>counting</code>: cheap handlers only, <code>analysis</code>: the handlers of a typical iteration */
+	@Param({"counting", "analysis"})
+	public String handlers;
+
+	@Param({"2"})
+	public int numberOfThreads;
+
+	@Param({""})
+	public String eventsFile;
+
+	@Param({""})
+	public String networkFile;
+
+	private Event[] events;
+	private EventsManager manager;
+	private int iteration = 0;
+
+	@Setup
+	public void setup() {
+		URL equil = ExamplesUtils.getTestScenarioURL("equil");
+		URL eventsUrl = this.eventsFile.isEmpty() ? IOUtils.newUrl(equil, "output_events.xml.gz") : IOUtils.getUrlFromFileOrResource(this.eventsFile);
+		URL networkUrl = this.networkFile.isEmpty() ? IOUtils.newUrl(equil, "network.xml") : IOUtils.getUrlFromFileOrResource(this.networkFile);
+
+		List<Event> eventsList = new ArrayList<>();
+		EventsManager reader = EventsUtils.createEventsManager();
+		reader.addHandler((BasicEventHandler) eventsList::add);
+		new MatsimEventsReader(reader).readURL(eventsUrl);
+		this.events = eventsList.toArray(new Event[0]);
+
+		Config config = ConfigUtils.createConfig();
+		switch (this.eventsManager) {
+			case "single":
+				this.manager = EventsUtils.createEventsManager();
+				break;
+			case "simStepParallel":
+				config.parallelEventHandling().setNumberOfThreads(this.numberOfThreads);
+				this.manager = EventsUtils.createEventsManager(config);
+				break;
+			case "ringBuffer":
+				config.parallelEventHandling().setNumberOfThreads(this.numberOfThreads);
+				config.parallelEventHandling().setUseRingBuffer(true);
+				this.manager = EventsUtils.createEventsManager(config);
+				break;
+			default:
+				throw new IllegalArgumentException(this.eventsManager);
+		}
+
+		switch (this.handlers) {
+			case "counting":
+				for (int i = 0; i < 4; i++) {
+					this.manager.addHandler(new CountingHandler());
+				}
+				break;
+			case "analysis":
+				Network network = NetworkUtils.createNetwork();
+				new MatsimNetworkReader(network).parse(networkUrl);
+				this.manager.addHandler(new LegHistogram(300));
+				this.manager.addHandler(new VolumesAnalyzer(3600, 30 * 3600, network));
+				this.manager.addHandler(TravelTimeCalculator.create(network, config.travelTimeCalculator()));
+				this.manager.addHandler(new CountingHandler());
+				break;
+			default:
+				throw new IllegalArgumentException(this.handlers);
+		}
+	}
+
+	@Benchmark
+	public long replay() {
+		this.manager.resetHandlers(this.iteration++);
+		this.manager.initProcessing();
+		double time = this.events.length == 0 ? 0 : this.events[0].getTime();
+		for (Event event : this.events) {
+			if (event.getTime() > time) {
+				this.manager.afterSimStep(time);
+				time = event.getTime();
+			}
+			this.manager.processEvent(event);
+		}
+		this.manager.afterSimStep(time);
+		this.manager.finishProcessing();
+		return this.events.length;
+	}
+
+	private static class CountingHandler implements BasicEventHandler {
+		private long counter = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.counter++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.counter = 0;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(EventsManagerBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Reads and writes the network, the population and the events of a synthetic scenario in the current xml formats.
+ * The files are written to a temporary directory in the setup, so the read benchmarks do not depend on the
+ * write benchmarks. With <code>-p extension=.xml.gz</code> the time of the compression is included.
+ * <p></p>
+ * <code>numberOfThreads</code> is passed to the readers of the network and the population.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlIoBenchmark {
+
+	@Param({".xml"})
+	public String extension;
+
+	@Param({"1"})
+	public int numberOfThreads;
+
+	@Param({"50"})
+	public int gridSize;
+
+	@Param({"10000"})
+	public int numberOfPersons;
+
+	private Scenario scenario;
+	private Event[] events;
+	private File directory;
+	private String networkFile;
+	private String populationFile;
+	private String eventsFile;
+
+	@Setup
+	public void setup() throws IOException {
+		SyntheticScenarios.reduceLogging();
+		this.scenario = SyntheticScenarios.createScenario(this.gridSize, this.numberOfPersons);
+		List<Event> eventsList = SyntheticScenarios.simulate(this.scenario);
+		this.events = eventsList.toArray(new Event[0]);
+
+		this.directory = Files.createTempDirectory("matsim-benchmark").toFile();
+		this.networkFile = new File(this.directory, "network" + this.extension).getPath();
+		this.populationFile = new File(this.directory, "population" + this.extension).getPath();
+		this.eventsFile = new File(this.directory, "events" + this.extension).getPath();
+		writeNetwork();
+		writePopulation();
+		writeEvents();
+	}
+
+	@TearDown
+	public void tearDown() {
+		File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (!file.delete()) {
+					throw new UncheckedIOException(new IOException("could not delete " + file));
+				}
+			}
+		}
+		this.directory.delete();
+	}
+
+	@Benchmark
+	public Network readNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		MatsimNetworkReader reader = new MatsimNetworkReader(network);
+		reader.setNumberOfThreads(this.numberOfThreads);
+		reader.readFile(this.networkFile);
+		return network;
+	}
+
+	@Benchmark
+	public void writeNetwork() {
+		new NetworkWriter(this.scenario.getNetwork()).write(this.networkFile);
+	}
+
+	@Benchmark
+	public Scenario readPopulation() {
+		Config config = SyntheticScenarios.createConfig();
+		config.global().setNumberOfThreads(this.numberOfThreads);
+		Scenario read = ScenarioUtils.createScenario(config);
+		new PopulationReader(read).readFile(this.populationFile);
+		return read;
+	}
+
+	@Benchmark
+	public void writePopulation() {
+		new PopulationWriter(this.scenario.getPopulation()).write(this.populationFile);
+	}
+
+	@Benchmark
+	public long readEvents() {
+		long[] counter = new long[1];
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler((BasicEventHandler) event -> counter[0]++);
+		new MatsimEventsReader(manager).readFile(this.eventsFile);
+		return counter[0];
+	}
+
+	@Benchmark
+	public void writeEvents() {
+		EventWriterXML writer = new EventWriterXML(this.eventsFile);
+		for (Event event : this.events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(XmlIoBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.mobsim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Simulates one day of car commuters on a synthetic grid with the default QSim. All agents drive, so the
+ * time is dominated by {@link QNetsimEngine#doSimStep(double)}: moving vehicles over the nodes and through
+ * the link queues. The events go to a single counting handler.
+ * <p></p>
+ * The size of the grid and of the population, and the number of threads of the netsim engine, are parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QSimBenchmark {
+
+	@Param({"20", "50"})
+	public int gridSize;
+
+	@Param({"5000"})
+	public int numberOfPersons;
+
+	@Param({"1"})
+	public int numberOfThreads;
+
+	private Scenario scenario;
+	private long eventCount = 0;
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		this.scenario = SyntheticScenarios.createScenario(this.gridSize, this.numberOfPersons);
+		this.scenario.getConfig().qsim().setNumberOfThreads(this.numberOfThreads);
+	}
+
+	@Benchmark
+	public long simulate() {
+		this.eventCount = 0;
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) event -> this.eventCount++);
+		new QSimBuilder(this.scenario.getConfig()).useDefaults().build(this.scenario, events).run();
+		return this.eventCount;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(QSimBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.mobsim;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleImpl;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.ArrayFIFOVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.FIFOVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.HeapPassingVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.PassingVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.VehicleQ;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the {@link VehicleQ} implementations of the links of the qsim, with a given number of vehicles on the
+ * link: <code>passThrough</code> lets one vehicle leave and another one enter, as on a busy link;
+ * <code>fillAndDrain</code> creates a queue, lets all vehicles enter and then leave, as on a link in the peak hour.
+ * Run with <code>-prof gc</code> to see the allocation per vehicle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleQBenchmark {
+
+	private static final int OPERATIONS = 1000;
+
+	@Param({"FIFOVehicleQ", "ArrayFIFOVehicleQ", "PassingVehicleQ", "HeapPassingVehicleQ"})
+	public String queueType;
+
+	@Param({"10", "1000"})
+	public int numberOfVehicles;
+
+	private QVehicle[] vehicles;
+	private double[] travelTimes;
+	private VehicleQ<QVehicle> queue;
+	private double now;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Random r = new Random(4711);
+		this.vehicles = new QVehicle[this.numberOfVehicles];
+		for (int i = 0; i < this.vehicles.length; i++) {
+			Vehicle vehicle = VehicleUtils.getFactory().createVehicle(Id.create(i, Vehicle.class), VehicleUtils.getDefaultVehicleType());
+			this.vehicles[i] = new QVehicleImpl(vehicle);
+			this.vehicles[i].setEarliestLinkExitTime(r.nextInt(60));
+		}
+		// vehicles with different speeds, so the passing queues actually reorder them
+		this.travelTimes = new double[OPERATIONS];
+		for (int i = 0; i < this.travelTimes.length; i++) {
+			this.travelTimes[i] = 30 + r.nextInt(30);
+		}
+		this.queue = createQueue();
+		for (QVehicle vehicle : this.vehicles) {
+			this.queue.add(vehicle);
+		}
+		this.now = 60;
+	}
+
+	private VehicleQ<QVehicle> createQueue() {
+		switch (this.queueType) {
+			case "FIFOVehicleQ":
+				return new FIFOVehicleQ();
+			case "ArrayFIFOVehicleQ":
+				return new ArrayFIFOVehicleQ();
+			case "PassingVehicleQ":
+				return new PassingVehicleQ();
+			case "HeapPassingVehicleQ":
+				return new HeapPassingVehicleQ();
+			default:
+				throw new IllegalArgumentException(this.queueType);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public void passThrough() {
+		for (int i = 0; i < OPERATIONS; i++) {
+			QVehicle vehicle = this.queue.poll();
+			this.now++;
+			vehicle.setEarliestLinkExitTime(this.now + this.travelTimes[i]);
+			this.queue.add(vehicle);
+		}
+	}
+
+	@Benchmark
+	public void fillAndDrain(Blackhole bh) {
+		VehicleQ<QVehicle> q = createQueue();
+		for (QVehicle vehicle : this.vehicles) {
+			q.add(vehicle);
+		}
+		QVehicle vehicle;
+		while ((vehicle = q.poll()) != null) {
+			bh.consume(vehicle);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(VehicleQBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.network;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.network.LinkQuadTree;
+import org.matsim.core.network.LinkRTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link LinkRTree} with {@link LinkQuadTree} for building the index of the links of a synthetic grid and
+ * for the exact nearest link to random points. The reported time of the queries is the time per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestLinkBenchmark {
+
+	private static final int QUERIES = 1000;
+
+	@Param({"LinkQuadTree", "LinkRTree"})
+	public String index;
+
+	@Param({"100"})
+	public int gridSize;
+
+	private Network network;
+	private double minX = Double.POSITIVE_INFINITY;
+	private double minY = Double.POSITIVE_INFINITY;
+	private double maxX = Double.NEGATIVE_INFINITY;
+	private double maxY = Double.NEGATIVE_INFINITY;
+	private LinkQuadTree quadTree;
+	private LinkRTree rTree;
+	private final double[] queryXs = new double[QUERIES];
+	private final double[] queryYs = new double[QUERIES];
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Scenario scenario = SyntheticScenarios.createScenario(this.gridSize, 0);
+		this.network = scenario.getNetwork();
+		this.network.getNodes().values().forEach(node -> {
+			this.minX = Math.min(this.minX, node.getCoord().getX());
+			this.minY = Math.min(this.minY, node.getCoord().getY());
+			this.maxX = Math.max(this.maxX, node.getCoord().getX());
+			this.maxY = Math.max(this.maxY, node.getCoord().getY());
+		});
+		build();
+		Random random = new Random(4711);
+		for (int i = 0; i < QUERIES; i++) {
+			this.queryXs[i] = this.minX + random.nextDouble() * (this.maxX - this.minX);
+			this.queryYs[i] = this.minY + random.nextDouble() * (this.maxY - this.minY);
+		}
+	}
+
+	@Benchmark
+	public Object build() {
+		if (this.index.equals("LinkQuadTree")) {
+			this.quadTree = new LinkQuadTree(this.minX - 1, this.minY - 1, this.maxX + 1, this.maxY + 1);
+			for (Link link : this.network.getLinks().values()) {
+				this.quadTree.put(link);
+			}
+			return this.quadTree;
+		}
+		this.rTree = new LinkRTree();
+		for (Link link : this.network.getLinks().values()) {
+			this.rTree.put(link);
+		}
+		return this.rTree;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getNearest(Blackhole blackhole) {
+		if (this.quadTree != null) {
+			for (int i = 0; i < QUERIES; i++) {
+				blackhole.consume(this.quadTree.getNearest(this.queryXs[i], this.queryYs[i]));
+			}
+		} else {
+			for (int i = 0; i < QUERIES; i++) {
+				blackhole.consume(this.rTree.getNearest(this.queryXs[i], this.queryYs[i]));
+			}
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(NearestLinkBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
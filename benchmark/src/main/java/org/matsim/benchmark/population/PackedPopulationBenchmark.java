@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.population;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.config.Config;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures a population of commuters with five plans each, with and without packing the plans that are not selected.
+ * The setup prints the heap the population needs; the benchmark selects another plan of every person and reads its
+ * plan elements, as the mobsim does after a plan selector changed the selected plans, i.e. it measures the unpacking
+ * and packing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackedPopulationBenchmark {
+
+	private static final int PLANS_PER_PERSON = 5;
+
+	@Param({"false", "true"})
+	public boolean packing;
+
+	@Param({"20000"})
+	public int persons;
+
+	private Scenario scenario;
+	private int selection = 0;
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Config config = SyntheticScenarios.createConfig();
+		config.plans().setPackingNonSelectedPlans(this.packing);
+		this.scenario = ScenarioUtils.createScenario(config);
+		SyntheticScenarios.createGridNetwork(this.scenario.getNetwork(), 50);
+
+		long before = usedMemory();
+		SyntheticScenarios.createPopulation(this.scenario, this.persons, 4711);
+		for (Person person : this.scenario.getPopulation().getPersons().values()) {
+			Plan first = person.getSelectedPlan();
+			for (int i = 1; i < PLANS_PER_PERSON; i++) {
+				person.setSelectedPlan(first);
+				person.createCopyOfSelectedPlanAndMakeSelected();
+			}
+			person.setSelectedPlan(first);
+		}
+		PopulationUtils.packPlans(this.scenario.getPopulation());
+		long after = usedMemory();
+		System.out.println("population of " + this.persons + " persons with " + PLANS_PER_PERSON + " plans each, packing="
+				+ this.packing + ": " + ((after - before) / 1024 / 1024) + " MB, " + (after - before) / this.persons / PLANS_PER_PERSON
+				+ " bytes per plan");
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Selects another plan of every person and reads it, then packs the plans again, as the controler does after the
+	 * replanning.
+	 */
+	@Benchmark
+	public void selectOtherPlanAndPack(Blackhole blackhole) {
+		this.selection = (this.selection + 1) % PLANS_PER_PERSON;
+		for (Person person : this.scenario.getPopulation().getPersons().values()) {
+			Plan plan = person.getPlans().get(this.selection);
+			person.setSelectedPlan(plan);
+			blackhole.consume(plan.getPlanElements().size());
+		}
+		PopulationUtils.packPlans(this.scenario.getPopulation());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(PackedPopulationBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.pt;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.config.Config;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.router.FakeFacility;
+import org.matsim.pt.router.RaptorData;
+import org.matsim.pt.router.RaptorTransitRouter;
+import org.matsim.pt.router.TransitRouter;
+import org.matsim.pt.router.TransitRouterConfig;
+import org.matsim.pt.router.TransitRouterImpl;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures {@link TransitRouterImpl#calcRoute} and {@link RaptorTransitRouter#calcRoute} between random coordinates
+ * close to the stops of the schedule, at random departure times during the day. The reported time is the time per
+ * query; building the transit router network or the {@link RaptorData} is done in the setup and not measured.
+ * <p></p>
+ * By default a synthetic schedule with bus lines on a grid is used, see
+ * {@link SyntheticScenarios#createTransitSchedule(Scenario, int)}. Real schedules can be given with
+ * <code>-p scheduleFile=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitRouterBenchmark {
+
+	private static final int QUERIES = 100;
+
+	@Param({"TransitRouterImpl", "RaptorTransitRouter"})
+	public String router;
+
+	@Param({"50"})
+	public int gridSize;
+
+	@Param({""})
+	public String scheduleFile;
+
+	private TransitRouter transitRouter;
+	private final Facility[] fromFacilities = new Facility[QUERIES];
+	private final Facility[] toFacilities = new Facility[QUERIES];
+	private final double[] departureTimes = new double[QUERIES];
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Config config = SyntheticScenarios.createConfig();
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		if (this.scheduleFile.isEmpty()) {
+			SyntheticScenarios.createGridNetwork(scenario.getNetwork(), this.gridSize);
+			SyntheticScenarios.createTransitSchedule(scenario, this.gridSize);
+		} else {
+			new TransitScheduleReader(scenario).readURL(IOUtils.getUrlFromFileOrResource(this.scheduleFile));
+		}
+		TransitRouterConfig trConfig = new TransitRouterConfig(config);
+		switch (this.router) {
+			case "TransitRouterImpl":
+				this.transitRouter = new TransitRouterImpl(trConfig, scenario.getTransitSchedule());
+				break;
+			case "RaptorTransitRouter":
+				this.transitRouter = new RaptorTransitRouter(trConfig, RaptorData.create(scenario.getTransitSchedule(), trConfig));
+				break;
+			default:
+				throw new IllegalArgumentException(this.router);
+		}
+
+		TransitStopFacility[] stops = scenario.getTransitSchedule().getFacilities().values().toArray(new TransitStopFacility[0]);
+		Random random = new Random(4711);
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromFacilities[i] = new FakeFacility(nearby(stops[random.nextInt(stops.length)], random));
+			this.toFacilities[i] = new FakeFacility(nearby(stops[random.nextInt(stops.length)], random));
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(14 * 3600);
+		}
+	}
+
+	private static Coord nearby(final TransitStopFacility stop, final Random random) {
+		return new Coord(stop.getCoord().getX() + random.nextDouble() * 400 - 200, stop.getCoord().getY() + random.nextDouble() * 400 - 200);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void calcRoute(Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			blackhole.consume(this.transitRouter.calcRoute(this.fromFacilities[i], this.toFacilities[i], this.departureTimes[i], null));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(TransitRouterBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
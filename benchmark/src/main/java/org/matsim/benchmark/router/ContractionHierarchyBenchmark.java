@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.router;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the work of the contraction hierarchies besides the queries, see {@link LeastCostPathCalculatorBenchmark}:
+ * creating the hierarchy of a network, which is done once, and customizing its weights, which is done for every time
+ * bin in every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractionHierarchyBenchmark {
+
+	@Param({"100"})
+	public int gridSize;
+
+	private Scenario scenario;
+	private ContractionHierarchy hierarchy;
+	private double[] linkCosts;
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		this.scenario = SyntheticScenarios.createScenario(this.gridSize, 0);
+		this.hierarchy = new ContractionHierarchy(this.scenario.getNetwork());
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(this.scenario.getConfig().planCalcScore());
+		Link[] links = this.hierarchy.getLinks();
+		this.linkCosts = new double[links.length];
+		for (int l = 0; l < links.length; l++) {
+			this.linkCosts[l] = freespeed.getLinkTravelDisutility(links[l], 8 * 3600, null, null);
+		}
+	}
+
+	@Benchmark
+	public ContractionHierarchy createHierarchy() {
+		return new ContractionHierarchy(this.scenario.getNetwork());
+	}
+
+	@Benchmark
+	public double[] customize() {
+		return this.hierarchy.customize(this.linkCosts);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(ContractionHierarchyBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,137 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.router;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.router.AStarLandmarksFactory;
+import org.matsim.core.router.ContractionHierarchiesFactory;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures single least cost path queries between random nodes of a synthetic grid, on free speed travel times.
+ * The reported time is the time per query; the preprocessing of the routers is done in the setup and not measured.
+ * The setup also checks the accuracy of the router: the costs of its paths must be those of {@link DijkstraFactory Dijkstra}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeastCostPathCalculatorBenchmark {
+
+	private static final int QUERIES = 100;
+
+	@Param({"Dijkstra", "FastDijkstra", "AStarLandmarks", "FastAStarLandmarks", "ContractionHierarchies"})
+	public String router;
+
+	@Param({"100"})
+	public int gridSize;
+
+	private LeastCostPathCalculator calculator;
+	private final Node[] fromNodes = new Node[QUERIES];
+	private final Node[] toNodes = new Node[QUERIES];
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Scenario scenario = SyntheticScenarios.createScenario(this.gridSize, 0);
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(scenario.getConfig().planCalcScore());
+		LeastCostPathCalculatorFactory factory;
+		switch (this.router) {
+			case "Dijkstra":
+				factory = new DijkstraFactory();
+				break;
+			case "FastDijkstra":
+				factory = new FastDijkstraFactory();
+				break;
+			case "AStarLandmarks":
+				factory = new AStarLandmarksFactory(1);
+				break;
+			case "FastAStarLandmarks":
+				factory = new FastAStarLandmarksFactory(1);
+				break;
+			case "ContractionHierarchies":
+				factory = new ContractionHierarchiesFactory();
+				break;
+			default:
+				throw new IllegalArgumentException(this.router);
+		}
+		this.calculator = factory.createPathCalculator(scenario.getNetwork(), freespeed, freespeed);
+
+		Node[] nodes = scenario.getNetwork().getNodes().values().toArray(new Node[0]);
+		Random random = new Random(4711);
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.toNodes[i] = nodes[random.nextInt(nodes.length)];
+		}
+
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(scenario.getNetwork(), freespeed, freespeed);
+		for (int i = 0; i < QUERIES; i++) {
+			double expected = dijkstra.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], 8 * 3600, null, null).travelCost;
+			double cost = this.calculator.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], 8 * 3600, null, null).travelCost;
+			if (Math.abs(cost - expected) > 1e-6 * expected) {
+				throw new IllegalStateException(this.router + " found a path of cost " + cost + " from node " + this.fromNodes[i].getId()
+						+ " to node " + this.toNodes[i].getId() + ", Dijkstra one of cost " + expected);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void calcLeastCostPath(Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			blackhole.consume(this.calculator.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], 8 * 3600, null, null));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(LeastCostPathCalculatorBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
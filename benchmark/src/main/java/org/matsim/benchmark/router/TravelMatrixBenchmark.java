@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.router.TravelMatrixCalculator;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures a travel time matrix between random nodes of a synthetic grid, calculated by the
+ * {@link TravelMatrixCalculator} or, as before, with a {@link LeastCostPathTree} per origin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TravelMatrixBenchmark {
+
+	@Param({"LeastCostPathTree", "TravelMatrixCalculator"})
+	public String calculator;
+
+	@Param({"100"})
+	public int gridSize;
+
+	@Param({"100"})
+	public int numberOfZones;
+
+	/** used by the {@link TravelMatrixCalculator} only */
+	@Param({"4"})
+	public int numberOfThreads;
+
+	private Scenario scenario;
+	private FreespeedTravelTimeAndDisutility freespeed;
+	private TravelMatrixCalculator matrixCalculator;
+	private final List<Node> zones = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		this.scenario = SyntheticScenarios.createScenario(this.gridSize, 0);
+		this.freespeed = new FreespeedTravelTimeAndDisutility(this.scenario.getConfig().planCalcScore());
+		this.matrixCalculator = new TravelMatrixCalculator(this.scenario.getNetwork(), this.freespeed, this.freespeed, this.numberOfThreads);
+		Node[] nodes = this.scenario.getNetwork().getNodes().values().toArray(new Node[0]);
+		Random random = new Random(4711);
+		for (int i = 0; i < this.numberOfZones; i++) {
+			this.zones.add(nodes[random.nextInt(nodes.length)]);
+		}
+	}
+
+	@Benchmark
+	public void calcMatrix(Blackhole blackhole) {
+		switch (this.calculator) {
+			case "LeastCostPathTree":
+				LeastCostPathTree tree = new LeastCostPathTree(this.freespeed, this.freespeed);
+				for (Node origin : this.zones) {
+					tree.calculate(this.scenario.getNetwork(), origin, 8 * 3600);
+					for (Node destination : this.zones) {
+						blackhole.consume(tree.getTree().get(destination.getId()).getTime());
+					}
+				}
+				break;
+			case "TravelMatrixCalculator":
+				blackhole.consume(this.matrixCalculator.calcMatrix(this.zones, this.zones, 8 * 3600));
+				break;
+			default:
+				throw new IllegalArgumentException(this.calculator);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(TravelMatrixBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.scoring;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.scoring.EventsToScore;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Scores the events of one day of a synthetic population with {@link EventsToScore}: the events are converted into
+ * activities and legs and passed to the Charypar-Nagel scoring functions, like after every mobsim. The events are
+ * created once in the setup; the reported time is the time from the first event to the finished scores.
+ * <p></p>
+ * The number of scoring threads is a parameter, see {@link org.matsim.core.config.groups.PlanCalcScoreConfigGroup#getNumberOfScoringThreads()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsToScoreBenchmark {
+
+	@Param({"10000"})
+	public int numberOfPersons;
+
+	@Param({"1", "4"})
+	public int numberOfScoringThreads;
+
+	private List<Event> eventsOfDay;
+	private EventsManager events;
+	private EventsToScore eventsToScore;
+	private int iteration = 0;
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Scenario scenario = SyntheticScenarios.createScenario(30, this.numberOfPersons);
+		this.eventsOfDay = SyntheticScenarios.simulate(scenario);
+		scenario.getConfig().planCalcScore().setNumberOfScoringThreads(this.numberOfScoringThreads);
+		this.events = EventsUtils.createEventsManager();
+		this.eventsToScore = EventsToScore.createWithoutScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), this.events);
+	}
+
+	@Benchmark
+	public EventsToScore score() {
+		this.events.resetHandlers(this.iteration);
+		this.eventsToScore.beginIteration(this.iteration);
+		for (Event event : this.eventsOfDay) {
+			this.events.processEvent(event);
+		}
+		this.eventsToScore.finish();
+		this.iteration++;
+		return this.eventsToScore;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(EventsToScoreBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
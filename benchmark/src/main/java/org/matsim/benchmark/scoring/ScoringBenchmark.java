@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.scoring;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.scoring.ScoringFunction;
+import org.matsim.core.scoring.ScoringFunctionFactory;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Scores the selected plans of a synthetic population with the Charypar-Nagel scoring functions: per person a
+ * scoring function is created, it is given all activities and legs of the plan, and the score is computed.
+ * This is what happens for every agent at the end of an iteration, without the events that lead to the
+ * activities and legs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+	@Param({"10000"})
+	public int numberOfPersons;
+
+	private Person[] persons;
+	private ScoringFunctionFactory factory;
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Scenario scenario = SyntheticScenarios.createScenario(30, this.numberOfPersons);
+		this.persons = scenario.getPopulation().getPersons().values().toArray(new Person[0]);
+		this.factory = new CharyparNagelScoringFunctionFactory(scenario);
+	}
+
+	@Benchmark
+	public double scorePlans() {
+		double sum = 0;
+		for (Person person : this.persons) {
+			ScoringFunction scoringFunction = this.factory.createNewScoringFunction(person);
+			for (PlanElement element : person.getSelectedPlan().getPlanElements()) {
+				if (element instanceof Activity) {
+					scoringFunction.handleActivity((Activity) element);
+				} else {
+					scoringFunction.handleLeg((Leg) element);
+				}
+			}
+			scoringFunction.finish();
+			sum += scoringFunction.getScore();
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(ScoringBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
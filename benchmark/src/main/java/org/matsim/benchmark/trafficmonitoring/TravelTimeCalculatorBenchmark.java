@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Passes the events of one simulated day on a synthetic grid to a {@link TravelTimeCalculator}, and reads the
+ * resulting travel times of all links for every hour of the day, like a router of the next iteration would.
+ * <p></p>
+ * The events are created once, by running the QSim in the setup, and are handed to the calculator directly,
+ * so the time of an events manager is not part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TravelTimeCalculatorBenchmark {
+
+	@Param({"TravelTimeCalculatorArray", "TravelTimeCalculatorHashMap", "TravelTimeCalculatorFlatArray"})
+	public String calculatorType;
+
+	@Param({"false", "true"})
+	public boolean linkToLink;
+
+	@Param({"30"})
+	public int gridSize;
+
+	@Param({"5000"})
+	public int numberOfPersons;
+
+	private Event[] events;
+	private Link[] links;
+	private TravelTimeCalculator calculator;
+	private int iteration = 0;
+
+	@Setup
+	public void setup() {
+		SyntheticScenarios.reduceLogging();
+		Scenario scenario = SyntheticScenarios.createScenario(this.gridSize, this.numberOfPersons);
+		List<Event> relevant = new ArrayList<>();
+		for (Event event : SyntheticScenarios.simulate(scenario)) {
+			if (event instanceof LinkEnterEvent || event instanceof LinkLeaveEvent || event instanceof VehicleEntersTrafficEvent
+					|| event instanceof VehicleLeavesTrafficEvent || event instanceof VehicleAbortsEvent) {
+				relevant.add(event);
+			}
+		}
+		this.events = relevant.toArray(new Event[0]);
+		this.links = scenario.getNetwork().getLinks().values().toArray(new Link[0]);
+
+		TravelTimeCalculatorConfigGroup group = new TravelTimeCalculatorConfigGroup();
+		group.setTravelTimeCalculatorType(this.calculatorType);
+		group.setCalculateLinkToLinkTravelTimes(this.linkToLink);
+		this.calculator = TravelTimeCalculator.create(scenario.getNetwork(), group);
+		// so the travel times are there when only getLinkTravelTimes is run
+		handleEvents();
+	}
+
+	@Benchmark
+	public int handleEvents() {
+		this.calculator.reset(this.iteration++);
+		for (Event event : this.events) {
+			if (event instanceof LinkEnterEvent) {
+				this.calculator.handleEvent((LinkEnterEvent) event);
+			} else if (event instanceof LinkLeaveEvent) {
+				this.calculator.handleEvent((LinkLeaveEvent) event);
+			} else if (event instanceof VehicleEntersTrafficEvent) {
+				this.calculator.handleEvent((VehicleEntersTrafficEvent) event);
+			} else if (event instanceof VehicleLeavesTrafficEvent) {
+				this.calculator.handleEvent((VehicleLeavesTrafficEvent) event);
+			} else {
+				this.calculator.handleEvent((VehicleAbortsEvent) event);
+			}
+		}
+		return this.events.length;
+	}
+
+	@Benchmark
+	public double getLinkTravelTimes() {
+		TravelTime travelTime = this.calculator.getLinkTravelTimes();
+		double sum = 0;
+		for (int hour = 0; hour < 24; hour++) {
+			for (Link link : this.links) {
+				sum += travelTime.getLinkTravelTime(link, hour * 3600, null, null);
+			}
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder().include(TravelTimeCalculatorBenchmark.class.getSimpleName()).build();
+		new Runner(opt).run();
+	}
+
+}
@@ -63,6 +63,12 @@ public final class IterationStopWatch {
 	/** A list of identifiers used to enumerate operations. */
 	private final List<String> operations;
 
+	/** The values measured in the iterations, e.g. the throughput of a replanning module. */
+	private final Map<Integer, Map<String, Double>> values;
+
+	/** A list of identifiers used to enumerate values. */
+	private final List<String> valueIdentifiers;
+
 	/** A cache for easy access to the current object in <code>iterations</code>. */
 	private Map<String, Long> currentIterationValues;
 
@@ -85,6 +91,8 @@ public final class IterationStopWatch {
 		this.iterations = new LinkedHashMap<Integer, Map<String, Long>>();
 		this.identifiers = new LinkedList<String>();
 		this.operations = new LinkedList<String>();
+		this.values = new LinkedHashMap<Integer, Map<String, Double>>();
+		this.valueIdentifiers = new LinkedList<String>();
 		this.currentIterationValues = null;
 		this.children = new LinkedHashMap<Integer, Map<String, List<String>>>();
 	}
@@ -100,6 +108,8 @@ public final class IterationStopWatch {
 		this.iterations.clear();
 		this.identifiers.clear();
 		this.operations.clear();
+		this.values.clear();
+		this.valueIdentifiers.clear();
 		this.currentMeasuredOperations.clear();
 		this.currentIterationChildren.clear();
 		this.children.clear();
@@ -183,6 +193,29 @@ public final class IterationStopWatch {
 		this.currentIterationValues.put(identifier, Long.valueOf(System.currentTimeMillis()));
 	}
 
+	/**
+	 * Remembers a value measured in the current iteration that is not a time, e.g. the plans a replanning module
+	 * handled per second. Setting a value again in the same iteration replaces it. The values are written after the
+	 * durations of the operations by {@link #writeTextFile(String)}.
+	 *
+	 * @param identifier The name of the value.
+	 * @param value
+	 */
+	public void setValue(final String identifier, final double value) {
+		if (!this.valueIdentifiers.contains(identifier)) {
+			this.valueIdentifiers.add(identifier);
+		}
+		this.values.computeIfAbsent(this.iteration, k -> new HashMap<String, Double>()).put(identifier, value);
+	}
+
+	/**
+	 * @return the value set in <code>iteration</code> with {@link #setValue(String, double)}, or <code>null</code>
+	 */
+	public Double getValue(final int iteration, final String identifier) {
+		Map<String, Double> data = this.values.get(iteration);
+		return data == null ? null : data.get(identifier);
+	}
+
 	/**
 	 * Writes the gathered data tab-separated into a text file.
 	 *
@@ -204,6 +237,13 @@ public final class IterationStopWatch {
 				writer.write('\t');
 				writer.write(identifier);
 			}
+			if (!this.valueIdentifiers.isEmpty()) {
+				writer.write('\t');
+				for (String identifier : this.valueIdentifiers) {
+					writer.write('\t');
+					writer.write(identifier);
+				}
+			}
 			writer.newLine();
 
 			// print data
@@ -230,6 +270,18 @@ public final class IterationStopWatch {
 						writer.write(Time.writeTime(diff));
 					}
 				}
+				// other values, if any
+				if (!this.valueIdentifiers.isEmpty()) {
+					Map<String, Double> values = this.values.get(iteration);
+					writer.write('\t');
+					for (String identifier : this.valueIdentifiers) {
+						Double value = values == null ? null : values.get(identifier);
+						writer.write('\t');
+						if (value != null) {
+							writer.write(value.toString());
+						}
+					}
+				}
 
 				// finish
 				writer.newLine();
@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -40,7 +41,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache<?>> cache = new ConcurrentHashMap<Class<?>, IdCache<?>>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -55,23 +56,49 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	}
 	
 	/**
-	 * This method supports a cache where ids are stored and re-used per type.   
+	 * This method supports a cache where ids are stored and re-used per type.
+	 * Every newly created id gets the next free index of its type, see {@link #index()}.
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
 		Gbl.assertNotNull(key);
-		Id<?> id = map.get(key);
-		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+		return getCache(type).getOrCreate(key);
+	}
+
+	/**
+	 * @return the id of the given type with the given index, as returned by {@link #index()}.
+	 * 
+	 * @throws IndexOutOfBoundsException if no id with the given index exists for this type
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache<T> idCache = (IdCache<T>) cache.get(type);
+		if (idCache == null) {
+			throw new IndexOutOfBoundsException("There are no ids of type " + type.getName());
 		}
-		
-		return (Id<T>) id;
+		return idCache.get(index);
 	}
+
+	/**
+	 * @return the number of ids created so far for the given type. All ids of this type have an
+	 * {@link #index()} smaller than this number, so it can be used to size arrays indexed by id.
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		IdCache<?> idCache = cache.get(type);
+		return idCache == null ? 0 : idCache.size();
+	}
+
+	private static <T> IdCache<T> getCache(final Class<T> type) {
+		IdCache<?> idCache = cache.get(type);
+		if (idCache == null) {
+			idCache = cache.computeIfAbsent(type, k -> new IdCache<T>());
+		}
+		return (IdCache<T>) idCache;
+	}
+
+	/**
+	 * @return a dense, per-type index of this id, starting at 0 for the first id created of a type.
+	 * Ids of different types may share the same index.
+	 */
+	public abstract int index();
 	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
@@ -80,6 +107,9 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 */
 	@Override
 	public int compareTo(Id<T> o) throws IllegalArgumentException {
+		if (this == o) {
+			return 0;
+		}
 		int res = this.toString().compareTo(o.toString());
 //		if (res == 0) {   // FIXME temporary relax the check until the Id migration has taken place
 //			if (equals(o)) {
@@ -92,11 +122,7 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	
 	@Override
 	public boolean equals(Object obj) {
-		if (obj instanceof Id) {
-			return this.compareTo((Id) obj) == 0;
-		}
-		return false;
-//		return this == obj; // FIXME temporary relax the check until the Id migration has taken place
+		return this == obj;
 		// all other objects have to be different by definition, as long as the cache is correctly implemented
 	}
 
@@ -113,9 +139,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -128,6 +161,51 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 			return this.id;
 		}
 	}
+
+	/**
+	 * Holds all ids of one type, both by their string and by their index.
+	 * Lookups of existing ids do not lock; creating a new id locks the cache of its type
+	 * so that indices stay dense.
+	 */
+	private static class IdCache<T> {
+
+		private final Map<String, Id<T>> ids = new ConcurrentHashMap<String, Id<T>>();
+		private volatile Id<T>[] byIndex = new Id[16];
+		private volatile int size = 0;
+
+		Id<T> getOrCreate(final String key) {
+			Id<T> id = this.ids.get(key);
+			if (id == null) {
+				synchronized (this) {
+					id = this.ids.get(key);
+					if (id == null) {
+						int index = this.size;
+						id = new IdImpl<T>(key, index);
+						Id<T>[] array = this.byIndex;
+						if (index == array.length) {
+							array = Arrays.copyOf(array, array.length * 2);
+						}
+						array[index] = id;
+						this.byIndex = array;
+						this.size = index + 1;
+						this.ids.put(key, id);
+					}
+				}
+			}
+			return id;
+		}
+
+		Id<T> get(final int index) {
+			if (index < 0 || index >= this.size) {
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + this.size);
+			}
+			return this.byIndex[index];
+		}
+
+		int size() {
+			return this.size;
+		}
+	}
 	
 	public static <T> String writeId( Id<T> id ) {
 		if ( id==null ) {
@@ -85,5 +85,19 @@ public final class ActivityEndEvent extends Event implements HasPersonId {
 		return attr;
 	}
 
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_PERSON, this.personId);
+		if (this.linkId != null) {
+			writeXMLAttribute(out, ATTRIBUTE_LINK, this.linkId);
+		}
+		if (this.facilityId != null) {
+			writeXMLAttribute(out, ATTRIBUTE_FACILITY, this.facilityId);
+		}
+		writeXMLAttribute(out, ATTRIBUTE_ACTTYPE, this.acttype);
+		writeXMLEnd(out);
+	}
+
 	
 }
@@ -84,4 +84,23 @@ public class ActivityStartEvent extends Event implements HasPersonId {
 		attr.put(ATTRIBUTE_ACTTYPE, this.acttype);
 		return attr;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != ActivityStartEvent.class) {
+			// subclasses may write other attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_PERSON, this.personId);
+		if (this.linkId != null) {
+			writeXMLAttribute(out, ATTRIBUTE_LINK, this.linkId);
+		}
+		if (this.facilityId != null) {
+			writeXMLAttribute(out, ATTRIBUTE_FACILITY, this.facilityId);
+		}
+		writeXMLAttribute(out, ATTRIBUTE_ACTTYPE, this.acttype);
+		writeXMLEnd(out);
+	}
 }
\ No newline at end of file
@@ -41,6 +41,100 @@ public abstract class Event {
 		return attr;
 	}
 
+	/**
+	 * Appends this event as an xml element of an events file, see {@link org.matsim.core.events.algorithms.EventWriterXML}.
+	 * <p></p>
+	 * This writes the attributes returned by {@link #getAttributes()}. Subclasses may write their attributes directly
+	 * instead, using {@link #writeXMLStart(StringBuilder)}, the <code>writeXMLAttribute</code> methods and
+	 * {@link #writeXMLEnd(StringBuilder)}, which avoids creating the map and the strings of the attributes. They must
+	 * produce exactly the same output as this method though.
+	 */
+	public void writeAsXML(final StringBuilder out) {
+		out.append("\t<event ");
+		for (Map.Entry<String, String> entry : getAttributes().entrySet()) {
+			writeXMLAttribute(out, entry.getKey(), entry.getValue());
+		}
+		writeXMLEnd(out);
+	}
+
+	/** starts the xml element of the event, including the time and type attributes */
+	protected final void writeXMLStart(final StringBuilder out) {
+		out.append("\t<event ");
+		writeXMLAttribute(out, ATTRIBUTE_TIME, this.time);
+		writeXMLAttribute(out, ATTRIBUTE_TYPE, getEventType());
+	}
+
+	protected static void writeXMLEnd(final StringBuilder out) {
+		out.append(" />\n");
+	}
+
+	/** <code>null</code> values are written as "null" */
+	protected static void writeXMLAttribute(final StringBuilder out, final String key, final Object value) {
+		writeXMLAttribute(out, key, value == null ? null : value.toString());
+	}
+
+	/** <code>null</code> values are written as "null" */
+	protected static void writeXMLAttribute(final StringBuilder out, final String key, final String value) {
+		out.append(key);
+		out.append("=\"");
+		if (value == null) {
+			out.append("null");
+		} else {
+			appendEncoded(out, value);
+		}
+		out.append("\" ");
+	}
+
+	/** writes the value like {@link Double#toString(double)} */
+	protected static void writeXMLAttribute(final StringBuilder out, final String key, final double value) {
+		out.append(key);
+		out.append("=\"");
+		long longValue = (long) value;
+		if (longValue == value && longValue > -10_000_000 && longValue < 10_000_000 && (longValue != 0 || Double.doubleToRawLongBits(value) == 0)) {
+			// the common case of whole seconds, which Double.toString() writes without exponent
+			out.append(longValue);
+			out.append(".0");
+		} else {
+			out.append(value);
+		}
+		out.append("\" ");
+	}
+
+	// the following method was taken from MatsimXmlWriter in order to correctly encode attributes, but
+	// to forego the overhead of using the full MatsimXmlWriter.
+	/**
+	 * Appends the given string in such a way that it no longer contains
+	 * characters that have a special meaning in xml.
+	 *
+	 * @see <a href="http://www.w3.org/International/questions/qa-escapes#use">http://www.w3.org/International/questions/qa-escapes#use</a>
+	 */
+	private static void appendEncoded(final StringBuilder out, final String attributeValue) {
+		int len = attributeValue.length();
+		int firstSpecial = 0;
+		while (firstSpecial < len) {
+			char ch = attributeValue.charAt(firstSpecial);
+			if (ch == '<' || ch == '>' || ch == '\"' || ch == '&') {
+				break;
+			}
+			firstSpecial++;
+		}
+		out.append(attributeValue, 0, firstSpecial);
+		for (int pos = firstSpecial; pos < len; pos++) {
+			char ch = attributeValue.charAt(pos);
+			if (ch == '<') {
+				out.append("&lt;");
+			} else if (ch == '>') {
+				out.append("&gt;");
+			} else if (ch == '\"') {
+				out.append("&quot;");
+			} else if (ch == '&') {
+				out.append("&amp;");
+			} else {
+				out.append(ch);
+			}
+		}
+	}
+
 	/** @return a unique, descriptive name for this event type, used to identify event types in files. */
 	abstract public String getEventType();
 
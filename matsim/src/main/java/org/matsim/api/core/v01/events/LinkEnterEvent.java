@@ -76,4 +76,17 @@ public class LinkEnterEvent extends Event implements HasLinkId {
 		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
 		return attr;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != LinkEnterEvent.class) {
+			// subclasses may write other attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_VEHICLE, this.vehicleId);
+		writeXMLAttribute(out, ATTRIBUTE_LINK, this.linkId);
+		writeXMLEnd(out);
+	}
 }
@@ -66,4 +66,17 @@ public class PersonEntersVehicleEvent extends Event implements HasPersonId {
 		attrs.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
 		return attrs;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != PersonEntersVehicleEvent.class) {
+			// subclasses may write other attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_PERSON, this.personId);
+		writeXMLAttribute(out, ATTRIBUTE_VEHICLE, this.vehicleId);
+		writeXMLEnd(out);
+	}
 }
\ No newline at end of file
@@ -97,4 +97,24 @@ public class VehicleLeavesTrafficEvent extends Event implements HasPersonId, Has
 
 		return attr;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != VehicleLeavesTrafficEvent.class) {
+			// subclasses may write other attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_DRIVER, this.driverId);
+		writeXMLAttribute(out, ATTRIBUTE_LINK, this.linkId);
+		if (this.vehicleId != null) {
+			writeXMLAttribute(out, ATTRIBUTE_VEHICLE, this.vehicleId);
+		}
+		if (this.networkMode != null) {
+			writeXMLAttribute(out, ATTRIBUTE_NETWORKMODE, this.networkMode);
+		}
+		writeXMLAttribute(out, ATTRIBUTE_POSITION, this.relativePositionOnLink);
+		writeXMLEnd(out);
+	}
 }
\ No newline at end of file
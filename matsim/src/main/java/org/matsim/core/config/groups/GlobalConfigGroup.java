@@ -40,10 +40,14 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String PARALLEL_READING = "parallelReading";
+	private static final String REUSING_REPLANNING_ALGORITHMS = "reusingReplanningAlgorithms";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis" ;
+	private boolean parallelReading = false;
+	private boolean reusingReplanningAlgorithms = false;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	
 	@Override
@@ -52,6 +56,13 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(PARALLEL_READING, "If true, population (v5 and v6), network (v2) and facilities files are read with the \"global\" number of threads.  "
+				+ "Persons, nodes, links and facilities get the same id indices as when read sequentially, but other ids created while reading, "
+				+ "e.g. of vehicles in routes, may get different ones, so the order of maps keyed by these ids may differ between runs.  Default: false.") ;
+		map.put(REUSING_REPLANNING_ALGORITHMS, "If true, the ReRoute and TimeAllocationMutator modules keep their plan algorithms, with their trip routers "
+				+ "and the caches of these, from one iteration to the next instead of creating them anew in every iteration.  Only set this if "
+				+ "the travel disutilities and routing modules do not change between iterations, e.g. no tolls or other bindings "
+				+ "which are created per iteration.  Default: false.") ;
 		return map ;
 	}
 
@@ -85,6 +96,31 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 	
+	@StringGetter( PARALLEL_READING )
+	public boolean isParallelReading() {
+		return this.parallelReading;
+	}
+	@StringSetter( PARALLEL_READING )
+	public void setParallelReading(final boolean parallelReading) {
+		this.parallelReading = parallelReading;
+	}
+
+	@StringGetter( REUSING_REPLANNING_ALGORITHMS )
+	public boolean isReusingReplanningAlgorithms() {
+		return this.reusingReplanningAlgorithms;
+	}
+	@StringSetter( REUSING_REPLANNING_ALGORITHMS )
+	public void setReusingReplanningAlgorithms(final boolean reusingReplanningAlgorithms) {
+		this.reusingReplanningAlgorithms = reusingReplanningAlgorithms;
+	}
+
+	/**
+	 * @return the number of threads for reading input files, i.e. 1 unless {@link #isParallelReading()}
+	 */
+	public int getNumberOfReadingThreads() {
+		return this.parallelReading ? this.numberOfThreads : 1;
+	}
+	
 	private static final String INSITING_ON_DEPRECATED_CONFIG_VERSION = "insistingOnDeprecatedConfigVersion" ;
 	@StringGetter( INSITING_ON_DEPRECATED_CONFIG_VERSION )
 	public final boolean isInsistingOnDeprecatedConfigVersion() { return this.insistingOnDeprecatedConfigVersion ; }
@@ -87,6 +87,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(PACKING_NON_SELECTED_PLANS, "If true, the plans of a person that are not selected are kept in memory in a packed " +
+				"form and unpacked when they are used, which needs less memory for populations with several plans per person. " +
+				"default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -178,6 +182,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+	// ---
+
+	private static final String PACKING_NON_SELECTED_PLANS = "packingNonSelectedPlans";
+	private boolean packingNonSelectedPlans = false;
+	@StringGetter(PACKING_NON_SELECTED_PLANS)
+	public boolean isPackingNonSelectedPlans() {
+		return this.packingNonSelectedPlans;
+	}
+	@StringSetter(PACKING_NON_SELECTED_PLANS)
+	public void setPackingNonSelectedPlans(final boolean packingNonSelectedPlans) {
+		this.packingNonSelectedPlans = packingNonSelectedPlans;
+	}
+
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
 		return inputCRS;
@@ -261,6 +261,17 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(NETSIM_PARTITIONING, "How the nodes and links of the network are assigned to the runners of the netsim engine "
+				+ "when numberOfThreads > 1.  " + NetsimPartitioning.roundRobin + ": one node after the other (default).  "
+				+ NetsimPartitioning.coordinateBisection + ": contiguous areas of similar total flow capacity, found by recursive "
+				+ "coordinate bisection, so fewer links connect nodes of different runners.") ;
+		map.put(NETSIM_SCHEDULING, "How the runners of the netsim engine share the work of a time step when numberOfThreads > 1.  "
+				+ NetsimScheduling.fixedAssignment + ": every runner moves the nodes and links assigned to it (default).  "
+				+ NetsimScheduling.workStealing + ": runners that are done with their own active nodes or links take over chunks "
+				+ "of the others.  Uses its own threads, i.e. ignores " + USING_THREADPOOL + ".") ;
+		map.put(SKIPPING_IDLE_TIME_STEPS, "If true, the qsim jumps over the time steps in which no engine has anything to do, e.g. at night. "
+				+ "Only done if all engines and time step listeners can tell when they next have something to do, otherwise the qsim "
+				+ "simulates every time step, as by default.  The results are the same.") ;
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -525,6 +536,42 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	// ---
+	public enum NetsimPartitioning { roundRobin, coordinateBisection }
+	private static final String NETSIM_PARTITIONING = "netsimPartitioning" ;
+	private NetsimPartitioning netsimPartitioning = NetsimPartitioning.roundRobin ;
+	@StringGetter(NETSIM_PARTITIONING)
+	public NetsimPartitioning getNetsimPartitioning() {
+		return this.netsimPartitioning ;
+	}
+	@StringSetter(NETSIM_PARTITIONING)
+	public void setNetsimPartitioning( NetsimPartitioning val ) {
+		this.netsimPartitioning = val ;
+	}
+
+	public enum NetsimScheduling { fixedAssignment, workStealing }
+	private static final String NETSIM_SCHEDULING = "netsimScheduling" ;
+	private NetsimScheduling netsimScheduling = NetsimScheduling.fixedAssignment ;
+	@StringGetter(NETSIM_SCHEDULING)
+	public NetsimScheduling getNetsimScheduling() {
+		return this.netsimScheduling ;
+	}
+	@StringSetter(NETSIM_SCHEDULING)
+	public void setNetsimScheduling( NetsimScheduling val ) {
+		this.netsimScheduling = val ;
+	}
+
+	private static final String SKIPPING_IDLE_TIME_STEPS = "skippingIdleTimeSteps" ;
+	private boolean skippingIdleTimeSteps = false ;
+	@StringGetter(SKIPPING_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps ;
+	}
+	@StringSetter(SKIPPING_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps( boolean val ) {
+		this.skippingIdleTimeSteps = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
@@ -262,6 +262,9 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		Map<String,String> map = super.getComments();
 		map.put(ReflectiveDelegate.ITERATION_FRACTION_TO_DISABLE_INNOVATION, "fraction of iterations where innovative strategies are switched off.  Something like 0.8 should be good.  E.g. if you run from iteration 400 to iteration 500, innovation is switched off at iteration 480" ) ;
 		map.put(ReflectiveDelegate.MAX_AGENT_PLAN_MEMORY_SIZE, "maximum number of plans per agent.  ``0'' means ``infinity''.  Currently (2010), ``5'' is a good number");
+		map.put(ReflectiveDelegate.NUMBER_OF_REPLANNING_THREADS, "number of threads the plans are removed, the strategies chosen and the plans selected with. "
+				+ "With 0, the persons are handled one after the other, drawing from the global random number generator. With 1 or more, "
+				+ "every person draws from random numbers seeded for the person, so the result is the same for any number of threads.");
 
 		StringBuilder strb = new StringBuilder() ;
 		for ( DefaultPlansRemover name : DefaultPlansRemover.values() ) {
@@ -389,6 +392,14 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		delegate.setFractionOfIterationsToDisableInnovation(fraction);
 	}
 
+	public int getNumberOfReplanningThreads() {
+		return delegate.getNumberOfReplanningThreads();
+	}
+
+	public void setNumberOfReplanningThreads(int numberOfReplanningThreads) {
+		delegate.setNumberOfReplanningThreads(numberOfReplanningThreads);
+	}
+
 	@Override
 	public final Map<String, String> getParams() {
 		return delegate.getParams();
@@ -401,6 +412,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String NUMBER_OF_REPLANNING_THREADS = "numberOfReplanningThreads" ;
 
 		private int maxAgentPlanMemorySize = 5;
 		private String externalExeConfigTemplate = null;
@@ -408,6 +420,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		private long externalExeTimeOut = 3600;
 
 		private String planSelectorForRemoval = "WorstPlanSelector";
+
+		private int numberOfReplanningThreads = 0;
 		
 		//---
 		private double fraction = Double.POSITIVE_INFINITY ;
@@ -477,6 +491,19 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		public void setFractionOfIterationsToDisableInnovation(double fraction) {
 			this.fraction = fraction;
 		}
+
+		@StringGetter( NUMBER_OF_REPLANNING_THREADS )
+		public int getNumberOfReplanningThreads() {
+			return numberOfReplanningThreads;
+		}
+
+		@StringSetter( NUMBER_OF_REPLANNING_THREADS )
+		public void setNumberOfReplanningThreads(int numberOfReplanningThreads) {
+			if (numberOfReplanningThreads < 0) {
+				throw new IllegalArgumentException(NUMBER_OF_REPLANNING_THREADS + " must not be negative, but is " + numberOfReplanningThreads);
+			}
+			this.numberOfReplanningThreads = numberOfReplanningThreads;
+		}
 	}
 }
 
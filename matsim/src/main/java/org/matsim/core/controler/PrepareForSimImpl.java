@@ -13,7 +13,7 @@ import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.AbstractPersonAlgorithm;
 import org.matsim.core.population.algorithms.ParallelPersonAlgorithmUtils;
 import org.matsim.core.population.algorithms.PersonPrepareForSim;
@@ -31,7 +31,6 @@ import org.matsim.vehicles.VehiclesFactory;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 
 public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim {
@@ -73,20 +72,17 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 	@Override
 	public void run() {
 		/*
-		 * Create single-mode network here and hand it over to PersonPrepareForSim. Otherwise, each instance would create its
-		 * own single-mode network. However, this assumes that the main mode is car - which PersonPrepareForSim also does. Should
-		 * be probably adapted in a way that other main modes are possible as well. cdobler, oct'15.
+		 * The links of activities and facilities are car links, which PersonPrepareForSim also assumes. Should be probably
+		 * adapted in a way that other main modes are possible as well. cdobler, oct'15.
+		 * On a multimodal network, the car links are looked up directly in the network instead of creating a car-only
+		 * copy of it first.
 		 */
-		final Network carOnlyNetwork;
+		final String xy2linksMode;
 		if (NetworkUtils.isMultimodal(network)) {
-			log.info("Network seems to be multimodal. Create car-only network which is handed over to PersonPrepareForSim.");
-			TransportModeNetworkFilter filter = new TransportModeNetworkFilter(network);
-			carOnlyNetwork = NetworkUtils.createNetwork();
-			HashSet<String> modes = new HashSet<>();
-			modes.add(TransportMode.car);
-			filter.filter(carOnlyNetwork, modes);
+			log.info("Network seems to be multimodal. Only car links are assigned to activities and facilities.");
+			xy2linksMode = TransportMode.car;
 		} else {
-			carOnlyNetwork = network;
+			xy2linksMode = null;
 		}
 
 		//matsim-724
@@ -121,7 +117,7 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 
 		// get links for facilities
 		// using car only network to get the links for facilities. Amit July'18
-		XY2LinksForFacilities.run(carOnlyNetwork, this.activityFacilities);
+		XY2LinksForFacilities.run(network, this.activityFacilities, xy2linksMode);
 
 		// make sure all routes are calculated.
 		// At least xy2links is needed here, i.e. earlier than PrepareForMobsimImpl.  It could, however, presumably be separated out
@@ -130,10 +126,12 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 				new ParallelPersonAlgorithmUtils.PersonAlgorithmProvider() {
 					@Override
 					public AbstractPersonAlgorithm getPersonAlgorithm() {
-						return new PersonPrepareForSim(new PlanRouter(tripRouterProvider.get(), activityFacilities), scenario, carOnlyNetwork);
+						return new PersonPrepareForSim(new PlanRouter(tripRouterProvider.get(), activityFacilities), scenario);
 					}
 				}
 		);
+		// (PersonPrepareForSim unpacks all plans of a packed population)
+		PopulationUtils.packPlans(population);
 
 		// yyyy from a behavioral perspective, the vehicle must be somehow linked to
 		// the person (maybe via the household).    kai, feb'18
@@ -37,6 +37,13 @@ public class XY2LinksForFacilities {
     public static final Logger LOGGER = Logger.getLogger(XY2LinksForFacilities.class);
 
     public static void run(Network network, ActivityFacilities facilities){
+        run(network, facilities, null);
+    }
+
+    /**
+     * @param mode the mode the assigned links must allow, <code>null</code> for any link
+     */
+    public static void run(Network network, ActivityFacilities facilities, String mode){
 
         int coordNullWarn = 0;
         int linkNullWarn = 0;
@@ -51,7 +58,7 @@ public class XY2LinksForFacilities {
                     LOGGER.warn(Gbl.ONLYONCE);
                     linkNullWarn++;
                 }
-                Link link = NetworkUtils.getNearestLink(network, activityFacility.getCoord());
+                Link link = NetworkUtils.getNearestLink(network, activityFacility.getCoord(), mode);
                 if (link==null) {
                     LOGGER.warn("No nearest link is found for coord "+activityFacility.getCoord());
                 } else{
@@ -31,6 +31,7 @@ import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.population.PopulationUtils;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -91,6 +92,8 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION));
 			}
 			log.info("finished plans dump.");
+			// writing the plans of a packed population unpacked them
+			PopulationUtils.packPlans(population);
 			stopwatch.endOperation("dump all plans");
 		}
 	}
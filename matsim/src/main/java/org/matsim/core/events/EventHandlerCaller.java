@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventHandlerCaller.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Calls the <code>handleEvent</code> method of an event handler interface without reflection.
+ * <p></p>
+ * Callers are created once per <code>handleEvent</code> method with {@link #forMethod(Method)}
+ * when a handler is registered, and are shared by all events managers. Whenever possible, the caller
+ * is generated with the {@link LambdaMetafactory}, so calling it is as fast as the hand-written
+ * <code>((XYEventHandler) handler).handleEvent((XYEvent) event)</code>, for core and contrib events alike.
+ * Handler interfaces that are not public or not visible from the class loader of MATSim get
+ * a caller based on a {@link MethodHandle} instead, which wraps exceptions thrown by the handler
+ * into a {@link RuntimeException}, as the former reflective calls did.
+ */
+/*package*/ interface EventHandlerCaller {
+
+	void callHandler(EventHandler handler, Event event);
+
+	/**
+	 * @param handleEventMethod a <code>handleEvent</code> method with exactly one parameter
+	 * @return a caller for this method, possibly cached from an earlier call
+	 */
+	static EventHandlerCaller forMethod(final Method handleEventMethod) {
+		return Factory.CACHE.computeIfAbsent(handleEventMethod, Factory::create);
+	}
+
+	final class Factory {
+
+		private static final Logger log = Logger.getLogger(EventHandlerCaller.class);
+
+		private static final Map<Method, EventHandlerCaller> CACHE = new ConcurrentHashMap<>();
+
+		private static final MethodType CALLER_TYPE = MethodType.methodType(void.class, EventHandler.class, Event.class);
+
+		private Factory() {
+		}
+
+		private static EventHandlerCaller create(final Method method) {
+			Class<?> handlerInterface = method.getDeclaringClass();
+			Class<?> eventClass = method.getParameterTypes()[0];
+			if (EventHandler.class.isAssignableFrom(handlerInterface) && Event.class.isAssignableFrom(eventClass)
+					&& isPubliclyVisible(handlerInterface) && isPubliclyVisible(eventClass)) {
+				try {
+					return createLambda(method);
+				} catch (Throwable e) {
+					log.warn("could not generate a caller for " + method + ", falling back to method handles.", e);
+				}
+			}
+			return createMethodHandleCaller(method);
+		}
+
+		private static EventHandlerCaller createLambda(final Method method) throws Throwable {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "callHandler",
+					MethodType.methodType(EventHandlerCaller.class), CALLER_TYPE, target, target.type());
+			return (EventHandlerCaller) site.getTarget().invokeExact();
+		}
+
+		private static EventHandlerCaller createMethodHandleCaller(final Method method) {
+			final MethodHandle target;
+			try {
+				method.setAccessible(true);
+				target = MethodHandles.lookup().unreflect(method).asType(CALLER_TYPE);
+			} catch (IllegalAccessException | RuntimeException e) {
+				throw new RuntimeException("problem accessing " + method + " of EventHandler " + method.getDeclaringClass().getCanonicalName(), e);
+			}
+			// exceptions are wrapped like Method.invoke() did before, so the handler shows up in the message
+			return (handler, event) -> {
+				try {
+					target.invokeExact(handler, event);
+				} catch (Throwable e) {
+					throw new RuntimeException("problem invoking EventHandler " + handler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
+				}
+			};
+		}
+
+		/**
+		 * The generated lambda classes are defined in the class loader of this class and call the handler
+		 * interface directly, so the interface and the event class must be public and visible from here.
+		 */
+		private static boolean isPubliclyVisible(final Class<?> klass) {
+			for (Class<?> c = klass; c != null; c = c.getEnclosingClass()) {
+				if (!Modifier.isPublic(c.getModifiers())) {
+					return false;
+				}
+			}
+			try {
+				return Class.forName(klass.getName(), false, EventHandlerCaller.class.getClassLoader()) == klass;
+			} catch (ClassNotFoundException | LinkageError e) {
+				return false;
+			}
+		}
+	}
+
+}
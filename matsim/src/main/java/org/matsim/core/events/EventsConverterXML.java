@@ -36,6 +36,9 @@ import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.matsim.vehicles.Vehicle;
 import org.xml.sax.Attributes;
@@ -48,6 +51,9 @@ import org.xml.sax.Attributes;
  * 
  * Additionally, this class adds VehicleLeavesTrafficEvents if they are not existing.
  * 
+ * Events files can also be converted between xml and the binary format of {@link EventWriterBinary}, see
+ * {@link #convertXmlToBinary(String, String)} and {@link #convertBinaryToXml(String, String)}.
+ * 
  * @author tthunig
  *
  */
@@ -69,6 +75,44 @@ public final class EventsConverterXML extends MatsimXmlParser{
 	}
 
 
+	/**
+	 * Writes the events of an xml events file, completed like described above, into a binary events file.
+	 */
+	public static void convertXmlToBinary(final String xmlFilename, final String binaryFilename) {
+		EventWriter writer = new EventWriterBinary(binaryFilename);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(writer);
+		new EventsConverterXML(events).readFile(xmlFilename);
+		writer.closeFile();
+	}
+
+	/**
+	 * Writes the events of a binary events file into an xml events file.
+	 */
+	public static void convertBinaryToXml(final String binaryFilename, final String xmlFilename) {
+		EventWriter writer = new EventWriterXML(xmlFilename);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(writer);
+		new EventsReaderBinary(events).readFile(binaryFilename);
+		writer.closeFile();
+	}
+
+	/**
+	 * Converts the events file given as first argument into the file given as second argument. Files ending
+	 * with <code>.bin</code> are converted to xml, all other files to the binary format.
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: EventsConverterXML inputEventsFile outputEventsFile");
+			System.exit(1);
+		}
+		if (args[0].endsWith(".bin")) {
+			convertBinaryToXml(args[0], args[1]);
+		} else {
+			convertXmlToBinary(args[0], args[1]);
+		}
+	}
+
 	@Override
 	public void startTag(String name, Attributes atts, Stack<String> context) {
 		if ( EVENT.equals(name)) {
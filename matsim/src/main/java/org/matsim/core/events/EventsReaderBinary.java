@@ -0,0 +1,356 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}.
+ * <p></p>
+ * Files are memory-mapped. The blocks of the file are decompressed and decoded by several threads, while
+ * the calling thread creates the events block by block, in the order of the file, and passes them to the
+ * events manager. The events are created like in the {@link EventsReaderXMLv1}, so both readers produce
+ * the same events, including the ones created by custom event mappers.
+ *
+ * @see MatsimEventsReader
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private final static Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	/** the size of the regions of the file that are mapped into memory at once */
+	private static final long MAPPED_REGION_SIZE = 1L << 28;
+
+	private static final int HEADER_SIZE = EventWriterBinary.MAGIC.length() + 4;
+
+	private final EventsReaderXMLv1 eventFactory;
+	private final int numberOfThreads;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this(events, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads decoding blocks, in addition to the calling thread
+	 */
+	public EventsReaderBinary(final EventsManager events, final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.eventFactory = new EventsReaderXMLv1(events);
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper mapper) {
+		this.eventFactory.addCustomEventMapper(eventType, mapper);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			read(new MappedFile(channel), channel.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Files are read with {@link #readFile(String)}, other urls are read into memory completely before the
+	 * events are parsed.
+	 */
+	@Override
+	public void readURL(final URL url) {
+		if ("file".equals(url.getProtocol())) {
+			try {
+				readFile(Paths.get(url.toURI()).toString());
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException(e);
+			}
+			return;
+		}
+		try (InputStream stream = url.openStream()) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1 << 16];
+			int length;
+			while ((length = stream.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, length);
+			}
+			ByteBuffer content = ByteBuffer.wrap(bytes.toByteArray());
+			read((position, size) -> {
+				ByteBuffer region = content.duplicate();
+				region.position((int) position);
+				region.limit((int) (position + size));
+				return region.slice();
+			}, content.capacity());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void read(final Source source, final long size) {
+		if (size < HEADER_SIZE) {
+			throw new IllegalArgumentException("Not a binary events file, it is too short.");
+		}
+		ByteBuffer header = source.get(0, HEADER_SIZE);
+		byte[] magic = new byte[EventWriterBinary.MAGIC.length()];
+		header.get(magic);
+		if (!EventWriterBinary.MAGIC.equals(new String(magic, StandardCharsets.US_ASCII))) {
+			throw new IllegalArgumentException("Not a binary events file.");
+		}
+		int version = header.getInt();
+		if (version != EventWriterBinary.VERSION) {
+			throw new IllegalArgumentException("Unsupported version " + version + " of binary events file.");
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+			Thread thread = new Thread(runnable, "EventsReaderBinary");
+			thread.setDaemon(true);
+			return thread;
+		});
+		Deque<Future<DecodedBlock>> blocks = new ArrayDeque<>();
+		Dictionary dictionary = new Dictionary();
+		long position = HEADER_SIZE;
+		boolean endOfFile = false;
+		try {
+			while (true) {
+				// keep the decoding threads busy while the events of the oldest block are created
+				while (!endOfFile && blocks.size() < 2 * this.numberOfThreads) {
+					if (position + 8 > size) {
+						log.warn("The binary events file ends without end marker, it is probably incomplete.");
+						endOfFile = true;
+						break;
+					}
+					ByteBuffer blockHeader = source.get(position, 8);
+					int rawLength = blockHeader.getInt();
+					int compressedLength = blockHeader.getInt();
+					position += 8;
+					if (rawLength == 0) {
+						endOfFile = true;
+						break;
+					}
+					if (position + compressedLength > size) {
+						log.warn("The binary events file ends within a block, it is probably incomplete.");
+						endOfFile = true;
+						break;
+					}
+					ByteBuffer compressed = source.get(position, compressedLength);
+					position += compressedLength;
+					blocks.add(executor.submit(() -> decode(compressed, rawLength)));
+				}
+				if (blocks.isEmpty()) {
+					break;
+				}
+				processEvents(blocks.poll().get(), dictionary);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("problem decoding binary events file", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static DecodedBlock decode(final ByteBuffer compressed, final int rawLength) {
+		LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+		byte[] raw = new byte[rawLength];
+		decompressor.decompress(compressed, 0, ByteBuffer.wrap(raw), 0, rawLength);
+		Cursor cursor = new Cursor(raw);
+
+		DecodedBlock block = new DecodedBlock();
+		block.newStrings = new String[cursor.readVarInt()];
+		for (int i = 0; i < block.newStrings.length; i++) {
+			block.newStrings[i] = cursor.readString();
+		}
+		int numberOfEvents = cursor.readVarInt();
+		block.times = new double[numberOfEvents];
+		for (int i = 0; i < numberOfEvents; i++) {
+			block.times[i] = cursor.readDouble();
+		}
+		block.types = cursor.readVarInts(numberOfEvents);
+		block.attributeCounts = cursor.readVarInts(numberOfEvents);
+		int numberOfAttributes = 0;
+		for (int count : block.attributeCounts) {
+			numberOfAttributes += count;
+		}
+		block.keys = cursor.readVarInts(numberOfAttributes);
+		block.values = cursor.readVarInts(numberOfAttributes);
+		int numberOfLiterals = 0;
+		for (int value : block.values) {
+			numberOfLiterals += value & 1;
+		}
+		block.literals = new String[numberOfLiterals];
+		for (int i = 0; i < numberOfLiterals; i++) {
+			block.literals[i] = cursor.readString();
+		}
+		return block;
+	}
+
+	private void processEvents(final DecodedBlock block, final Dictionary dictionary) {
+		dictionary.addAll(block.newStrings);
+		String[] strings = dictionary.strings;
+		AttributesImpl atts = new AttributesImpl();
+		int attribute = 0;
+		int literal = 0;
+		for (int event = 0; event < block.times.length; event++) {
+			atts.clear();
+			for (int end = attribute + block.attributeCounts[event]; attribute < end; attribute++) {
+				String key = strings[block.keys[attribute]];
+				int value = block.values[attribute];
+				atts.addAttribute("", key, key, "CDATA", (value & 1) == 0 ? strings[value >>> 1] : block.literals[literal++]);
+			}
+			this.eventFactory.startEvent(block.times[event], strings[block.types[event]], atts);
+		}
+	}
+
+	private interface Source {
+		/** @return the bytes of the file in <code>[position, position + length)</code>, with position 0 of the buffer at <code>position</code> */
+		ByteBuffer get(long position, int length);
+	}
+
+	/**
+	 * Maps the file region by region, since a single mapping cannot be larger than 2GB.
+	 */
+	private static final class MappedFile implements Source {
+		private final FileChannel channel;
+		private ByteBuffer region = null;
+		private long regionStart = 0;
+
+		MappedFile(final FileChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public ByteBuffer get(final long position, final int length) {
+			if (this.region == null || position < this.regionStart || position + length > this.regionStart + this.region.capacity()) {
+				try {
+					long regionSize = Math.max(length, Math.min(MAPPED_REGION_SIZE, this.channel.size() - position));
+					this.region = this.channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+					this.regionStart = position;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			ByteBuffer buffer = this.region.duplicate();
+			int offset = (int) (position - this.regionStart);
+			buffer.position(offset);
+			buffer.limit(offset + length);
+			return buffer.slice();
+		}
+	}
+
+	private static final class DecodedBlock {
+		String[] newStrings;
+		double[] times;
+		int[] types;
+		int[] attributeCounts;
+		int[] keys;
+		/** even values are dictionary indices shifted by one bit, odd values refer to the next literal */
+		int[] values;
+		String[] literals;
+	}
+
+	private static final class Dictionary {
+		private String[] strings = new String[1024];
+		private int size = 0;
+
+		void addAll(final String[] newStrings) {
+			if (this.size + newStrings.length > this.strings.length) {
+				this.strings = Arrays.copyOf(this.strings, Math.max(this.size + newStrings.length, this.strings.length * 2));
+			}
+			System.arraycopy(newStrings, 0, this.strings, this.size, newStrings.length);
+			this.size += newStrings.length;
+		}
+	}
+
+	private static final class Cursor {
+		private final byte[] bytes;
+		private int position = 0;
+
+		Cursor(final byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.bytes[this.position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		int[] readVarInts(final int count) {
+			int[] values = new int[count];
+			for (int i = 0; i < count; i++) {
+				values[i] = readVarInt();
+			}
+			return values;
+		}
+
+		double readDouble() {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits = (bits << 8) | (this.bytes[this.position++] & 0xFF);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+
+		String readString() {
+			int length = readVarInt();
+			String string = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return string;
+		}
+	}
+
+}
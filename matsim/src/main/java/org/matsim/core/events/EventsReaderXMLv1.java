@@ -103,7 +103,15 @@ public final class EventsReaderXMLv1 extends MatsimXmlEventsParser {
 	private void startEvent(final Attributes atts) {
 		double time = Double.parseDouble(atts.getValue("time"));
 		String eventType = atts.getValue("type");
+		startEvent(time, eventType, atts);
+	}
 
+	/**
+	 * Creates the event from its attributes and passes it to the events manager. <code>atts</code> need not contain
+	 * the time and type of the event, which allows other readers, e.g. the {@link EventsReaderBinary}, to create
+	 * events the same way.
+	 */
+	/*package*/ void startEvent(final double time, final String eventType, final Attributes atts) {
 		// === material related to wait2link below here ===
 		if (LinkLeaveEvent.EVENT_TYPE.equals(eventType)) {
 			this.events.processEvent(new LinkLeaveEvent(time, 
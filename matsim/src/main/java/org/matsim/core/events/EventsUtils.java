@@ -20,13 +20,15 @@ public class EventsUtils {
     }
 
     /**
-     * The SimStepParallelEventsManagerImpl can handle events from multiple threads.
+     * The SimStepParallelEventsManagerImpl and the RingBufferParallelEventsManagerImpl can handle events from multiple threads.
      * The (Parallel)EventsMangerImpl cannot, therefore it has to be wrapped into a
      * SynchronizedEventsManagerImpl.
      */
     public static EventsManager getParallelFeedableInstance(EventsManager events) {
     	if (events instanceof SimStepParallelEventsManagerImpl) {
     		return events;
+    	} else if (events instanceof RingBufferParallelEventsManagerImpl) {
+    		return events;
     	} else if (events instanceof ParallelEventsManager) {
     		return events;
     	}
@@ -0,0 +1,423 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferParallelEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * An EventsManager that handles all occurring Events in separate Threads, like
+ * {@link SimStepParallelEventsManagerImpl}, but without any locks or per-event allocations
+ * on the way from the simulation to the handlers.
+ * <p></p>
+ * All events are written into a single ring buffer. Each processing thread follows the
+ * buffer with its own sequence and handles all events that have been published since
+ * it last looked, as one batch. Producers only wait if the buffer is full, i.e. if the slowest
+ * processing thread is a whole buffer behind. Producers claim their slots with an atomic
+ * increment, so events may still be created by several threads at once, e.g. by the
+ * threads of the QNetsimEngine.
+ * <p></p>
+ * Events created by event handlers are not written into the ring buffer, as a processing thread
+ * waiting for free slots might wait for itself. They are appended to an unbounded linked list
+ * instead, which the processing threads follow whenever the ring buffer is empty.
+ * <p></p>
+ * If <code>synchronizeOnSimSteps</code> is set, {@link #afterSimStep(double)} waits
+ * until all events created so far, including events created by event handlers while
+ * processing them, have been handled.
+ *
+ * @see SimStepParallelEventsManagerImpl
+ */
+public final class RingBufferParallelEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferParallelEventsManagerImpl.class);
+
+	/*package*/ static final int DEFAULT_BUFFER_SIZE = 65536;
+
+	private final int numOfThreads;
+	private final boolean syncOnTimeSteps;
+	private final int bufferSize;
+	private final int indexMask;
+
+	private final EventsManagerImpl delegate;
+	private final EventsManagerImpl[] eventsManagers;
+	private int handlerCount = 0;
+
+	private final Event[] buffer;
+	/** the sequence number stored in a slot once the event in it is visible to the processing threads */
+	private final AtomicLongArray published;
+	/** the next sequence number to be claimed by a producer */
+	private final AtomicLong claimSequence = new AtomicLong(0);
+	/** the minimum of the processing threads' sequences, as last seen by a producer */
+	private volatile long cachedGatingSequence = -1;
+
+	/** last node of the list of events created by the processing threads */
+	private final AtomicReference<Node> handlerEventsTail = new AtomicReference<>(new Node(null));
+	private final AtomicLong handlerEventsCount = new AtomicLong(0);
+
+	private ProcessEventsRunnable[] runnables;
+	private Thread[] threads;
+	private volatile boolean running = false;
+	private boolean parallelMode = false;
+
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	@Inject
+	RingBufferParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1,
+				config.getSynchronizeOnSimSteps() != null ? config.getSynchronizeOnSimSteps() : true);
+	}
+
+	public RingBufferParallelEventsManagerImpl(final int numOfThreads) {
+		this(numOfThreads, true);
+	}
+
+	public RingBufferParallelEventsManagerImpl(final int numOfThreads, final boolean syncOnTimeSteps) {
+		this(numOfThreads, syncOnTimeSteps, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize number of slots in the ring buffer, must be a power of 2
+	 */
+	public RingBufferParallelEventsManagerImpl(final int numOfThreads, final boolean syncOnTimeSteps, final int bufferSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("numOfThreads must be at least 1, but is " + numOfThreads);
+		}
+		if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+			throw new IllegalArgumentException("bufferSize must be a power of 2, but is " + bufferSize);
+		}
+		log.info("number of threads=" + numOfThreads + ", buffer size=" + bufferSize + ", synchronize on sim steps=" + syncOnTimeSteps);
+		this.numOfThreads = numOfThreads;
+		this.syncOnTimeSteps = syncOnTimeSteps;
+		this.bufferSize = bufferSize;
+		this.indexMask = bufferSize - 1;
+
+		this.buffer = new Event[bufferSize];
+		this.published = new AtomicLongArray(bufferSize);
+		for (int i = 0; i < bufferSize; i++) {
+			this.published.set(i, -1);
+		}
+
+		this.delegate = new EventsManagerImpl();
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (this.parallelMode) {
+			if (isProcessingThread(Thread.currentThread())) {
+				appendHandlerEvent(event);
+			} else publish(event);
+		} else this.delegate.processEvent(event);
+	}
+
+	private boolean isProcessingThread(final Thread thread) {
+		for (Thread t : this.threads) {
+			if (t == thread) return true;
+		}
+		return false;
+	}
+
+	private void appendHandlerEvent(final Event event) {
+		Node node = new Node(event);
+		// count first, so the sim step synchronization waits for the event before it is linked
+		this.handlerEventsCount.incrementAndGet();
+		Node previous = this.handlerEventsTail.getAndSet(node);
+		previous.next = node;
+	}
+
+	private void publish(final Event event) {
+		long sequence = this.claimSequence.getAndIncrement();
+		long wrapPoint = sequence - this.bufferSize;
+		if (wrapPoint > this.cachedGatingSequence) {
+			// the buffer might be full, wait for the slowest processing thread
+			int idleCount = 0;
+			long minSequence;
+			while (wrapPoint > (minSequence = getMinimumSequence())) {
+				idleCount = idle(idleCount);
+			}
+			this.cachedGatingSequence = minSequence;
+		}
+		int index = (int) sequence & this.indexMask;
+		this.buffer[index] = event;
+		// ordered write, makes the event visible to the processing threads reading the published sequence
+		this.published.lazySet(index, sequence);
+	}
+
+	private long getMinimumSequence() {
+		long min = Long.MAX_VALUE;
+		for (ProcessEventsRunnable runnable : this.runnables) {
+			long sequence = runnable.sequence;
+			if (sequence < min) min = sequence;
+		}
+		return min;
+	}
+
+	private long getMinimumHandlerEventsProcessed() {
+		long min = Long.MAX_VALUE;
+		for (ProcessEventsRunnable runnable : this.runnables) {
+			long count = runnable.handlerEventsProcessed;
+			if (count < min) min = count;
+		}
+		return min;
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		this.hadException.set(null);
+		long start = this.claimSequence.get() - 1;
+		this.cachedGatingSequence = start;
+
+		this.running = true;
+		this.runnables = new ProcessEventsRunnable[this.numOfThreads];
+		this.threads = new Thread[this.numOfThreads];
+		Node handlerEventsHead = this.handlerEventsTail.get();
+		long handlerEventsStart = this.handlerEventsCount.get();
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.runnables[i] = new ProcessEventsRunnable(this.eventsManagers[i], start, handlerEventsHead, handlerEventsStart);
+		}
+		for (int i = 0; i < this.numOfThreads; i++) {
+			Thread thread = new Thread(this.runnables[i]);
+			thread.setDaemon(true);
+			thread.setName(ProcessEventsRunnable.class.toString() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+
+		/*
+		 * During the simulation Events are processed in
+		 * the EventsProcessingThreads.
+		 */
+		this.parallelMode = true;
+	}
+
+	/*
+	 * In some chases Events are created after this method has been called.
+	 * To ensure that they are processed in real time, we process them not
+	 * in the parallel thread. To do so, we replace the parallel events manager
+	 * with its EventsManager instance.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.parallelMode) {
+			awaitAllEventsProcessed();
+			this.running = false;
+			for (Thread thread : this.threads) {
+				LockSupport.unpark(thread);
+			}
+			for (Thread thread : this.threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					this.hadException.compareAndSet(null, e);
+				}
+			}
+			// do not keep the events of the last iteration alive
+			Arrays.fill(this.buffer, null);
+			this.handlerEventsTail.set(new Node(null));
+		}
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+
+		/*
+		 * After the simulation Events are processed in
+		 * the Main Thread.
+		 */
+		this.parallelMode = false;
+		this.runnables = null;
+		this.threads = null;
+
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		/*
+		 * If an exception occurred, at least one of the events processing threads
+		 * has crashed. The exception is reported in finishProcessing().
+		 */
+		if (this.syncOnTimeSteps && this.parallelMode && this.hadException.get() == null) {
+			awaitAllEventsProcessed();
+		}
+	}
+
+	/**
+	 * Waits until all processing threads have handled all events created so far. Event handlers
+	 * might create additional events while processing one. Such events are counted before the processing
+	 * thread moves on past the event that caused them, so they are caught by checking the counters
+	 * again once all threads have caught up.
+	 */
+	private void awaitAllEventsProcessed() {
+		long lastClaimed;
+		long handlerEvents;
+		do {
+			lastClaimed = this.claimSequence.get() - 1;
+			handlerEvents = this.handlerEventsCount.get();
+			int idleCount = 0;
+			while (getMinimumSequence() < lastClaimed || getMinimumHandlerEventsProcessed() < handlerEvents) {
+				if (this.hadException.get() != null) return;
+				idleCount = idle(idleCount);
+			}
+		} while (this.claimSequence.get() - 1 != lastClaimed || this.handlerEventsCount.get() != handlerEvents);
+	}
+
+	/**
+	 * Spins first, then yields and finally parks the thread for a short time, so threads waiting
+	 * for only a few events react fast while idle processing threads do not block a core.
+	 */
+	private static int idle(final int idleCount) {
+		if (idleCount < 100) {
+			// spin
+		} else if (idleCount < 200) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(1000);
+		}
+		return idleCount + 1;
+	}
+
+	private final class ProcessEventsRunnable implements Runnable {
+
+		private final EventsManager eventsManager;
+		private double lastEventTime = Double.NEGATIVE_INFINITY;
+
+		// padding, so the sequences of different processing threads do not share a cache line
+		@SuppressWarnings("unused")
+		private long p1, p2, p3, p4, p5, p6, p7;
+		/** the sequence of the last event that was handled by this thread */
+		private volatile long sequence;
+		private volatile long handlerEventsProcessed;
+		@SuppressWarnings("unused")
+		private long q1, q2, q3, q4, q5, q6, q7;
+		/** the last event created by an event handler that was handled by this thread */
+		private Node handlerEventsHead;
+
+		ProcessEventsRunnable(final EventsManager eventsManager, final long sequence, final Node handlerEventsHead,
+				final long handlerEventsProcessed) {
+			this.eventsManager = eventsManager;
+			this.sequence = sequence;
+			this.handlerEventsHead = handlerEventsHead;
+			this.handlerEventsProcessed = handlerEventsProcessed;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long next = this.sequence + 1;
+				int idleCount = 0;
+				while (true) {
+					long available = next - 1;
+					while (published.get((int) (available + 1) & indexMask) == available + 1) {
+						available++;
+					}
+					if (available >= next) {
+						for (long s = next; s <= available; s++) {
+							handle(buffer[(int) s & indexMask]);
+						}
+						this.sequence = available;
+						next = available + 1;
+						idleCount = 0;
+					} else if (this.handlerEventsHead.next != null) {
+						Node node;
+						while ((node = this.handlerEventsHead.next) != null) {
+							handle(node.event);
+							this.handlerEventsHead = node;
+							this.handlerEventsProcessed++;
+						}
+						idleCount = 0;
+					} else {
+						if (!running) break;
+						idleCount = idle(idleCount);
+					}
+				}
+			} catch (Throwable e) {
+				hadException.compareAndSet(null, e);
+				log.error("Thread " + Thread.currentThread().getName() + " died with exception while handling events.", e);
+				// do not block the producers and the sim step synchronization any longer
+				this.sequence = Long.MAX_VALUE;
+				this.handlerEventsProcessed = Long.MAX_VALUE;
+				return;
+			}
+			Gbl.printCurrentThreadCpuTime();
+		}
+
+		private void handle(final Event event) {
+			/*
+			 * Check whether the events are ordered chronologically.
+			 */
+			if (syncOnTimeSteps && event.getTime() < this.lastEventTime) {
+				throw new RuntimeException("Events in the queue are not ordered chronologically. " +
+						"This should never happen. Is the RingBufferParallelEventsManagerImpl registered " +
+						"as a MobsimAfterSimStepListener?");
+			} else this.lastEventTime = event.getTime();
+			this.eventsManager.processEvent(event);
+		}
+	}	// ProcessEventsRunnable
+
+	private static final class Node {
+		private final Event event;
+		private volatile Node next = null;
+
+		Node(final Event event) {
+			this.event = event;
+		}
+	}
+
+}
@@ -0,0 +1,270 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * Writes events in a compact binary format, to be read with {@link EventsReaderBinary}.
+ * <p></p>
+ * The file starts with {@link #MAGIC} and the {@link #VERSION} of the format, followed by blocks of
+ * events. Each block is compressed with LZ4 and starts with its uncompressed and compressed length;
+ * a block with length 0 marks the end of the file. Within a block the events are stored column by
+ * column: the times, the event types, the number of attributes of each event, the attribute keys
+ * and the attribute values.
+ * <p></p>
+ * Event types, attribute keys and the values of attributes that repeat, e.g. ids and modes, are
+ * dictionary encoded: each string is written once, in the block where it is used first, and referred
+ * to by its index in the dictionary afterwards. Attributes whose values hardly repeat, e.g.
+ * coordinates or amounts, are written as they are.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final String MAGIC = "MATSIMEB";
+	public static final int VERSION = 1;
+
+	/** each block contains at most this many events */
+	private static final int EVENTS_PER_BLOCK = 16384;
+
+	/** after so many values of an attribute, decide whether its values are worth adding to the dictionary */
+	private static final int DICTIONARY_DECISION_THRESHOLD = 4096;
+
+	private final DataOutputStream out;
+	private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private int dictionarySize = 0;
+
+	/* per attribute key, by the dictionary index of the key */
+	private int[] keyValueCounts = new int[64];
+	private int[] keyNewValueCounts = new int[64];
+	private boolean[] keyWithoutDictionary = new boolean[64];
+
+	private final ByteColumn newStrings = new ByteColumn();
+	private int numberOfNewStrings = 0;
+	private final ByteColumn times = new ByteColumn();
+	private final ByteColumn types = new ByteColumn();
+	private final ByteColumn attributeCounts = new ByteColumn();
+	private final ByteColumn keys = new ByteColumn();
+	private final ByteColumn values = new ByteColumn();
+	private final ByteColumn literals = new ByteColumn();
+	private int numberOfEvents = 0;
+
+	private byte[] rawBlock = new byte[0];
+	private byte[] compressedBlock = new byte[0];
+
+	public EventWriterBinary(final String outfilename) {
+		this(openFile(outfilename));
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		try {
+			this.out.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static OutputStream openFile(final String filename) {
+		// no IOUtils.getOutputStream() here, the blocks are compressed already
+		try {
+			return new FileOutputStream(filename);
+		} catch (FileNotFoundException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.times.writeDouble(event.getTime());
+		this.types.writeVarInt(getDictionaryIndex(event.getEventType()));
+		int attributeCount = 0;
+		for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+			String key = entry.getKey();
+			if (Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key)) {
+				continue;
+			}
+			int keyIndex = getDictionaryIndex(key);
+			this.keys.writeVarInt(keyIndex);
+			// like in the xml events, missing values become "null"
+			writeValue(keyIndex, String.valueOf(entry.getValue()));
+			attributeCount++;
+		}
+		this.attributeCounts.writeVarInt(attributeCount);
+		this.numberOfEvents++;
+		if (this.numberOfEvents == EVENTS_PER_BLOCK) {
+			writeBlock();
+		}
+	}
+
+	private void writeValue(final int keyIndex, final String value) {
+		ensureKeyCapacity(keyIndex);
+		if (this.keyWithoutDictionary[keyIndex]) {
+			// odd values refer to the next literal of the block
+			this.values.writeVarInt(1);
+			this.literals.writeString(value);
+			return;
+		}
+		int sizeBefore = this.dictionarySize;
+		int valueIndex = getDictionaryIndex(value);
+		this.values.writeVarInt(valueIndex << 1);
+		int count = ++this.keyValueCounts[keyIndex];
+		if (this.dictionarySize > sizeBefore) {
+			this.keyNewValueCounts[keyIndex]++;
+		}
+		if (count == DICTIONARY_DECISION_THRESHOLD && this.keyNewValueCounts[keyIndex] > count / 2) {
+			// most values were new, so the dictionary would only grow
+			this.keyWithoutDictionary[keyIndex] = true;
+		}
+	}
+
+	private int getDictionaryIndex(final String string) {
+		Integer index = this.dictionary.get(string);
+		if (index == null) {
+			index = this.dictionarySize++;
+			this.dictionary.put(string, index);
+			this.newStrings.writeString(string);
+			this.numberOfNewStrings++;
+		}
+		return index;
+	}
+
+	private void ensureKeyCapacity(final int keyIndex) {
+		if (keyIndex >= this.keyValueCounts.length) {
+			int newLength = Math.max(keyIndex + 1, this.keyValueCounts.length * 2);
+			this.keyValueCounts = Arrays.copyOf(this.keyValueCounts, newLength);
+			this.keyNewValueCounts = Arrays.copyOf(this.keyNewValueCounts, newLength);
+			this.keyWithoutDictionary = Arrays.copyOf(this.keyWithoutDictionary, newLength);
+		}
+	}
+
+	private void writeBlock() {
+		if (this.numberOfEvents == 0) {
+			return;
+		}
+		ByteColumn header = new ByteColumn();
+		header.writeVarInt(this.numberOfNewStrings);
+		ByteColumn eventCount = new ByteColumn();
+		eventCount.writeVarInt(this.numberOfEvents);
+		ByteColumn[] columns = {header, this.newStrings, eventCount, this.times, this.types, this.attributeCounts, this.keys, this.values, this.literals};
+
+		int rawLength = 0;
+		for (ByteColumn column : columns) {
+			rawLength += column.size;
+		}
+		if (this.rawBlock.length < rawLength) {
+			this.rawBlock = new byte[rawLength];
+			this.compressedBlock = new byte[this.compressor.maxCompressedLength(rawLength)];
+		}
+		int position = 0;
+		for (ByteColumn column : columns) {
+			System.arraycopy(column.bytes, 0, this.rawBlock, position, column.size);
+			position += column.size;
+			column.size = 0;
+		}
+		int compressedLength = this.compressor.compress(this.rawBlock, 0, rawLength, this.compressedBlock, 0, this.compressedBlock.length);
+		try {
+			this.out.writeInt(rawLength);
+			this.out.writeInt(compressedLength);
+			this.out.write(this.compressedBlock, 0, compressedLength);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.numberOfNewStrings = 0;
+		this.numberOfEvents = 0;
+	}
+
+	@Override
+	public void closeFile() {
+		writeBlock();
+		try {
+			// end of file
+			this.out.writeInt(0);
+			this.out.writeInt(0);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	/**
+	 * A growable byte array, with the encodings used by the binary events format.
+	 */
+	private static final class ByteColumn {
+		private byte[] bytes = new byte[1024];
+		private int size = 0;
+
+		private void ensureCapacity(final int additional) {
+			if (this.size + additional > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.size + additional, this.bytes.length * 2));
+			}
+		}
+
+		void writeVarInt(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				this.bytes[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.size++] = (byte) value;
+		}
+
+		void writeDouble(final double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToLongBits(value);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.bytes[this.size++] = (byte) (bits >>> shift);
+			}
+		}
+
+		void writeString(final String string) {
+			byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(utf8.length);
+			ensureCapacity(utf8.length);
+			System.arraycopy(utf8, 0, this.bytes, this.size, utf8.length);
+			this.size += utf8.length;
+		}
+	}
+
+}
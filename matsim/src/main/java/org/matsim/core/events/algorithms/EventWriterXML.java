@@ -30,10 +30,18 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 
+/**
+ * Writes events to an xml file.
+ * <p></p>
+ * The events write themselves into a buffer that is reused for all events, see {@link Event#writeAsXML(StringBuilder)}.
+ */
 public class EventWriterXML implements EventWriter, BasicEventHandler {
+	private static final int FLUSH_SIZE = 1 << 16;
+
 	private final BufferedWriter out;
+	private final StringBuilder buffer = new StringBuilder(FLUSH_SIZE + 1024);
+	private char[] chars = new char[FLUSH_SIZE + 1024];
 
 	public EventWriterXML(final String outfilename) {
 		this.out = IOUtils.getBufferedWriter(outfilename);
@@ -60,6 +68,7 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 
 	@Override
 	public void closeFile() {
+		flushBuffer();
 		try {
 			this.out.write("</events>");
 			// I added a "\n" to make it look nicer on the console.  Can't say if this may have unintended side
@@ -78,74 +87,24 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 
 	@Override
 	public void handleEvent(final Event event) {
-		try {
-			this.out.append("\t<event ");
-			Map<String, String> attr = event.getAttributes();
-			for (Map.Entry<String, String> entry : attr.entrySet()) {
-				this.out.append(entry.getKey());
-				this.out.append("=\"");
-				this.out.append(encodeAttributeValue(entry.getValue()));
-				this.out.append("\" ");
-			}
-			this.out.append(" />\n");
-		} catch (IOException e) {
-			e.printStackTrace();
+		event.writeAsXML(this.buffer);
+		if (this.buffer.length() >= FLUSH_SIZE) {
+			flushBuffer();
 		}
 	}
 
-	// the following method was taken from MatsimXmlWriter in order to correctly encode attributes, but
-	// to forego the overhead of using the full MatsimXmlWriter.
-	/**
-	 * Encodes the given string in such a way that it no longer contains
-	 * characters that have a special meaning in xml.
-	 * 
-	 * @see <a href="http://www.w3.org/International/questions/qa-escapes#use">http://www.w3.org/International/questions/qa-escapes#use</a>
-	 * @param attributeValue
-	 * @return String with some characters replaced by their xml-encoding.
-	 */
-	private String encodeAttributeValue(final String attributeValue) {
-		if (attributeValue == null) {
-			return null;
+	private void flushBuffer() {
+		int length = this.buffer.length();
+		if (this.chars.length < length) {
+			this.chars = new char[length];
 		}
-		int len = attributeValue.length();
-		boolean encode = false;
-		for (int pos = 0; pos < len; pos++) {
-			char ch = attributeValue.charAt(pos);
-			if (ch == '<') {
-				encode = true;
-				break;
-			} else if (ch == '>') {
-				encode = true;
-				break;
-			} else if (ch == '\"') {
-				encode = true;
-				break;
-			} else if (ch == '&') {
-				encode = true;
-				break;
-			}
-		}
-		if (encode) {
-			StringBuilder bf = new StringBuilder(attributeValue.length() + 30);
-			for (int pos = 0; pos < len; pos++) {
-				char ch = attributeValue.charAt(pos);
-				if (ch == '<') {
-					bf.append("&lt;");
-				} else if (ch == '>') {
-					bf.append("&gt;");
-				} else if (ch == '\"') {
-					bf.append("&quot;");
-				} else if (ch == '&') {
-					bf.append("&amp;");
-				} else {
-					bf.append(ch);
-				}
-			}
-			
-			return bf.toString();
+		this.buffer.getChars(0, length, this.chars, 0);
+		this.buffer.setLength(0);
+		try {
+			this.out.write(this.chars, 0, length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return attributeValue;
-
 	}
 
 }
@@ -20,15 +20,24 @@
 
 package org.matsim.core.gbl;
 
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 
 
 /**
  * An abstract class, providing random numbers for MATSim. Also provides
  * Random Number Generators (RNG) for use in threads, which should all
  * use their own RNGs for deterministic behavior.
+ * <p></p>
+ * If the work is not dealt to the threads in a fixed way, the RNGs are reseeded with {@link #reseed(Random, long)} for
+ * every piece of work, e.g. every plan, with a key of that piece from {@link #getKey(long, long)}. A thread can also
+ * get an RNG of its own with {@link #setRandomOfThread(Random)}, which {@link #getRandom()} then returns in that thread
+ * instead of the global one. This is meant for a short pass over the persons only, like the parallel replanning.
  *
  * @author mrieser
  */
@@ -53,6 +62,13 @@ public abstract class MatsimRandom {
 
 	private static long lastUsedSeed = DEFAULT_RANDOM_SEED;
 	private static int internalCounter = 0;
+	private static int keyCounter = 0;
+
+	/** the RNGs of the threads which have one, see {@link #setRandomOfThread(Random)} */
+	private static final ThreadLocal<Random> randomsOfThreads = new ThreadLocal<>();
+	/** so {@link #getRandom()} only looks for an RNG of the current thread while there are any */
+	private static final AtomicInteger numberOfRandomsOfThreads = new AtomicInteger(0);
+	private static final ThreadLocal<List<Random>> collectedLocalInstances = new ThreadLocal<>();
 
 	/** the global random number generator */
 	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
@@ -70,13 +86,44 @@ public abstract class MatsimRandom {
 	public static void reset(final long seed) {
 		lastUsedSeed = seed;
 		internalCounter = 0;
-		getRandom().setSeed(seed);
+		keyCounter = 0;
+		random.setSeed(seed);
 //		prepareRNG(random);
 	}
+	/**
+	 * @return the global random number generator, or the one of the current thread if it has one
+	 */
 	public static Random getRandom() {
+		if (numberOfRandomsOfThreads.get() > 0) {
+			Random randomOfThread = randomsOfThreads.get();
+			if (randomOfThread != null) {
+				return randomOfThread;
+			}
+		}
 		return random;
 	}
 
+	/**
+	 * Lets {@link #getRandom()} return <code>rng</code> in the current thread, until {@link #removeRandomOfThread()}.
+	 * Code that keeps the global RNG in a field still draws from the global one.
+	 */
+	public static void setRandomOfThread(final Random rng) {
+		if (randomsOfThreads.get() == null) {
+			numberOfRandomsOfThreads.incrementAndGet();
+		}
+		randomsOfThreads.set(rng);
+	}
+
+	/**
+	 * Lets {@link #getRandom()} return the global RNG in the current thread again.
+	 */
+	public static void removeRandomOfThread() {
+		if (randomsOfThreads.get() != null) {
+			randomsOfThreads.remove();
+			numberOfRandomsOfThreads.decrementAndGet();
+		}
+	}
+
 	/** Returns an instance of a random number generator, which can be used
 	 * locally, e.g. in threads.
 	 *
@@ -86,9 +133,73 @@ public abstract class MatsimRandom {
 		internalCounter++;
 		Random r = new Random(lastUsedSeed + internalCounter*23l);
 		prepareRNG(r);
+		List<Random> collected = collectedLocalInstances.get();
+		if (collected != null) {
+			collected.add(r);
+		}
 		return r;
 	}
 
+	/**
+	 * Gets an object, e.g. a plan algorithm, and adds the local instances it got from {@link #getLocalInstance()} in
+	 * the current thread to <code>localInstances</code>, so they can be reseeded later on.
+	 */
+	public static <T> T collectLocalInstances(final Supplier<T> supplier, final List<Random> localInstances) {
+		List<Random> collected = collectedLocalInstances.get();
+		collectedLocalInstances.set(localInstances);
+		try {
+			return supplier.get();
+		} finally {
+			collectedLocalInstances.set(collected);
+		}
+	}
+
+	/**
+	 * Sets the seed of <code>rng</code> from the seed of the last {@link #reset(long)} and <code>key</code>, so it
+	 * draws the same numbers for the same key, whichever thread it is in and whatever it drew before.
+	 */
+	public static void reseed(final Random rng, final long key) {
+		rng.setSeed(mix(lastUsedSeed ^ mix(key)));
+	}
+
+	/**
+	 * @return a new key, e.g. for the random numbers of a module; it is different for every call, and the same in
+	 * every run, counting from the last {@link #reset(long)}.
+	 */
+	public static long createKey() {
+		keyCounter++;
+		return mix(keyCounter * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * @return a key for <code>id</code>, typically the one of a person, in <code>iteration</code>. It is a 64 bit hash
+	 * of the id, so it neither depends on the order the ids were created in nor on the other ids.
+	 */
+	public static long getKey(final int iteration, final Id<?> id) {
+		String string = id.toString();
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0, n = string.length(); i < n; i++) {
+			hash = (hash ^ string.charAt(i)) * 0x100000001b3L;
+		}
+		return getKey(hash, iteration);
+	}
+
+	/**
+	 * @return the key of a part <code>subKey</code>, e.g. the plan with that position, of the work with <code>key</code>
+	 */
+	public static long getKey(final long key, final long subKey) {
+		return mix(key ^ mix(subKey));
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, so that similar keys lead to unrelated seeds.
+	 */
+	private static long mix(long x) {
+		x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+		x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return x ^ (x >>> 33);
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
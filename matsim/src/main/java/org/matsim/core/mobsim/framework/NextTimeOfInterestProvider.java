@@ -0,0 +1,39 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NextTimeOfInterestProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.framework;
+
+/**
+ * Implemented by the parts of a mobsim that are stepped, i.e. {@link Steppable}s and listeners to the time steps,
+ * and know when they will next have something to do. If all of them do, a mobsim may skip the time steps in which
+ * none of them would do anything, see {@link org.matsim.core.config.groups.QSimConfigGroup#isSkippingIdleTimeSteps()}.
+ */
+public interface NextTimeOfInterestProvider {
+
+	/**
+	 * Called after a time step has been completed, before the next one.
+	 *
+	 * @return the earliest time at which the next call of <code>doSimStep</code> (or of the listener) may change
+	 * anything. A time up to the next time step, e.g. {@link Double#NEGATIVE_INFINITY}, means the next time step;
+	 * {@link Double#POSITIVE_INFINITY} means nothing is scheduled.
+	 */
+	double getNextTimeOfInterest();
+
+}
@@ -80,6 +80,19 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * 
+	 * @return the time stamp of the first message in the queue, or {@link Double#POSITIVE_INFINITY} if there is none
+	 */
+	public double getNextMessageArrivalTime() {
+		Message m;
+		// drop dead messages, as getNextMessage() would
+		while ((m = queue1.peek()) != null && !m.isAlive()) {
+			queue1.poll();
+		}
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -88,4 +101,4 @@ public class MessageQueue {
 		return queueSize;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,294 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * Calendar queue for the activity ends of the {@link ActivityEngine}.
+ * <p></p>
+ * Agents are kept in one bucket per simulation second, the bucket of an activity ending at time <code>t</code>
+ * is <code>ceil(t)</code>. Adding and removing an agent are constant time operations, and for the usual
+ * whole-second time steps all agents whose activities end in a time step are taken from exactly one bucket.
+ * Only the agents of a bucket are sorted when it is polled, so the agents leave in the same order as they
+ * did from the former priority queue: by activity end time, agents with the same end time ordered by
+ * descending id.
+ * <p></p>
+ * Activities ending after {@link #MAX_BUCKETS} seconds are kept in a priority queue.
+ * <p></p>
+ * All methods are synchronized since agents may start activities from the threads of the parallel qsim.
+ *
+ * @param <A> the type of agents
+ */
+/*package*/ final class ActivityEndsCalendar<A extends Identifiable<Person>> {
+
+	/*package*/ static final int MAX_BUCKETS = 8 * 24 * 3600;
+
+	private static final int OVERFLOW = -1;
+
+	/**
+	 * Agents cannot be added directly to the activityEndsList since that would
+	 * not be thread-safe when within-day replanning is used. There, an agent's
+	 * activity end time can be modified. As a result, the agent is located at
+	 * the wrong position in the activityEndsList until it is updated by using
+	 * rescheduleActivityEnd(...). However, if another agent is added to the list
+	 * in the mean time, it might be inserted at the wrong position.
+	 * cdobler, apr'12
+	 */
+	/*package*/ static final class Entry<A> {
+		final A agent;
+		final double activityEndTime;
+		final int bucket;
+		int position;
+
+		Entry(final A agent, final double activityEndTime, final int bucket) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+			this.bucket = bucket;
+		}
+	}
+
+	private final Comparator<Entry<A>> comparator = (arg0, arg1) -> {
+		int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
+		if (cmp == 0) {
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return arg1.agent.getId().compareTo(arg0.agent.getId());
+		}
+		return cmp;
+	};
+
+	private Entry<A>[][] buckets;
+	private int[] bucketSizes;
+	/** all buckets before this one are empty */
+	private int firstBucket = 0;
+	private final PriorityQueue<Entry<A>> overflow = new PriorityQueue<>(16, this.comparator);
+	private final Map<A, Entry<A>> entries = new IdentityHashMap<>();
+	private int size = 0;
+
+	@SuppressWarnings("unchecked")
+	/*package*/ ActivityEndsCalendar() {
+		this.buckets = new Entry[30 * 3600][];
+		this.bucketSizes = new int[this.buckets.length];
+	}
+
+	/*package*/ synchronized void add(final A agent, final double activityEndTime) {
+		int bucket = getBucket(activityEndTime);
+		if (bucket != OVERFLOW && bucket < this.firstBucket) {
+			// entries in the past are due with the next poll, so they go to the first bucket still in use
+			bucket = this.firstBucket < MAX_BUCKETS ? this.firstBucket : OVERFLOW;
+		}
+		Entry<A> entry = new Entry<>(agent, activityEndTime, bucket);
+		if (bucket == OVERFLOW) {
+			this.overflow.add(entry);
+		} else {
+			addToBucket(entry);
+		}
+		// an agent that is added twice stays twice in the calendar, like in a queue, but only the last entry can be removed
+		this.entries.put(agent, entry);
+		this.size++;
+	}
+
+	/**
+	 * @return the activity end time the agent was added with, or <code>null</code> if the agent was not in the calendar
+	 */
+	/*package*/ synchronized Double remove(final A agent) {
+		Entry<A> entry = this.entries.remove(agent);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.bucket == OVERFLOW) {
+			this.overflow.remove(entry);
+		} else {
+			removeFromBucket(entry);
+		}
+		this.size--;
+		return entry.activityEndTime;
+	}
+
+	/**
+	 * Removes all agents with an activity end time of at most <code>time</code>
+	 * and adds them to <code>agents</code>, in the order in which they should leave.
+	 */
+	/*package*/ synchronized void pollDue(final double time, final List<A> agents) {
+		if (this.size == 0) {
+			return;
+		}
+		double floor = Math.floor(time);
+		int lastFullBucket = floor >= this.buckets.length ? this.buckets.length - 1 : (int) floor;
+		while (this.firstBucket <= lastFullBucket) {
+			if (this.bucketSizes[this.firstBucket] > 0) {
+				pollBucket(this.firstBucket, time, agents);
+			}
+			this.firstBucket++;
+		}
+		if (floor != time) {
+			// non-integer time step, the next bucket may contain entries up to the current time
+			int bucket = lastFullBucket + 1;
+			if (bucket < this.buckets.length && this.bucketSizes[bucket] > 0) {
+				pollBucket(bucket, time, agents);
+			}
+		}
+		while (!this.overflow.isEmpty() && this.overflow.peek().activityEndTime <= time) {
+			poll(this.overflow.poll(), agents);
+		}
+	}
+
+	/**
+	 * Removes all agents from the calendar.
+	 *
+	 * @return the removed agents and their activity end times, in the order in which they would have left
+	 */
+	/*package*/ synchronized List<Entry<A>> clear() {
+		List<Entry<A>> all = new ArrayList<>(this.size);
+		for (int bucket = this.firstBucket; bucket < this.buckets.length; bucket++) {
+			int bucketSize = this.bucketSizes[bucket];
+			if (bucketSize > 0) {
+				Entry<A>[] bucketEntries = this.buckets[bucket];
+				Arrays.sort(bucketEntries, 0, bucketSize, this.comparator);
+				all.addAll(Arrays.asList(bucketEntries).subList(0, bucketSize));
+				Arrays.fill(bucketEntries, 0, bucketSize, null);
+				this.bucketSizes[bucket] = 0;
+			}
+		}
+		while (!this.overflow.isEmpty()) {
+			all.add(this.overflow.poll());
+		}
+		this.entries.clear();
+		this.firstBucket = 0;
+		this.size = 0;
+		return all;
+	}
+
+	/**
+	 * @return the earliest activity end time in the calendar, or {@link Double#POSITIVE_INFINITY} if it is empty
+	 */
+	/*package*/ synchronized double getEarliestActivityEndTime() {
+		if (this.size == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double earliest = this.overflow.isEmpty() ? Double.POSITIVE_INFINITY : this.overflow.peek().activityEndTime;
+		for (int bucket = this.firstBucket; bucket < this.buckets.length; bucket++) {
+			int bucketSize = this.bucketSizes[bucket];
+			if (bucketSize > 0) {
+				// the first bucket in use may also hold entries from the past, so look at all of them
+				Entry<A>[] bucketEntries = this.buckets[bucket];
+				for (int i = 0; i < bucketSize; i++) {
+					earliest = Math.min(earliest, bucketEntries[i].activityEndTime);
+				}
+				break;
+			}
+		}
+		return earliest;
+	}
+
+	/*package*/ synchronized int size() {
+		return this.size;
+	}
+
+	private int getBucket(final double activityEndTime) {
+		if (!(activityEndTime > 0)) {
+			// includes undefined end times, which should end right away
+			return 0;
+		}
+		double ceil = Math.ceil(activityEndTime);
+		if (ceil >= MAX_BUCKETS) {
+			return OVERFLOW;
+		}
+		return (int) ceil;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addToBucket(final Entry<A> entry) {
+		int bucket = entry.bucket;
+		if (bucket >= this.buckets.length) {
+			int newLength = Math.min(Math.max(this.buckets.length * 3 / 2, bucket + 1), MAX_BUCKETS);
+			this.buckets = Arrays.copyOf(this.buckets, newLength);
+			this.bucketSizes = Arrays.copyOf(this.bucketSizes, newLength);
+		}
+		Entry<A>[] bucketEntries = this.buckets[bucket];
+		int bucketSize = this.bucketSizes[bucket];
+		if (bucketEntries == null) {
+			bucketEntries = new Entry[4];
+			this.buckets[bucket] = bucketEntries;
+		} else if (bucketSize == bucketEntries.length) {
+			bucketEntries = Arrays.copyOf(bucketEntries, bucketSize * 2);
+			this.buckets[bucket] = bucketEntries;
+		}
+		entry.position = bucketSize;
+		bucketEntries[bucketSize] = entry;
+		this.bucketSizes[bucket] = bucketSize + 1;
+	}
+
+	private void removeFromBucket(final Entry<A> entry) {
+		// the order within a bucket does not matter, so move the last entry into the gap
+		Entry<A>[] bucketEntries = this.buckets[entry.bucket];
+		int last = this.bucketSizes[entry.bucket] - 1;
+		Entry<A> lastEntry = bucketEntries[last];
+		bucketEntries[entry.position] = lastEntry;
+		lastEntry.position = entry.position;
+		bucketEntries[last] = null;
+		this.bucketSizes[entry.bucket] = last;
+	}
+
+	private void pollBucket(final int bucket, final double time, final List<A> agents) {
+		Entry<A>[] bucketEntries = this.buckets[bucket];
+		int bucketSize = this.bucketSizes[bucket];
+		Arrays.sort(bucketEntries, 0, bucketSize, this.comparator);
+		int due = 0;
+		while (due < bucketSize && bucketEntries[due].activityEndTime <= time) {
+			poll(bucketEntries[due], agents);
+			due++;
+		}
+		// keep the entries that are not yet due
+		int remaining = bucketSize - due;
+		System.arraycopy(bucketEntries, due, bucketEntries, 0, remaining);
+		for (int i = 0; i < remaining; i++) {
+			bucketEntries[i].position = i;
+		}
+		Arrays.fill(bucketEntries, remaining, bucketSize, null);
+		this.bucketSizes[bucket] = remaining;
+	}
+
+	private void poll(final Entry<A> entry, final List<A> agents) {
+		if (this.entries.get(entry.agent) == entry) {
+			this.entries.remove(entry.agent);
+		}
+		this.size--;
+		agents.add(entry.agent);
+	}
+
+}
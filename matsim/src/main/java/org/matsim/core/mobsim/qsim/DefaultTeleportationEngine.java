@@ -10,6 +10,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.NextTimeOfInterestProvider;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.network.NetworkUtils;
@@ -27,7 +28,7 @@ import java.util.*;
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
-public final class DefaultTeleportationEngine implements TeleportationEngine {
+public final class DefaultTeleportationEngine implements TeleportationEngine, NextTimeOfInterestProvider {
 	private static final Logger log = Logger.getLogger( DefaultTeleportationEngine.class ) ;
 	
 	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
@@ -103,6 +104,12 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		handleTeleportationArrivals();
 	}
 
+	@Override
+	public double getNextTimeOfInterest() {
+		Tuple<Double, MobsimAgent> entry = teleportationList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.getFirst();
+	}
+
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		while (teleportationList.peek() != null) {
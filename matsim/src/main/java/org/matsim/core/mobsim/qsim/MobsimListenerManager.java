@@ -30,6 +30,10 @@ import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.*;
 import org.matsim.core.utils.misc.ClassUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import javax.swing.event.EventListenerList;
 
 class MobsimListenerManager implements MatsimManager {
@@ -99,6 +103,16 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * @return the listeners that are called in every time step
+	 */
+	List<MobsimListener> getSimStepListeners() {
+		List<MobsimListener> listeners = new ArrayList<>();
+		listeners.addAll(Arrays.asList(this.listenerList.getListeners(MobsimBeforeSimStepListener.class)));
+		listeners.addAll(Arrays.asList(this.listenerList.getListeners(MobsimAfterSimStepListener.class)));
+		return listeners;
+	}
+
 	public void fireQueueSimulationBeforeSimStepEvent(double time) {
 		MobsimBeforeSimStepEvent<Mobsim> event = new MobsimBeforeSimStepEvent<>(sim, time);
 		MobsimBeforeSimStepListener[] listener = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
@@ -35,6 +35,7 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.AgentSource;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.NextTimeOfInterestProvider;
 import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.mobsim.qsim.changeeventsengine.NetworkChangeEventsEngineI;
 import org.matsim.core.mobsim.qsim.interfaces.*;
@@ -122,6 +123,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private final Map<Id<Person>, MobsimAgent> agents = new LinkedHashMap<>();
 	private final Map<Id<Vehicle>,MobsimVehicle> vehicles = new LinkedHashMap<>() ;
 	private final List<AgentSource> agentSources = new ArrayList<>();
+	/** all engines and time step listeners, if the idle time steps are skipped */
+	private List<NextTimeOfInterestProvider> timeOfInterestProviders = null;
 
 	// for detailed run time analysis
 	public static boolean analyzeRunTimes = false;
@@ -232,6 +235,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 				arrangeNextAgentAction(agent);
 			}
 
+			if (this.scenario.getConfig().qsim().isSkippingIdleTimeSteps()) {
+				this.timeOfInterestProviders = collectTimeOfInterestProviders();
+			}
+
 			// do iterations
 			boolean doContinue = true;
 			while (doContinue) {
@@ -384,6 +391,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (this.timeOfInterestProviders != null) {
+				skipIdleTimeSteps();
+			}
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
@@ -482,6 +492,52 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 	}
 
+	/**
+	 * @return the engines and time step listeners, or <code>null</code> if one of them cannot tell when it has
+	 * something to do next, so no time step can be skipped
+	 */
+	private List<NextTimeOfInterestProvider> collectTimeOfInterestProviders() {
+		List<Object> stepped = new ArrayList<>(this.mobsimEngines);
+		stepped.addAll(this.listenerManager.getSimStepListeners());
+		List<NextTimeOfInterestProvider> providers = new ArrayList<>();
+		for (Object o : stepped) {
+			if (!(o instanceof NextTimeOfInterestProvider)) {
+				log.warn("Not skipping idle time steps, since " + o.getClass().getName() + " does not implement "
+						+ NextTimeOfInterestProvider.class.getSimpleName() + ".");
+				return null;
+			}
+			providers.add((NextTimeOfInterestProvider) o);
+		}
+		log.info("Skipping idle time steps.");
+		return providers;
+	}
+
+	/**
+	 * Advances the time to the next time step in which an engine or listener has something to do. The time steps in
+	 * between are left out, but the time still advances step by step, so it is the same as without skipping.
+	 */
+	private void skipIdleTimeSteps() {
+		double nextStep = this.simTimer.getTimeOfDay();
+		double next = Double.POSITIVE_INFINITY;
+		for (NextTimeOfInterestProvider provider : this.timeOfInterestProviders) {
+			next = Math.min(next, provider.getNextTimeOfInterest());
+			if (next <= nextStep) {
+				return;
+			}
+		}
+		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
+		boolean onlyUseEndtime = qsimConfigGroup.getSimEndtimeInterpretation() == EndtimeInterpretation.onlyUseEndtime;
+		if (next == Double.POSITIVE_INFINITY && (onlyUseEndtime ? qsimConfigGroup.getEndTime() : this.stopTime) == Double.MAX_VALUE) {
+			// nothing left to do, but no end either; let the simulation end as it would have
+			return;
+		}
+		// stop at the last time step before the simulation would end
+		while (this.simTimer.getTimeOfDay() < next
+				&& (onlyUseEndtime ? this.simTimer.getTimeOfDay() <= qsimConfigGroup.getEndTime() : this.stopTime > this.simTimer.getTimeOfDay())) {
+			this.simTimer.incrementTime();
+		}
+	}
+
 	private double calculateFirstAgentStartTime() {
 		double firstAgentStartTime = Double.POSITIVE_INFINITY;
 		for (MobsimAgent agent : agents.values()) {
@@ -497,7 +553,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			// the next multiple of the period, as idle time steps may have been skipped
+			this.infoTime = (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD;
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
@@ -3,6 +3,7 @@ package org.matsim.core.mobsim.qsim.changeeventsengine;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.mobsim.framework.NextTimeOfInterestProvider;
 import org.matsim.core.mobsim.jdeqsim.Message;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.InternalInterface;
@@ -14,7 +15,7 @@ import org.matsim.core.network.NetworkUtils;
 import javax.inject.Inject;
 import java.util.Queue;
 
-class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
+class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI, NextTimeOfInterestProvider {
 	private static final Logger log = Logger.getLogger( NetworkChangeEventsEngine.class ) ;
 
 	private final MessageQueue messageQueue;
@@ -101,4 +102,10 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	public void doSimStep(double time) {
 
 	}
+
+	@Override
+	public double getNextTimeOfInterest() {
+		// the change events are applied by the message queue
+		return Double.POSITIVE_INFINITY;
+	}
 }
@@ -44,6 +44,17 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		finished = true; // queue has run dry.
 	}
 
+	/**
+	 * @return the time of the next message that {@link #doSimStep(double)} will handle
+	 */
+	public double getNextTimeOfInterest() {
+		if (lookahead != null) {
+			// doSimStep waits for this one before it looks at the queue again
+			return lookahead.getMessageArrivalTime();
+		}
+		return queue.getNextMessageArrivalTime();
+	}
+
 	public boolean isFinished() {
 		return finished;
 	}
@@ -1,12 +1,13 @@
 package org.matsim.core.mobsim.qsim.messagequeueengine;
 
+import org.matsim.core.mobsim.framework.NextTimeOfInterestProvider;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.qsim.jdeqsimengine.SteppableScheduler;
 
 import javax.inject.Inject;
 
-class MessageQueueEngine implements MobsimBeforeSimStepListener {
+class MessageQueueEngine implements MobsimBeforeSimStepListener, NextTimeOfInterestProvider {
 
 	private final SteppableScheduler scheduler;
 
@@ -20,4 +21,9 @@ class MessageQueueEngine implements MobsimBeforeSimStepListener {
 		scheduler.doSimStep(e.getSimulationTime());
 	}
 
+	@Override
+	public double getNextTimeOfInterest() {
+		return scheduler.getNextTimeOfInterest();
+	}
+
 }
@@ -469,6 +469,16 @@ abstract class AbstractQLink implements QLinkI {
 		this.active = active;
 	}
 
+	/**
+	 * For {@link org.matsim.core.config.groups.QSimConfigGroup#isSkippingIdleTimeSteps()}, only asked while the link is active.
+	 *
+	 * @return the earliest time at which {@link #doSimStep()} may change anything, see
+	 * {@link org.matsim.core.mobsim.framework.NextTimeOfInterestProvider}. By default the next time step.
+	 */
+	double getNextTimeOfInterest() {
+		return Double.NEGATIVE_INFINITY;
+	}
+
 	Queue<QVehicle> getWaitingList() {
 		return waitingList;
 	}
@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AbstractQNetsimEngineRunner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * What the {@link QNetsimEngine} needs from its runners, independent of how they are scheduled: the time of the
+ * current step, the end of the simulation, and the statistics of their run times.
+ */
+abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry {
+
+	protected double time = 0.0;
+
+	protected volatile boolean simulationRunning = true;
+
+	/*
+	 * For the statistics of the partitioning: the time spent moving nodes and links, and the time spent
+	 * waiting for the other runners.
+	 */
+	private long busyNanos = 0;
+	private long waitNanos = 0;
+
+	/*package*/ long[] runTimes;
+	{
+		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
+		else runTimes = null;
+	}
+
+	/*package*/ void setTime(final double t) {
+		time = t;
+	}
+
+	public void afterSim() {
+		this.simulationRunning = false;
+	}
+
+	/**
+	 * Called once all nodes and links are assigned to the runners, before the first one is registered as active.
+	 *
+	 * @param numberOfNodes the number of nodes assigned to this runner
+	 * @param numberOfLinks the number of links assigned to this runner
+	 */
+	/*package*/ void setNumberOfElements(int numberOfNodes, int numberOfLinks) {
+	}
+
+	/**
+	 * Called between the time steps only.
+	 *
+	 * @return the earliest time at which moving the nodes and links of this runner may change anything, see
+	 * {@link org.matsim.core.mobsim.framework.NextTimeOfInterestProvider}
+	 */
+	/*package*/ abstract double getNextTimeOfInterest();
+
+	/*package*/ static double getNextTimeOfInterest(final QLinkI link) {
+		// the QNetsimEngine only works with AbstractQLinks anyway
+		return link instanceof AbstractQLink ? ((AbstractQLink) link).getNextTimeOfInterest() : Double.NEGATIVE_INFINITY;
+	}
+
+	/*package*/ final long getBusyNanos() {
+		return this.busyNanos;
+	}
+
+	/*package*/ final long getWaitNanos() {
+		return this.waitNanos;
+	}
+
+	/*package*/ final void addBusyNanos(long nanos) {
+		this.busyNanos += nanos;
+	}
+
+	/*package*/ final void addWaitNanos(long nanos) {
+		this.waitNanos += nanos;
+	}
+
+}
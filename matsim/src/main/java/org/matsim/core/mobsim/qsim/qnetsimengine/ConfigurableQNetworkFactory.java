@@ -31,7 +31,7 @@ import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine.NetsimInternalInterface;
 import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.DefaultLinkSpeedCalculator;
 import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.LinkSpeedCalculator;
-import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.FIFOVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.ArrayFIFOVehicleQ;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.VehicleQ;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 
@@ -51,7 +51,8 @@ public final class ConfigurableQNetworkFactory implements QNetworkFactory {
 	private NetsimInternalInterface netsimEngine ;
 	private LinkSpeedCalculator linkSpeedCalculator = new DefaultLinkSpeedCalculator() ;
 	private TurnAcceptanceLogic turnAcceptanceLogic = new DefaultTurnAcceptanceLogic() ;
-	private VehicleQ.Factory<QVehicle> vehicleQFactory = FIFOVehicleQ::new ;
+	private VehicleQ.Factory<QVehicle> vehicleQFactory = ArrayFIFOVehicleQ::new ;
+	private TurnStatistics turnStatistics = null ;
 
 	public ConfigurableQNetworkFactory( EventsManager events, Scenario scenario ) {
 		this.events = events;
@@ -89,6 +90,7 @@ public final class ConfigurableQNetworkFactory implements QNetworkFactory {
 		QNodeImpl.Builder builder = new QNodeImpl.Builder( netsimEngine, context ) ;
 
 		builder.setTurnAcceptanceLogic( this.turnAcceptanceLogic ) ;
+		builder.setTurnStatistics( this.turnStatistics ) ;
 
 		return builder.build( node ) ;
 	}
@@ -101,5 +103,11 @@ public final class ConfigurableQNetworkFactory implements QNetworkFactory {
 	public final void setVehicleQFactory( VehicleQ.Factory<QVehicle> factory ) {
 		this.vehicleQFactory = factory ;
 	}
+	/**
+	 * Lets the nodes count the vehicles per turn.  Off (<code>null</code>) by default.
+	 */
+	public final void setTurnStatistics( TurnStatistics turnStatistics ) {
+		this.turnStatistics = turnStatistics ;
+	}
 
 }
@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -93,6 +94,8 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 	private final VisData visdata;
 
 	private final QLaneI qlane;
+	// asked for at every move of the node, so not created every time
+	private final List<QLaneI> offeringQLanes;
 	
 	private NetsimEngineContext context;
 	
@@ -104,6 +107,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		// so that the caller can use references to the created roads to wire them together,
 		// if it must.
 		this.qlane = roadFactory.createLane(this);
+		this.offeringQLanes = Collections.singletonList(this.qlane);
 		this.visdata = this.new VisDataImpl() ; // instantiating this here and not earlier so we can cache some things
 		super.setTransitQLink( new TransitQLink(this.qlane) ) ;
 	}
@@ -228,6 +232,15 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		return this.visdata;
 	}
 
+	@Override
+	double getNextTimeOfInterest() {
+		if (!this.getWaitingList().isEmpty() || !this.getTransitQLink().getTransitVehicleStopQueue().isEmpty()
+				|| !(this.qlane instanceof QueueWithBuffer)) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		return ((QueueWithBuffer) this.qlane).getNextTimeOfInterest();
+	}
+
 	private boolean checkForActivity() {
 		/*
 		 * Leave Link active as long as there are vehicles on the link (ignore
@@ -314,9 +327,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 
 	@Override
 	public List<QLaneI> getOfferingQLanes() {
-		List<QLaneI> list = new ArrayList<>() ;
-		list.add( this.qlane ) ;
-		return list ;
+		return this.offeringQLanes ;
 	}
 	@Override
 	public QLaneI getAcceptingQLane() {
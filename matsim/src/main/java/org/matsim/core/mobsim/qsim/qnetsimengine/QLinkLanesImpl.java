@@ -28,7 +28,7 @@ import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine.NetsimInternalInterface;
 import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.DefaultLinkSpeedCalculator;
 import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.LinkSpeedCalculator;
-import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.FIFOVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.ArrayFIFOVehicleQ;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.lanes.Lane;
@@ -197,7 +197,7 @@ public final class QLinkLanesImpl extends AbstractQLink {
 			// (lane.getLaneData().getCapacityVehiclesPerHour()/3600.0));
 
 			QueueWithBuffer.Builder builder = new QueueWithBuffer.Builder( context ) ;
-			builder.setVehicleQueue(new FIFOVehicleQ());
+			builder.setVehicleQueue(new ArrayFIFOVehicleQ());
 			builder.setLaneId(laneId);
 			builder.setLength(lane.getLength());
 			builder.setEffectiveNumberOfLanes(lane.getLaneData().getNumberOfRepresentedLanes());
@@ -25,11 +25,14 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimScheduling;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
@@ -37,6 +40,7 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.NextTimeOfInterestProvider;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
@@ -69,7 +73,7 @@ import java.util.concurrent.ThreadFactory;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine, NetsimEngine {
+public class QNetsimEngine implements MobsimEngine, NetsimEngine, NextTimeOfInterestProvider {
 
 	public interface NetsimInternalInterface {
 		QNetwork getNetsimNetwork();
@@ -105,7 +109,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 	private final int numOfThreads;
 
-	private List<QNetsimEngineRunner> engines;
+	private List<AbstractQNetsimEngineRunner> engines;
+
+	// the same runners as above, for the thread pool
+	private List<QNetsimEngineRunner> pooledEngines;
 
 	private Phaser startBarrier;
 	private Phaser endBarrier;
@@ -119,6 +126,8 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final NetsimScheduling scheduling;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -139,7 +148,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
-		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.scheduling = qsimConfigGroup.getNetsimScheduling();
+		// work stealing needs the runners to wait for each other within the time step, so it uses its own threads
+		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool() && this.scheduling != NetsimScheduling.workStealing;
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -236,7 +247,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		 * Calling the afterSim Method of the QSimEngineThreads
 		 * will set their simulationRunning flag to false.
 		 */
-		for (QNetsimEngineRunner engine : this.engines) {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
 			engine.afterSim();
 		}
 
@@ -250,6 +261,8 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			 */
 			this.startBarrier.arriveAndAwaitAdvance();
 		}
+		// only now all runners are done
+		printRunnerStatistics();
 
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
@@ -308,24 +321,20 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		// as input for the domain decomposition under (b).
 
 		// set current Time
-		for (QNetsimEngineRunner engine : this.engines) {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
 			engine.setTime(time);
 		}
 
 		if (this.usingThreadpool) {
 			try {
-				for (QNetsimEngineRunner engine : this.engines) {
+				for (QNetsimEngineRunner engine : this.pooledEngines) {
 					engine.setMovingNodes(true);
 				}
-				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
-					future.get();
-				}
-				for (QNetsimEngineRunner engine : this.engines) {
+				invokeAllEngines();
+				for (QNetsimEngineRunner engine : this.pooledEngines) {
 					engine.setMovingNodes(false);
 				}
-				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
-					future.get();
-				}
+				invokeAllEngines();
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e) ;
 			} catch (ExecutionException e) {
@@ -338,6 +347,18 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	}
 
 
+	private void invokeAllEngines() throws InterruptedException, ExecutionException {
+		long start = System.nanoTime();
+		for (Future<Boolean> future : pool.invokeAll(this.pooledEngines)) {
+			future.get();
+		}
+		long duration = System.nanoTime() - start;
+		// the runners that finished early waited for the slowest one
+		for (QNetsimEngineRunner engine : this.pooledEngines) {
+			engine.addWaitNanos(duration - engine.getLastCallNanos());
+		}
+	}
+
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
 			this.infoTime += INFO_PERIOD;
@@ -349,11 +370,23 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		}
 	}
 
+	@Override
+	public double getNextTimeOfInterest() {
+		double next = Double.POSITIVE_INFINITY;
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			next = Math.min(next, engine.getNextTimeOfInterest());
+			if (next == Double.NEGATIVE_INFINITY) {
+				break;
+			}
+		}
+		return next;
+	}
+
 	public int getNumberOfSimulatedLinks() {
 
 		int numLinks = 0;
 
-		for (QNetsimEngineRunner engine : this.engines) {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
 			numLinks = numLinks + engine.getNumberOfSimulatedLinks();
 		}
 
@@ -364,7 +397,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 		int numNodes = 0;
 
-		for (QNetsimEngineRunner engine : this.engines) {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
 			numNodes = numNodes + engine.getNumberOfSimulatedNodes();
 		}
 
@@ -420,12 +453,34 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private void initQSimEngineThreads() {
 
 		this.engines = new ArrayList<>();
+		this.pooledEngines = new ArrayList<>();
+
+		numOfRunners = this.numOfThreads;
+		if (this.scheduling == NetsimScheduling.workStealing) {
+			QNetsimEngineRunnerForWorkStealing[] runners = new QNetsimEngineRunnerForWorkStealing[numOfRunners];
+			// the barriers prepare the next phase of all runners, so they need to know them before they are created
+			Phaser[] barriers = QNetsimEngineRunnerForWorkStealing.createBarriers(runners);
+			this.startBarrier = barriers[0];
+			this.endBarrier = barriers[2];
+			for (int i = 0; i < numOfRunners; i++) {
+				runners[i] = new QNetsimEngineRunnerForWorkStealing(this.startBarrier, barriers[1], this.endBarrier);
+				runners[i].setRunners(runners, i);
+				this.engines.add(runners[i]);
+			}
+			for (int i = 0; i < numOfRunners; i++) {
+				Thread thread = new Thread(runners[i]);
+				thread.setName("QNetsimEngineRunner_" + i);
+				thread.setDaemon(true);
+				thread.start();
+			}
+			assignNetElementActivators();
+			return;
+		}
 
 		this.startBarrier = new Phaser(this.numOfThreads + 1);
 		Phaser separationBarrier = new Phaser(this.numOfThreads);
 		this.endBarrier = new Phaser(this.numOfThreads + 1);
 
-		numOfRunners = this.numOfThreads;
 		if (this.usingThreadpool) {
 			// The number of runners should be larger than the number of threads, yes,
 			// but see MATSIM-404 - Simulation result still depends on the number of runners.
@@ -440,6 +495,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			QNetsimEngineRunner engine ;
 			if (this.usingThreadpool) {
 				engine = new QNetsimEngineRunner();
+				this.pooledEngines.add(engine);
 			} else {
 				engine = new QNetsimEngineRunner(this.startBarrier, separationBarrier, endBarrier);
 				Thread thread = new Thread(engine);
@@ -465,17 +521,37 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	 */
 	private void assignNetElementActivators() {
 
-		// only for statistics
+		// the number of nodes and links per runner, for the runners that keep them in arrays, and for the statistics
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+		List<QNodeI> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		List<Node> networkNodes = new ArrayList<>(qNodes.size());
+		for (QNodeI node : qNodes) {
+			networkNodes.add(node.getNode());
+		}
+		NetsimPartitioning partitioning = qsim.getScenario().getConfig().qsim().getNetsimPartitioning();
+		int[] parts = QNetworkPartitioner.partition(networkNodes, partitioning, this.numOfRunners);
+		Map<Id<Node>, Integer> partOfNode = new HashMap<>();
+		for (int n = 0; n < qNodes.size(); n++) {
+			partOfNode.put(networkNodes.get(n).getId(), parts[n]);
+		}
+		int boundaryLinks = 0;
+
+		for (int n = 0; n < qNodes.size(); n++) {
+			nodes[parts[n]]++;
+			links[parts[n]] += qNodes.get(n).getNode().getOutLinks().size();
+		}
+		for (int i = 0; i < this.engines.size(); i++) {
+			this.engines.get(i).setNumberOfElements(nodes[i], links[i]);
+		}
+
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNodeI node = qNodes.get(n);
+			int i = parts[n];
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
-			nodes[i]++;
 
 			// set activator for out links
 			for (Link outLink : node.getNode().getOutLinks().values()) {
@@ -494,21 +570,44 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 					this.engines.get(i).registerLinkAsActive(qLink);
 				}
 
-				links[i]++;
-
+				Integer toPart = partOfNode.get(outLink.getToNode().getId());
+				if (toPart != null && toPart != i) {
+					boundaryLinks++;
+				}
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
 		for (int i = 0; i < this.engines.size(); i++) {
 			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
 		}
+		if (this.numOfRunners > 1) {
+			log.info("Partitioning " + partitioning + ": " + boundaryLinks + " links lead to nodes of another QSimEngineRunner.");
+		}
 
 		this.linksToActivateInitially.clear();
 	}
 
+	/**
+	 * Logs how long each runner was busy moving nodes and links, and how long it waited for the other runners
+	 * to finish their part of the time step. Large differences between the runners point to a partitioning
+	 * that does not fit the traffic, see {@link QSimConfigGroup#getNetsimPartitioning()}.
+	 */
+	/*package*/ void printRunnerStatistics() {
+		if (this.numOfRunners < 2) {
+			return;
+		}
+		for (int i = 0; i < this.engines.size(); i++) {
+			AbstractQNetsimEngineRunner runner = this.engines.get(i);
+			double busy = runner.getBusyNanos() / 1e9;
+			double wait = runner.getWaitNanos() / 1e9;
+			String stolen = runner instanceof QNetsimEngineRunnerForWorkStealing
+					? String.format(", %d chunks of other runners", ((QNetsimEngineRunnerForWorkStealing) runner).getStolenChunks()) : "";
+			log.info(String.format("QSimEngineRunner #%d: busy %.1f s, waiting %.1f s (%.0f%%)%s", i, busy, wait,
+					busy + wait > 0 ? 100 * wait / (busy + wait) : 0.0, stolen));
+		}
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -536,7 +635,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			sb.append("\t" + i);
 			long min = Long.MAX_VALUE;
 			long max = Long.MIN_VALUE;
-			for (QNetsimEngineRunner runner : this.engines) {
+			for (AbstractQNetsimEngineRunner runner : this.engines) {
 				long runTime = runner.runTimes[i];
 				sum += runTime;
 				if (runTime < min) min = runTime;
@@ -34,11 +34,7 @@ import java.util.concurrent.Phaser;
  * @author (of this documentation) nagel
  *
  */
-class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnable, Callable<Boolean> {
-
-	private double time = 0.0;
-
-	private volatile boolean simulationRunning = true;
+class QNetsimEngineRunner extends AbstractQNetsimEngineRunner implements Runnable, Callable<Boolean> {
 
 	private final Phaser startBarrier;
 	private final Phaser separationBarrier;
@@ -76,12 +72,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
-	/*package*/ long[] runTimes;
+	// the thread pool variant measures the waiting time in the QNetsimEngine
+	private long lastCallNanos = 0;
+
 	private long startTime = 0;
-	{	
-		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
-		else runTimes = null;
-	}
 	
 	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
 		this.startBarrier = startBarrier;
@@ -96,14 +90,6 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.endBarrier = null;
 	}
 
-	/*package*/ void setTime(final double t) {
-		time = t;
-	}
-
-	public void afterSim() {
-		this.simulationRunning = false;
-	}
-
 	@Override
 	public Boolean call() {
 		// implementing "call" and "run" side by side because it seems the easier way to 
@@ -116,11 +102,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			return false;
 		}
 
+		long start = System.nanoTime();
 		if (this.movingNodes) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+		this.lastCallNanos = System.nanoTime() - start;
+		addBusyNanos(this.lastCallNanos);
 		return true ;
 	}
 
@@ -144,12 +133,18 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 				return;
 			}
 
+			long t0 = System.nanoTime();
 			moveNodes();
+			long t1 = System.nanoTime();
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
 			this.separationBarrier.arriveAndAwaitAdvance();
 
+			long t2 = System.nanoTime();
 			moveLinks();
+			long t3 = System.nanoTime();
+			addBusyNanos((t1 - t0) + (t3 - t2));
+			addWaitNanos(t2 - t1);
 
 			if (QSim.analyzeRunTimes) {
 				long end = System.nanoTime();
@@ -162,6 +157,7 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			 * reach this barrier the main thread can go on.
 			 */
 			this.endBarrier.arriveAndAwaitAdvance();
+			addWaitNanos(System.nanoTime() - t3);
 		}
 	}
 	private void moveNodes() {
@@ -229,7 +225,26 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		return this.nodesQueue.size();
 	}
 
+	@Override
+	/*package*/ double getNextTimeOfInterest() {
+		if (!this.nodesQueue.isEmpty()) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		double next = Double.POSITIVE_INFINITY;
+		for (QLinkI link : this.linksList) {
+			next = Math.min(next, getNextTimeOfInterest(link));
+			if (next == Double.NEGATIVE_INFINITY) {
+				break;
+			}
+		}
+		return next;
+	}
+
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
+
+	/*package*/ long getLastCallNanos() {
+		return this.lastCallNanos;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRunnerForWorkStealing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * A runner of the {@link QNetsimEngine} that helps the other runners once it has moved its own nodes or links.
+ * <p></p>
+ * Every runner still owns the nodes and links assigned to it, and collects the ones that are active in an array.
+ * At the beginning of a phase of the time step (moving nodes, moving links), the array is frozen, and the runners
+ * claim chunks of it with an atomic cursor: first the chunks of their own array, then the remaining chunks of the
+ * other runners. Thus a runner with a congested area does not hold up the step on its own. The elements that stay
+ * active, or are activated by a node or link of this runner, are added to the array of the next phase, again with
+ * an atomic counter. A node or link is active at most once, so the arrays never need to grow, and nothing is
+ * allocated per time step.
+ * <p></p>
+ * Moving the nodes or links in a different order, or on a different thread, does not change the result: a node
+ * only moves vehicles from the buffers of its in-links to its out-links, and has its own random numbers when
+ * there is more than one thread; a link only moves its own vehicles.
+ */
+final class QNetsimEngineRunnerForWorkStealing extends AbstractQNetsimEngineRunner implements Runnable {
+
+	private static final int CHUNK_SIZE = 16;
+
+	private final Phaser startBarrier;
+	private final Phaser separationBarrier;
+	private final Phaser endBarrier;
+
+	private QNetsimEngineRunnerForWorkStealing[] runners;
+	private int index;
+
+	// the active nodes of this phase, and the ones active in the next phase
+	private QNodeImpl[] nodes = new QNodeImpl[0];
+	private int nodeCount = 0;
+	private final AtomicInteger nodeCursor = new AtomicInteger();
+	private QNodeImpl[] nextNodes = new QNodeImpl[0];
+	private final AtomicInteger nextNodeCount = new AtomicInteger();
+
+	private QLinkI[] links = new QLinkI[0];
+	private int linkCount = 0;
+	private final AtomicInteger linkCursor = new AtomicInteger();
+	private QLinkI[] nextLinks = new QLinkI[0];
+	private final AtomicInteger nextLinkCount = new AtomicInteger();
+
+	private int stolenChunks = 0;
+
+	private long startTime = 0;
+
+	/*package*/ QNetsimEngineRunnerForWorkStealing(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
+		this.startBarrier = startBarrier;
+		this.separationBarrier = separationBarrier;
+		this.endBarrier = endBarrier;
+	}
+
+	/**
+	 * Creates the barriers for the runners. The last runner that arrives at a barrier starts the next phase for
+	 * all runners, before any of them continues.
+	 *
+	 * @return the start barrier, the separation barrier (between nodes and links), and the end barrier
+	 */
+	/*package*/ static Phaser[] createBarriers(final QNetsimEngineRunnerForWorkStealing[] runners) {
+		Phaser startBarrier = new Phaser(runners.length + 1) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties) {
+				for (QNetsimEngineRunnerForWorkStealing runner : runners) {
+					runner.startMovingNodes();
+				}
+				return false;
+			}
+		};
+		Phaser separationBarrier = new Phaser(runners.length) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties) {
+				for (QNetsimEngineRunnerForWorkStealing runner : runners) {
+					runner.startMovingLinks();
+				}
+				return false;
+			}
+		};
+		Phaser endBarrier = new Phaser(runners.length + 1);
+		return new Phaser[] {startBarrier, separationBarrier, endBarrier};
+	}
+
+	/*package*/ void setRunners(final QNetsimEngineRunnerForWorkStealing[] runners, final int index) {
+		this.runners = runners;
+		this.index = index;
+	}
+
+	@Override
+	/*package*/ void setNumberOfElements(int numberOfNodes, int numberOfLinks) {
+		this.nodes = new QNodeImpl[numberOfNodes];
+		this.nextNodes = new QNodeImpl[numberOfNodes];
+		this.links = new QLinkI[numberOfLinks];
+		this.nextLinks = new QLinkI[numberOfLinks];
+	}
+
+	private void startMovingNodes() {
+		QNodeImpl[] tmp = this.nodes;
+		this.nodes = this.nextNodes;
+		this.nextNodes = tmp;
+		this.nodeCount = this.nextNodeCount.getAndSet(0);
+		this.nodeCursor.set(0);
+	}
+
+	private void startMovingLinks() {
+		QLinkI[] tmp = this.links;
+		this.links = this.nextLinks;
+		this.nextLinks = tmp;
+		this.linkCount = this.nextLinkCount.getAndSet(0);
+		this.linkCursor.set(0);
+	}
+
+	@Override
+	public void run() {
+
+		// The method is ended when the simulationRunning flag is set to false.
+		while(true) {
+
+			startBarrier.arriveAndAwaitAdvance();
+
+			if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();
+
+			// Check if Simulation is still running. Otherwise print CPU usage and end thread.
+			if (!this.simulationRunning) {
+				Gbl.printCurrentThreadCpuTime();
+				return;
+			}
+
+			long t0 = System.nanoTime();
+			for (int i = 0; i < this.runners.length; i++) {
+				moveNodes(this.runners[(this.index + i) % this.runners.length], i > 0);
+			}
+			long t1 = System.nanoTime();
+
+			this.separationBarrier.arriveAndAwaitAdvance();
+
+			long t2 = System.nanoTime();
+			for (int i = 0; i < this.runners.length; i++) {
+				moveLinks(this.runners[(this.index + i) % this.runners.length], i > 0);
+			}
+			long t3 = System.nanoTime();
+			addBusyNanos((t1 - t0) + (t3 - t2));
+			addWaitNanos(t2 - t1);
+
+			if (QSim.analyzeRunTimes) {
+				int bin = (int) this.time;
+				if (bin < this.runTimes.length) this.runTimes[bin] = t3 - this.startTime;
+			}
+
+			this.endBarrier.arriveAndAwaitAdvance();
+			addWaitNanos(System.nanoTime() - t3);
+		}
+	}
+
+	private void moveNodes(final QNetsimEngineRunnerForWorkStealing owner, final boolean stealing) {
+		int start;
+		while ((start = owner.nodeCursor.getAndAdd(CHUNK_SIZE)) < owner.nodeCount) {
+			int end = Math.min(start + CHUNK_SIZE, owner.nodeCount);
+			for (int i = start; i < end; i++) {
+				QNodeImpl node = owner.nodes[i];
+				if (node.doSimStep(this.time)) {
+					owner.registerNodeAsActive(node);
+				}
+			}
+			if (stealing) this.stolenChunks++;
+		}
+	}
+
+	private void moveLinks(final QNetsimEngineRunnerForWorkStealing owner, final boolean stealing) {
+		int start;
+		while ((start = owner.linkCursor.getAndAdd(CHUNK_SIZE)) < owner.linkCount) {
+			int end = Math.min(start + CHUNK_SIZE, owner.linkCount);
+			for (int i = start; i < end; i++) {
+				QLinkI link = owner.links[i];
+				if (link.doSimStep()) {
+					owner.registerLinkAsActive(link);
+				}
+			}
+			if (stealing) this.stolenChunks++;
+		}
+	}
+
+	/*
+	 * May be called from any runner's thread, and from the main thread between the time steps.
+	 */
+	@Override
+	void registerNodeAsActive(QNodeImpl node) {
+		this.nextNodes[this.nextNodeCount.getAndIncrement()] = node;
+	}
+
+	@Override
+	int getNumberOfSimulatedNodes() {
+		return this.nextNodeCount.get();
+	}
+
+	@Override
+	void registerLinkAsActive(QLinkI link) {
+		this.nextLinks[this.nextLinkCount.getAndIncrement()] = link;
+	}
+
+	@Override
+	int getNumberOfSimulatedLinks() {
+		return this.nextLinkCount.get();
+	}
+
+	@Override
+	/*package*/ double getNextTimeOfInterest() {
+		if (this.nextNodeCount.get() > 0) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		double next = Double.POSITIVE_INFINITY;
+		int linkCount = this.nextLinkCount.get();
+		for (int i = 0; i < linkCount && next > Double.NEGATIVE_INFINITY; i++) {
+			next = Math.min(next, getNextTimeOfInterest(this.nextLinks[i]));
+		}
+		return next;
+	}
+
+	/**
+	 * @return the number of chunks of other runners this runner has moved
+	 */
+	/*package*/ int getStolenChunks() {
+		return this.stolenChunks;
+	}
+
+}
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
+
+/**
+ * Assigns the nodes of the network to the runners of the {@link QNetsimEngine}. The out-links of a node go to the
+ * runner of the node.
+ * <p></p>
+ * With {@link NetsimPartitioning#coordinateBisection}, the area of the network is split recursively along its longer
+ * side, such that the parts have about the same weight. The weight of a node is the flow capacity of its in-links,
+ * as the work of a node, and of the links it passes vehicles to, grows with the number of vehicles that pass it.
+ * Neighbouring nodes thus mostly end up at the same runner, and only the links at the borders of the parts connect
+ * nodes of different runners. Vehicles cross these borders through the buffers of the links, which are filled
+ * while the links are moved and emptied while the nodes are moved, so the runners never touch the same link at
+ * the same time.
+ */
+final class QNetworkPartitioner {
+
+	/** so nodes without in-links, or in-links with very low capacity, are distributed as well */
+	private static final double MIN_NODE_WEIGHT = 1e-3;
+
+	private QNetworkPartitioner() {
+	}
+
+	/**
+	 * @return for every node in the list, the index of its part, from 0 to <code>numberOfParts - 1</code>
+	 */
+	static int[] partition(final List<? extends Node> nodes, final NetsimPartitioning partitioning, final int numberOfParts) {
+		int[] parts = new int[nodes.size()];
+		switch (partitioning) {
+			case roundRobin:
+				for (int i = 0; i < parts.length; i++) {
+					parts[i] = i % numberOfParts;
+				}
+				break;
+			case coordinateBisection:
+				double[] weights = new double[nodes.size()];
+				Integer[] order = new Integer[nodes.size()];
+				for (int i = 0; i < weights.length; i++) {
+					double weight = MIN_NODE_WEIGHT;
+					for (Link inLink : nodes.get(i).getInLinks().values()) {
+						weight += inLink.getFlowCapacityPerSec();
+					}
+					weights[i] = weight;
+					order[i] = i;
+				}
+				bisect(nodes, weights, order, 0, order.length, 0, numberOfParts, parts);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown partitioning: " + partitioning);
+		}
+		return parts;
+	}
+
+	/**
+	 * Assigns the nodes <code>order[from]</code> to <code>order[to - 1]</code> to the parts
+	 * <code>firstPart</code> to <code>firstPart + numberOfParts - 1</code>.
+	 */
+	private static void bisect(final List<? extends Node> nodes, final double[] weights, final Integer[] order,
+			final int from, final int to, final int firstPart, final int numberOfParts, final int[] parts) {
+		if (numberOfParts == 1) {
+			for (int i = from; i < to; i++) {
+				parts[order[i]] = firstPart;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0;
+		for (int i = from; i < to; i++) {
+			Coord coord = nodes.get(order[i]).getCoord();
+			minX = Math.min(minX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxX = Math.max(maxX, coord.getX());
+			maxY = Math.max(maxY, coord.getY());
+			totalWeight += weights[order[i]];
+		}
+		Comparator<Integer> byCoordinate = maxX - minX >= maxY - minY
+				? Comparator.comparingDouble(i -> nodes.get(i).getCoord().getX())
+				: Comparator.comparingDouble(i -> nodes.get(i).getCoord().getY());
+		// the index as tie breaker, so the result does not depend on the order the nodes were in before
+		Arrays.sort(order, from, to, byCoordinate.thenComparing(Comparator.naturalOrder()));
+
+		// odd numbers of parts are split unevenly, the weight is split in the same ratio
+		int lowerParts = numberOfParts / 2;
+		double lowerWeight = totalWeight * lowerParts / numberOfParts;
+		int split = from;
+		double weight = 0;
+		while (split < to && weight + weights[order[split]] / 2 < lowerWeight) {
+			weight += weights[order[split]];
+			split++;
+		}
+		bisect(nodes, weights, order, from, split, firstPart, lowerParts, parts);
+		bisect(nodes, weights, order, split, to, firstPart + lowerParts, numberOfParts - lowerParts, parts);
+	}
+
+}
@@ -23,6 +23,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -57,13 +58,25 @@ final class QNodeImpl implements QNodeI {
 		public final void setTurnAcceptanceLogic( TurnAcceptanceLogic turnAcceptanceLogic ) {
 			this.turnAcceptanceLogic = turnAcceptanceLogic ;
 		}
+		private TurnStatistics turnStatistics = null ;
+		public final void setTurnStatistics( TurnStatistics turnStatistics ) {
+			this.turnStatistics = turnStatistics ;
+		}
 		public QNodeImpl build( Node n ) {
-			return new QNodeImpl( n, context, netsimEngine, turnAcceptanceLogic ) ;
+			return new QNodeImpl( n, context, netsimEngine, turnAcceptanceLogic, turnStatistics ) ;
 		}
 	}
 	
 	private final QLinkI[] inLinksArrayCache;
 	private final QLinkI[] tempLinks;
+	private final int[] tempLinkIndices;
+	
+	/*
+	 * The out-links, so the next link of a vehicle is found without a lookup in the map of the network.  As the ids
+	 * are interned, comparing them by identity is enough.
+	 */
+	private final Id<Link>[] outLinkIds;
+	private final QLinkI[] outLinksArrayCache;
 	
 	/*
 	 * This needs to be atomic since this allows us to ensure that an node which is
@@ -86,15 +99,28 @@ final class QNodeImpl implements QNodeI {
 	private final NetsimInternalInterface netsimEngine;
 	
 	private final TurnAcceptanceLogic turnAcceptanceLogic ;
+	// the default logic only checks that the next link starts at this node, which is true for all links of the out-link table
+	private final boolean turnAcceptedForOutLinks ;
+	
+	private final TurnStatistics turnStatistics ;
+	private long[] turnCounts = null ;
 	
-	private QNodeImpl(final Node n, NetsimEngineContext context, NetsimInternalInterface netsimEngine2, TurnAcceptanceLogic turnAcceptanceLogic) {
+	@SuppressWarnings("unchecked")
+	private QNodeImpl(final Node n, NetsimEngineContext context, NetsimInternalInterface netsimEngine2, TurnAcceptanceLogic turnAcceptanceLogic,
+			TurnStatistics turnStatistics) {
 		this.node = n;
 		this.netsimEngine = netsimEngine2 ;
 		this.context = context ;
 		this.turnAcceptanceLogic = turnAcceptanceLogic;
+		this.turnAcceptedForOutLinks = turnAcceptanceLogic instanceof DefaultTurnAcceptanceLogic ;
+		this.turnStatistics = turnStatistics ;
 		int nofInLinks = this.node.getInLinks().size();
 		this.inLinksArrayCache = new QLinkI[nofInLinks];
 		this.tempLinks = new QLinkI[nofInLinks];
+		this.tempLinkIndices = new int[nofInLinks];
+		int nofOutLinks = this.node.getOutLinks().size();
+		this.outLinkIds = new Id[nofOutLinks];
+		this.outLinksArrayCache = new QLinkI[nofOutLinks];
 		if (this.context.qsimConfig.getNumberOfThreads() > 1) {
 			// This could just as well be the "normal" case. The second alternative
 			// is just there so some scenarios / test cases stay
@@ -113,12 +139,18 @@ final class QNodeImpl implements QNodeI {
 	 */
 	@Override
 	public void init() {
+		QNetwork network = netsimEngine.getNetsimNetwork() ;
 		int i = 0;
 		for (Link l : this.node.getInLinks().values()) {
-			QNetwork network = netsimEngine.getNetsimNetwork() ;
 			this.inLinksArrayCache[i] = network.getNetsimLinks().get(l.getId());
 			i++;
 		}
+		i = 0;
+		for (Link l : this.node.getOutLinks().values()) {
+			this.outLinkIds[i] = l.getId();
+			this.outLinksArrayCache[i] = network.getNetsimLinks().get(l.getId());
+			i++;
+		}
 		/* As the order of links has an influence on the simulation results,
 		 * the nodes are sorted to avoid indeterministic simulations. dg[april08]
 		 */
@@ -128,6 +160,26 @@ final class QNodeImpl implements QNodeI {
 				return o1.getLink().getId().compareTo(o2.getLink().getId());
 			}
 		});
+		if (this.turnStatistics != null) {
+			@SuppressWarnings("unchecked")
+			Id<Link>[] inLinkIds = new Id[this.inLinksArrayCache.length];
+			for (int j = 0; j < inLinkIds.length; j++) {
+				inLinkIds[j] = this.inLinksArrayCache[j].getLink().getId();
+			}
+			this.turnCounts = this.turnStatistics.registerNode(this.node.getId(), inLinkIds, this.outLinkIds);
+		}
+	}
+	
+	/**
+	 * @return the position of the link in the out-link table, or -1 if it does not start at this node
+	 */
+	private int getOutLinkIndex(final Id<Link> linkId) {
+		for (int i = 0; i < this.outLinkIds.length; i++) {
+			if (this.outLinkIds[i] == linkId) {
+				return i;
+			}
+		}
+		return -1;
 	}
 	
 	@Override
@@ -197,9 +249,11 @@ final class QNodeImpl implements QNodeI {
 		int inLinksCounter = 0;
 		double inLinksCapSum = 0.0;
 		// Check all incoming links for buffered agents
-		for (QLinkI link : this.inLinksArrayCache) {
+		for (int i = 0; i < this.inLinksArrayCache.length; i++) {
+			QLinkI link = this.inLinksArrayCache[i];
 			if (!link.isNotOfferingVehicle()) {
 				this.tempLinks[inLinksCounter] = link;
+				this.tempLinkIndices[inLinksCounter] = i;
 				inLinksCounter++;
 				inLinksCapSum += link.getLink().getCapacity(now);
 			}
@@ -221,7 +275,7 @@ final class QNodeImpl implements QNodeI {
 					if (selCap >= rndNum) {
 						inLinksCapSum -= link.getLink().getCapacity(now);
 						this.tempLinks[i] = null;
-						this.moveLink(link, now);
+						this.moveLink(link, this.tempLinkIndices[i], now);
 						break;
 					}
 				}
@@ -231,11 +285,13 @@ final class QNodeImpl implements QNodeI {
 		return true;
 	}
 	
-	private void moveLink(final QLinkI link, final double now){
-		for (QLaneI lane : link.getOfferingQLanes()) {
+	private void moveLink(final QLinkI link, final int inLinkIndex, final double now){
+		List<QLaneI> lanes = link.getOfferingQLanes();
+		for (int i = 0; i < lanes.size(); i++) {
+			QLaneI lane = lanes.get(i);
 			while (! lane.isNotOfferingVehicle()) {
 				QVehicle veh = lane.getFirstVehicle();
-				if (! moveVehicleOverNode(veh, link, lane, now )) {
+				if (! moveVehicleOverNode(veh, link, inLinkIndex, lane, now )) {
 					break;
 				}
 			}
@@ -251,22 +307,26 @@ final class QNodeImpl implements QNodeI {
 	 * @return <code>true</code> if the vehicle was successfully moved over the node, <code>false</code>
 	 * otherwise (e.g. in case where the next link is jammed)
 	 */
-	private boolean moveVehicleOverNode( final QVehicle veh, QLinkI fromLink, final QLaneI fromLane, final double now ) {
+	private boolean moveVehicleOverNode( final QVehicle veh, QLinkI fromLink, final int inLinkIndex, final QLaneI fromLane, final double now ) {
 		Id<Link> nextLinkId = veh.getDriver().chooseNextLinkId();
 		Link currentLink = fromLink.getLink() ;
+		int outLinkIndex = getOutLinkIndex(nextLinkId);
 
-		AcceptTurn turn = turnAcceptanceLogic.isAcceptingTurn(currentLink, fromLane, nextLinkId, veh, this.netsimEngine.getNetsimNetwork(), now);
-		if ( turn.equals(AcceptTurn.ABORT) ) {
-			moveVehicleFromInlinkToAbort( veh, fromLane, now, currentLink.getId() ) ;
-			return true ;
-		} else if ( turn.equals(AcceptTurn.WAIT) ) {
-			return false;
+		if ( outLinkIndex < 0 || !this.turnAcceptedForOutLinks ) {
+			AcceptTurn turn = turnAcceptanceLogic.isAcceptingTurn(currentLink, fromLane, nextLinkId, veh, this.netsimEngine.getNetsimNetwork(), now);
+			if ( turn.equals(AcceptTurn.ABORT) ) {
+				moveVehicleFromInlinkToAbort( veh, fromLane, now, currentLink.getId() ) ;
+				return true ;
+			} else if ( turn.equals(AcceptTurn.WAIT) ) {
+				return false;
+			}
 		}
 		
-		QLinkI nextQueueLink = this.netsimEngine.getNetsimNetwork().getNetsimLinks().get(nextLinkId);
+		QLinkI nextQueueLink = outLinkIndex >= 0 ? this.outLinksArrayCache[outLinkIndex]
+				: this.netsimEngine.getNetsimNetwork().getNetsimLinks().get(nextLinkId);
 		QLaneI nextQueueLane = nextQueueLink.getAcceptingQLane() ;
 		if (nextQueueLane.isAcceptingFromUpstream()) {
-			moveVehicleFromInlinkToOutlink(veh, currentLink.getId(), fromLane, nextLinkId, nextQueueLane);
+			moveVehicleFromInlinkToOutlink(veh, currentLink.getId(), inLinkIndex, fromLane, nextLinkId, outLinkIndex, nextQueueLane);
 			return true;
 		}
 		
@@ -279,7 +339,7 @@ final class QNodeImpl implements QNodeI {
 				moveVehicleFromInlinkToAbort(veh, fromLane, now, currentLink.getId());
 				return false ;
 			} else {
-				moveVehicleFromInlinkToOutlink(veh, currentLink.getId(), fromLane, nextLinkId, nextQueueLane);
+				moveVehicleFromInlinkToOutlink(veh, currentLink.getId(), inLinkIndex, fromLane, nextLinkId, outLinkIndex, nextQueueLane);
 				return true;
 				// (yyyy why is this returning `true'?  Since this is a fix to avoid gridlock, this should proceed in small steps. 
 				// kai, feb'12) 
@@ -315,9 +375,14 @@ final class QNodeImpl implements QNodeI {
 		
 	}
 	
-	private void moveVehicleFromInlinkToOutlink(final QVehicle veh, Id<Link> currentLinkId, final QLaneI fromLane, Id<Link> nextLinkId, QLaneI nextQueueLane) {
+	private void moveVehicleFromInlinkToOutlink(final QVehicle veh, Id<Link> currentLinkId, final int inLinkIndex, final QLaneI fromLane,
+			Id<Link> nextLinkId, final int outLinkIndex, QLaneI nextQueueLane) {
 		double now = this.context.getSimTimer().getTimeOfDay() ;
 		
+		if (this.turnCounts != null && outLinkIndex >= 0) {
+			this.turnCounts[inLinkIndex * this.outLinkIds.length + outLinkIndex]++;
+		}
+		
 		fromLane.popFirstVehicle();
 		// -->
 		//		network.simEngine.getMobsim().getEventsManager().processEvent(new LaneLeaveEvent(now, veh.getId(), currentLinkId, fromLane.getId()));
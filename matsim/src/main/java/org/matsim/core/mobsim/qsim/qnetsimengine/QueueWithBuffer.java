@@ -40,7 +40,7 @@ import org.matsim.core.mobsim.qsim.pt.TransitDriverAgent;
 import org.matsim.core.mobsim.qsim.qnetsimengine.AbstractQLink.HandleTransitStopResult;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QLinkImpl.LaneFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.LinkSpeedCalculator;
-import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.FIFOVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.ArrayFIFOVehicleQ;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.PassingVehicleQ;
 import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.VehicleQ;
 import org.matsim.core.utils.misc.Time;
@@ -72,7 +72,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private static final Logger log = Logger.getLogger( QueueWithBuffer.class ) ;
 
 	static final class Builder implements LaneFactory {
-		private VehicleQ<QVehicle> vehicleQueue = new FIFOVehicleQ() ;
+		private VehicleQ<QVehicle> vehicleQueue = new ArrayFIFOVehicleQ() ;
 		private Id<Lane> id = null ;
 		private Double length = null ;
 		private Double effectiveNumberOfLanes = null ;
@@ -142,7 +142,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private double flowCapacityPerTimeStep;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>();
 
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
 	private double bufferLastMovedTime = Time.getUndefinedTime() ;
@@ -157,7 +157,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer = new ArrayDeque<>() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -563,6 +563,21 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 	}
 
+	/**
+	 * With the plain queue dynamics, nothing happens on the lane until the first vehicle may leave it: the flow
+	 * capacity is then updated for the time that has passed. Everything else is looked at in every time step.
+	 */
+	/*package*/ final double getNextTimeOfInterest() {
+		if (!context.qsimConfig.isUsingFastCapacityUpdate()
+				|| context.qsimConfig.getTrafficDynamics() != TrafficDynamics.queue
+				|| context.qsimConfig.getLinkDynamics() == LinkDynamics.SeepageQ
+				|| context.qsimConfig.isUseLanes()) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		QVehicle veh = this.vehQueue.peek();
+		return veh == null ? Double.POSITIVE_INFINITY : veh.getEarliestLinkExitTime();
+	}
+
 	@Override
 	public final boolean isActive() {
 		if( context.qsimConfig.isUsingFastCapacityUpdate() ){
@@ -0,0 +1,117 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TurnStatistics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Counts the vehicles that turn from one link into another at the nodes of the {@link QNetwork}. This is an optional
+ * instrumentation of the nodes, see {@link ConfigurableQNetworkFactory#setTurnStatistics(TurnStatistics)}.
+ * <p></p>
+ * Every node gets its own array of counters, indexed by the positions of the links in its in- and out-link tables.
+ * The array is only written by the runner that moves the node, so counting needs neither a map lookup nor
+ * synchronization. Read the counts after the mobsim has finished. The same instance can be used for several
+ * iterations, the counts then add up until {@link #reset()} is called.
+ */
+public final class TurnStatistics {
+
+	private final Map<Id<Node>, NodeCounts> nodeCounts = new HashMap<>();
+
+	/**
+	 * Called by the nodes while the network is initialized, which happens in one thread.
+	 *
+	 * @return the counters of the node, <code>counts[inLinkIndex * outLinks.length + outLinkIndex]</code>
+	 */
+	/*package*/ long[] registerNode(final Id<Node> nodeId, final Id<Link>[] inLinkIds, final Id<Link>[] outLinkIds) {
+		NodeCounts counts = this.nodeCounts.get(nodeId);
+		if (counts == null || !Arrays.equals(counts.inLinkIds, inLinkIds) || !Arrays.equals(counts.outLinkIds, outLinkIds)) {
+			counts = new NodeCounts(inLinkIds, outLinkIds);
+			this.nodeCounts.put(nodeId, counts);
+		}
+		return counts.counts;
+	}
+
+	/**
+	 * @return the number of vehicles that moved from <code>fromLinkId</code> to <code>toLinkId</code> over the node,
+	 * 0 if the node was not simulated or the links do not meet there
+	 */
+	public long getCount(final Id<Node> nodeId, final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		NodeCounts counts = this.nodeCounts.get(nodeId);
+		if (counts == null) {
+			return 0;
+		}
+		int in = indexOf(counts.inLinkIds, fromLinkId);
+		int out = indexOf(counts.outLinkIds, toLinkId);
+		if (in < 0 || out < 0) {
+			return 0;
+		}
+		return counts.counts[in * counts.outLinkIds.length + out];
+	}
+
+	/**
+	 * @return the number of vehicles that moved over the node
+	 */
+	public long getCount(final Id<Node> nodeId) {
+		NodeCounts counts = this.nodeCounts.get(nodeId);
+		long sum = 0;
+		if (counts != null) {
+			for (long count : counts.counts) {
+				sum += count;
+			}
+		}
+		return sum;
+	}
+
+	public void reset() {
+		for (NodeCounts counts : this.nodeCounts.values()) {
+			Arrays.fill(counts.counts, 0);
+		}
+	}
+
+	private static int indexOf(final Id<Link>[] linkIds, final Id<Link> linkId) {
+		for (int i = 0; i < linkIds.length; i++) {
+			if (linkIds[i].equals(linkId)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static final class NodeCounts {
+		final Id<Link>[] inLinkIds;
+		final Id<Link>[] outLinkIds;
+		final long[] counts;
+
+		NodeCounts(final Id<Link>[] inLinkIds, final Id<Link>[] outLinkIds) {
+			this.inLinkIds = inLinkIds;
+			this.outLinkIds = outLinkIds;
+			this.counts = new long[inLinkIds.length * outLinkIds.length];
+		}
+	}
+
+}
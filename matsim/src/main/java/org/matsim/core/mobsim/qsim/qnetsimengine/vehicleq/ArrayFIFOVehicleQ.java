@@ -0,0 +1,167 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayFIFOVehicleQ.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+
+/**
+ * A first-in-first-out queue of vehicles in a circular array, which grows when it is full. Unlike the
+ * {@link FIFOVehicleQ}, it does not allocate anything when vehicles enter or leave the link, except when it grows.
+ * <p></p>
+ * The array is only allocated when the first vehicle enters, and starts small, since most links of a large network
+ * never hold more than a few vehicles at a time.
+ */
+public final class ArrayFIFOVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle> {
+
+	private static final QVehicle[] EMPTY = new QVehicle[0];
+	// the capacity is always a power of two, so the positions wrap around with a bit mask
+	private static final int INITIAL_CAPACITY = 4;
+
+	private QVehicle[] vehicles = EMPTY;
+	private int head = 0;
+	private int size = 0;
+
+	@Override
+	public boolean offer(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (this.size == this.vehicles.length) {
+			grow();
+		}
+		this.vehicles[(this.head + this.size) & (this.vehicles.length - 1)] = e;
+		this.size++;
+		return true;
+	}
+
+	@Override
+	public void addFirst(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (this.size == this.vehicles.length) {
+			grow();
+		}
+		this.head = (this.head - 1) & (this.vehicles.length - 1);
+		this.vehicles[this.head] = e;
+		this.size++;
+	}
+
+	@Override
+	public QVehicle peek() {
+		return this.size == 0 ? null : this.vehicles[this.head];
+	}
+
+	@Override
+	public QVehicle poll() {
+		if (this.size == 0) {
+			return null;
+		}
+		QVehicle e = this.vehicles[this.head];
+		this.vehicles[this.head] = null;
+		this.head = (this.head + 1) & (this.vehicles.length - 1);
+		this.size--;
+		return e;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		for (int i = 0; i < this.size; i++) {
+			if (o != null && o.equals(this.vehicles[(this.head + i) & (this.vehicles.length - 1)])) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the i-th vehicle from the head, and moves the vehicles behind it one position forward.
+	 */
+	private void removeAt(int i) {
+		int length = this.vehicles.length;
+		for (int j = i; j < this.size - 1; j++) {
+			this.vehicles[(this.head + j) & (length - 1)] = this.vehicles[(this.head + j + 1) & (length - 1)];
+		}
+		this.vehicles[(this.head + this.size - 1) & (length - 1)] = null;
+		this.size--;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.vehicles[(this.head + i) & (this.vehicles.length - 1)] = null;
+		}
+		this.head = 0;
+		this.size = 0;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public Iterator<QVehicle> iterator() {
+		return new Iterator<QVehicle>() {
+			private int next = 0;
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.next < ArrayFIFOVehicleQ.this.size;
+			}
+
+			@Override
+			public QVehicle next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				this.last = this.next++;
+				return ArrayFIFOVehicleQ.this.vehicles[(ArrayFIFOVehicleQ.this.head + this.last) & (ArrayFIFOVehicleQ.this.vehicles.length - 1)];
+			}
+
+			@Override
+			public void remove() {
+				if (this.last < 0) {
+					throw new IllegalStateException();
+				}
+				removeAt(this.last);
+				this.next = this.last;
+				this.last = -1;
+			}
+		};
+	}
+
+	private void grow() {
+		QVehicle[] grown = new QVehicle[Math.max(INITIAL_CAPACITY, 2 * this.vehicles.length)];
+		for (int i = 0; i < this.size; i++) {
+			grown[i] = this.vehicles[(this.head + i) & (this.vehicles.length - 1)];
+		}
+		this.vehicles = grown;
+		this.head = 0;
+	}
+
+}
@@ -24,6 +24,10 @@ import java.util.LinkedList;
 
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 
+/**
+ * A first-in-first-out queue of vehicles in a {@link LinkedList}. The qsim uses {@link ArrayFIFOVehicleQ} by
+ * default, which does the same without allocating per vehicle.
+ */
 public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle>  {
 	
 	private final LinkedList<QVehicle> vehicleQueue = new LinkedList<>();
@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HeapPassingVehicleQ.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+
+/**
+ * A queue of vehicles ordered by their earliest link exit time, as {@link PassingVehicleQ}, but as a binary heap of
+ * primitive keys next to the vehicles. The arrays are only allocated when the first vehicle enters.
+ * <p></p>
+ * The exit time of a vehicle is read when it enters the queue, and that of the vehicle at the head again before every
+ * operation: transit vehicles at blocking stops get a later exit time while they are at the head of the queue. Other
+ * comparisons neither call the vehicles nor a comparator. The exit times of the vehicles behind the head must not
+ * change while they are in the queue.
+ * <p></p>
+ * The heap operations are the same as in {@link java.util.PriorityQueue}, so the vehicles leave the queue in the same
+ * order as with {@link PassingVehicleQ}, also with equal exit times or a changed exit time of the head. Like
+ * {@link PassingVehicleQ}, the heap is not sifted again when the exit time of the head changes: the head then blocks
+ * the vehicles behind it until one with an earlier exit time enters.
+ */
+public final class HeapPassingVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle> {
+
+	private static final QVehicle[] EMPTY_VEHICLES = new QVehicle[0];
+	private static final double[] EMPTY_EXIT_TIMES = new double[0];
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	// the arrays are only allocated when the first vehicle enters
+	private QVehicle[] vehicles = EMPTY_VEHICLES;
+	private double[] exitTimes = EMPTY_EXIT_TIMES;
+	private int size = 0;
+
+	@Override
+	public boolean offer(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (this.size == this.vehicles.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, 2 * this.vehicles.length);
+			this.vehicles = Arrays.copyOf(this.vehicles, capacity);
+			this.exitTimes = Arrays.copyOf(this.exitTimes, capacity);
+		}
+		updateHead();
+		siftUp(this.size++, e, e.getEarliestLinkExitTime());
+		return true;
+	}
+
+	@Override
+	public void addFirst(QVehicle qveh) {
+		qveh.setEarliestLinkExitTime(Double.NEGATIVE_INFINITY);
+		this.add(qveh);
+	}
+
+	@Override
+	public QVehicle peek() {
+		return this.size == 0 ? null : this.vehicles[0];
+	}
+
+	@Override
+	public QVehicle poll() {
+		if (this.size == 0) {
+			return null;
+		}
+		updateHead();
+		QVehicle result = this.vehicles[0];
+		removeAt(0);
+		return result;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		updateHead();
+		for (int i = 0; i < this.size; i++) {
+			if (o != null && o.equals(this.vehicles[i])) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.vehicles, 0, this.size, null);
+		this.size = 0;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Iterates over the vehicles in the order of the heap, not in the order of their exit times.
+	 */
+	@Override
+	public Iterator<QVehicle> iterator() {
+		return new Iterator<QVehicle>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.next < HeapPassingVehicleQ.this.size;
+			}
+
+			@Override
+			public QVehicle next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return HeapPassingVehicleQ.this.vehicles[this.next++];
+			}
+		};
+	}
+
+	private void removeAt(int i) {
+		int last = --this.size;
+		QVehicle moved = this.vehicles[last];
+		double movedExitTime = this.exitTimes[last];
+		this.vehicles[last] = null;
+		if (last != i) {
+			siftDown(i, moved, movedExitTime);
+			if (this.vehicles[i] == moved) {
+				siftUp(i, moved, movedExitTime);
+			}
+		}
+	}
+
+	/**
+	 * Reads the exit time of the head again, without sifting it, as {@link java.util.PriorityQueue} would compare it.
+	 */
+	private void updateHead() {
+		if (this.size > 0) {
+			this.exitTimes[0] = this.vehicles[0].getEarliestLinkExitTime();
+		}
+	}
+
+	private void siftUp(int k, QVehicle vehicle, double exitTime) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			if (Double.compare(exitTime, this.exitTimes[parent]) >= 0) {
+				break;
+			}
+			this.vehicles[k] = this.vehicles[parent];
+			this.exitTimes[k] = this.exitTimes[parent];
+			k = parent;
+		}
+		this.vehicles[k] = vehicle;
+		this.exitTimes[k] = exitTime;
+	}
+
+	private void siftDown(int k, QVehicle vehicle, double exitTime) {
+		int half = this.size >>> 1;
+		while (k < half) {
+			int child = 2 * k + 1;
+			int right = child + 1;
+			if (right < this.size && Double.compare(this.exitTimes[child], this.exitTimes[right]) > 0) {
+				child = right;
+			}
+			if (Double.compare(exitTime, this.exitTimes[child]) <= 0) {
+				break;
+			}
+			this.vehicles[k] = this.vehicles[child];
+			this.exitTimes[k] = this.exitTimes[child];
+			k = child;
+		}
+		this.vehicles[k] = vehicle;
+		this.exitTimes[k] = exitTime;
+	}
+
+}
@@ -4,6 +4,11 @@ import java.util.*;
 
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 
+/**
+ * A queue of vehicles ordered by their earliest link exit time, in a {@link PriorityQueue}. The qsim uses it by
+ * default; {@link HeapPassingVehicleQ} does the same on primitive keys, if only the head changes its exit time while in
+ * the queue.
+ */
 public final class PassingVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle> {
 
 	public PassingVehicleQ() {} // to find calls 
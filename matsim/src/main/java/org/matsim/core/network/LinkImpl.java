@@ -164,6 +164,8 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	@Override
 	public final boolean setFromNode(final Node node) {
 		this.from = node;
+		this.changed();
+		this.indexChanged();
 		return true;
 	}
 
@@ -175,6 +177,8 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	@Override
 	public final boolean setToNode(final Node node) {
 		this.to = node;
+		this.changed();
+		this.indexChanged();
 		return true;
 	}
 
@@ -194,6 +198,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	public void setCapacity(double capacityPerNetworkCapcityPeriod){
 		this.capacity = capacityPerNetworkCapcityPeriod;
 		this.checkCapacitySemantics();
+		this.changed();
 	}
 
 	@Override
@@ -245,6 +250,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	public void setFreespeed(double freespeed) {
 		this.freespeed = freespeed;
 		this.checkFreespeedSemantics();
+		this.changed();
 	}
 
 	@Override
@@ -256,6 +262,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	public final void setLength(double length) {
 		this.length = length;
 		this.checkLengthSemantics();
+		this.changed();
 	}
 
 	@Override
@@ -273,6 +280,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	public void setNumberOfLanes(double lanes) {
 		this.nofLanes = lanes;
 		this.checkNumberOfLanesSemantics();
+		this.changed();
 	}
 
 	@Override
@@ -283,6 +291,26 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	@Override
 	public final void setAllowedModes(final Set<String> modes) {
 		this.allowedModes = HashSetCache.get(modes);
+		this.changed();
+		this.indexChanged();
+	}
+
+	/**
+	 * Lets the network know that data derived from it, e.g. by the routers, may be outdated.
+	 */
+	private void changed() {
+		if (this.network instanceof NetworkImpl) {
+			((NetworkImpl) this.network).linkChanged();
+		}
+	}
+
+	/**
+	 * Lets the network know that its index of the links, which knows their nodes and modes, is outdated.
+	 */
+	private void indexChanged() {
+		if (this.network instanceof NetworkImpl) {
+			((NetworkImpl) this.network).linkIndexChanged();
+		}
 	}
 
 //	/*deliberately package*/ final void setOrigId2(final String id) {
@@ -0,0 +1,467 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * A spatial index of links, for the nearest link to a point by the exact distance to the line segment of the link.
+ * It is an R-tree on the bounding boxes of the links: the links can be put in one by one, without knowing the extent
+ * of the network beforehand, and the queries search the tree best-first, i.e. they only look at the parts of the tree
+ * that could contain a link closer than the ones already found.
+ * <p></p>
+ * All queries can be restricted to the links allowing a mode. Every part of the tree knows the modes of its links,
+ * so parts without links of the mode are skipped. The modes of a link are read when the link is put in; after
+ * changing the allowed modes of a link, remove the link and put it in again.
+ * <p></p>
+ * Of links at the same distance, the longer one is returned first, and of links as long, the one put in first. This is
+ * what the {@link LinkQuadTree} mostly did: it checks the links that cross the borders of its cells, typically the
+ * longer ones, before the others, and the links of a cell, e.g. the two directions of a link, in the order they were
+ * put in. The tree can be queried from several threads at the same time, but must not be changed while it is
+ * queried.
+ *
+ * @see LinkQuadTree
+ */
+public final class LinkRTree {
+
+	private static final int MAX_ENTRIES = 16;
+	/** modes beyond the first 63 share the last bit, for them the modes of the links themselves decide */
+	private static final int SHARED_MODE_BIT = 63;
+
+	private final Map<String, Long> modeBits = new HashMap<>();
+	private TreeNode root = new TreeNode(true);
+	private int size = 0;
+	private int nextSequence = 0;
+
+	public void put(final Link link) {
+		LinkEntry entry = new LinkEntry(link, modeBits(link), this.nextSequence++);
+		TreeNode sibling = insert(this.root, entry);
+		if (sibling != null) {
+			TreeNode newRoot = new TreeNode(false);
+			newRoot.add(this.root);
+			newRoot.add(sibling);
+			this.root = newRoot;
+		}
+		this.size++;
+	}
+
+	/**
+	 * @return <code>true</code> if the link was in the tree
+	 */
+	public boolean remove(final Link link) {
+		double fx = link.getFromNode().getCoord().getX();
+		double fy = link.getFromNode().getCoord().getY();
+		double tx = link.getToNode().getCoord().getX();
+		double ty = link.getToNode().getCoord().getY();
+		if (!remove(this.root, link, Math.min(fx, tx), Math.min(fy, ty), Math.max(fx, tx), Math.max(fy, ty))) {
+			return false;
+		}
+		if (!this.root.leaf && this.root.size == 1) {
+			this.root = (TreeNode) this.root.children[0];
+		} else if (!this.root.leaf && this.root.size == 0) {
+			this.root = new TreeNode(true);
+		}
+		this.size--;
+		return true;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the link closest to (x, y), <code>null</code> if the tree is empty
+	 */
+	public Link getNearest(final double x, final double y) {
+		return getNearest(x, y, null);
+	}
+
+	/**
+	 * @param mode the mode the link must allow, <code>null</code> for any link
+	 * @return the link allowing <code>mode</code> closest to (x, y), <code>null</code> if there is none
+	 */
+	public Link getNearest(final double x, final double y, final String mode) {
+		LinkEntry entry = new Search(x, y, mode).next();
+		return entry == null ? null : entry.link;
+	}
+
+	/**
+	 * @param mode the mode the links must allow, <code>null</code> for any link
+	 * @return the <code>k</code> links allowing <code>mode</code> closest to (x, y), the closest first. Fewer if there
+	 * are not as many such links.
+	 */
+	public List<Link> getKNearest(final double x, final double y, final int k, final String mode) {
+		List<Link> links = new ArrayList<>(Math.min(k, this.size));
+		Search search = new Search(x, y, mode);
+		LinkEntry entry;
+		while (links.size() < k && (entry = search.next()) != null) {
+			links.add(entry.link);
+		}
+		return links;
+	}
+
+	/**
+	 * Finds the node closest to (x, y) among the from- and to-nodes of the links allowing <code>mode</code>, i.e. the
+	 * node {@link NetworkUtils#getNearestNode(org.matsim.api.core.v01.network.Network, org.matsim.api.core.v01.Coord)}
+	 * would find in the sub-network of the links allowing the mode. As no link is closer than its nodes, the search
+	 * stops once the next link is farther away than the closest node found.
+	 *
+	 * @param mode the mode a link of the node must allow, <code>null</code> for any link
+	 * @return the closest node, <code>null</code> if there are no links allowing the mode
+	 */
+	public Node getNearestNode(final double x, final double y, final String mode) {
+		Node nearest = null;
+		double nearestDistance = Double.POSITIVE_INFINITY;
+		Search search = new Search(x, y, mode);
+		LinkEntry entry;
+		while ((entry = search.next()) != null && search.distance < nearestDistance) {
+			double distance = calcDistanceIndicator(entry.fromX, entry.fromY, x, y);
+			if (distance < nearestDistance) {
+				nearestDistance = distance;
+				nearest = entry.link.getFromNode();
+			}
+			distance = calcDistanceIndicator(entry.toX, entry.toY, x, y);
+			if (distance < nearestDistance) {
+				nearestDistance = distance;
+				nearest = entry.link.getToNode();
+			}
+		}
+		return nearest;
+	}
+
+	private long modeBits(final Link link) {
+		long bits = 0;
+		for (String mode : link.getAllowedModes()) {
+			Long bit = this.modeBits.get(mode);
+			if (bit == null) {
+				bit = 1L << Math.min(this.modeBits.size(), SHARED_MODE_BIT);
+				this.modeBits.put(mode, bit);
+			}
+			bits |= bit;
+		}
+		return bits;
+	}
+
+	/**
+	 * @return the new sibling of <code>node</code> if it had to be split, <code>null</code> otherwise
+	 */
+	private static TreeNode insert(final TreeNode node, final LinkEntry entry) {
+		node.include(entry.minX, entry.minY, entry.maxX, entry.maxY, entry.modes);
+		if (node.leaf) {
+			node.add(entry);
+		} else {
+			TreeNode child = chooseChild(node, entry);
+			TreeNode sibling = insert(child, entry);
+			if (sibling != null) {
+				node.add(sibling);
+			}
+		}
+		return node.size > MAX_ENTRIES ? split(node) : null;
+	}
+
+	/**
+	 * @return the child whose box grows least by the entry; on ties, the one whose circumference grows least, then the
+	 * smaller one. The second criterion is needed as the boxes of horizontal and vertical links have no area.
+	 */
+	private static TreeNode chooseChild(final TreeNode node, final LinkEntry entry) {
+		TreeNode best = null;
+		double bestAreaGrowth = Double.POSITIVE_INFINITY;
+		double bestMarginGrowth = Double.POSITIVE_INFINITY;
+		double bestArea = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < node.size; i++) {
+			TreeNode child = (TreeNode) node.children[i];
+			double width = child.maxX - child.minX;
+			double height = child.maxY - child.minY;
+			double newWidth = Math.max(child.maxX, entry.maxX) - Math.min(child.minX, entry.minX);
+			double newHeight = Math.max(child.maxY, entry.maxY) - Math.min(child.minY, entry.minY);
+			double areaGrowth = newWidth * newHeight - width * height;
+			double marginGrowth = newWidth + newHeight - width - height;
+			double area = width * height;
+			if (areaGrowth < bestAreaGrowth
+					|| (areaGrowth == bestAreaGrowth && (marginGrowth < bestMarginGrowth
+					|| (marginGrowth == bestMarginGrowth && area < bestArea)))) {
+				best = child;
+				bestAreaGrowth = areaGrowth;
+				bestMarginGrowth = marginGrowth;
+				bestArea = area;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Moves the upper half of the children of <code>node</code> along the longer side of its box to a new node.
+	 */
+	private static TreeNode split(final TreeNode node) {
+		Comparator<Bounded> byCenter = node.maxX - node.minX >= node.maxY - node.minY
+				? Comparator.comparingDouble(b -> b.minX + b.maxX)
+				: Comparator.comparingDouble(b -> b.minY + b.maxY);
+		Bounded[] children = Arrays.copyOf(node.children, node.size, Bounded[].class);
+		Arrays.sort(children, byCenter);
+		TreeNode sibling = new TreeNode(node.leaf);
+		node.clear();
+		for (int i = 0; i < children.length; i++) {
+			(i < children.length / 2 ? node : sibling).add(children[i]);
+		}
+		return sibling;
+	}
+
+	private static boolean remove(final TreeNode node, final Link link,
+			final double minX, final double minY, final double maxX, final double maxY) {
+		for (int i = 0; i < node.size; i++) {
+			Bounded child = node.children[i];
+			if (child.minX > minX || child.minY > minY || child.maxX < maxX || child.maxY < maxY) {
+				continue;
+			}
+			boolean removed;
+			if (node.leaf) {
+				removed = ((LinkEntry) child).link.getId().equals(link.getId());
+			} else {
+				removed = remove((TreeNode) child, link, minX, minY, maxX, maxY);
+			}
+			if (removed) {
+				if (node.leaf || ((TreeNode) child).size == 0) {
+					node.removeChild(i);
+				}
+				node.update();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static double calcLineSegmentDistanceIndicator(final double x, final double y, final LinkEntry entry) {
+		double fx = entry.fromX;
+		double fy = entry.fromY;
+		double lineDX = entry.toX - fx;
+		double lineDY = entry.toY - fy;
+
+		if ((lineDX == 0.0) && (lineDY == 0.0)) {
+			// the line segment is a point without dimension
+			return calcDistanceIndicator(fx, fy, x, y);
+		}
+
+		double u = ((x - fx)*lineDX + (y - fy)*lineDY) / (lineDX*lineDX + lineDY*lineDY);
+
+		if (u <= 0) {
+			return calcDistanceIndicator(fx, fy, x, y);
+		}
+		if (u >= 1) {
+			return calcDistanceIndicator(fx + lineDX, fy + lineDY, x, y);
+		}
+		return calcDistanceIndicator(fx + u*lineDX, fy + u*lineDY, x, y);
+	}
+
+	private static double calcDistanceIndicator(final double fromX, final double fromY, final double toX, final double toY) {
+		double xDiff = toX - fromX;
+		double yDiff = toY - fromY;
+		return (xDiff*xDiff) + (yDiff*yDiff);
+		// (no Math.sqrt(), as it's only used to compare to each other, thus distance "indicator")
+	}
+
+	/**
+	 * Returns the links allowing the mode one by one, the closest first, by expanding the parts of the tree in the order
+	 * of their distance to the point. At the same distance, parts of the tree are expanded before links are returned,
+	 * so links at the same distance come in the order of {@link Candidate#compareTo(Candidate)}.
+	 */
+	private final class Search {
+
+		private final double x;
+		private final double y;
+		private final String mode;
+		private final long modeBit;
+		private final PriorityQueue<Candidate> queue = new PriorityQueue<>();
+		/** the distance indicator of the link last returned */
+		double distance = 0;
+
+		Search(final double x, final double y, final String mode) {
+			this.x = x;
+			this.y = y;
+			this.mode = mode;
+			Long bit = mode == null ? null : LinkRTree.this.modeBits.get(mode);
+			this.modeBit = bit == null ? 0 : bit;
+			if (LinkRTree.this.root.size > 0 && (mode == null || bit != null)) {
+				this.queue.add(new Candidate(0, LinkRTree.this.root));
+			}
+		}
+
+		LinkEntry next() {
+			Candidate candidate;
+			while ((candidate = this.queue.poll()) != null) {
+				if (candidate.bounded instanceof LinkEntry) {
+					this.distance = candidate.distance;
+					return (LinkEntry) candidate.bounded;
+				}
+				TreeNode node = (TreeNode) candidate.bounded;
+				for (int i = 0; i < node.size; i++) {
+					Bounded child = node.children[i];
+					if (this.mode != null && (child.modes & this.modeBit) == 0) {
+						continue;
+					}
+					if (node.leaf) {
+						LinkEntry entry = (LinkEntry) child;
+						if (this.mode == null || this.modeBit != 1L << SHARED_MODE_BIT || entry.link.getAllowedModes().contains(this.mode)) {
+							this.queue.add(new Candidate(calcLineSegmentDistanceIndicator(this.x, this.y, entry), entry));
+						}
+					} else {
+						this.queue.add(new Candidate(child.calcDistanceIndicator(this.x, this.y), child));
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	private static final class Candidate implements Comparable<Candidate> {
+
+		final double distance;
+		final Bounded bounded;
+
+		Candidate(final double distance, final Bounded bounded) {
+			this.distance = distance;
+			this.bounded = bounded;
+		}
+
+		@Override
+		public int compareTo(final Candidate other) {
+			int cmp = Double.compare(this.distance, other.distance);
+			if (cmp != 0) {
+				return cmp;
+			}
+			boolean isEntry = this.bounded instanceof LinkEntry;
+			boolean otherIsEntry = other.bounded instanceof LinkEntry;
+			if (isEntry != otherIsEntry) {
+				return isEntry ? 1 : -1;
+			}
+			if (!isEntry) {
+				return 0;
+			}
+			LinkEntry entry = (LinkEntry) this.bounded;
+			LinkEntry otherEntry = (LinkEntry) other.bounded;
+			cmp = Double.compare(otherEntry.lengthIndicator, entry.lengthIndicator);
+			return cmp != 0 ? cmp : Integer.compare(entry.sequence, otherEntry.sequence);
+		}
+	}
+
+	private static abstract class Bounded {
+
+		double minX;
+		double minY;
+		double maxX;
+		double maxY;
+		long modes;
+
+		/**
+		 * @return the squared distance of (x, y) to the box, 0 if it lies within
+		 */
+		final double calcDistanceIndicator(final double x, final double y) {
+			double dx = Math.max(0, Math.max(this.minX - x, x - this.maxX));
+			double dy = Math.max(0, Math.max(this.minY - y, y - this.maxY));
+			return dx * dx + dy * dy;
+		}
+	}
+
+	private static final class TreeNode extends Bounded {
+
+		final boolean leaf;
+		final Bounded[] children = new Bounded[MAX_ENTRIES + 1];
+		int size = 0;
+
+		TreeNode(final boolean leaf) {
+			this.leaf = leaf;
+			clear();
+		}
+
+		void add(final Bounded child) {
+			this.children[this.size++] = child;
+			include(child.minX, child.minY, child.maxX, child.maxY, child.modes);
+		}
+
+		void removeChild(final int index) {
+			this.size--;
+			System.arraycopy(this.children, index + 1, this.children, index, this.size - index);
+			this.children[this.size] = null;
+		}
+
+		void include(final double minX, final double minY, final double maxX, final double maxY, final long modes) {
+			this.minX = Math.min(this.minX, minX);
+			this.minY = Math.min(this.minY, minY);
+			this.maxX = Math.max(this.maxX, maxX);
+			this.maxY = Math.max(this.maxY, maxY);
+			this.modes |= modes;
+		}
+
+		/** recalculates the box and the modes from the children */
+		void update() {
+			this.minX = Double.POSITIVE_INFINITY;
+			this.minY = Double.POSITIVE_INFINITY;
+			this.maxX = Double.NEGATIVE_INFINITY;
+			this.maxY = Double.NEGATIVE_INFINITY;
+			this.modes = 0;
+			for (int i = 0; i < this.size; i++) {
+				Bounded child = this.children[i];
+				include(child.minX, child.minY, child.maxX, child.maxY, child.modes);
+			}
+		}
+
+		void clear() {
+			Arrays.fill(this.children, null);
+			this.size = 0;
+			update();
+		}
+	}
+
+	private static final class LinkEntry extends Bounded {
+
+		final Link link;
+		final double fromX;
+		final double fromY;
+		final double toX;
+		final double toY;
+		/** the squared length of the line segment */
+		final double lengthIndicator;
+		final int sequence;
+
+		LinkEntry(final Link link, final long modes, final int sequence) {
+			this.link = link;
+			this.fromX = link.getFromNode().getCoord().getX();
+			this.fromY = link.getFromNode().getCoord().getY();
+			this.toX = link.getToNode().getCoord().getX();
+			this.toY = link.getToNode().getCoord().getY();
+			this.minX = Math.min(this.fromX, this.toX);
+			this.minY = Math.min(this.fromY, this.toY);
+			this.maxX = Math.max(this.fromX, this.toX);
+			this.maxY = Math.max(this.fromY, this.toY);
+			this.modes = modes;
+			this.lengthIndicator = LinkRTree.calcDistanceIndicator(this.fromX, this.fromY, this.toX, this.toY);
+			this.sequence = sequence;
+		}
+	}
+
+}
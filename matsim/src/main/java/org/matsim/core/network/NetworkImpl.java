@@ -28,18 +28,20 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.scenario.Lockable;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.function.Function;
 
 /**
  * Design thoughts:<ul>
@@ -58,12 +60,15 @@ import java.util.Queue;
 
 	private double capacityPeriod = 3600.0 ;
 
-	private final Map<Id<Node>, Node> nodes = new LinkedHashMap<>();
+	private final Map<Id<Node>, Node> nodes = new IdMap<>(Node.class);
 
-	private final Map<Id<Link>, Link> links = new LinkedHashMap<>();
+	private final Map<Id<Link>, Link> links = new IdMap<>(Link.class);
 
 	private QuadTree<Node> nodeQuadTree = null;
 
+	private LinkRTree linkRTree = null;
+
+	/** only built on request of {@link #getLinkQuadTree()}, the queries of the network use the linkRTree */
 	private LinkQuadTree linkQuadTree = null;
 
 	private static final double DEFAULT_EFFECTIVE_CELL_SIZE = 7.5;
@@ -98,6 +103,12 @@ import java.util.Queue;
 	private boolean locked = false ;
 	private final Attributes attributes = new Attributes();
 
+	/** counts the changes to the nodes and links, and to the attributes of the links */
+	private int modificationCount = 0;
+
+	/** see {@link NetworkUtils#getDerivedData} */
+	private final Map<Class<?>, Object> derivedData = new HashMap<>();
+
 	NetworkImpl() {
 		this.factory = new NetworkFactoryImpl(this);
 	}
@@ -129,6 +140,11 @@ import java.util.Queue;
 		toNode.addInLink(link);
 
 		links.put(link.getId(), link);
+		this.modificationCount++;
+
+		if (this.linkRTree != null) {
+			this.linkRTree.put(link);
+		}
 
 		if (this.linkQuadTree != null) {
 			double linkMinX = Math.min(link.getFromNode().getCoord().getX(), link.getToNode().getCoord().getX());
@@ -181,6 +197,7 @@ import java.util.Queue;
 					".\nNode is not added to the network.");
 		}
 		this.nodes.put(id, nn);
+		this.modificationCount++;
 		if (this.nodeQuadTree != null) {
 			if (Double.isInfinite(this.nodeQuadTree.getMinEasting())) {
 				// looks like the quad tree was initialized with infinite bounds, see MATSIM-278.
@@ -217,6 +234,7 @@ import java.util.Queue;
 		if (n == null) {
 			return null;
 		}
+		this.modificationCount++;
 		HashSet<Link> links1 = new HashSet<>();
 		links1.addAll(n.getInLinks().values());
 		links1.addAll(n.getOutLinks().values());
@@ -235,9 +253,13 @@ import java.util.Queue;
 		if (l == null) {
 			return null;
 		}
+		this.modificationCount++;
 		l.getFromNode().removeOutLink(l.getId()) ;
 		l.getToNode().removeInLink(l.getId()) ;
 
+		if (this.linkRTree != null) {
+			this.linkRTree.remove(l);
+		}
 		if (this.linkQuadTree != null) {
 			this.linkQuadTree.remove(l);
 		}
@@ -345,10 +367,11 @@ import java.util.Queue;
 	}
 
 	@Override public Link getNearestLinkExactly(final Coord coord) {
-		if (this.linkQuadTree == null) {
-			buildLinkQuadTree();
-		}
-		return this.linkQuadTree.getNearest(coord.getX(), coord.getY());
+		return getNearestLinkExactly(coord, null);
+	}
+
+	@Override public Link getNearestLinkExactly(final Coord coord, final String mode) {
+		return getOrBuildLinkRTree().getNearest(coord.getX(), coord.getY(), mode);
 	}
 
 	/**
@@ -362,6 +385,17 @@ import java.util.Queue;
 		return this.nodeQuadTree.getClosest(coord.getX(), coord.getY());
 	}
 
+	/**
+	 * finds the node nearest to <code>coord</code> among the nodes with an in- or out-link allowing <code>mode</code>
+	 *
+	 * @param coord the coordinate to which the closest node should be found
+	 * @param mode the mode one of the links of the node must allow
+	 * @return the closest node found, null if none
+	 */
+	@Override public Node getNearestNode(final Coord coord, final String mode) {
+		return getOrBuildLinkRTree().getNearestNode(coord.getX(), coord.getY(), mode);
+	}
+
 	/**
 	 * finds the nodes within distance to <code>coord</code>
 	 *
@@ -435,6 +469,26 @@ import java.util.Queue;
 		log.info("Building QuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
 	}
 
+	private LinkRTree getOrBuildLinkRTree() {
+		LinkRTree tree = this.linkRTree;
+		return tree == null ? buildLinkRTree() : tree;
+	}
+
+	synchronized private LinkRTree buildLinkRTree() {
+		if (this.linkRTree != null) {
+			return this.linkRTree;
+		}
+		double startTime = System.currentTimeMillis();
+		LinkRTree tree = new LinkRTree();
+		for (Link l : this.links.values()) {
+			tree.put(l);
+		}
+		/* assign the tree at the very end, when it is complete, like the quadTree of the nodes */
+		this.linkRTree = tree;
+		log.info("Building LinkRTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		return tree;
+	}
+
 	synchronized private void buildLinkQuadTree() {
 		if (this.linkQuadTree != null) {
 			return;
@@ -506,9 +560,44 @@ import java.util.Queue;
 	@Override public Attributes getAttributes() {
 		return attributes;
 	}
+	/**
+	 * Called by the links of this network when their attributes change.
+	 */
+	void linkChanged() {
+		this.modificationCount++;
+	}
+	/**
+	 * Called by the links of this network when their nodes or modes change. The links are indexed again at the next
+	 * query, as the index knows where the links are and which modes they allow.
+	 */
+	synchronized void linkIndexChanged() {
+		this.linkRTree = null;
+	}
+	int getModificationCount() {
+		return this.modificationCount;
+	}
+	synchronized <T> T getDerivedData(final Class<T> type, final Function<Network, T> creator) {
+		Object data = this.derivedData.get(type);
+		if (data == null) {
+			data = creator.apply(this);
+			this.derivedData.put(type, data);
+		}
+		return type.cast(data);
+	}
+	/**
+	 * @deprecated the nearest link queries of the network use the {@link #getLinkRTree()}; this builds and then keeps
+	 * up to date a LinkQuadTree of its own on the first call.
+	 */
+	@Deprecated
 	@Override public final LinkQuadTree getLinkQuadTree() {
+		if (this.linkQuadTree == null) {
+			buildLinkQuadTree();
+		}
 		return this.linkQuadTree ;
 	}
+	@Override public final LinkRTree getLinkRTree() {
+		return this.linkRTree ;
+	}
 	@Override public final QuadTree<Node> getNodeQuadTree() {
 		return this.nodeQuadTree ;
 	}
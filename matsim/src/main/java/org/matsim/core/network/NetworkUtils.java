@@ -21,6 +21,7 @@
 package org.matsim.core.network;
 
 import java.util.*;
+import java.util.function.Function;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -183,11 +184,19 @@ public final class NetworkUtils {
 		if (trimmed.length() == 0) {
 			return new ArrayList<>(0);
 		}
-		String[] parts = trimmed.split("[ \t\n]+");
-		final List<Id<Link>> linkIdsList = new ArrayList<>(parts.length);
-
-		for (String id : parts) {
-			linkIdsList.add(Id.create(id, Link.class));
+		// no String.split here, routes of large populations are parsed millions of times
+		final List<Id<Link>> linkIdsList = new ArrayList<>();
+		int start = -1;
+		for (int i = 0, length = trimmed.length(); i <= length; i++) {
+			char c = i < length ? trimmed.charAt(i) : ' ';
+			if (c == ' ' || c == '\t' || c == '\n') {
+				if (start >= 0) {
+					linkIdsList.add(Id.create(trimmed.substring(start, i), Link.class));
+					start = -1;
+				}
+			} else if (start < 0) {
+				start = i;
+			}
 		}
 		return linkIdsList;
 	}
@@ -295,6 +304,30 @@ public final class NetworkUtils {
 		return fromNode;
 	}
 
+	/**
+	 * @return a number that changes whenever nodes or links are added to or removed from the network, or the attributes
+	 * of its links are set, or -1 if the network does not count its changes (i.e. was not created by this class)
+	 */
+	public static int getModificationCount(final Network network) {
+		if (network instanceof NetworkImpl) {
+			return ((NetworkImpl) network).getModificationCount();
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the data of the given type that was derived from the network, e.g. by the routers, and creates it if
+	 * there is none yet. The network holds the data, so it is kept exactly as long as the network. Whether the data
+	 * is still up to date is up to the caller, see {@link #getModificationCount(Network)}. Networks not created by
+	 * this class cannot hold data, for them, the data is created on every call.
+	 */
+	public static <T> T getDerivedData(final Network network, final Class<T> type, final Function<Network, T> creator) {
+		if (network instanceof NetworkImpl) {
+			return ((NetworkImpl) network).getDerivedData(type, creator);
+		}
+		return creator.apply(network);
+	}
+
 	/**
 	 * returns the euclidean distance between two coordinates
 	 *
@@ -464,6 +497,38 @@ public final class NetworkUtils {
         return nearestLink;
     }
 
+    /**
+     * Finds the (approx.) nearest link allowing <code>mode</code>, like {@link #getNearestLink(Network, Coord)} on the
+     * sub-network of the links allowing the mode, but without creating that sub-network: the nearest node with a link
+     * allowing the mode is found with the {@link LinkRTree} of the network, and then the nearest link allowing the
+     * mode originating or ending at that node.
+     *
+     * @param mode the mode the link must allow, <code>null</code> for any link
+     * @return the link found closest to coord, null if there is no link allowing the mode
+     */
+    public static Link getNearestLink(Network network, final Coord coord, final String mode) {
+        if ( mode == null ) {
+            return getNearestLink(network, coord);
+        }
+        Node nearestNode = getNearestNode(network, coord, mode);
+        if ( nearestNode == null ) {
+            log.warn("[no node with a link allowing mode " + mode + " found.  Will probably crash eventually.]" + network) ;
+            return null ;
+        }
+        Link nearestLink = null;
+        double shortestDistance = Double.MAX_VALUE;
+        for (Link link : getIncidentLinks(nearestNode).values()) {
+            if (link.getAllowedModes().contains(mode)) {
+                double dist = CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord);
+                if (dist < shortestDistance) {
+                    shortestDistance = dist;
+                    nearestLink = link;
+                }
+            }
+        }
+        return nearestLink;
+    }
+
 	/**
 	 * Calculates the most 'left' outLink for a given inLink (oriented from north to south).
 	 * That's the link a driver would refer to when turning left (no u-turn),
@@ -750,6 +815,18 @@ public final class NetworkUtils {
 	}
 
 
+	/**
+	 * @param mode the mode the link must allow, <code>null</code> for any link
+	 */
+	public static Link getNearestLinkExactly(Network network, Coord coord, String mode) {
+		if ( network instanceof SearchableNetwork ) {
+			return ((SearchableNetwork) network).getNearestLinkExactly(coord, mode) ;
+		} else {
+			throw new RuntimeException( Gbl.WRONG_IMPLEMENTATION + " Network, SearchableNetwork " ) ;
+		}
+	}
+
+
 	public static Node getNearestNode(Network network, final Coord coord) {
 		if ( network instanceof SearchableNetwork ) {
 			return ((SearchableNetwork)network).getNearestNode(coord);
@@ -759,6 +836,18 @@ public final class NetworkUtils {
 	}
 
 
+	/**
+	 * @param mode the mode one of the in- or out-links of the node must allow, <code>null</code> for any node with links
+	 */
+	public static Node getNearestNode(Network network, final Coord coord, final String mode) {
+		if ( network instanceof SearchableNetwork ) {
+			return ((SearchableNetwork)network).getNearestNode(coord, mode);
+		} else {
+			throw new RuntimeException( Gbl.WRONG_IMPLEMENTATION + " Network, SearchableNetwork " ) ;
+		}
+	}
+
+
 	public static Collection<Node> getNearestNodes(Network network, final Coord coord, final double distance) {
 		if ( network instanceof SearchableNetwork ) {
 			return ((SearchableNetwork)network).getNearestNodes(coord, distance);
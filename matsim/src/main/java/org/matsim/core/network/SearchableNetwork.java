@@ -33,12 +33,28 @@ public interface SearchableNetwork {
 
 	Link getNearestLinkExactly(Coord coord);
 
+	/**
+	 * @param mode the mode the link must allow, <code>null</code> for any link
+	 */
+	Link getNearestLinkExactly(Coord coord, String mode);
+
 	Node getNearestNode(Coord coord);
 
+	/**
+	 * @param mode the mode one of the in- or out-links of the node must allow, <code>null</code> for any node with links
+	 */
+	Node getNearestNode(Coord coord, String mode);
+
 	Collection<Node> getNearestNodes(Coord coord, double distance);
 
 	QuadTree<Node> getNodeQuadTree();
 
+	/**
+	 * @deprecated use {@link #getLinkRTree()}, which the nearest link queries use. Will be removed in the next release.
+	 */
+	@Deprecated
 	LinkQuadTree getLinkQuadTree();
 
+	LinkRTree getLinkRTree();
+
 }
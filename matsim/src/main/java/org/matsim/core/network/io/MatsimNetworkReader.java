@@ -52,6 +52,7 @@ public final class MatsimNetworkReader extends MatsimXmlParser {
 
 	private final Network network;
 	private Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private int numberOfThreads = 1;
 
 	/**
 	 * Creates a new reader for MATSim network files.
@@ -115,8 +116,12 @@ public final class MatsimNetworkReader extends MatsimXmlParser {
 				log.info("using network_v1-reader.");
 				break;
 			case NETWORK_V2:
-				this.delegate = new NetworkReaderMatsimV2(inputCRS, targetCRS, this.network);
-				((NetworkReaderMatsimV2) delegate).putAttributeConverters( converters );
+				if (this.numberOfThreads > 1) {
+					this.delegate = new ParallelNetworkReaderMatsimV2(inputCRS, targetCRS, this.network, this.numberOfThreads, converters);
+				} else {
+					this.delegate = new NetworkReaderMatsimV2(inputCRS, targetCRS, this.network);
+					((NetworkReaderMatsimV2) delegate).putAttributeConverters( converters );
+				}
 				log.info("using network_v2-reader.");
 				break;
 			default:
@@ -124,6 +129,14 @@ public final class MatsimNetworkReader extends MatsimXmlParser {
 		}
 	}
 
+	/**
+	 * Sets the number of threads that create the nodes and links of network_v2 files, while the calling thread parses
+	 * the file. With the default of one thread, the file is read sequentially.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
 		this.converters.put( clazz, converter );
 	}
@@ -48,7 +48,7 @@ import java.util.Stack;
  *
  * @author mrieser
  */
-final class NetworkReaderMatsimV2 extends MatsimXmlParser {
+class NetworkReaderMatsimV2 extends MatsimXmlParser {
 
 	private final static String NETWORK = "network";
 	private final static String LINKS = "links";
@@ -81,6 +81,22 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 		this.network = network;
 	}
 
+	/**
+	 * Creates a reader that transforms all coordinates with the given transformation, independent of the
+	 * coordinate reference system given in the file. Used by {@link ParallelNetworkReaderMatsimV2} for the
+	 * readers of its threads, which only read nodes and links.
+	 */
+	NetworkReaderMatsimV2(
+			final CoordinateTransformation coordinateTransformation,
+			final Network network) {
+		this(null, null, network);
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
+	CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		switch( name ) {
@@ -180,7 +196,7 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 				this.network.getFactory().createNode(
 						Id.create(atts.getValue("id"), Node.class),
 						parseCoord(atts));
-		this.network.addNode(node);
+		addNode(node);
 
 		NetworkUtils.setType(node,atts.getValue("type"));
 		// (did not have a null check when I found it.  kai, jul'16) 
@@ -192,6 +208,18 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 		currentAttributes = node.getAttributes();
 	}
 
+	/**
+	 * Called for every node that is read. {@link ParallelNetworkReaderMatsimV2} overrides this and the following
+	 * method to collect the nodes and links its threads read.
+	 */
+	void addNode(final Node node) {
+		this.network.addNode(node);
+	}
+
+	void addLink(final Link link) {
+		this.network.addLink(link);
+	}
+
 	private Coord parseCoord(Attributes atts) {
 		final Coord c = atts.getValue( "z" ) == null ?
 				new Coord(
@@ -220,7 +248,7 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 		l.setFreespeed(Double.parseDouble(atts.getValue("freespeed")));
 		l.setCapacity(Double.parseDouble(atts.getValue("capacity")));
 		l.setNumberOfLanes(Double.parseDouble(atts.getValue("permlanes")));
-		this.network.addLink(l);
+		addLink(l);
 		{
 			String value = atts.getValue(NetworkUtils.ORIGID);
 			if ( value != null ) {
@@ -0,0 +1,190 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelNetworkReaderMatsimV2.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.ParallelXmlElementProcessor;
+import org.matsim.core.utils.io.XmlElementBuffer;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Parallel implementation of the {@link NetworkReaderMatsimV2}.
+ * <p></p>
+ * The main thread only parses the file. It records the tags of the nodes and links, including their attributes,
+ * and hands them over to the threads, where {@link NetworkReaderMatsimV2}s create the nodes and links. The main
+ * thread adds them to the network in the order of the file, and creates their ids, so the indices of the ids do
+ * not depend on the threads. All nodes are added to the network before the first link is created.
+ */
+final class ParallelNetworkReaderMatsimV2 extends MatsimXmlParser {
+
+	private final static String NODE = "node";
+	private final static String LINK = "link";
+
+	private static final int ELEMENTS_PER_BUFFER = 1000;
+
+	private final NetworkReaderMatsimV2 reader;
+	private final Network network;
+	private final int numberOfThreads;
+	private final Map<Class<?>, AttributeConverter<?>> converters;
+
+	private ParallelXmlElementProcessor<ReadElements> processor = null;
+	private XmlElementBuffer buffer = null;
+	private int elementsInBuffer = 0;
+	private int elementDepth = -1;
+
+	ParallelNetworkReaderMatsimV2(
+			final String inputCRS,
+			final String targetCRS,
+			final Network network,
+			final int numberOfThreads,
+			final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.reader = new NetworkReaderMatsimV2(inputCRS, targetCRS, network);
+		this.reader.putAttributeConverters(converters);
+		this.network = network;
+		this.numberOfThreads = numberOfThreads;
+		this.converters = converters;
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.elementDepth < 0 && context.size() == 2 && (NODE.equals(name) || LINK.equals(name))) {
+			this.elementDepth = context.size();
+			if (this.buffer == null) {
+				this.buffer = new XmlElementBuffer(context);
+			}
+			if (NODE.equals(name)) {
+				Id.create(atts.getValue("id"), Node.class);
+			} else {
+				Id.create(atts.getValue("id"), Link.class);
+			}
+		}
+		if (this.elementDepth >= 0) {
+			this.buffer.startTag(name, atts);
+		} else {
+			awaitElements();
+			this.reader.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.elementDepth >= 0) {
+			this.buffer.endTag(name, content);
+			if (context.size() == this.elementDepth) {
+				this.elementDepth = -1;
+				this.elementsInBuffer++;
+				if (this.elementsInBuffer == ELEMENTS_PER_BUFFER) {
+					submitBuffer();
+				}
+			}
+		} else {
+			awaitElements();
+			this.reader.endTag(name, content, context);
+		}
+	}
+
+	@Override
+	public void endDocument() throws SAXException {
+		if (this.processor != null) {
+			this.processor.finish();
+			this.processor = null;
+		}
+		this.reader.endDocument();
+	}
+
+	private void submitBuffer() {
+		if (this.processor == null) {
+			// the threads' readers are created now, after the attributes of the network were read
+			this.processor = new ParallelXmlElementProcessor<>(this.numberOfThreads, "ParallelNetworkReader",
+					ElementsWorker::new, this::addElements);
+		}
+		this.processor.submit(this.buffer);
+		this.buffer = null;
+		this.elementsInBuffer = 0;
+	}
+
+	/**
+	 * Makes sure all nodes and links read so far are part of the network, so the tags that follow see the
+	 * same network as with the sequential reader. E.g. the links can only be created once all nodes are known.
+	 */
+	private void awaitElements() {
+		if (this.buffer != null) {
+			submitBuffer();
+		}
+		if (this.processor != null) {
+			this.processor.awaitAll();
+		}
+	}
+
+	private void addElements(final ReadElements elements) {
+		for (Node node : elements.nodes) {
+			this.network.addNode(node);
+		}
+		for (Link link : elements.links) {
+			this.network.addLink(link);
+		}
+	}
+
+	private static final class ReadElements {
+		final List<Node> nodes = new ArrayList<>();
+		final List<Link> links = new ArrayList<>();
+	}
+
+	private final class ElementsWorker implements ParallelXmlElementProcessor.Worker<ReadElements> {
+		private ReadElements elements = null;
+		private final NetworkReaderMatsimV2 workerReader;
+
+		ElementsWorker() {
+			this.workerReader = new NetworkReaderMatsimV2(ParallelNetworkReaderMatsimV2.this.reader.getCoordinateTransformation(),
+					ParallelNetworkReaderMatsimV2.this.network) {
+				@Override
+				void addNode(final Node node) {
+					ElementsWorker.this.elements.nodes.add(node);
+				}
+
+				@Override
+				void addLink(final Link link) {
+					ElementsWorker.this.elements.links.add(link);
+				}
+			};
+			this.workerReader.putAttributeConverters(ParallelNetworkReaderMatsimV2.this.converters);
+		}
+
+		@Override
+		public ReadElements process(final XmlElementBuffer elementBuffer) {
+			this.elements = new ReadElements();
+			elementBuffer.replay(this.workerReader);
+			return this.elements;
+		}
+	}
+
+}
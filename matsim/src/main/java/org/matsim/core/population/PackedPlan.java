@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A plan of a {@link PackedPopulation}. Score, type and person are fields of their own, so plan selectors do not
+ * need to unpack the plan; the plan elements are either a list or {@link PlanPacker packed}, and unpacked when they
+ * are accessed.
+ */
+/* deliberately package */ final class PackedPlan implements Plan {
+
+	private final PlanPacker packer;
+
+	private List<PlanElement> planElements = new ArrayList<>();
+	private byte[] packed = null;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+
+	private Customizable customizableDelegate;
+	private Attributes attributes;
+
+	PackedPlan(final PlanPacker packer) {
+		this.packer = packer;
+	}
+
+	/**
+	 * Packs the plan elements, if they can be packed. References to them from before must not be used anymore.
+	 */
+	void pack() {
+		if (this.packed == null) {
+			this.packed = this.packer.pack(this.planElements);
+			if (this.packed != null) {
+				this.planElements = null;
+			}
+		}
+	}
+
+	boolean isPacked() {
+		return this.packed != null;
+	}
+
+	/**
+	 * @return the size of the packed plan elements in bytes, or -1 if they are not packed
+	 */
+	int getPackedSize() {
+		return this.packed == null ? -1 : this.packed.length;
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		if (this.packed != null) {
+			this.planElements = this.packer.unpack(this.packed);
+			this.packed = null;
+		}
+		return this.planElements;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+		int size = this.packed == null ? this.planElements.size() : PlanPacker.getNumberOfPlanElements(this.packed);
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + size + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+}
@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.population.routes.RouteFactories;
+
+/**
+ * A population that keeps the plans of its persons in a packed form while they are not selected. For populations
+ * with several plans per person, most plans are not selected, and they are only used to be selected again: the plan
+ * selectors need their scores, which stay unpacked. The packed plan elements take a fraction of the memory of the
+ * activity, leg and route objects; see {@link PlanPacker}.
+ * <p></p>
+ * Plans are packed when the person is added to the population, so a population is read packed, and by
+ * {@link #packPlans()}, which the controler calls after the replanning of every iteration. Selecting another plan does
+ * not pack the one selected before, as the replanning often selects several plans of a person in a row. Plans are
+ * unpacked as soon as their plan elements are accessed, e.g. when they are written to a file, and stay unpacked until
+ * they are packed again. References to the plan elements of a plan must not be kept
+ * beyond the time the plan is selected.
+ * <p></p>
+ * Only the persons and plans created by the factory of the population are packed.
+ *
+ * @see org.matsim.core.config.groups.PlansConfigGroup#setPackingNonSelectedPlans(boolean)
+ */
+/* deliberately package */ final class PackedPopulation extends PopulationImpl {
+	private static final Logger log = Logger.getLogger(PackedPopulation.class);
+
+	PackedPopulation(final RouteFactories routeFactories) {
+		super(new PackedPopulationFactory(new PlanPacker(routeFactories), routeFactories));
+	}
+
+	@Override
+	public void addPerson(final Person p) {
+		super.addPerson(p);
+		if (p instanceof PackedPerson) {
+			((PackedPerson) p).packPlans();
+		}
+	}
+
+	/**
+	 * Packs the plans that are not selected again and logs the memory they need.
+	 */
+	public void packPlans() {
+		long plans = 0;
+		long packedPlans = 0;
+		long packedBytes = 0;
+		for (Person person : getPersons().values()) {
+			if (person instanceof PackedPerson) {
+				((PackedPerson) person).packPlans();
+			}
+			for (Plan plan : person.getPlans()) {
+				plans++;
+				if (plan instanceof PackedPlan && ((PackedPlan) plan).isPacked()) {
+					packedPlans++;
+					packedBytes += ((PackedPlan) plan).getPackedSize();
+				}
+			}
+		}
+		log.info("packed plans: " + packedPlans + " of " + plans + " plans of " + getPersons().size() + " persons are packed, in "
+				+ (packedBytes / 1024 / 1024) + " MB (" + (packedPlans == 0 ? 0 : packedBytes / packedPlans) + " bytes per plan).");
+	}
+
+	private static final class PackedPopulationFactory extends PopulationFactoryImpl {
+
+		private final PlanPacker packer;
+
+		PackedPopulationFactory(final PlanPacker packer, final RouteFactories routeFactories) {
+			super(routeFactories);
+			this.packer = packer;
+		}
+
+		@Override
+		public Person createPerson(final Id<Person> id) {
+			return new PackedPerson(id, this.packer);
+		}
+
+		@Override
+		public Plan createPlan() {
+			return new PackedPlan(this.packer);
+		}
+	}
+
+}
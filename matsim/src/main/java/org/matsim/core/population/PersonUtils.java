@@ -20,7 +20,7 @@ public final class PersonUtils {
 
 	@Deprecated // use methods of interface Person
 	public static Plan createAndAddPlan(Person person, final boolean selected) {
-		Plan p = PopulationUtils.createPlan(person);
+		Plan p = person instanceof PackedPerson ? ((PackedPerson) person).createPlan() : PopulationUtils.createPlan(person);
 		person.addPlan(p);
 		if (selected) {
 			person.setSelectedPlan(p);
@@ -0,0 +1,401 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Packs the plan elements of a plan into a byte array and unpacks them again. Ids are stored as their index, strings
+ * like activity types and modes as their position in a table shared by all plans, numbers as variable length integers
+ * where they are whole numbers, and the links of network routes as the differences of the indices of consecutive
+ * links. Unpacking creates new {@link ActivityImpl}s, {@link LegImpl}s and routes of the {@link RouteFactories}.
+ * <p></p>
+ * Only plans whose elements can be restored exactly are packed: activities and legs without attributes and with
+ * routes that the route factories create again for their route type.
+ *
+ * @see PackedPopulation
+ */
+/* deliberately package */ final class PlanPacker {
+
+	private static final int ROUTE_NONE = 0;
+	private static final int ROUTE_GENERIC = 1;
+	private static final int ROUTE_NETWORK = 2;
+
+	private static final int NUMBER_UNDEFINED_TIME = 0;
+	private static final int NUMBER_NAN = 1;
+	private static final int NUMBER_RAW = 2;
+	private static final int NUMBER_WHOLE = 3;
+	/** whole numbers up to this are stored as variable length integer */
+	private static final double MAX_WHOLE_NUMBER = 1L << 52;
+
+	private final RouteFactories routeFactories;
+
+	private final Map<String, Integer> stringIndices = new ConcurrentHashMap<>();
+	/** copied when a string is added, so it can be read without locking while plans are packed in other threads */
+	private volatile String[] strings = new String[0];
+	/** the class of the routes the route factories create for a route type, <code>null</code> if they fail to */
+	private final Map<String, Class<?>> routeClasses = new ConcurrentHashMap<>();
+
+	PlanPacker(final RouteFactories routeFactories) {
+		this.routeFactories = routeFactories;
+	}
+
+	/**
+	 * @return the packed plan elements, or <code>null</code> if they cannot be packed
+	 */
+	byte[] pack(final List<PlanElement> planElements) {
+		Writer writer = new Writer();
+		writer.writeInt(planElements.size());
+		for (PlanElement planElement : planElements) {
+			if (planElement.getClass() == ActivityImpl.class) {
+				Activity activity = (Activity) planElement;
+				if (activity.getType() == null || !activity.getAttributes().isEmpty()) {
+					return null;
+				}
+				writer.writeInt(0);
+				writer.writeInt(stringIndex(activity.getType()));
+				writeCoord(writer, activity.getCoord());
+				writeId(writer, activity.getLinkId());
+				writeId(writer, activity.getFacilityId());
+				writer.writeNumber(activity.getStartTime());
+				writer.writeNumber(activity.getEndTime());
+				writer.writeNumber(activity.getMaximumDuration());
+			} else if (planElement.getClass() == LegImpl.class) {
+				Leg leg = (Leg) planElement;
+				if (leg.getMode() == null || !leg.getAttributes().isEmpty()) {
+					return null;
+				}
+				writer.writeInt(1);
+				writer.writeInt(stringIndex(leg.getMode()));
+				writer.writeNumber(leg.getDepartureTime());
+				writer.writeNumber(leg.getTravelTime());
+				if (!writeRoute(writer, leg.getRoute())) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+		}
+		return writer.toByteArray();
+	}
+
+	List<PlanElement> unpack(final byte[] packed) {
+		Reader reader = new Reader(packed);
+		int size = reader.readInt();
+		List<PlanElement> planElements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			if (reader.readInt() == 0) {
+				Activity activity = new ActivityImpl(this.strings[reader.readInt()]);
+				activity.setCoord(readCoord(reader));
+				activity.setLinkId(readId(reader, Link.class));
+				activity.setFacilityId(readId(reader, ActivityFacility.class));
+				activity.setStartTime(reader.readNumber());
+				activity.setEndTime(reader.readNumber());
+				activity.setMaximumDuration(reader.readNumber());
+				planElements.add(activity);
+			} else {
+				Leg leg = new LegImpl(this.strings[reader.readInt()]);
+				leg.setDepartureTime(reader.readNumber());
+				leg.setTravelTime(reader.readNumber());
+				leg.setRoute(readRoute(reader));
+				planElements.add(leg);
+			}
+		}
+		return planElements;
+	}
+
+	/**
+	 * @return the number of plan elements in the packed plan
+	 */
+	static int getNumberOfPlanElements(final byte[] packed) {
+		return new Reader(packed).readInt();
+	}
+
+	private boolean writeRoute(final Writer writer, final Route route) {
+		if (route == null) {
+			writer.writeInt(ROUTE_NONE);
+			return true;
+		}
+		String routeType = route.getRouteType();
+		if (routeType == null || route.getClass() != getRouteClass(routeType)) {
+			return false;
+		}
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			writer.writeInt(ROUTE_NETWORK);
+			writer.writeInt(stringIndex(routeType));
+			writeId(writer, route.getStartLinkId());
+			writeId(writer, route.getEndLinkId());
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			writer.writeInt(linkIds.size());
+			int previous = route.getStartLinkId() == null ? 0 : route.getStartLinkId().index();
+			for (Id<Link> linkId : linkIds) {
+				writer.writeLong(zigZag(linkId.index() - previous));
+				previous = linkId.index();
+			}
+			writeId(writer, networkRoute.getVehicleId());
+			writer.writeNumber(networkRoute.getTravelCost());
+		} else {
+			writer.writeInt(ROUTE_GENERIC);
+			writer.writeInt(stringIndex(routeType));
+			writeId(writer, route.getStartLinkId());
+			writeId(writer, route.getEndLinkId());
+			writer.writeString(route.getRouteDescription());
+		}
+		writer.writeNumber(route.getDistance());
+		writer.writeNumber(route.getTravelTime());
+		return true;
+	}
+
+	private Route readRoute(final Reader reader) {
+		int kind = reader.readInt();
+		if (kind == ROUTE_NONE) {
+			return null;
+		}
+		Class<? extends Route> routeClass = this.routeFactories.getRouteClassForType(this.strings[reader.readInt()]);
+		Id<Link> startLinkId = readId(reader, Link.class);
+		Id<Link> endLinkId = readId(reader, Link.class);
+		Route route = this.routeFactories.createRoute(routeClass, startLinkId, endLinkId);
+		if (kind == ROUTE_NETWORK) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			int size = reader.readInt();
+			List<Id<Link>> linkIds = new ArrayList<>(size);
+			int previous = startLinkId == null ? 0 : startLinkId.index();
+			for (int i = 0; i < size; i++) {
+				previous += (int) unZigZag(reader.readLong());
+				linkIds.add(Id.get(previous, Link.class));
+			}
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			networkRoute.setVehicleId(readId(reader, Vehicle.class));
+			networkRoute.setTravelCost(reader.readNumber());
+		} else {
+			route.setRouteDescription(reader.readString());
+		}
+		route.setDistance(reader.readNumber());
+		route.setTravelTime(reader.readNumber());
+		return route;
+	}
+
+	private Class<?> getRouteClass(final String routeType) {
+		return this.routeClasses.computeIfAbsent(routeType, type -> {
+			try {
+				return this.routeFactories.createRoute(this.routeFactories.getRouteClassForType(type), null, null).getClass();
+			} catch (RuntimeException e) {
+				return Void.class;
+			}
+		});
+	}
+
+	private int stringIndex(final String string) {
+		Integer index = this.stringIndices.get(string);
+		if (index == null) {
+			synchronized (this.stringIndices) {
+				index = this.stringIndices.get(string);
+				if (index == null) {
+					String[] strings = Arrays.copyOf(this.strings, this.strings.length + 1);
+					index = this.strings.length;
+					strings[index] = string;
+					this.strings = strings;
+					this.stringIndices.put(string, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	private static void writeId(final Writer writer, final Id<?> id) {
+		writer.writeInt(id == null ? 0 : id.index() + 1);
+	}
+
+	private static <T> Id<T> readId(final Reader reader, final Class<T> type) {
+		int index = reader.readInt();
+		return index == 0 ? null : Id.get(index - 1, type);
+	}
+
+	private static void writeCoord(final Writer writer, final Coord coord) {
+		if (coord == null) {
+			writer.writeInt(0);
+		} else if (coord.hasZ()) {
+			writer.writeInt(2);
+			writer.writeNumber(coord.getX());
+			writer.writeNumber(coord.getY());
+			writer.writeNumber(coord.getZ());
+		} else {
+			writer.writeInt(1);
+			writer.writeNumber(coord.getX());
+			writer.writeNumber(coord.getY());
+		}
+	}
+
+	private static Coord readCoord(final Reader reader) {
+		switch (reader.readInt()) {
+			case 0:
+				return null;
+			case 1:
+				return new Coord(reader.readNumber(), reader.readNumber());
+			default:
+				return new Coord(reader.readNumber(), reader.readNumber(), reader.readNumber());
+		}
+	}
+
+	private static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static final class Writer {
+
+		private byte[] buffer = new byte[64];
+		private int size = 0;
+
+		void writeInt(final int value) {
+			writeLong(value & 0xffffffffL);
+		}
+
+		/** writes a non-negative value with seven bits per byte */
+		void writeLong(long value) {
+			while ((value & ~0x7fL) != 0) {
+				writeByte((int) ((value & 0x7f) | 0x80));
+				value >>>= 7;
+			}
+			writeByte((int) value);
+		}
+
+		/** writes whole numbers like most times in seconds as variable length integers */
+		void writeNumber(final double value) {
+			if (value == Time.UNDEFINED_TIME) {
+				writeInt(NUMBER_UNDEFINED_TIME);
+			} else if (Double.isNaN(value)) {
+				writeInt(NUMBER_NAN);
+			} else if (value >= 0 && value <= MAX_WHOLE_NUMBER && value == Math.rint(value)
+					&& (value != 0 || 1 / value > 0)) {
+				writeLong(NUMBER_WHOLE + (long) value);
+			} else {
+				writeInt(NUMBER_RAW);
+				long bits = Double.doubleToRawLongBits(value);
+				for (int i = 0; i < 8; i++) {
+					writeByte((int) (bits >>> (8 * i)));
+				}
+			}
+		}
+
+		void writeString(final String value) {
+			if (value == null) {
+				writeInt(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeInt(bytes.length + 1);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+
+		private void writeByte(final int value) {
+			ensureCapacity(1);
+			this.buffer[this.size++] = (byte) value;
+		}
+
+		private void ensureCapacity(final int additional) {
+			if (this.size + additional > this.buffer.length) {
+				this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + additional));
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(this.buffer, this.size);
+		}
+	}
+
+	private static final class Reader {
+
+		private final byte[] buffer;
+		private int position = 0;
+
+		Reader(final byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		int readInt() {
+			return (int) readLong();
+		}
+
+		long readLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.buffer[this.position++];
+				value |= (long) (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		double readNumber() {
+			long tag = readLong();
+			if (tag == NUMBER_UNDEFINED_TIME) {
+				return Time.UNDEFINED_TIME;
+			} else if (tag == NUMBER_NAN) {
+				return Double.NaN;
+			} else if (tag == NUMBER_RAW) {
+				long bits = 0;
+				for (int i = 0; i < 8; i++) {
+					bits |= (this.buffer[this.position++] & 0xffL) << (8 * i);
+				}
+				return Double.longBitsToDouble(bits);
+			}
+			return tag - NUMBER_WHOLE;
+		}
+
+		String readString() {
+			int length = readInt();
+			if (length == 0) {
+				return null;
+			}
+			String value = new String(this.buffer, this.position, length - 1, StandardCharsets.UTF_8);
+			this.position += length - 1;
+			return value;
+		}
+	}
+
+}
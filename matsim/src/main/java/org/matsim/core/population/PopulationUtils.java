@@ -127,9 +127,24 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
+		if (plansConfigGroup.isPackingNonSelectedPlans()) {
+			return new PackedPopulation(routeFactory);
+		}
 		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
 	}
 
+	/**
+	 * Packs the plans that are not selected again, e.g. after the replanning or after they were written, and logs the memory they need, if the
+	 * population keeps them packed.
+	 *
+	 * @see PlansConfigGroup#setPackingNonSelectedPlans(boolean)
+	 */
+	public static void packPlans(Population population) {
+		if (population instanceof PackedPopulation) {
+			((PackedPopulation) population).packPlans();
+		}
+	}
+
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
 	//		// yyyy my intuition would be to rather get this out of a standard scenario. kai, jun'16
 	//		RouteFactories routeFactory = new RouteFactories();
@@ -996,6 +1011,8 @@ public final class PopulationUtils {
 	public static void changePersonId( Person person, Id<Person> id ) {
 		if ( person instanceof PersonImpl ) {
 			((PersonImpl) person).changeId(id);
+		} else if ( person instanceof PackedPerson ) {
+			((PackedPerson) person).changeId(id);
 		} else {
 			throw new RuntimeException("wrong implementation of interface Person") ;
 		}
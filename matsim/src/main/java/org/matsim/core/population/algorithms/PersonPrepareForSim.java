@@ -20,7 +20,6 @@
 
 package org.matsim.core.population.algorithms;
 
-import java.util.HashSet;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
@@ -31,7 +30,6 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
@@ -80,17 +78,13 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 		super();
 		this.router = router;
 		this.carOnlyNetwork = scenario.getNetwork();
-		Network net = this.carOnlyNetwork;
+		String mode = null;
 		if (NetworkUtils.isMultimodal( carOnlyNetwork )) {
 			log.info("Network seems to be multimodal. XY2Links will only use car links.");
-			TransportModeNetworkFilter filter = new TransportModeNetworkFilter( carOnlyNetwork );
-			net = NetworkUtils.createNetwork();
-			HashSet<String> modes = new HashSet<String>();
-			modes.add(TransportMode.car);
-			filter.filter(net, modes);
+			mode = TransportMode.car;
 		}
 		
-		this.xy2links = new XY2Links(net, scenario.getActivityFacilities());
+		this.xy2links = new XY2Links(carOnlyNetwork, scenario.getActivityFacilities(), mode);
 		this.activityFacilities = scenario.getActivityFacilities();
 		this.scenario = scenario ;
 	}
@@ -42,6 +42,7 @@ public final class XY2Links extends AbstractPersonAlgorithm implements PlanAlgor
 
 	private final Network network;
 	private final ActivityFacilities facilities;
+	private final String mode;
 
 	/**
 	 * When running XY2Links with given facilities, the linkIds of activities are
@@ -49,9 +50,20 @@ public final class XY2Links extends AbstractPersonAlgorithm implements PlanAlgor
 	 * activity is performed at the same link where the facility is located. 
 	 */
 	public XY2Links(final Network network, final ActivityFacilities facilities) {
+		this(network, facilities, null);
+	}
+
+	/**
+	 * Only assigns links allowing <code>mode</code>, as if running on the sub-network of these links, but without
+	 * creating that sub-network.
+	 *
+	 * @see NetworkUtils#getNearestLink(Network, org.matsim.api.core.v01.Coord, String)
+	 */
+	public XY2Links(final Network network, final ActivityFacilities facilities, final String mode) {
 		super();
 		this.network = network;
 		this.facilities = facilities;
+		this.mode = mode;
 	}
 
 	public XY2Links(final Scenario scenario) {
@@ -107,7 +119,7 @@ public final class XY2Links extends AbstractPersonAlgorithm implements PlanAlgor
 
 				// If the linkId is still null get nearest link from the network
 //				Link link = this.network.getNearestLinkExactly(act.getCoord());
-				Link link = NetworkUtils.getNearestLink(this.network, act.getCoord());
+				Link link = NetworkUtils.getNearestLink(this.network, act.getCoord(), this.mode);
 				// getNearestLinkExactly not necessarily better than getNearestLink.  E.g.
 				// n--n-----------------------------n
 				// A home location slightly to the right of the middle node will take:
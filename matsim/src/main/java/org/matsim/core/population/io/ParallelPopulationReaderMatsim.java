@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsim.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.ParallelXmlElementProcessor;
+import org.matsim.core.utils.io.XmlElementBuffer;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Parallel implementation of the readers for <code>population_v5.dtd</code> and <code>population_v6.dtd</code>.
+ * <p></p>
+ * The main thread only parses the file. It records the tags of the persons, a few hundred persons at a time,
+ * and hands them over to the threads, where a reader for the file format interprets them. All other tags, e.g.
+ * the attributes of the population, are passed to the reader of the main thread. The persons read by the threads
+ * are added to the population by the main thread, in the order of the file, and the ids of the persons are created
+ * by the main thread as well, so their indices do not depend on the threads.
+ * <p></p>
+ * Like {@link ParallelPopulationReaderMatsimV4}, this reader is not used when population streaming is activated.
+ *
+ * @see PopulationReader
+ */
+/* deliberately package */ final class ParallelPopulationReaderMatsim extends MatsimXmlParser {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsim.class);
+
+	private static final String POPULATION = "population";
+	private static final String PERSON = "person";
+	private static final String ATTR_PERSON_ID = "id";
+
+	private static final int PERSONS_PER_BUFFER = 200;
+
+	private final MatsimXmlParser reader;
+	private final Population population;
+	private final int numberOfThreads;
+	private final Function<List<Person>, MatsimXmlParser> workerReaderFactory;
+
+	private ParallelXmlElementProcessor<List<Person>> processor = null;
+	private XmlElementBuffer buffer = null;
+	private int personsInBuffer = 0;
+	private boolean inPerson = false;
+
+	/**
+	 * @param reader reads all tags that are not part of a person
+	 * @param workerReaderFactory creates the readers of the threads; they must add the persons they read to the given list
+	 * 		instead of the population
+	 */
+	ParallelPopulationReaderMatsim(
+			final MatsimXmlParser reader,
+			final Population population,
+			final int numberOfThreads,
+			final Function<List<Person>, MatsimXmlParser> workerReaderFactory) {
+		this.reader = reader;
+		this.population = population;
+		this.numberOfThreads = numberOfThreads;
+		this.workerReaderFactory = workerReaderFactory;
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (!this.inPerson && PERSON.equals(name) && context.size() == 1) {
+			this.inPerson = true;
+			if (this.processor == null) {
+				// the threads' readers are created now, after the attributes of the population were read
+				log.info("Start parallel population reading with " + this.numberOfThreads + " threads...");
+				this.processor = new ParallelXmlElementProcessor<>(this.numberOfThreads, "ParallelPopulationReader",
+						PersonsWorker::new, persons -> persons.forEach(this.population::addPerson));
+			}
+			if (this.buffer == null) {
+				this.buffer = new XmlElementBuffer(context);
+			}
+			Id.create(atts.getValue(ATTR_PERSON_ID), Person.class);
+		}
+		if (this.inPerson) {
+			this.buffer.startTag(name, atts);
+		} else {
+			awaitPersons();
+			this.reader.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.inPerson) {
+			this.buffer.endTag(name, content);
+			if (PERSON.equals(name) && context.size() == 1) {
+				this.inPerson = false;
+				this.personsInBuffer++;
+				if (this.personsInBuffer == PERSONS_PER_BUFFER) {
+					submitBuffer();
+				}
+			}
+			return;
+		}
+		awaitPersons();
+		if (POPULATION.equals(name) && this.processor != null) {
+			this.processor.finish();
+			this.processor = null;
+			log.info("Finished parallel population reading...");
+		}
+		this.reader.endTag(name, content, context);
+	}
+
+	@Override
+	public void endDocument() throws SAXException {
+		this.reader.endDocument();
+	}
+
+	private void submitBuffer() {
+		this.processor.submit(this.buffer);
+		this.buffer = null;
+		this.personsInBuffer = 0;
+	}
+
+	/**
+	 * Makes sure all persons read so far are part of the population before a tag is passed to the reader of
+	 * the main thread, so that reader sees the same population as with the sequential reader.
+	 */
+	private void awaitPersons() {
+		if (this.buffer != null) {
+			submitBuffer();
+		}
+		if (this.processor != null) {
+			this.processor.awaitAll();
+		}
+	}
+
+	private final class PersonsWorker implements ParallelXmlElementProcessor.Worker<List<Person>> {
+		private final List<Person> persons = new ArrayList<>();
+		private final MatsimXmlParser workerReader = ParallelPopulationReaderMatsim.this.workerReaderFactory.apply(this.persons);
+
+		@Override
+		public List<Person> process(final XmlElementBuffer elements) {
+			elements.replay(this.workerReader);
+			List<Person> result = new ArrayList<>(this.persons);
+			this.persons.clear();
+			return result;
+		}
+	}
+
+}
@@ -26,6 +26,7 @@ import java.util.Stack;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.population.io.StreamingPopulationReader.StreamingPopulation;
 import org.matsim.core.scenario.ProjectionUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
@@ -113,20 +114,57 @@ public final class PopulationReader extends MatsimXmlParser {
 								targetCRS );
 
 		switch ( doctype ) {
-			case POPULATION_V6:
-				this.delegate =
+			case POPULATION_V6: {
+				PopulationReaderMatsimV6 reader =
 						new PopulationReaderMatsimV6(
 						        inputCRS,
 						        targetCRS,
 								this.scenario);
-				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
+				reader.putAttributeConverters( attributeConverters );
+				if (useParallelReader()) {
+					this.delegate =
+							new ParallelPopulationReaderMatsim(
+									reader,
+									this.scenario.getPopulation(),
+									this.scenario.getConfig().global().getNumberOfReadingThreads(),
+									persons -> {
+										// the coordinate transformation may depend on the attributes of the population, which the main reader has read by now
+										PopulationReaderMatsimV6 workerReader = new PopulationReaderMatsimV6(reader.getCoordinateTransformation(), this.scenario) {
+											@Override
+											void addPerson(final Person person) {
+												persons.add(person);
+											}
+										};
+										workerReader.putAttributeConverters( attributeConverters );
+										return workerReader;
+									});
+				} else {
+					this.delegate = reader;
+				}
 				log.info("using population_v6-reader.");
 				break;
+			}
 			case POPULATION_V5:
-				this.delegate =
-						new PopulationReaderMatsimV5(
-						        transformation,
-								this.scenario);
+				if (useParallelReader()) {
+					this.delegate =
+							new ParallelPopulationReaderMatsim(
+									new PopulationReaderMatsimV5(
+									        transformation,
+											this.scenario),
+									this.scenario.getPopulation(),
+									this.scenario.getConfig().global().getNumberOfReadingThreads(),
+									persons -> new PopulationReaderMatsimV5(transformation, this.scenario) {
+										@Override
+										void addPerson(final Person person) {
+											persons.add(person);
+										}
+									});
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV5(
+							        transformation,
+									this.scenario);
+				}
 				log.info("using population_v5-reader.");
 				break;
 			case PLANS_V4:
@@ -157,6 +195,15 @@ public final class PopulationReader extends MatsimXmlParser {
 		}
 	}
 
+	/**
+	 * The persons of population_v5 and population_v6 files are read in parallel if parallel reading is switched on
+	 * and more than one thread is configured, except when the population is streamed.
+	 */
+	private boolean useParallelReader() {
+		return this.scenario.getConfig().global().getNumberOfReadingThreads() > 1
+				&& !(this.scenario.getPopulation() instanceof StreamingPopulation);
+	}
+
     @Override
 	public void endDocument() {
 		try {
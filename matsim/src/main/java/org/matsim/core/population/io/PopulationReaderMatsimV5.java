@@ -139,7 +139,7 @@ import org.xml.sax.Attributes;
 	@Override
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		if (PERSON.equals(name)) {
-			this.plans.addPerson(this.currperson);
+			addPerson(this.currperson);
 			this.currperson = null;
 		} else if (PLAN.equals(name)) {
 			if (this.currplan.getPlanElements() instanceof ArrayList<?>) {
@@ -154,6 +154,14 @@ import org.xml.sax.Attributes;
 		}
 	}
 
+	/**
+	 * Called for every person that is read completely. {@link ParallelPopulationReaderMatsim} overrides
+	 * this to collect the persons its threads read.
+	 */
+	/*package*/ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
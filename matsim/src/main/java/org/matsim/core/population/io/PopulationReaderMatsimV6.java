@@ -128,6 +128,22 @@ import java.util.Stack;
 	    }
 	}
 
+	/**
+	 * Creates a reader that transforms all coordinates with the given transformation, independent of the
+	 * coordinate reference system given in the file. Used by {@link ParallelPopulationReaderMatsim} for the
+	 * readers of its threads, which only read persons.
+	 */
+	/*package*/ PopulationReaderMatsimV6(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario) {
+		this(null, null, scenario);
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
+	/*package*/ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
 	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
 		attributesReader.putAttributeConverter( clazz , converter );
 	}
@@ -191,7 +207,7 @@ import java.util.Stack;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				addPerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -227,6 +243,14 @@ import java.util.Stack;
 		}
 	}
 
+	/**
+	 * Called for every person that is read completely. {@link ParallelPopulationReaderMatsim} overrides
+	 * this to collect the persons its threads read.
+	 */
+	/*package*/ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
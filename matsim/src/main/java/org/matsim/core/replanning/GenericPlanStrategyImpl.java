@@ -66,8 +66,16 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	
 	@Override
 	public void run(final HasPlansAndId<T, I> person) {
-		this.counter++;
-		
+		handleSelectedPlan(selectPlan(person));
+	}
+
+	/**
+	 * The part of {@link #run(HasPlansAndId)} that only changes the person: selects a plan and, if there is a module,
+	 * selects a copy of it. It may be called for several persons at the same time, as long as the plan selector can.
+	 *
+	 * @return the copy of the selected plan the modules are to work on, <code>null</code> if there are no modules
+	 */
+	/* package */ T selectPlan(final HasPlansAndId<T, I> person) {
 		// if there is at least one unscored plan, find that one:
 		T plan = new RandomUnscoredPlanSelector<T, I>().selectPlan(person) ;
 		
@@ -86,17 +94,26 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 
 		// if there is a "module" (i.e. "innovation"):
 		if (this.firstModule != null) {
-			
 			// set the working plan to a copy of the selected plan:
-			plan = person.createCopyOfSelectedPlanAndMakeSelected();
-			
+			return person.createCopyOfSelectedPlanAndMakeSelected();
+		}
+		return null;
+	}
+
+	/**
+	 * The rest of {@link #run(HasPlansAndId)}, to be called for one person after the other.
+	 *
+	 * @param plan the plan returned by {@link #selectPlan(HasPlansAndId)}
+	 */
+	/* package */ void handleSelectedPlan(final T plan) {
+		this.counter++;
+		if (plan != null) {
 			// add new plan to container that contains the plans that are handled by this PlanStrategy:
 			this.plans.add(plan);
 
 			// start working on this new plan:
 			this.firstModule.handlePlan(plan);
 		}
-
 	}
 
 	@Override
@@ -25,9 +25,14 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.core.api.internal.MatsimManager;
@@ -55,6 +60,9 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	private static final Logger log =
 			Logger.getLogger(GenericStrategyManager.class);
 
+	/** the number of persons a thread takes at once */
+	private static final int BATCH_SIZE = 256;
+
 
 	static class StrategyWeights<T extends BasicPlan, I> {
 		final List<GenericPlanStrategy<T, I>> strategies = new ArrayList<>();
@@ -72,6 +80,8 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	private PlanSelector<PL, AG> removalPlanSelector = new GenericWorstPlanForRemovalSelector<>();
 
 	private String subpopulationAttributeName = null;
+
+	private int numberOfThreads = 0;
 	
 	public GenericStrategyManager() {
 	}
@@ -189,31 +199,21 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 					final ReplanningContext replanningContext) {
 
 		// initialize all strategies
+		ReplanningContext context = this.numberOfThreads > 0 ? new ParallelReplanningContext(replanningContext) : replanningContext;
 		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
-			strategy.init(replanningContext);
+			strategy.init(context);
 		}
 
-		// then go through the population and ...
-		for (HasPlansAndId<PL, AG> person : persons ) {
-
-			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
-			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
-				removePlans( person, this.maxPlansPerAgent);
-			}
+		if (this.numberOfThreads > 0) {
+			runParallel(persons, subPopLookup, context);
+		} else {
+			// then go through the population and ...
+			for (HasPlansAndId<PL, AG> person : persons ) {
+				GenericPlanStrategy<PL, AG> strategy = removePlansAndChooseStrategy(person, subPopLookup);
 
-			// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
-			String subpopName = null;
-			if (this.subpopulationAttributeName != null) {
-				subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
+				// ... and run the strategy:
+				strategy.run(person);
 			}
-			GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
-
-			if (strategy==null) {
-				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
-			}
-			
-			// ... and run the strategy:
-			strategy.run(person);
 		}
 
 		// finally make sure all strategies have finished there work
@@ -223,6 +223,101 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 
 	}
 
+	private GenericPlanStrategy<PL, AG> removePlansAndChooseStrategy(final HasPlansAndId<PL, AG> person, final ObjectAttributes subPopLookup) {
+		// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
+		if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+			removePlans( person, this.maxPlansPerAgent);
+		}
+
+		// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
+		String subpopName = null;
+		if (this.subpopulationAttributeName != null) {
+			subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
+		}
+		GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
+
+		if (strategy==null) {
+			throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
+		}
+		return strategy;
+	}
+
+	/**
+	 * Removes the plans, chooses the strategies and selects the plans of the persons in several threads, which take
+	 * the persons in batches, and then hands the selected plans to the modules of the strategies in the order of the
+	 * persons. Meanwhile, {@link MatsimRandom#getRandom()} returns an RNG of the thread, which is reseeded for every
+	 * person with a key of the person and the iteration, so the result does not depend on the number of threads, nor
+	 * on which thread handled which person.
+	 */
+	private void runParallel(final Iterable<? extends HasPlansAndId<PL, AG>> persons, final ObjectAttributes subPopLookup,
+			final ReplanningContext replanningContext) {
+		long start = System.currentTimeMillis();
+		List<HasPlansAndId<PL, AG>> personList = new ArrayList<>();
+		for (HasPlansAndId<PL, AG> person : persons) {
+			personList.add(person);
+		}
+		int numberOfPersons = personList.size();
+		int iteration = replanningContext == null ? 0 : replanningContext.getIteration();
+		List<GenericPlanStrategy<PL, AG>> strategies = new ArrayList<>(Collections.nCopies(numberOfPersons, null));
+		List<PL> selectedPlans = new ArrayList<>(Collections.nCopies(numberOfPersons, null));
+
+		AtomicInteger nextBatch = new AtomicInteger();
+		Runnable worker = () -> {
+			Random random = new Random();
+			MatsimRandom.setRandomOfThread(random);
+			try {
+				for (int from = nextBatch.getAndAdd(BATCH_SIZE); from < numberOfPersons; from = nextBatch.getAndAdd(BATCH_SIZE)) {
+					for (int i = from, to = Math.min(from + BATCH_SIZE, numberOfPersons); i < to; i++) {
+						HasPlansAndId<PL, AG> person = personList.get(i);
+						MatsimRandom.reseed(random, MatsimRandom.getKey(iteration, person.getId()));
+						GenericPlanStrategy<PL, AG> strategy = removePlansAndChooseStrategy(person, subPopLookup);
+						strategies.set(i, strategy);
+						if (strategy instanceof GenericPlanStrategyImpl) {
+							selectedPlans.set(i, ((GenericPlanStrategyImpl<PL, AG>) strategy).selectPlan(person));
+						}
+					}
+				}
+			} finally {
+				MatsimRandom.removeRandomOfThread();
+			}
+		};
+
+		int threads = Math.min(this.numberOfThreads, (numberOfPersons + BATCH_SIZE - 1) / BATCH_SIZE);
+		if (threads <= 1) {
+			worker.run();
+		} else {
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < threads; i++) {
+					futures.add(ReplanningWorkers.getExecutor(threads).submit(worker));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException("problem replanning the persons", e.getCause());
+			}
+		}
+
+		// the modules get the plans in the order of the persons, as without threads
+		for (int i = 0; i < numberOfPersons; i++) {
+			GenericPlanStrategy<PL, AG> strategy = strategies.get(i);
+			if (strategy instanceof GenericPlanStrategyImpl) {
+				((GenericPlanStrategyImpl<PL, AG>) strategy).handleSelectedPlan(selectedPlans.get(i));
+			} else {
+				strategy.run(personList.get(i));
+			}
+		}
+		log.info("selected the plans of " + numberOfPersons + " persons with " + Math.max(threads, 1) + " threads in "
+				+ (System.currentTimeMillis() - start) + " ms.");
+	}
+
 	private Collection<GenericPlanStrategy<PL, AG>> distinctStrategies() {
 		// Leaving out duplicate strategies in different subpopulations
 		Collection<GenericPlanStrategy<PL, AG>> strategies = new LinkedHashSet<>();
@@ -310,6 +405,18 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 		this.maxPlansPerAgent = maxPlansPerAgent;
 	}
 
+	/**
+	 * Sets the number of threads the persons are replanned with. With 0, the default, one person after the other
+	 * removes its plans, chooses its strategy and selects its plan, drawing from the global random number generator.
+	 * With 1 or more, this is done in that many threads, and every person draws from an RNG seeded for the person, so
+	 * the result is the same for any number of threads, as are the random numbers the plan algorithms of the
+	 * {@link org.matsim.core.replanning.modules.AbstractMultithreadedModule modules} draw. The plan selectors then need to be thread-safe, and need to get
+	 * their RNG from {@link MatsimRandom#getRandom()} for every plan they select.
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Schedules a {@link #changeWeightOfStrategy(GenericPlanStrategy, String, double)} command for a later iteration. The
 	 * change will take place before the strategies are applied.
@@ -376,4 +483,31 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 		return getStrategyWeights( subpopulation ).unmodifiableWeights;
 	}
 
+	/**
+	 * The context of the replanning, which tells the modules that the persons are replanned in parallel.
+	 */
+	private static final class ParallelReplanningContext implements ReplanningContext {
+
+		private final ReplanningContext delegate;
+
+		ParallelReplanningContext(final ReplanningContext delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int getIteration() {
+			return this.delegate == null ? 0 : this.delegate.getIteration();
+		}
+
+		@Override
+		public IterationStopWatch getStopWatch() {
+			return this.delegate == null ? null : this.delegate.getStopWatch();
+		}
+
+		@Override
+		public boolean isReplanningInParallel() {
+			return true;
+		}
+	}
+
 }
@@ -19,6 +19,8 @@
 
 package org.matsim.core.replanning;
 
+import org.matsim.analysis.IterationStopWatch;
+
 /**
  * A partial, inside view of the Controler which is available during replanning.
  * @author michaz
@@ -31,4 +33,19 @@ public interface ReplanningContext {
 	 */
 	int getIteration();
 
+	/**
+	 * The stop watch of the run, for the modules to report what they measured, or <code>null</code> if there is none.
+	 */
+	default IterationStopWatch getStopWatch() {
+		return null;
+	}
+
+	/**
+	 * Whether the persons are replanned in several threads, see {@link GenericStrategyManager#setNumberOfThreads(int)}.
+	 * The modules then draw the random numbers of a plan independent of the thread it is handled in.
+	 */
+	default boolean isReplanningInParallel() {
+		return false;
+	}
+
 }
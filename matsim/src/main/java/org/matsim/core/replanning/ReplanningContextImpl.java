@@ -22,6 +22,7 @@
 
 package org.matsim.core.replanning;
 
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -32,11 +33,14 @@ import javax.inject.Singleton;
 @Singleton
 class ReplanningContextImpl implements ReplanningContext, IterationStartsListener {
 
+    private final IterationStopWatch stopWatch;
+
     private int iteration;
 
     @Inject
-    ReplanningContextImpl(ControlerListenerManager controlerListenerManager) {
+    ReplanningContextImpl(ControlerListenerManager controlerListenerManager, IterationStopWatch stopWatch) {
         controlerListenerManager.addControlerListener(this);
+        this.stopWatch = stopWatch;
     }
 
     @Override
@@ -44,6 +48,11 @@ class ReplanningContextImpl implements ReplanningContext, IterationStartsListene
         return iteration;
     }
 
+    @Override
+    public IterationStopWatch getStopWatch() {
+        return stopWatch;
+    }
+
     @Override
     public void notifyIterationStarts(IterationStartsEvent event) {
         this.iteration = event.getIteration();
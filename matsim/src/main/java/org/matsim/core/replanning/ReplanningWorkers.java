@@ -0,0 +1,77 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads the replanning runs on: the {@link GenericStrategyManager} selects the plans with them, and the
+ * {@link org.matsim.core.replanning.modules.AbstractMultithreadedModule}s run their plan algorithms on them. They are
+ * kept for the whole run instead of being started anew for every module in every iteration.
+ * <p></p>
+ * There are as many workers as the most threads any of them asked for, i.e. <code>global.numberOfThreads</code> for
+ * the modules of a run; more tasks wait in the queue of the pool.
+ */
+public final class ReplanningWorkers {
+
+	/** idle workers end after an hour, the others are kept for the whole run */
+	private static final ThreadPoolExecutor workers = new ThreadPoolExecutor(1, 1, 1, TimeUnit.HOURS,
+			new LinkedBlockingQueue<>(), new WorkerThreadFactory());
+
+	static {
+		workers.allowCoreThreadTimeOut(true);
+	}
+
+	private ReplanningWorkers() {
+	}
+
+	/**
+	 * @param numberOfThreads the number of tasks the caller wants to run at the same time; the pool grows to it if it
+	 * has fewer workers
+	 */
+	public static ExecutorService getExecutor(final int numberOfThreads) {
+		synchronized (workers) {
+			if (workers.getCorePoolSize() < numberOfThreads) {
+				workers.setMaximumPoolSize(numberOfThreads);
+				workers.setCorePoolSize(numberOfThreads);
+			}
+		}
+		return workers;
+	}
+
+	private final static class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			Thread thread = new Thread(runnable, "ReplanningWorker-" + this.count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
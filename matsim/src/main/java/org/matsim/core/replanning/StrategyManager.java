@@ -62,6 +62,7 @@ public class StrategyManager implements MatsimManager {
 		log.info("global innovation switch off after iteration: " + globalInnovationDisableAfter);
 
 		setSubpopulationAttributeName(plansConfigGroup.getSubpopulationAttributeName());
+		setNumberOfThreads(strategyConfigGroup.getNumberOfReplanningThreads());
 		for (Map.Entry<StrategyConfigGroup.StrategySettings, PlanStrategy> entry : planStrategies.entrySet()) {
 			PlanStrategy strategy = entry.getValue();
 			StrategyConfigGroup.StrategySettings settings = entry.getKey();
@@ -226,6 +227,13 @@ public class StrategyManager implements MatsimManager {
 		return delegate.getMaxPlansPerAgent();
 	}
 
+	/**
+	 * @see GenericStrategyManager#setNumberOfThreads(int)
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		delegate.setNumberOfThreads(numberOfThreads);
+	}
+
 	@Deprecated
 	public final void addChangeRequestForDefaultSubpopulation(
 			final int iteration,
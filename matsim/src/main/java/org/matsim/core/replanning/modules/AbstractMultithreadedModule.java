@@ -21,16 +21,23 @@
 package org.matsim.core.replanning.modules;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.replanning.ReplanningWorkers;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,15 +47,29 @@ import java.util.concurrent.atomic.AtomicReference;
  * Just overwrite getPlanAlgoInstance() to return an instance of your plan
  * algorithm.
  * <p></p>
- * <code>initThreads()</code> creates the threads, but does not yet start them.
+ * <code>initThreads()</code> gets one plan algorithm per thread.
  * <p></p>
- * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
+ * <code>handlePlan(Plan)</code> collects the plans.
  * <p></p>
- * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
+ * <code>finishReplanning()</code> finally hands the plan algorithms to the workers and waits for all of them to be
+ * finished. As the plans are only handed to the workers after all to-be-handled plans are added, the list of plans
+ * does not need to be synchronized. By default, the plans are distributed round-robin, so every plan algorithm handles
+ * every n-th plan, in order, and draws from the same random numbers in every run with the same number of threads.
  * <p></p>
- * While this approach does not lead to optimal performance gains ("slow threads" vs.
- * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
- * started after all to-be-handled plans are added, we can use unsynchronized data structures.
+ * If the persons are replanned in parallel, see {@link ReplanningContext#isReplanningInParallel()}, each plan
+ * algorithm instead takes the next {@value #BATCH_SIZE} plans from the collected ones until there are none left, so
+ * fast threads handle more plans than slow ones. Which thread handles a plan is then left to chance. To still have
+ * reproducible runs, the local instances of {@link MatsimRandom} a plan algorithm gets while it is created are
+ * reseeded for every plan, with a key of the module, the iteration and the position of the plan, so the random
+ * numbers of a plan do not depend on the thread nor on the number of threads. Plan algorithms that get their random
+ * numbers elsewhere do not get this.
+ * <p></p>
+ * The workers are threads shared by all modules, see {@link ReplanningWorkers}, which are kept for the whole run
+ * instead of being started anew for every module in every iteration. With {@link #setReusingPlanAlgoInstances(boolean)}, the module also keeps its plan
+ * algorithms, and with them e.g. the caches of their routers, from one iteration to the next. The plans handled per
+ * second and the time the plan algorithms waited for a worker are logged and, if the {@link ReplanningContext} has
+ * one, reported to the {@link IterationStopWatch}, under the name of the module, e.g. <code>ReRoute#2:PlanRouter</code>
+ * for the second module created in the JVM.
  * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
@@ -58,14 +79,32 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+
+	/** the number of plans a plan algorithm takes at once */
+	private static final int BATCH_SIZE = 16;
+
+	private static final AtomicInteger numberOfInstances = new AtomicInteger(0);
+
 	private final int numOfThreads;
+	/** tells the modules apart, as there are often several of the same class, see {@link #createLabel()} */
+	private final String label = createLabel();
+	/** the key of the random numbers of this module, see {@link MatsimRandom#createKey()} */
+	private final long randomKey = MatsimRandom.createKey();
+	private long iterationRandomKey;
+	/** whether the plans are taken in batches and the random numbers are reseeded for every plan */
+	private boolean reseedingPerPlan = false;
 
 	private PlanAlgoThread[] algothreads = null;
-	private Thread[] threads = null;
+	private final List<Plan> plans = new ArrayList<>();
 	private PlanAlgorithm directAlgo = null;
+	private final List<Random> directRandoms = new ArrayList<>();
 	private String name = null;
+	private boolean reusingPlanAlgoInstances = false;
+	private boolean initialized = false;
 
 	private int count = 0;
+	/** the time spent in the plan algorithm, if there are no threads */
+	private long directNanos = 0;
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
@@ -89,7 +128,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public AbstractMultithreadedModule(final int numOfThreads) {
 		this.numOfThreads = numOfThreads;
 	}
-	
+
+	/**
+	 * Sets whether the plan algorithms of the first iteration are used in all later iterations, instead of getting new
+	 * ones from {@link #getPlanAlgoInstance()} in every iteration. Only use this if the plan algorithms do not depend on
+	 * the iteration, e.g. if their routers use travel times that are updated in place. Default is <code>false</code>.
+	 */
+	public final void setReusingPlanAlgoInstances(final boolean reusingPlanAlgoInstances) {
+		this.reusingPlanAlgoInstances = reusingPlanAlgoInstances;
+	}
+
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
 		// left empty for inheritance
 	}
@@ -102,9 +150,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void prepareReplanning(ReplanningContext replanningContextTmp) {
 		this.beforePrepareReplanningHook(replanningContextTmp);
 		this.replanningContext = replanningContextTmp;
+		int iteration = replanningContextTmp == null ? 0 : replanningContextTmp.getIteration();
+		this.iterationRandomKey = MatsimRandom.getKey(this.randomKey, iteration);
+		this.reseedingPerPlan = replanningContextTmp != null && replanningContextTmp.isReplanningInParallel();
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
-			this.directAlgo = getPlanAlgoInstance();
+			if (this.directAlgo == null || !this.reusingPlanAlgoInstances) {
+				this.directRandoms.clear();
+				this.directAlgo = MatsimRandom.collectLocalInstances(this::getPlanAlgoInstance, this.directRandoms);
+				this.name = this.directAlgo == null ? this.label : this.label + ":" + this.directAlgo.getClass().getSimpleName();
+			}
 		} else {
 			initThreads();
 		}
@@ -118,11 +173,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
-			this.count++;
+			this.plans.add(plan);
 		} else {
+			long start = System.nanoTime();
+			if (this.reseedingPerPlan) {
+				reseed(this.directRandoms, MatsimRandom.getKey(this.iterationRandomKey, this.count));
+			}
 			this.directAlgo.run(plan);
+			this.directNanos += System.nanoTime() - start;
 		}
+		this.count++;
 	}
 
 	protected void beforeFinishReplanningHook() {
@@ -136,60 +196,94 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
 		
-		if (this.directAlgo == null) {
-			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
-
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
+		try {
+			if (this.directAlgo == null) {
+				// only hand the plans to the workers if we did not directly work on all the plans
+				runThreads();
+			} else {
+				reportThroughput(this.directNanos, 0);
 			}
-
-			// wait until each thread is finished
-			try {
-				for (Thread thread : this.threads) {
-					thread.join();
-				}
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
-			Throwable throwable = this.hadException.get();
-			if (throwable != null) {
-				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+		} finally {
+			// reset
+			if (!this.reusingPlanAlgoInstances) {
+				this.algothreads = null;
 			}
+			this.plans.clear();
+			this.initialized = false;
+			this.replanningContext = null;
+			this.count = 0;
+			this.directNanos = 0;
 		}
-		// reset
-		this.algothreads = null;
-		this.threads = null;
-		this.replanningContext = null;
-		this.count = 0;
 		
 		this.afterFinishReplanningHook();
 	}
 
+	private void runThreads() {
+		log.info("[" + this.name + "] handing " + this.count + " plans to " + this.algothreads.length + " threads");
+		Counter counter = new Counter("[" + this.name + "] handled plan # ");
+		AtomicInteger nextPlan = new AtomicInteger(0);
+		long start = System.nanoTime();
+		List<Future<?>> futures = new ArrayList<>(this.algothreads.length);
+		for (int i = 0; i < this.algothreads.length; i++) {
+			PlanAlgoThread algothread = this.algothreads[i];
+			algothread.prepare(this.plans, nextPlan, this.reseedingPerPlan, this.iterationRandomKey, counter, this.name + "." + i);
+			futures.add(ReplanningWorkers.getExecutor(this.numOfThreads).submit(algothread));
+		}
+
+		// wait until each plan algorithm is finished
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+		long nanos = System.nanoTime() - start;
+		long queueWaitNanos = 0;
+		for (PlanAlgoThread algothread : this.algothreads) {
+			queueWaitNanos += algothread.queueWaitNanos;
+		}
+		log.info("[" + this.name + "] all " + this.algothreads.length + " threads finished.");
+		reportThroughput(nanos, queueWaitNanos / this.algothreads.length);
+
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+		}
+	}
+
+	private void reportThroughput(final long nanos, final long queueWaitNanos) {
+		double plansPerSecond = nanos == 0 ? 0 : this.count * 1e9 / nanos;
+		double queueWaitMillis = queueWaitNanos / 1e6;
+		log.info("[" + this.name + "] handled " + this.count + " plans in " + (nanos / 1000000) + " ms ("
+				+ Math.round(plansPerSecond) + " plans/s, mean queue wait " + queueWaitMillis + " ms)");
+		IterationStopWatch stopWatch = this.replanningContext == null ? null : this.replanningContext.getStopWatch();
+		if (stopWatch != null) {
+			stopWatch.setValue("[" + this.name + "] plans/s", plansPerSecond);
+			stopWatch.setValue("[" + this.name + "] queue wait [ms]", queueWaitMillis);
+		}
+	}
+
 	private void initThreads() {
-		if (this.threads != null) {
+		if (this.initialized) {
 			throw new RuntimeException("threads are already initialized");
 		}
-
+		this.initialized = true;
 		this.hadException.set(null);
-		this.threads = new Thread[this.numOfThreads];
-		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		if (this.algothreads != null) {
+			// reusing the plan algorithms of the last iteration
+			return;
+		}
 
-		Counter counter = null;
+		this.algothreads = new PlanAlgoThread[this.numOfThreads];
 		// setup threads
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			List<Random> randoms = new ArrayList<>();
+			PlanAlgorithm algo = MatsimRandom.collectLocalInstances(this::getPlanAlgoInstance, randoms);
 			if (i == 0) {
-				this.name = algo.getClass().getSimpleName();
-				counter = new Counter("[" + this.name + "] handled plan # ");
+				this.name = this.label + ":" + algo.getClass().getSimpleName();
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
-			Thread thread = new Thread(algothread, this.name + "." + i);
-			thread.setUncaughtExceptionHandler(this.exceptionHandler);
-			this.threads[i] = thread;
-			this.algothreads[i] = algothread;
+			this.algothreads[i] = new PlanAlgoThread(algo, randoms, i, this.numOfThreads, this.exceptionHandler);
 		}
 	}
 
@@ -197,6 +291,27 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		return numOfThreads;
 	}
 
+	/* package (for a test) */ final String getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * @return the simple name of the class, or the name without the package for anonymous classes, with the number of
+	 * the module in the JVM, e.g. <code>ReRoute#2</code>
+	 */
+	private String createLabel() {
+		Class<?> clazz = getClass();
+		String className = clazz.getSimpleName().isEmpty() ? clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1)
+				: clazz.getSimpleName();
+		return className + "#" + numberOfInstances.incrementAndGet();
+	}
+
+	private static void reseed(final List<Random> randoms, final long planRandomKey) {
+		for (int i = 0, n = randoms.size(); i < n; i++) {
+			MatsimRandom.reseed(randoms.get(i), MatsimRandom.getKey(planRandomKey, i));
+		}
+	}
+
 	private final static class ExceptionHandler implements UncaughtExceptionHandler {
 
 		private final AtomicReference<Throwable> hadException;
@@ -213,26 +328,78 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	}
 
+	/**
+	 * A plan algorithm which takes every n-th plan of the module, or batches of them until there are none left. It runs
+	 * in a worker, which takes the name of the thread of the plan algorithm while it does so.
+	 */
 	private final static class PlanAlgoThread implements Runnable {
 
 		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
-		private final Counter counter;
-
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		private final List<Random> randoms;
+		/** the first of the plans it takes round-robin */
+		private final int index;
+		private final int numberOfPlanAlgos;
+		private final ExceptionHandler exceptionHandler;
+		private List<Plan> plans;
+		private AtomicInteger nextPlan;
+		private boolean reseedingPerPlan;
+		private long iterationRandomKey;
+		private Counter counter;
+		private String name;
+		private long submitted;
+		long queueWaitNanos;
+
+		public PlanAlgoThread(final PlanAlgorithm algo, final List<Random> randoms, final int index, final int numberOfPlanAlgos,
+				final ExceptionHandler exceptionHandler) {
 			this.planAlgo = algo;
-			this.counter = counter;
+			this.randoms = randoms;
+			this.index = index;
+			this.numberOfPlanAlgos = numberOfPlanAlgos;
+			this.exceptionHandler = exceptionHandler;
 		}
 
-		public void addPlanToThread(final Plan plan) {
-			this.plans.add(plan);
+		/**
+		 * @param nextPlan the first of the plans no plan algorithm took yet, if they take batches
+		 */
+		void prepare(final List<Plan> plans, final AtomicInteger nextPlan, final boolean reseedingPerPlan,
+				final long iterationRandomKey, final Counter counter, final String name) {
+			this.plans = plans;
+			this.nextPlan = nextPlan;
+			this.reseedingPerPlan = reseedingPerPlan;
+			this.iterationRandomKey = iterationRandomKey;
+			this.counter = counter;
+			this.name = name;
+			this.submitted = System.nanoTime();
 		}
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			this.queueWaitNanos = System.nanoTime() - this.submitted;
+			Thread thread = Thread.currentThread();
+			String workerName = thread.getName();
+			thread.setName(this.name);
+			try {
+				int n = this.plans.size();
+				if (this.reseedingPerPlan) {
+					int from;
+					while ((from = this.nextPlan.getAndAdd(BATCH_SIZE)) < n) {
+						for (int i = from, to = Math.min(from + BATCH_SIZE, n); i < to; i++) {
+							reseed(this.randoms, MatsimRandom.getKey(this.iterationRandomKey, i));
+							this.planAlgo.run(this.plans.get(i));
+							this.counter.incCounter();
+						}
+					}
+				} else {
+					for (int i = this.index; i < n; i += this.numberOfPlanAlgos) {
+						this.planAlgo.run(this.plans.get(i));
+						this.counter.incCounter();
+					}
+				}
+			} catch (Throwable e) {
+				this.exceptionHandler.uncaughtException(thread, e);
+			} finally {
+				this.plans = null;
+				thread.setName(workerName);
 			}
 		}
 	}
@@ -44,6 +44,7 @@ public class ReRoute extends AbstractMultithreadedModule {
 
 	public ReRoute(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup) {
 		super(globalConfigGroup);
+		setReusingPlanAlgoInstances(globalConfigGroup.isReusingReplanningAlgorithms());
 		this.facilities = facilities;
 		this.tripRouterProvider = tripRouterProvider;
 	}
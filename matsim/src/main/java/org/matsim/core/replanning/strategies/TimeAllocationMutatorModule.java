@@ -71,6 +71,7 @@ class TimeAllocationMutatorModule extends AbstractMultithreadedModule{
 	@Deprecated
 	TimeAllocationMutatorModule( Config config, Provider<TripRouter> tripRouterProvider, final double mutationRange, boolean affectingDuration ) {
 		super(config.global());
+		setReusingPlanAlgoInstances(config.global().isReusingReplanningAlgorithms());
 		this.tripRouterProvider = tripRouterProvider;
 		this.affectingDuration = affectingDuration;
 		this.mutationRange = mutationRange;
@@ -89,6 +90,7 @@ class TimeAllocationMutatorModule extends AbstractMultithreadedModule{
 	TimeAllocationMutatorModule( Provider<TripRouter> tripRouterProvider, PlansConfigGroup plansConfigGroup, TimeAllocationMutatorConfigGroup timeAllocationMutatorConfigGroup, GlobalConfigGroup globalConfigGroup,
 							final Population population ) {
 		super(globalConfigGroup);
+		setReusingPlanAlgoInstances(globalConfigGroup.isReusingReplanningAlgorithms());
 		this.tripRouterProvider = tripRouterProvider;
 		this.activityDurationInterpretation = plansConfigGroup.getActivityDurationInterpretation();
 		this.mutationRange = timeAllocationMutatorConfigGroup.getMutationRange();
@@ -20,9 +20,6 @@
 
 package org.matsim.core.router;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -31,6 +28,7 @@ import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.RoutingNetworkCache;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
@@ -40,8 +38,6 @@ import org.matsim.core.router.util.TravelTime;
 @Singleton
 public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 
-	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
-
 	private final int nThreads;
 	
 	@Inject
@@ -58,14 +54,8 @@ public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 	}
 
 	@Override
-	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
-		if (preProcessLandmarks == null) {
-			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
-			preProcessLandmarks.setNumberOfThreads(nThreads);
-			preProcessLandmarks.run(network);
-			this.preProcessData.put(network, preProcessLandmarks);
-		}
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		PreProcessLandmarks preProcessLandmarks = RoutingNetworkCache.getPreProcessLandmarks(network, travelCosts, this.nThreads);
 		
 		final double overdoFactor = 1.0;
 		return new AStarLandmarks(network, preProcessLandmarks, travelCosts, travelTimes, overdoFactor);
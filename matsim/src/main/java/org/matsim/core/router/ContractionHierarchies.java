@@ -0,0 +1,281 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PersonDependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator on a customizable {@link ContractionHierarchy}. A query searches upwards in the
+ * hierarchy from the start and from the end node, and joins both searches at the node of least total cost; the arcs
+ * of this path are then resolved into the links of the network. The searches need no priority queue, as they visit
+ * the nodes in the order of the hierarchy.
+ * <p></p>
+ * The weights of the arcs are customized for time bins, from the travel disutility at the beginning of the bin. The
+ * path of a query is the least cost path for the bin of its departure time, i.e. the same as the one of
+ * {@link FastDijkstra} as long as the costs do not change during the trip. Travel time and cost of the path are then
+ * computed along its links at the times they are entered, like the other calculators do. Like the landmarks of
+ * {@link AStarLandmarks}, the weights do not depend on the person or the vehicle: they are computed without a person,
+ * and for a {@link PersonDependentTravelDisutility} from its person independent costs. Thus, with a randomizing travel
+ * disutility, all persons get the path of the costs without randomization; only the costs of the paths are randomized.
+ *
+ * @see ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchy hierarchy;
+	/** the customization of the current iteration, as the calculator may be used in several */
+	private final Supplier<Customization> customization;
+	private final TravelDisutility travelCosts;
+	private final TravelTime travelTimes;
+
+	private final Search forward;
+	private final Search backward;
+
+	ContractionHierarchies(final ContractionHierarchy hierarchy, final Supplier<Customization> customization,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		this.hierarchy = hierarchy;
+		this.customization = customization;
+		this.travelCosts = travelCosts;
+		this.travelTimes = travelTimes;
+		this.forward = new Search(hierarchy.getNumberOfNodes(), 0);
+		this.backward = new Search(hierarchy.getNumberOfNodes(), 1);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int from = this.hierarchy.getRank(fromNode);
+		int to = this.hierarchy.getRank(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network of the contraction hierarchy: "
+					+ fromNode.getId() + ", " + toNode.getId());
+		}
+		Metric metric = this.customization.get().getMetric(starttime, this.travelCosts);
+
+		this.forward.initialize(from);
+		this.backward.initialize(to);
+		// the higher ranked neighbours of a node are its ancestors in the elimination tree of the hierarchy, so each
+		// search visits the ancestors of its node, from the lowest on, and both meet at the common ones
+		int forwardNode = from;
+		int backwardNode = to;
+		while (forwardNode != backwardNode) {
+			if (backwardNode < 0 || (forwardNode >= 0 && forwardNode < backwardNode)) {
+				this.forward.expand(forwardNode, metric.weights, Double.POSITIVE_INFINITY);
+				forwardNode = this.hierarchy.getParent(forwardNode);
+			} else {
+				this.backward.expand(backwardNode, metric.weights, Double.POSITIVE_INFINITY);
+				backwardNode = this.hierarchy.getParent(backwardNode);
+			}
+		}
+		double leastCost = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+		for (int node = forwardNode; node >= 0; node = this.hierarchy.getParent(node)) {
+			if (this.forward.isReached(node) && this.backward.isReached(node)
+					&& this.forward.costs[node] + this.backward.costs[node] < leastCost) {
+				leastCost = this.forward.costs[node] + this.backward.costs[node];
+				meeting = node;
+			}
+			this.forward.expand(node, metric.weights, leastCost);
+			this.backward.expand(node, metric.weights, leastCost);
+		}
+
+		if (meeting < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ".");
+			return null;
+		}
+
+		int[] directions = new int[64];
+		int size = 0;
+		for (int node = meeting; node != from; node = this.hierarchy.getTail(this.forward.arcs[node])) {
+			directions = append(directions, size++, 2 * this.forward.arcs[node]);
+		}
+		for (int i = 0; i < size / 2; i++) {
+			int direction = directions[i];
+			directions[i] = directions[size - 1 - i];
+			directions[size - 1 - i] = direction;
+		}
+		for (int node = meeting; node != to; node = this.hierarchy.getTail(this.backward.arcs[node])) {
+			directions = append(directions, size++, 2 * this.backward.arcs[node] + 1);
+		}
+		List<Link> links = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			this.hierarchy.unpack(directions[i], metric.linkCosts, metric.weights, links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelCosts.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTimes.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	private static int[] append(final int[] array, final int size, final int value) {
+		int[] result = size < array.length ? array : Arrays.copyOf(array, 2 * array.length);
+		result[size] = value;
+		return result;
+	}
+
+	/**
+	 * The upward search from one side of a query. The nodes are marked as reached per query, so the arrays need not
+	 * be cleared.
+	 */
+	private final class Search {
+
+		private final int direction;
+		final double[] costs;
+		/** the arc by which a node was reached */
+		final int[] arcs;
+		private final int[] queries;
+		private int query = 0;
+
+		Search(final int numberOfNodes, final int direction) {
+			this.direction = direction;
+			this.costs = new double[numberOfNodes];
+			this.arcs = new int[numberOfNodes];
+			this.queries = new int[numberOfNodes];
+		}
+
+		void initialize(final int node) {
+			if (this.query == Integer.MAX_VALUE) {
+				Arrays.fill(this.queries, 0);
+				this.query = 0;
+			}
+			this.query++;
+			this.queries[node] = this.query;
+			this.costs[node] = 0;
+		}
+
+		boolean isReached(final int node) {
+			return this.queries[node] == this.query;
+		}
+
+		/**
+		 * Relaxes the arcs to the higher ranked neighbours of the node, if it is reached at less than the limit.
+		 */
+		void expand(final int node, final double[] weights, final double limit) {
+			if (!isReached(node) || this.costs[node] >= limit) {
+				return;
+			}
+			double cost = this.costs[node];
+			ContractionHierarchy hierarchy = ContractionHierarchies.this.hierarchy;
+			for (int arc = hierarchy.getFirstArc(node), last = hierarchy.getFirstArc(node + 1); arc < last; arc++) {
+				double headCost = cost + weights[2 * arc + this.direction];
+				int head = hierarchy.getHead(arc);
+				if (headCost < Double.POSITIVE_INFINITY && (!isReached(head) || headCost < this.costs[head])) {
+					this.queries[head] = this.query;
+					this.costs[head] = headCost;
+					this.arcs[head] = arc;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The link costs and arc weights of one time bin.
+	 */
+	static final class Metric {
+
+		final double[] linkCosts;
+		final double[] weights;
+
+		Metric(final double[] linkCosts, final double[] weights) {
+			this.linkCosts = linkCosts;
+			this.weights = weights;
+		}
+	}
+
+	/**
+	 * The metrics of the time bins of a contraction hierarchy, customized when they are needed first. It is shared
+	 * by calculators whose travel disutilities give the same costs, see {@link ContractionHierarchiesFactory}.
+	 */
+	static final class Customization {
+
+		private final ContractionHierarchy hierarchy;
+		private final int binSize;
+		private final AtomicReferenceArray<Metric> metrics;
+		private final Object[] locks;
+
+		/**
+		 * @param maxTime the metric of the last time bin is used from this time on
+		 */
+		Customization(final ContractionHierarchy hierarchy, final int binSize, final int maxTime) {
+			this.hierarchy = hierarchy;
+			this.binSize = binSize;
+			int numberOfBins = maxTime / binSize + 1;
+			this.metrics = new AtomicReferenceArray<>(numberOfBins);
+			this.locks = new Object[numberOfBins];
+			for (int i = 0; i < numberOfBins; i++) {
+				this.locks[i] = new Object();
+			}
+		}
+
+		Metric getMetric(final double time, final TravelDisutility travelCosts) {
+			int bin = time > 0 ? (int) Math.min(time / this.binSize, this.locks.length - 1) : 0;
+			Metric metric = this.metrics.get(bin);
+			if (metric == null) {
+				synchronized (this.locks[bin]) {
+					metric = this.metrics.get(bin);
+					if (metric == null) {
+						Link[] links = this.hierarchy.getLinks();
+						double[] linkCosts = new double[links.length];
+						double binStart = (double) bin * this.binSize;
+						if (travelCosts instanceof PersonDependentTravelDisutility) {
+							// e.g. the randomizing disutility, which does not accept null as person
+							PersonDependentTravelDisutility personDependentCosts = (PersonDependentTravelDisutility) travelCosts;
+							for (int l = 0; l < links.length; l++) {
+								linkCosts[l] = personDependentCosts.getPersonIndependentLinkTravelDisutility(links[l], binStart);
+							}
+						} else {
+							for (int l = 0; l < links.length; l++) {
+								linkCosts[l] = travelCosts.getLinkTravelDisutility(links[l], binStart, null, null);
+							}
+						}
+						metric = new Metric(linkCosts, this.hierarchy.customize(linkCosts));
+						this.metrics.set(bin, metric);
+					}
+				}
+			}
+			return metric;
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.router.ContractionHierarchies.Customization;
+import org.matsim.core.router.util.ContractionHierarchy;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.PersonDependentTravelDisutility;
+import org.matsim.core.router.util.RoutingNetworkCache;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchies} calculators. The hierarchy of a network is created once, by the
+ * {@link RoutingNetworkCache}; its weights are customized per time bin of the travel time calculator, and anew in
+ * every iteration.
+ * <p></p>
+ * The replanning threads each get their own travel disutility, but on the same travel time. Within an iteration, the
+ * calculators of {@link Object#equals(Object) equal} disutilities on the same travel time share their customized
+ * weights, so every time bin is customized only once. A disutility which does not define its equality, and so is
+ * only equal to itself, gets weights of its own. A calculator which is used in several iterations, e.g. by a replanning module reusing its plan
+ * algorithms, gets the weights of the current iteration before its first query in an iteration. Outside of a
+ * controler, where there are no iterations, every calculator customizes its own.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchiesFactory.class);
+
+	private final int binSize;
+	private final int maxTime;
+
+	@com.google.inject.Inject(optional = true)
+	private IterationCounter iterationCounter;
+	private Integer iteration = null;
+	private final Map<List<Object>, Customization> customizations = new HashMap<>();
+	private boolean warnedAboutPersonDependentCosts = false;
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize(), travelTimeCalculatorConfigGroup.getMaxTime());
+	}
+
+	public ContractionHierarchiesFactory() {
+		this(new TravelTimeCalculatorConfigGroup());
+	}
+
+	/**
+	 * @param binSize the size of the time bins the weights are customized for, in seconds
+	 * @param maxTime the weights of the last time bin are used from this time on
+	 */
+	public ContractionHierarchiesFactory(final int binSize, final int maxTime) {
+		this.binSize = binSize;
+		this.maxTime = maxTime;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchy hierarchy = RoutingNetworkCache.getContractionHierarchy(network);
+		if (travelCosts instanceof PersonDependentTravelDisutility) {
+			warnAboutPersonDependentCosts();
+		}
+		Supplier<Customization> customization;
+		if (this.iterationCounter == null) {
+			Customization fixedCustomization = new Customization(hierarchy, this.binSize, this.maxTime);
+			customization = () -> fixedCustomization;
+		} else {
+			customization = new IterationCustomization(hierarchy, travelCosts, travelTimes);
+		}
+		return new ContractionHierarchies(hierarchy, customization, travelCosts, travelTimes);
+	}
+
+	private synchronized void warnAboutPersonDependentCosts() {
+		if (!this.warnedAboutPersonDependentCosts) {
+			this.warnedAboutPersonDependentCosts = true;
+			log.warn("The travel disutility depends on the person, e.g. by routing randomness. The paths of contraction hierarchies"
+					+ " do not: they are the least cost paths of the person independent costs, for all persons.");
+		}
+	}
+
+	private synchronized Customization getCustomization(final ContractionHierarchy hierarchy, final TravelDisutility travelCosts,
+			final TravelTime travelTimes, final Integer currentIteration) {
+		if (currentIteration == null) {
+			return new Customization(hierarchy, this.binSize, this.maxTime);
+		}
+		if (!Objects.equals(currentIteration, this.iteration)) {
+			// the travel times changed
+			this.customizations.clear();
+			this.iteration = currentIteration;
+		}
+		return this.customizations.computeIfAbsent(Arrays.asList(hierarchy, travelTimes, travelCosts),
+				key -> new Customization(hierarchy, this.binSize, this.maxTime));
+	}
+
+	/**
+	 * The customization of a calculator, which is fetched anew when the iteration changed.
+	 */
+	private final class IterationCustomization implements Supplier<Customization> {
+
+		private final ContractionHierarchy hierarchy;
+		private final TravelDisutility travelCosts;
+		private final TravelTime travelTimes;
+		private Integer iteration = null;
+		private Customization customization = null;
+
+		IterationCustomization(final ContractionHierarchy hierarchy, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+			this.hierarchy = hierarchy;
+			this.travelCosts = travelCosts;
+			this.travelTimes = travelTimes;
+		}
+
+		@Override
+		public Customization get() {
+			Integer currentIteration = iterationCounter.getIterationNumber();
+			if (this.customization == null || !Objects.equals(currentIteration, this.iteration)) {
+				this.customization = getCustomization(this.hierarchy, this.travelCosts, this.travelTimes, currentIteration);
+				this.iteration = currentIteration;
+			}
+			return this.customization;
+		}
+	}
+
+}
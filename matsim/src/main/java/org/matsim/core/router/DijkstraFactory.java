@@ -20,16 +20,13 @@
 
 package org.matsim.core.router;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
-import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.router.util.RoutingNetworkCache;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
@@ -37,7 +34,6 @@ import org.matsim.core.router.util.TravelTime;
 public class DijkstraFactory implements LeastCostPathCalculatorFactory {
 
 	private final boolean usePreProcessData;
-	private final Map<Network, PreProcessDijkstra> preProcessData = new HashMap<>();
 
 	@Inject
 	public DijkstraFactory() {
@@ -53,16 +49,11 @@ public class DijkstraFactory implements LeastCostPathCalculatorFactory {
 	// To fix this, we create the PreProcessData when the first LeastCostPathCalculator object is created and store it in a map using
 	// the network as key. For the PreProcessDijkstra data this is fine, since it does not take travel times and disutilities into account.
 	// For the AStarLandmarks data, we would have to include the other two arguments into the lookup value as well... cdobler, sep'17 
+	// The map is now the RoutingNetworkCache, shared by all factories.
 	@Override
-	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
 		if (this.usePreProcessData) {
-			PreProcessDijkstra preProcessDijkstra = this.preProcessData.get(network);
-			if (preProcessDijkstra == null) {
-				preProcessDijkstra = new PreProcessDijkstra();
-				preProcessDijkstra.run(network);
-				this.preProcessData.put(network, preProcessDijkstra);
-			}
-			return new Dijkstra(network, travelCosts, travelTimes, preProcessDijkstra);
+			return new Dijkstra(network, travelCosts, travelTimes, RoutingNetworkCache.getPreProcessDijkstra(network));
 		}
 		return new Dijkstra(network, travelCosts, travelTimes);
 	}
@@ -20,22 +20,17 @@
 
 package org.matsim.core.router;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
-import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessLandmarks;
 import org.matsim.core.router.util.RoutingNetwork;
-import org.matsim.core.router.util.RoutingNetworkFactory;
-import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.RoutingNetworkCache;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
@@ -44,10 +39,6 @@ import org.matsim.core.router.util.TravelTime;
  */
 @Singleton
 public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
-	
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
-	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
 
 	private final int nThreads;
 
@@ -71,7 +62,6 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads) {
 		switch (fastRouterType) {
 		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
 			break;
 		case POINTER:
 			throw new RuntimeException("PointerRoutingNetworks are no longer supported. Use ArrayRoutingNetworks instead. Aborting!");
@@ -83,26 +73,9 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	}
 
 	@Override
-	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
-		
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			
-			if (preProcessLandmarks == null) {
-				preProcessLandmarks = new PreProcessLandmarks(travelCosts);
-				preProcessLandmarks.setNumberOfThreads(nThreads);
-				preProcessLandmarks.run(network);
-				this.preProcessData.put(network, preProcessLandmarks);
-				
-				for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
-					node.setDeadEndData(preProcessLandmarks.getNodeData(node.getNode()));
-				}
-			}				
-			
-			this.routingNetworks.put(network, routingNetwork);
-		}
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		PreProcessLandmarks preProcessLandmarks = RoutingNetworkCache.getPreProcessLandmarks(network, travelCosts, this.nThreads);
+		RoutingNetwork routingNetwork = RoutingNetworkCache.getRoutingNetwork(network, preProcessLandmarks);
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		
 		final double overdoFactor = 1.0;
@@ -21,29 +21,21 @@
 package org.matsim.core.router;
 
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessDijkstra;
 import org.matsim.core.router.util.RoutingNetwork;
-import org.matsim.core.router.util.RoutingNetworkFactory;
-import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.RoutingNetworkCache;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Singleton
 public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	
 	private final boolean usePreProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
-	private final Map<Network, PreProcessDijkstra> preProcessData = new HashMap<>();
 
 	@Inject
 	public FastDijkstraFactory() {
@@ -59,7 +51,6 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 				
 		switch (fastRouterType) {
 		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
 			break;
 		case POINTER:
 			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
@@ -70,27 +61,9 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	}
 
 	@Override
-	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		PreProcessDijkstra preProcessDijkstra = this.preProcessData.get(network);
-
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			
-			if (this.usePreProcessData) {
-				if (preProcessDijkstra == null) {
-					preProcessDijkstra = new PreProcessDijkstra();
-					preProcessDijkstra.run(network);
-					this.preProcessData.put(network, preProcessDijkstra);
-					
-					for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
-						node.setDeadEndData(preProcessDijkstra.getNodeData(node.getNode()));
-					}
-				}
-			}
-			
-			this.routingNetworks.put(network, routingNetwork);
-		}
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		PreProcessDijkstra preProcessDijkstra = this.usePreProcessData ? RoutingNetworkCache.getPreProcessDijkstra(network) : null;
+		RoutingNetwork routingNetwork = RoutingNetworkCache.getRoutingNetwork(network, preProcessDijkstra);
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		
 		return new FastDijkstra(routingNetwork, travelCosts, travelTimes, preProcessDijkstra, fastRouterFactory);
@@ -20,17 +20,12 @@
 
 package org.matsim.core.router;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessDijkstra;
 import org.matsim.core.router.util.RoutingNetwork;
-import org.matsim.core.router.util.RoutingNetworkFactory;
-import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.RoutingNetworkCache;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
@@ -38,9 +33,6 @@ public class FastMultiNodeDijkstraFactory implements LeastCostPathCalculatorFact
 	
 	private final boolean searchAllEndNodes;
 	private final boolean usePreProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
-	private final Map<Network, PreProcessDijkstra> preProcessData = new HashMap<>();
 	
 	public FastMultiNodeDijkstraFactory() {
 		this(false);
@@ -53,32 +45,12 @@ public class FastMultiNodeDijkstraFactory implements LeastCostPathCalculatorFact
 	public FastMultiNodeDijkstraFactory(final boolean usePreProcessData, final boolean searchAllEndNodes) {
 		this.usePreProcessData = usePreProcessData;
 		this.searchAllEndNodes = searchAllEndNodes;
-		this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
 	}
 
 	@Override
-	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		PreProcessDijkstra preProcessDijkstra = this.preProcessData.get(network);
-
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			
-			if (this.usePreProcessData) {
-				if (preProcessDijkstra == null) {
-					preProcessDijkstra = new PreProcessDijkstra();
-					preProcessDijkstra.run(network);
-					this.preProcessData.put(network, preProcessDijkstra);
-
-					for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
-						node.setDeadEndData(preProcessDijkstra.getNodeData(node.getNode()));
-					}
-				}
-			}
-			
-			this.routingNetworks.put(network, routingNetwork);
-		}
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		PreProcessDijkstra preProcessDijkstra = this.usePreProcessData ? RoutingNetworkCache.getPreProcessDijkstra(network) : null;
+		RoutingNetwork routingNetwork = RoutingNetworkCache.getRoutingNetwork(network, preProcessDijkstra);
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		
 		return new FastMultiNodeDijkstra(routingNetwork, travelCosts, travelTimes, preProcessDijkstra, fastRouterFactory, this.searchAllEndNodes);
@@ -20,13 +20,10 @@
 
 package org.matsim.core.router;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
-import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.router.util.RoutingNetworkCache;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
@@ -34,7 +31,6 @@ public class MultiNodeDijkstraFactory implements LeastCostPathCalculatorFactory
 
 	private final boolean searchAllEndNodes;
 	private final boolean usePreProcessData;
-	private final Map<Network, PreProcessDijkstra> preProcessData = new HashMap<>();
 	
 	public MultiNodeDijkstraFactory() {
 		this.searchAllEndNodes = false;
@@ -52,15 +48,10 @@ public class MultiNodeDijkstraFactory implements LeastCostPathCalculatorFactory
 	}
 
 	@Override
-	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {		
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {		
 		if (this.usePreProcessData) {
-			PreProcessDijkstra preProcessDijkstra = this.preProcessData.get(network);
-			if (preProcessDijkstra == null) {
-				preProcessDijkstra = new PreProcessDijkstra();
-				preProcessDijkstra.run(network);
-				this.preProcessData.put(network, preProcessDijkstra);
-			}
-			return new MultiNodeDijkstra(network, travelCosts, travelTimes, preProcessDijkstra, this.searchAllEndNodes);
+			return new MultiNodeDijkstra(network, travelCosts, travelTimes, RoutingNetworkCache.getPreProcessDijkstra(network),
+					this.searchAllEndNodes);
 		}
 		
 		return new MultiNodeDijkstra(network, travelCosts, travelTimes, this.searchAllEndNodes);
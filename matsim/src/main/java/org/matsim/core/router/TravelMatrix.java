@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Travel times, distances and costs of the least cost paths from a list of origin nodes to a list of destination
+ * nodes, as calculated by the {@link TravelMatrixCalculator}. The values of every origin are stored in a block of
+ * floats, indexed by the destinations. Destinations that cannot be reached have the value
+ * <code>Float.POSITIVE_INFINITY</code>.
+ */
+public final class TravelMatrix {
+
+	private final List<Node> origins;
+	private final List<Node> destinations;
+	private final float[][] travelTimes;
+	private final float[][] distances;
+	private final float[][] costs;
+
+	TravelMatrix(final List<Node> origins, final List<Node> destinations) {
+		this.origins = origins;
+		this.destinations = destinations;
+		this.travelTimes = new float[origins.size()][];
+		this.distances = new float[origins.size()][];
+		this.costs = new float[origins.size()][];
+	}
+
+	void setBlocks(final int origin, final float[] travelTimes, final float[] distances, final float[] costs) {
+		this.travelTimes[origin] = travelTimes;
+		this.distances[origin] = distances;
+		this.costs[origin] = costs;
+	}
+
+	public List<Node> getOrigins() {
+		return this.origins;
+	}
+
+	public List<Node> getDestinations() {
+		return this.destinations;
+	}
+
+	/**
+	 * @param origin the index of the origin in {@link #getOrigins()}
+	 * @param destination the index of the destination in {@link #getDestinations()}
+	 * @return the travel time in seconds
+	 */
+	public float getTravelTime(final int origin, final int destination) {
+		return this.travelTimes[origin][destination];
+	}
+
+	/**
+	 * @return the length of the path in meters
+	 */
+	public float getDistance(final int origin, final int destination) {
+		return this.distances[origin][destination];
+	}
+
+	/**
+	 * @return the travel disutility of the path
+	 */
+	public float getCost(final int origin, final int destination) {
+		return this.costs[origin][destination];
+	}
+
+	/**
+	 * @return the travel times from the origin to all destinations. The array is not copied, so do not modify it.
+	 */
+	public float[] getTravelTimes(final int origin) {
+		return this.travelTimes[origin];
+	}
+
+	/**
+	 * @return the distances from the origin to all destinations. The array is not copied, so do not modify it.
+	 */
+	public float[] getDistances(final int origin) {
+		return this.distances[origin];
+	}
+
+	/**
+	 * @return the costs from the origin to all destinations. The array is not copied, so do not modify it.
+	 */
+	public float[] getCosts(final int origin) {
+		return this.costs[origin];
+	}
+
+}
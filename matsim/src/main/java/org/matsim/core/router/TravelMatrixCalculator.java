@@ -0,0 +1,317 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelMatrixCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.PersonDependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates {@link TravelMatrix travel matrices} between many origin and destination nodes, e.g. for accessibility
+ * computations or the transport costs of freight and DRT, instead of a least cost path calculation per pair or a
+ * {@link org.matsim.utils.leastcostpathtree.LeastCostPathTree} per origin over the whole network.
+ * <p></p>
+ * One least cost path search runs per origin, and stops as soon as it has reached all destinations. Like in
+ * {@link Dijkstra}, the time dependent travel times and disutilities of a link are those at the time it is entered.
+ * The matrices are for no person in particular: a {@link PersonDependentTravelDisutility}, e.g. with routing
+ * randomness, gives its person independent costs, like for {@link ContractionHierarchies}.
+ * The searches for different origins run in parallel, on a copy of the network in arrays that is made once per
+ * calculator.
+ *
+ */
+public final class TravelMatrixCalculator {
+
+	private static final Logger log = Logger.getLogger(TravelMatrixCalculator.class);
+
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	/** the travel disutility, if it depends on the person, as it does not accept <code>null</code> as person then */
+	private final PersonDependentTravelDisutility personDependentDisutility;
+	private final int numberOfThreads;
+
+	private final int[] indexByIdIndex;
+	/** the out-links of node i are <code>links[firstLink[i]]</code> to <code>links[firstLink[i + 1] - 1]</code> */
+	private final int[] firstLink;
+	private final Link[] links;
+	private final int[] linkToNodes;
+
+	public TravelMatrixCalculator(final Network network, final TravelTime travelTime, final TravelDisutility travelDisutility,
+			final int numberOfThreads) {
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.personDependentDisutility = travelDisutility instanceof PersonDependentTravelDisutility
+				? (PersonDependentTravelDisutility) travelDisutility : null;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		this.indexByIdIndex = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.indexByIdIndex, -1);
+		for (int i = 0; i < nodes.length; i++) {
+			this.indexByIdIndex[nodes[i].getId().index()] = i;
+		}
+		this.firstLink = new int[nodes.length + 1];
+		this.links = new Link[network.getLinks().size()];
+		this.linkToNodes = new int[this.links.length];
+		int l = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			this.firstLink[i] = l;
+			for (Link link : nodes[i].getOutLinks().values()) {
+				this.links[l] = link;
+				this.linkToNodes[l] = this.indexByIdIndex[link.getToNode().getId().index()];
+				l++;
+			}
+		}
+		this.firstLink[nodes.length] = l;
+	}
+
+	/**
+	 * @param origins the origin nodes, which are the rows of the matrix
+	 * @param destinations the destination nodes, which are the columns of the matrix
+	 * @param departureTime the departure time at all origins
+	 */
+	public TravelMatrix calcMatrix(final List<? extends Node> origins, final List<? extends Node> destinations, final double departureTime) {
+		long start = System.currentTimeMillis();
+		int[] originIndices = getIndices(origins);
+		int[] destinationIndices = getIndices(destinations);
+		boolean[] isDestination = new boolean[this.firstLink.length - 1];
+		int numberOfDestinationNodes = 0;
+		for (int destination : destinationIndices) {
+			if (!isDestination[destination]) {
+				isDestination[destination] = true;
+				numberOfDestinationNodes++;
+			}
+		}
+		TravelMatrix matrix = new TravelMatrix(new ArrayList<>(origins), new ArrayList<>(destinations));
+		AtomicInteger nextOrigin = new AtomicInteger();
+		int finalNumberOfDestinationNodes = numberOfDestinationNodes;
+		Runnable worker = () -> {
+			Search search = new Search(isDestination, finalNumberOfDestinationNodes);
+			for (int o = nextOrigin.getAndIncrement(); o < originIndices.length; o = nextOrigin.getAndIncrement()) {
+				search.run(originIndices[o], departureTime);
+				search.setBlocks(matrix, o, destinationIndices);
+			}
+		};
+
+		int threads = Math.min(this.numberOfThreads, originIndices.length);
+		if (threads <= 1) {
+			worker.run();
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "TravelMatrixCalculator");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < threads; i++) {
+					futures.add(executor.submit(worker));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("problem calculating travel matrix", e.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		log.info("travel matrix of " + origins.size() + " origins and " + destinations.size() + " destinations calculated with "
+				+ threads + " threads in " + (System.currentTimeMillis() - start) + " ms.");
+		return matrix;
+	}
+
+	private int[] getIndices(final List<? extends Node> nodes) {
+		int[] indices = new int[nodes.size()];
+		for (int i = 0; i < indices.length; i++) {
+			int idIndex = nodes.get(i).getId().index();
+			indices[i] = idIndex < this.indexByIdIndex.length ? this.indexByIdIndex[idIndex] : -1;
+			if (indices[i] < 0) {
+				throw new IllegalArgumentException("Node " + nodes.get(i).getId() + " is not part of the network.");
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * The state of the least cost path searches of one thread. The nodes are marked per search, so the arrays need
+	 * not be cleared.
+	 */
+	private double getLinkTravelDisutility(final Link link, final double time) {
+		if (this.personDependentDisutility != null) {
+			return this.personDependentDisutility.getPersonIndependentLinkTravelDisutility(link, time);
+		}
+		return this.travelDisutility.getLinkTravelDisutility(link, time, null, null);
+	}
+
+	private final class Search {
+
+		private final boolean[] isDestination;
+		private final int numberOfDestinationNodes;
+		private final double[] costs;
+		private final double[] times;
+		private final double[] distances;
+		private final int[] reached;
+		private final int[] settled;
+		private int search = 0;
+		private double departureTime;
+
+		private double[] heapCosts = new double[64];
+		private int[] heapNodes = new int[64];
+		private int heapSize;
+
+		Search(final boolean[] isDestination, final int numberOfDestinationNodes) {
+			this.isDestination = isDestination;
+			this.numberOfDestinationNodes = numberOfDestinationNodes;
+			int numberOfNodes = isDestination.length;
+			this.costs = new double[numberOfNodes];
+			this.times = new double[numberOfNodes];
+			this.distances = new double[numberOfNodes];
+			this.reached = new int[numberOfNodes];
+			this.settled = new int[numberOfNodes];
+		}
+
+		void run(final int origin, final double departureTime) {
+			if (this.search == Integer.MAX_VALUE) {
+				Arrays.fill(this.reached, 0);
+				Arrays.fill(this.settled, 0);
+				this.search = 0;
+			}
+			this.search++;
+			this.departureTime = departureTime;
+			this.heapSize = 0;
+			this.reached[origin] = this.search;
+			this.costs[origin] = 0;
+			this.times[origin] = departureTime;
+			this.distances[origin] = 0;
+			add(origin, 0);
+			int remaining = this.numberOfDestinationNodes;
+			while (this.heapSize > 0 && remaining > 0) {
+				double cost = this.heapCosts[0];
+				int node = poll();
+				if (this.settled[node] == this.search || cost > this.costs[node]) {
+					continue;
+				}
+				this.settled[node] = this.search;
+				if (this.isDestination[node]) {
+					remaining--;
+				}
+				double time = this.times[node];
+				for (int l = firstLink[node]; l < firstLink[node + 1]; l++) {
+					Link link = links[l];
+					int toNode = linkToNodes[l];
+					if (this.settled[toNode] == this.search) {
+						continue;
+					}
+					double toCost = cost + getLinkTravelDisutility(link, time);
+					if (this.reached[toNode] != this.search || toCost < this.costs[toNode]) {
+						this.reached[toNode] = this.search;
+						this.costs[toNode] = toCost;
+						this.times[toNode] = time + travelTime.getLinkTravelTime(link, time, null, null);
+						this.distances[toNode] = this.distances[node] + link.getLength();
+						add(toNode, toCost);
+					}
+				}
+			}
+		}
+
+		void setBlocks(final TravelMatrix matrix, final int origin, final int[] destinations) {
+			float[] travelTimes = new float[destinations.length];
+			float[] distances = new float[destinations.length];
+			float[] costs = new float[destinations.length];
+			for (int d = 0; d < destinations.length; d++) {
+				int node = destinations[d];
+				if (this.settled[node] == this.search) {
+					travelTimes[d] = (float) (this.times[node] - this.departureTime);
+					distances[d] = (float) this.distances[node];
+					costs[d] = (float) this.costs[node];
+				} else {
+					travelTimes[d] = Float.POSITIVE_INFINITY;
+					distances[d] = Float.POSITIVE_INFINITY;
+					costs[d] = Float.POSITIVE_INFINITY;
+				}
+			}
+			matrix.setBlocks(origin, travelTimes, distances, costs);
+		}
+
+		private void add(final int node, final double cost) {
+			if (this.heapSize == this.heapNodes.length) {
+				this.heapCosts = Arrays.copyOf(this.heapCosts, 2 * this.heapSize);
+				this.heapNodes = Arrays.copyOf(this.heapNodes, 2 * this.heapSize);
+			}
+			int i = this.heapSize++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (this.heapCosts[parent] <= cost) {
+					break;
+				}
+				this.heapCosts[i] = this.heapCosts[parent];
+				this.heapNodes[i] = this.heapNodes[parent];
+				i = parent;
+			}
+			this.heapCosts[i] = cost;
+			this.heapNodes[i] = node;
+		}
+
+		private int poll() {
+			int result = this.heapNodes[0];
+			this.heapSize--;
+			double cost = this.heapCosts[this.heapSize];
+			int node = this.heapNodes[this.heapSize];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= this.heapSize) {
+					break;
+				}
+				if (child + 1 < this.heapSize && this.heapCosts[child + 1] < this.heapCosts[child]) {
+					child++;
+				}
+				if (cost <= this.heapCosts[child]) {
+					break;
+				}
+				this.heapCosts[i] = this.heapCosts[child];
+				this.heapNodes[i] = this.heapNodes[child];
+				i = child;
+			}
+			this.heapCosts[i] = cost;
+			this.heapNodes[i] = node;
+			return result;
+		}
+	}
+
+}
@@ -27,11 +27,12 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ModeParams;
 import org.matsim.core.gbl.MatsimRandom;
-import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.PersonDependentTravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.vehicles.Vehicle;
 
 import java.util.Collections;
+import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 
@@ -40,7 +41,7 @@ import java.util.Set;
  *
  * @author mrieser
  */
-final class RandomizingTimeDistanceTravelDisutility implements TravelDisutility {
+final class RandomizingTimeDistanceTravelDisutility implements PersonDependentTravelDisutility {
 
 	private final TravelTime timeCalculator;
 	private final double marginalCostOfTime;
@@ -106,9 +107,43 @@ final class RandomizingTimeDistanceTravelDisutility implements TravelDisutility
 		return this.marginalCostOfTime * travelTime + logNormalRnd * this.marginalCostOfDistance * link.getLength();
 	}
 
+	/**
+	 * The normalization makes the expected value of the random factor 1, so this is the disutility without randomization.
+	 */
+	@Override
+	public double getPersonIndependentLinkTravelDisutility(final Link link, final double time) {
+		double travelTime = this.timeCalculator.getLinkTravelTime(link, time, null, null);
+		return this.marginalCostOfTime * travelTime + this.marginalCostOfDistance * link.getLength();
+	}
+
 	@Override
 	public double getLinkMinimumTravelDisutility(final Link link) {
 		return (link.getLength() / link.getFreespeed()) * this.marginalCostOfTime + this.marginalCostOfDistance * link.getLength();
 	}
 
+	/**
+	 * Disutilities with the same parameters on the same travel time are equal, so the replanning threads can share
+	 * what is derived from their costs, e.g. the weights of contraction hierarchies.
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RandomizingTimeDistanceTravelDisutility)) {
+			return false;
+		}
+		RandomizingTimeDistanceTravelDisutility other = (RandomizingTimeDistanceTravelDisutility) obj;
+		return this.timeCalculator.equals(other.timeCalculator)
+				&& Double.compare(this.marginalCostOfTime, other.marginalCostOfTime) == 0
+				&& Double.compare(this.marginalCostOfDistance, other.marginalCostOfDistance) == 0
+				&& Double.compare(this.normalization, other.normalization) == 0
+				&& Double.compare(this.sigma, other.sigma) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.timeCalculator, this.marginalCostOfTime, this.marginalCostOfDistance, this.normalization, this.sigma);
+	}
+
 }
@@ -0,0 +1,499 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric independent part of a customizable contraction hierarchy of a network, as used by
+ * {@link org.matsim.core.router.ContractionHierarchies}: an order of the nodes, and the arcs between every node and
+ * its higher ranked neighbours, which are the links of the network plus the shortcuts that contracting the nodes in
+ * this order creates.
+ * <p></p>
+ * The nodes are ordered by nested dissection along their coordinates: a part of the network is split at the median
+ * of its longer side, the nodes at the border of the split are ranked above the rest, and both halves are ordered
+ * the same way. As the arcs do not depend on any travel disutility, the hierarchy is created once per network.
+ * The weights of the arcs are computed by {@link #customize(double[])} for given costs of the links, which is fast
+ * enough to do it for every time bin of every iteration.
+ * <p></p>
+ * Every arc has two directions, the upward direction <code>2 * arc</code> from the lower to the higher ranked node,
+ * and the downward direction <code>2 * arc + 1</code> back. The weights are indexed by these directions.
+ */
+public final class ContractionHierarchy {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	private final Link[] links;
+	private final Node[] nodes;
+	private final int[] rankByIdIndex;
+	/** the arcs from node r to its higher ranked neighbours are <code>firstArc[r]</code> to <code>firstArc[r + 1] - 1</code>, sorted by head */
+	private final int[] firstArc;
+	private final int[] arcTails;
+	private final int[] arcHeads;
+	/** the arcs from lower ranked neighbours into node r, sorted by tail */
+	private final int[] firstInArc;
+	private final int[] inArcs;
+	/** the links of direction d are <code>directionLinks[firstDirectionLink[d]]</code> and following */
+	private final int[] firstDirectionLink;
+	private final int[] directionLinks;
+
+	public ContractionHierarchy(final Network network) {
+		long start = System.currentTimeMillis();
+		this.links = network.getLinks().values().toArray(new Link[0]);
+		Node[] networkNodes = network.getNodes().values().toArray(new Node[0]);
+		int numberOfNodes = networkNodes.length;
+		int[] indexById = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(indexById, -1);
+		for (int i = 0; i < numberOfNodes; i++) {
+			indexById[networkNodes[i].getId().index()] = i;
+		}
+
+		// the links as undirected adjacency of the node indices, without loops
+		int[] firstNeighbour = new int[numberOfNodes + 1];
+		int[] linkFrom = new int[this.links.length];
+		int[] linkTo = new int[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			linkFrom[l] = indexById[this.links[l].getFromNode().getId().index()];
+			linkTo[l] = indexById[this.links[l].getToNode().getId().index()];
+			if (linkFrom[l] != linkTo[l]) {
+				firstNeighbour[linkFrom[l] + 1]++;
+				firstNeighbour[linkTo[l] + 1]++;
+			}
+		}
+		for (int i = 0; i < numberOfNodes; i++) {
+			firstNeighbour[i + 1] += firstNeighbour[i];
+		}
+		int[] neighbours = new int[firstNeighbour[numberOfNodes]];
+		int[] fill = Arrays.copyOf(firstNeighbour, numberOfNodes);
+		for (int l = 0; l < this.links.length; l++) {
+			if (linkFrom[l] != linkTo[l]) {
+				neighbours[fill[linkFrom[l]]++] = linkTo[l];
+				neighbours[fill[linkTo[l]]++] = linkFrom[l];
+			}
+		}
+
+		int[] rankByIndex = new Dissection(networkNodes, firstNeighbour, neighbours).order();
+		this.nodes = new Node[numberOfNodes];
+		this.rankByIdIndex = new int[indexById.length];
+		Arrays.fill(this.rankByIdIndex, -1);
+		for (int i = 0; i < numberOfNodes; i++) {
+			this.nodes[rankByIndex[i]] = networkNodes[i];
+			this.rankByIdIndex[networkNodes[i].getId().index()] = rankByIndex[i];
+		}
+
+		// contract the nodes from the lowest rank on: the higher ranked neighbours of a node become neighbours of each
+		// other. It is sufficient to add them to the lowest of them, as they are passed on when that one is contracted.
+		int[][] upward = new int[numberOfNodes][];
+		int[] upwardSizes = new int[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++) {
+			for (int n = firstNeighbour[i]; n < firstNeighbour[i + 1]; n++) {
+				int r = rankByIndex[i];
+				int s = rankByIndex[neighbours[n]];
+				if (r < s) {
+					add(upward, upwardSizes, r, s);
+				}
+			}
+		}
+		int numberOfArcs = 0;
+		for (int r = 0; r < numberOfNodes; r++) {
+			int[] heads = upward[r] == null ? new int[0] : Arrays.copyOf(upward[r], upwardSizes[r]);
+			Arrays.sort(heads);
+			int size = 0;
+			for (int i = 0; i < heads.length; i++) {
+				if (i == 0 || heads[i] != heads[i - 1]) {
+					heads[size++] = heads[i];
+				}
+			}
+			upward[r] = Arrays.copyOf(heads, size);
+			for (int i = 1; i < size; i++) {
+				add(upward, upwardSizes, heads[0], heads[i]);
+			}
+			numberOfArcs += size;
+		}
+
+		this.firstArc = new int[numberOfNodes + 1];
+		this.arcTails = new int[numberOfArcs];
+		this.arcHeads = new int[numberOfArcs];
+		this.firstInArc = new int[numberOfNodes + 1];
+		for (int r = 0; r < numberOfNodes; r++) {
+			this.firstArc[r + 1] = this.firstArc[r] + upward[r].length;
+			for (int i = 0; i < upward[r].length; i++) {
+				this.arcTails[this.firstArc[r] + i] = r;
+				this.arcHeads[this.firstArc[r] + i] = upward[r][i];
+				this.firstInArc[upward[r][i] + 1]++;
+			}
+			upward[r] = null;
+		}
+		for (int r = 0; r < numberOfNodes; r++) {
+			this.firstInArc[r + 1] += this.firstInArc[r];
+		}
+		this.inArcs = new int[numberOfArcs];
+		fill = Arrays.copyOf(this.firstInArc, numberOfNodes);
+		for (int a = 0; a < numberOfArcs; a++) {
+			this.inArcs[fill[this.arcHeads[a]]++] = a;
+		}
+
+		int[] linkDirections = new int[this.links.length];
+		this.firstDirectionLink = new int[2 * numberOfArcs + 1];
+		for (int l = 0; l < this.links.length; l++) {
+			int from = rankByIndex[linkFrom[l]];
+			int to = rankByIndex[linkTo[l]];
+			linkDirections[l] = from == to ? -1 : from < to ? 2 * getArc(from, to) : 2 * getArc(to, from) + 1;
+			if (linkDirections[l] >= 0) {
+				this.firstDirectionLink[linkDirections[l] + 1]++;
+			}
+		}
+		for (int d = 0; d < 2 * numberOfArcs; d++) {
+			this.firstDirectionLink[d + 1] += this.firstDirectionLink[d];
+		}
+		this.directionLinks = new int[this.firstDirectionLink[2 * numberOfArcs]];
+		fill = Arrays.copyOf(this.firstDirectionLink, 2 * numberOfArcs);
+		for (int l = 0; l < this.links.length; l++) {
+			if (linkDirections[l] >= 0) {
+				this.directionLinks[fill[linkDirections[l]]++] = l;
+			}
+		}
+
+		log.info("contraction hierarchy with " + numberOfNodes + " nodes and " + numberOfArcs + " arcs for "
+				+ this.links.length + " links created in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	private static void add(final int[][] arrays, final int[] sizes, final int index, final int value) {
+		if (arrays[index] == null) {
+			arrays[index] = new int[4];
+		} else if (sizes[index] == arrays[index].length) {
+			arrays[index] = Arrays.copyOf(arrays[index], 2 * sizes[index]);
+		}
+		arrays[index][sizes[index]++] = value;
+	}
+
+	private int getArc(final int tail, final int head) {
+		int arc = Arrays.binarySearch(this.arcHeads, this.firstArc[tail], this.firstArc[tail + 1], head);
+		if (arc < 0) {
+			throw new IllegalStateException("no arc from " + tail + " to " + head);
+		}
+		return arc;
+	}
+
+	/**
+	 * @return the links of the network, in the order of the link costs passed to {@link #customize(double[])}
+	 */
+	public Link[] getLinks() {
+		return this.links;
+	}
+
+	public int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	public int getNumberOfArcs() {
+		return this.arcHeads.length;
+	}
+
+	/**
+	 * @return the rank of the node, or <code>-1</code> if it is not part of the network of the hierarchy
+	 */
+	public int getRank(final Node node) {
+		int index = node.getId().index();
+		return index < this.rankByIdIndex.length ? this.rankByIdIndex[index] : -1;
+	}
+
+	public Node getNode(final int rank) {
+		return this.nodes[rank];
+	}
+
+	/**
+	 * @return the first arc from the node to its higher ranked neighbours; the last one is <code>getFirstArc(rank + 1) - 1</code>
+	 */
+	public int getFirstArc(final int rank) {
+		return this.firstArc[rank];
+	}
+
+	/**
+	 * @return the parent of the node in the elimination tree of the hierarchy, i.e. its lowest ranked higher ranked
+	 * neighbour, or <code>-1</code> if it has none. The higher ranked neighbours of a node are all its ancestors.
+	 */
+	public int getParent(final int rank) {
+		return this.firstArc[rank] < this.firstArc[rank + 1] ? this.arcHeads[this.firstArc[rank]] : -1;
+	}
+
+	public int getTail(final int arc) {
+		return this.arcTails[arc];
+	}
+
+	public int getHead(final int arc) {
+		return this.arcHeads[arc];
+	}
+
+	/**
+	 * Computes the weights of the arc directions for the given link costs: the least cost of the parallel links of
+	 * a direction, and of the paths over the lower ranked common neighbours of its nodes.
+	 *
+	 * @param linkCosts the costs of the links, in the order of {@link #getLinks()}
+	 * @return the weights by arc direction, <code>Double.POSITIVE_INFINITY</code> where there is no path
+	 */
+	public double[] customize(final double[] linkCosts) {
+		double[] weights = new double[2 * this.arcHeads.length];
+		for (int d = 0; d < weights.length; d++) {
+			double weight = Double.POSITIVE_INFINITY;
+			for (int i = this.firstDirectionLink[d]; i < this.firstDirectionLink[d + 1]; i++) {
+				weight = Math.min(weight, linkCosts[this.directionLinks[i]]);
+			}
+			weights[d] = weight;
+		}
+		// the weights of the arcs from a node are final once all lower ranked nodes are processed
+		for (int r = 0; r < this.nodes.length; r++) {
+			for (int i = this.firstArc[r]; i < this.firstArc[r + 1]; i++) {
+				int u = this.arcHeads[i];
+				double toU = weights[2 * i];
+				double fromU = weights[2 * i + 1];
+				int k = this.firstArc[u];
+				for (int j = i + 1; j < this.firstArc[r + 1]; j++) {
+					int w = this.arcHeads[j];
+					while (this.arcHeads[k] < w) {
+						k++;
+					}
+					// u -> w over r, and back
+					double weight = fromU + weights[2 * j];
+					if (weight < weights[2 * k]) {
+						weights[2 * k] = weight;
+					}
+					weight = weights[2 * j + 1] + toU;
+					if (weight < weights[2 * k + 1]) {
+						weights[2 * k + 1] = weight;
+					}
+				}
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Adds the links that make up the arc direction to the path, i.e. resolves its shortcuts.
+	 *
+	 * @param linkCosts the link costs the weights were customized with
+	 * @param weights the weights returned by {@link #customize(double[])}
+	 */
+	public void unpack(final int direction, final double[] linkCosts, final double[] weights, final List<Link> path) {
+		double weight = weights[direction];
+		for (int i = this.firstDirectionLink[direction]; i < this.firstDirectionLink[direction + 1]; i++) {
+			if (linkCosts[this.directionLinks[i]] == weight) {
+				path.add(this.links[this.directionLinks[i]]);
+				return;
+			}
+		}
+		int arc = direction / 2;
+		boolean upward = direction % 2 == 0;
+		int lower = this.arcTails[arc];
+		int upper = this.arcHeads[arc];
+		// the shortcut is the sum of two arc directions over a common lower ranked neighbour
+		int i = this.firstInArc[lower];
+		int j = this.firstInArc[upper];
+		while (i < this.firstInArc[lower + 1] && j < this.firstInArc[upper + 1]) {
+			int toLower = this.inArcs[i];
+			int toUpper = this.inArcs[j];
+			int difference = this.arcTails[toLower] - this.arcTails[toUpper];
+			if (difference < 0) {
+				i++;
+			} else if (difference > 0) {
+				j++;
+			} else {
+				if (upward && weights[2 * toLower + 1] + weights[2 * toUpper] == weight) {
+					unpack(2 * toLower + 1, linkCosts, weights, path);
+					unpack(2 * toUpper, linkCosts, weights, path);
+					return;
+				}
+				if (!upward && weights[2 * toUpper + 1] + weights[2 * toLower] == weight) {
+					unpack(2 * toUpper + 1, linkCosts, weights, path);
+					unpack(2 * toLower, linkCosts, weights, path);
+					return;
+				}
+				i++;
+				j++;
+			}
+		}
+		throw new IllegalStateException("the weight of arc direction " + direction + " does not match its links or shortcuts.");
+	}
+
+	/**
+	 * Nested dissection of the nodes along their coordinates.
+	 */
+	private static final class Dissection {
+
+		private final double[] xs;
+		private final double[] ys;
+		private final int[] firstNeighbour;
+		private final int[] neighbours;
+		private final int[] cell;
+		private final int[] ranks;
+		private final int[] stamps;
+		private int stamp = 0;
+		private int nextRank;
+
+		Dissection(final Node[] nodes, final int[] firstNeighbour, final int[] neighbours) {
+			this.xs = new double[nodes.length];
+			this.ys = new double[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				this.xs[i] = nodes[i].getCoord().getX();
+				this.ys[i] = nodes[i].getCoord().getY();
+			}
+			this.firstNeighbour = firstNeighbour;
+			this.neighbours = neighbours;
+			this.cell = new int[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				this.cell[i] = i;
+			}
+			this.ranks = new int[nodes.length];
+			this.stamps = new int[nodes.length];
+			this.nextRank = nodes.length - 1;
+		}
+
+		/**
+		 * @return the rank of every node
+		 */
+		int[] order() {
+			dissect(0, this.cell.length);
+			return this.ranks;
+		}
+
+		/**
+		 * Ranks the nodes <code>cell[from]</code> to <code>cell[to - 1]</code> from the currently highest free rank downwards.
+		 */
+		private void dissect(final int from, final int to) {
+			if (to - from <= 2) {
+				for (int i = from; i < to; i++) {
+					this.ranks[this.cell[i]] = this.nextRank--;
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				minX = Math.min(minX, this.xs[this.cell[i]]);
+				minY = Math.min(minY, this.ys[this.cell[i]]);
+				maxX = Math.max(maxX, this.xs[this.cell[i]]);
+				maxY = Math.max(maxY, this.ys[this.cell[i]]);
+			}
+			double[] coordinates = maxX - minX >= maxY - minY ? this.xs : this.ys;
+			int middle = (from + to) >>> 1;
+			select(coordinates, from, to, middle);
+
+			int lowerStamp = ++this.stamp;
+			int upperStamp = ++this.stamp;
+			for (int i = from; i < to; i++) {
+				this.stamps[this.cell[i]] = i < middle ? lowerStamp : upperStamp;
+			}
+			int lowerBorder = countBorder(from, middle, upperStamp);
+			int upperBorder = countBorder(middle, to, lowerStamp);
+			// the nodes of the smaller border separate the halves, and are ranked above them
+			if (lowerBorder <= upperBorder) {
+				int end = separate(from, middle, upperStamp);
+				dissect(from, end);
+				dissect(middle, to);
+			} else {
+				int end = separate(middle, to, lowerStamp);
+				dissect(from, middle);
+				dissect(middle, end);
+			}
+		}
+
+		private int countBorder(final int from, final int to, final int otherStamp) {
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				if (isBorder(this.cell[i], otherStamp)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		private boolean isBorder(final int node, final int otherStamp) {
+			for (int n = this.firstNeighbour[node]; n < this.firstNeighbour[node + 1]; n++) {
+				if (this.stamps[this.neighbours[n]] == otherStamp) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Ranks the border nodes of the range and moves the other nodes to its beginning.
+		 *
+		 * @return the end of the other nodes
+		 */
+		private int separate(final int from, final int to, final int otherStamp) {
+			int end = from;
+			for (int i = from; i < to; i++) {
+				int node = this.cell[i];
+				if (isBorder(node, otherStamp)) {
+					this.ranks[node] = this.nextRank--;
+				} else {
+					this.cell[end++] = node;
+				}
+			}
+			return end;
+		}
+
+		/**
+		 * Rearranges <code>cell[from]</code> to <code>cell[to - 1]</code> such that no node before <code>nth</code>
+		 * has a larger coordinate than any node from <code>nth</code> on.
+		 */
+		private void select(final double[] coordinates, int from, int to, final int nth) {
+			while (to - from > 1) {
+				double pivot = coordinates[this.cell[(from + to) >>> 1]];
+				int i = from;
+				int j = to - 1;
+				while (i <= j) {
+					while (coordinates[this.cell[i]] < pivot) {
+						i++;
+					}
+					while (coordinates[this.cell[j]] > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						int node = this.cell[i];
+						this.cell[i] = this.cell[j];
+						this.cell[j] = node;
+						i++;
+						j--;
+					}
+				}
+				if (nth <= j) {
+					to = j + 1;
+				} else if (nth >= i) {
+					from = i;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.util;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * A {@link TravelDisutility} that depends on the person, e.g. because it is randomized per person, but that can also
+ * give costs for no person in particular. Routers that prepare their costs for all persons at once, such as
+ * {@link org.matsim.core.router.ContractionHierarchies}, use these, as the person is <code>null</code> then.
+ */
+public interface PersonDependentTravelDisutility extends TravelDisutility {
+
+	/**
+	 * @return the disutility to travel on the link at the given time for no person in particular, e.g. the expected
+	 * value of a randomized disutility
+	 */
+	public double getPersonIndependentLinkTravelDisutility(final Link link, final double time);
+
+}
@@ -0,0 +1,137 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoutingNetworkCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Process-wide cache of the data the least cost path calculators derive from a {@link Network}: the
+ * {@link ArrayRoutingNetwork} of the fast routers, the dead ends of {@link PreProcessDijkstra}, the landmarks of
+ * {@link PreProcessLandmarks} and the {@link ContractionHierarchy}. The data is never changed once it is created, so
+ * all calculators of all threads share one instance per network, and only keep their search state per instance.
+ * Without the cache, every factory, e.g. one per mode or per replanning module, built its own copy.
+ * <p></p>
+ * The data is created when it is requested first, and held by the network itself, see
+ * {@link NetworkUtils#getDerivedData}, so it is kept exactly as long as the network. Whenever nodes or links are
+ * added or removed, or attributes of links set, the data is created anew, see {@link NetworkUtils#getModificationCount}.
+ * Routers created before keep the data they got. Networks not created by {@link NetworkUtils} cannot hold the
+ * data, so it is created for every request. The landmarks depend on the travel disutility they are computed with; as
+ * with the caches the factories had before, they are computed with the travel disutility of the first request for
+ * the network, but separately for every type of travel disutility.
+ */
+public final class RoutingNetworkCache {
+
+	private static final Logger log = Logger.getLogger(RoutingNetworkCache.class);
+
+	/** the data of a network, replaced when the network changes */
+	private static final class Holder {
+		Entry entry;
+	}
+
+	private static final class Entry {
+		final int modificationCount;
+		/** by the pre-processing data referenced by their nodes */
+		final Map<PreProcessDijkstra, RoutingNetwork> routingNetworks = new IdentityHashMap<>();
+		PreProcessDijkstra preProcessDijkstra;
+		final Map<Class<?>, PreProcessLandmarks> preProcessLandmarks = new HashMap<>();
+		ContractionHierarchy contractionHierarchy;
+
+		Entry(final int modificationCount) {
+			this.modificationCount = modificationCount;
+		}
+	}
+
+	private RoutingNetworkCache() {
+	}
+
+	/**
+	 * @param preProcessData the pre-processing data the routers read from the nodes of the routing network, obtained
+	 * from this cache, or <code>null</code> if they do not read any
+	 * @return the routing network of the network, with the given data attached to its nodes
+	 */
+	public static synchronized RoutingNetwork getRoutingNetwork(final Network network, final PreProcessDijkstra preProcessData) {
+		Entry entry = getEntry(network);
+		if (preProcessData == null && !entry.routingNetworks.isEmpty()) {
+			return entry.routingNetworks.values().iterator().next();
+		}
+		RoutingNetwork routingNetwork = entry.routingNetworks.get(preProcessData);
+		if (routingNetwork == null) {
+			routingNetwork = new ArrayRoutingNetworkFactory().createRoutingNetwork(network);
+			if (preProcessData != null) {
+				for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
+					node.setDeadEndData(preProcessData.getNodeData(node.getNode()));
+				}
+			}
+			entry.routingNetworks.put(preProcessData, routingNetwork);
+		}
+		return routingNetwork;
+	}
+
+	public static synchronized PreProcessDijkstra getPreProcessDijkstra(final Network network) {
+		Entry entry = getEntry(network);
+		if (entry.preProcessDijkstra == null) {
+			entry.preProcessDijkstra = new PreProcessDijkstra();
+			entry.preProcessDijkstra.run(network);
+		}
+		return entry.preProcessDijkstra;
+	}
+
+	public static synchronized PreProcessLandmarks getPreProcessLandmarks(final Network network, final TravelDisutility costFunction,
+			final int numberOfThreads) {
+		Entry entry = getEntry(network);
+		PreProcessLandmarks preProcessLandmarks = entry.preProcessLandmarks.get(costFunction.getClass());
+		if (preProcessLandmarks == null) {
+			preProcessLandmarks = new PreProcessLandmarks(costFunction);
+			preProcessLandmarks.setNumberOfThreads(numberOfThreads);
+			preProcessLandmarks.run(network);
+			entry.preProcessLandmarks.put(costFunction.getClass(), preProcessLandmarks);
+		}
+		return preProcessLandmarks;
+	}
+
+	public static synchronized ContractionHierarchy getContractionHierarchy(final Network network) {
+		Entry entry = getEntry(network);
+		if (entry.contractionHierarchy == null) {
+			entry.contractionHierarchy = new ContractionHierarchy(network);
+		}
+		return entry.contractionHierarchy;
+	}
+
+	private static Entry getEntry(final Network network) {
+		Holder holder = NetworkUtils.getDerivedData(network, Holder.class, n -> new Holder());
+		int modificationCount = NetworkUtils.getModificationCount(network);
+		if (holder.entry != null && holder.entry.modificationCount != modificationCount) {
+			log.info("the network changed since its routing data was created, creating it anew.");
+			holder.entry = null;
+		}
+		if (holder.entry == null) {
+			holder.entry = new Entry(modificationCount);
+		}
+		return holder.entry;
+	}
+
+}
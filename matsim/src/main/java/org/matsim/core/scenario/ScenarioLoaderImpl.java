@@ -133,6 +133,7 @@ class ScenarioLoaderImpl {
 							config.global().getCoordinateSystem(),
 							this.scenario.getNetwork());
             reader.putAttributeConverters( attributeConverters );
+            reader.setNumberOfThreads(this.config.global().getNumberOfReadingThreads());
             reader.parse(networkUrl);
 
 			if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
@@ -156,6 +157,7 @@ class ScenarioLoaderImpl {
 
             MatsimFacilitiesReader reader = new MatsimFacilitiesReader(inputCRS, internalCRS, this.scenario.getActivityFacilities());
             reader.putAttributeConverters(attributeConverters);
+            reader.setNumberOfThreads(this.config.global().getNumberOfReadingThreads());
             reader.parse(facilitiesFileName);
 
 			log.info("loaded " + this.scenario.getActivityFacilities().getFacilities().size() + " facilities from " + facilitiesFileName);
@@ -156,6 +156,15 @@ TeleportationArrivalEventHandler, TransitDriverStartsEventHandler, PersonEntersV
 		}
 	}
 
+	/**
+	 * @return a new instance on the same network and transit schedule, without the state and the leg handlers of this one
+	 */
+	EventsToLegs createEmptyCopy() {
+		EventsToLegs copy = new EventsToLegs(this.network);
+		copy.transitSchedule = this.transitSchedule;
+		return copy;
+	}
+
 	@Override
 	public void reset(int iteration) {
 		legs.clear();
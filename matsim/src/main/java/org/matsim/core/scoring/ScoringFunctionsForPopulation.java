@@ -26,10 +26,16 @@ import gnu.trove.iterator.TDoubleIterator;
 import gnu.trove.list.array.TDoubleArrayList;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.population.Activity;
@@ -38,7 +44,10 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -48,16 +57,19 @@ import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.StageActivityTypes;
 import org.matsim.core.router.TripRouter;
 import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
@@ -66,6 +78,12 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * With more than one scoring thread (see {@link PlanCalcScoreConfigGroup#getNumberOfScoringThreads()}), the persons are
+ * split into shards by their id, and every shard is scored on a thread of its own. The events thread then only passes the
+ * events on to the shards of the persons they concern, and the events that all shards need, about transit vehicles, to
+ * all of them. Every shard converts its events into legs and activities itself, so the per-person order of the events,
+ * and thus the scores, are the same as with one thread.
  * 
  * @author michaz
  *
@@ -75,10 +93,20 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	// can be changed there.  kai, sep'17
 	// I just removed that.  kai, apr'18
 	
-	@SuppressWarnings("unused")
 	private final static Logger log = Logger.getLogger(ScoringFunctionsForPopulation.class);
+
+	/** number of events passed to a shard at once */
+	private static final int BATCH_SIZE = 1024;
+	/** number of batches that may wait for a shard before the events thread blocks */
+	private static final int QUEUE_CAPACITY = 16;
+
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
+	private final int numberOfThreads;
+	/** the template for the conversion of the events into legs of the shards */
+	private final EventsToLegs eventsToLegs;
+	/** <code>null</code> with one thread, and outside of iterations */
+	private ScoringShard[] shards = null;
 	
 	private StageActivityTypes stageActivityTypes;
 
@@ -91,11 +119,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * Replaced the (Linked)HashMaps with IdMaps, which are indexed by the person ids and keep the insertion order
+	 * as well.
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
-	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
+	private final Map<Id<Person>, TDoubleCollection> partialScores = new IdMap<>(Person.class);
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
-	private final Map<Id<Person>, Plan> tripRecords = new LinkedHashMap<>() ;
+	private final Map<Id<Person>, Plan> tripRecords = new IdMap<>(Person.class) ;
 	
 //	/**
 //	 * For something like the bicycle scoring, we need to know individual links at the level of the scoring function.  This is a first sketch how this could be implemented.
@@ -108,8 +139,18 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private TripRouter tripRouter;
 
 	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup scoringConfig) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, scoringConfig.getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfThreads) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -118,12 +159,19 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.numberOfThreads = numberOfThreads;
+		this.eventsToLegs = eventsToLegs;
 		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
-//		if ( passLinkEventsToPerson ) {
-			eventsManager.addHandler(this.vehicles2Drivers);
-//		}
+		if (numberOfThreads > 1) {
+			// the shards convert the events into legs and activities themselves, and keep track of the drivers of their vehicles
+			log.info("scoring with " + numberOfThreads + " threads.");
+		} else {
+			eventsToActivities.addActivityHandler(this);
+			eventsToLegs.addLegHandler(this);
+//			if ( passLinkEventsToPerson ) {
+				eventsManager.addHandler(this.vehicles2Drivers);
+//			}
+		}
 	}
 
 	private void init() {
@@ -133,6 +181,19 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
 		}
+		if (this.numberOfThreads > 1) {
+			// so the shards do not initialize it concurrently
+			getStageActivities();
+			stopShards();
+			ScoringShard[] shards = new ScoringShard[this.numberOfThreads];
+			for (int i = 0; i < shards.length; i++) {
+				shards[i] = new ScoringShard(i);
+			}
+			synchronized (this) {
+				this.vehicles2Drivers.reset(0);
+				this.shards = shards;
+			}
+		}
 	}
 
 	private StageActivityTypes getStageActivities() {
@@ -158,6 +219,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleEvent(Event o) {
+		if (this.numberOfThreads > 1) {
+			dispatch(o);
+		} else {
+			scoreEvent(o, this.vehicles2Drivers);
+		}
+	}
+
+	private void scoreEvent(Event o, Vehicle2DriverEventHandler vehicles2Drivers) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
@@ -182,15 +251,15 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 //		if ( passLinkEventsToPerson ) {
 			// Establish and end connection between driver and vehicle
 			if (o instanceof VehicleEntersTrafficEvent) {
-				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+				vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
 			}
 			if (o instanceof VehicleLeavesTrafficEvent) {
-				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+				vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
 			}
 			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
 			if ( o instanceof LinkEnterEvent ) {
 				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
-				Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
+				Id<Person> driverId = vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
 				ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
 				if (scoringFunction != null) {
@@ -207,8 +276,47 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 //		}
 	}
 
+	/**
+	 * Passes the event on to the shard of the person it concerns, the link enter events to the shard of the driver of
+	 * the vehicle. The events about transit vehicles go to all shards, so they all know where the vehicles are.
+	 */
+	private void dispatch(Event o) {
+		if (this.shards == null) {
+			// no scoring functions yet
+			return;
+		}
+		if (o instanceof HasPersonId) {
+			Id<Person> personId = ((HasPersonId) o).getPersonId();
+			if (o instanceof VehicleEntersTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			} else if (o instanceof VehicleLeavesTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			}
+			if (personId != null) {
+				getShard(personId).add(o);
+			}
+		} else if (o instanceof LinkEnterEvent) {
+			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(((LinkEnterEvent) o).getVehicleId());
+			if (driverId != null) {
+				getShard(driverId).add(o);
+			}
+		} else if (o instanceof TransitDriverStartsEvent || o instanceof VehicleArrivesAtFacilityEvent) {
+			for (ScoringShard shard : this.shards) {
+				shard.add(o);
+			}
+		}
+	}
+
+	private ScoringShard getShard(Id<Person> personId) {
+		return this.shards[personId.index() % this.shards.length];
+	}
+
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		scoreLeg(o);
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -225,6 +333,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		scoreActivity(o);
+	}
+
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -281,6 +393,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	public void finishScoringFunctions() {
+		if (this.numberOfThreads > 1) {
+			// the shards finish the scoring functions of their persons themselves
+			stopShards();
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -290,6 +406,9 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 				throw new RuntimeException(throwable);
 			}
 		}
+		if (this.numberOfThreads > 1) {
+			return;
+		}
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
@@ -298,6 +417,31 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
+	/**
+	 * Passes the remaining events to the shards, and waits until they have scored them.
+	 */
+	private void stopShards() {
+		ScoringShard[] shards;
+		synchronized (this) {
+			shards = this.shards;
+			this.shards = null;
+			if (shards == null) {
+				return;
+			}
+			for (ScoringShard shard : shards) {
+				shard.finish();
+			}
+		}
+		for (ScoringShard shard : shards) {
+			try {
+				shard.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
 			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
@@ -318,6 +462,130 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	}
 
+	/**
+	 * Scores the persons whose id index, modulo the number of shards, is the index of the shard. The events come in
+	 * batches, in the order they were handled; an empty batch ends the iteration, after which the activities that have
+	 * not ended yet are scored and the scoring functions are finished.
+	 */
+	private final class ScoringShard implements Runnable {
+
+		private final int index;
+		private final EventsToLegs eventsToLegs;
+		private final EventsToActivities eventsToActivities = new EventsToActivities();
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+		private final BlockingQueue<List<Event>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		private final Thread thread;
+		private List<Event> batch = new ArrayList<>(BATCH_SIZE);
+
+		ScoringShard(int index) {
+			this.index = index;
+			this.eventsToLegs = ScoringFunctionsForPopulation.this.eventsToLegs.createEmptyCopy();
+			this.eventsToLegs.addLegHandler(ScoringFunctionsForPopulation.this::scoreLeg);
+			this.eventsToActivities.addActivityHandler(ScoringFunctionsForPopulation.this::scoreActivity);
+			this.thread = new Thread(this, "ScoringShard-" + index);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		void add(Event event) {
+			this.batch.add(event);
+			if (this.batch.size() == BATCH_SIZE) {
+				put(this.batch);
+				this.batch = new ArrayList<>(BATCH_SIZE);
+			}
+		}
+
+		void finish() {
+			if (!this.batch.isEmpty()) {
+				put(this.batch);
+				this.batch = new ArrayList<>(BATCH_SIZE);
+			}
+			put(Collections.emptyList());
+		}
+
+		private void put(List<Event> events) {
+			try {
+				this.queue.put(events);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void run() {
+			boolean failed = false;
+			while (true) {
+				List<Event> events;
+				try {
+					events = this.queue.take();
+				} catch (InterruptedException e) {
+					exception.compareAndSet(null, e);
+					return;
+				}
+				if (events.isEmpty()) {
+					break;
+				}
+				if (failed) {
+					// keep on taking the events, so the events thread does not block
+					continue;
+				}
+				try {
+					for (Event event : events) {
+						handleEvent(event);
+					}
+				} catch (Throwable e) {
+					exception.compareAndSet(null, e);
+					failed = true;
+				}
+			}
+			if (failed) {
+				return;
+			}
+			try {
+				this.eventsToActivities.finish();
+				for (Entry<Id<Person>, ScoringFunction> entry : agentScorers.entrySet()) {
+					if (entry.getKey().index() % numberOfThreads == this.index) {
+						entry.getValue().finish();
+						partialScores.get(entry.getKey()).add(entry.getValue().getScore());
+					}
+				}
+			} catch (Throwable e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+
+		/**
+		 * Like {@link EventsToLegsAndActivities}, followed by the scoring of the event itself.
+		 */
+		private void handleEvent(Event o) {
+			if (o instanceof ActivityEndEvent) {
+				this.eventsToActivities.handleEvent((ActivityEndEvent) o);
+			} else if (o instanceof ActivityStartEvent) {
+				this.eventsToActivities.handleEvent((ActivityStartEvent) o);
+			} else if (o instanceof LinkEnterEvent) {
+				this.eventsToLegs.handleEvent((LinkEnterEvent) o);
+			} else if (o instanceof PersonArrivalEvent) {
+				this.eventsToLegs.handleEvent((PersonArrivalEvent) o);
+			} else if (o instanceof PersonDepartureEvent) {
+				this.eventsToLegs.handleEvent((PersonDepartureEvent) o);
+			} else if (o instanceof PersonEntersVehicleEvent) {
+				this.eventsToLegs.handleEvent((PersonEntersVehicleEvent) o);
+			} else if (o instanceof TransitDriverStartsEvent) {
+				this.eventsToLegs.handleEvent((TransitDriverStartsEvent) o);
+			} else if (o instanceof VehicleEntersTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleEntersTrafficEvent) o);
+			} else if (o instanceof VehicleLeavesTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleLeavesTrafficEvent) o);
+			} else if (o instanceof TeleportationArrivalEvent) {
+				this.eventsToLegs.handleEvent((TeleportationArrivalEvent) o);
+			} else if (o instanceof VehicleArrivesAtFacilityEvent) {
+				this.eventsToLegs.handleEvent((VehicleArrivesAtFacilityEvent) o);
+			}
+			scoreEvent(o, this.vehicles2Drivers);
+		}
+	}
+
 //	public boolean isPassLinkEventsToPerson() {
 //		return passLinkEventsToPerson;
 //	}
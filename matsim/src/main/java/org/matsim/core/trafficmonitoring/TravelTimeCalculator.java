@@ -40,6 +40,7 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -55,7 +56,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. For large networks, {@link TravelTimeDataFlatArray} keeps
+ * the data of all links, and of all turns if link-to-link travel times are calculated, in one block of arrays.
  *
  * @author dgrether
  * @author mrieser
@@ -79,7 +81,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private final DataContainerProvider dataContainerProvider;
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	private final LinkEnterTimes linkEnterTimes;
 
 	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
@@ -91,6 +93,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	private final boolean calculateLinkToLinkTravelTimes;
 
 	private TravelTimeDataFactory ttDataFactory = null;
+	/** the factory of the data of the links, which only the flat arrays replace; the hash maps are used for the turns only */
+	private TravelTimeDataFactory linkTtDataFactory = null;
 
 	@Inject private QSimConfigGroup qsimConfig ;
 	TravelTimeGetter travelTimeGetter ;
@@ -115,6 +119,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorFlatArray:
+				calculator.ttDataFactory = new TravelTimeDataFlatArrayFactory(network, calculator.numSlots, calculator.calculateLinkToLinkTravelTimes);
+				calculator.linkTtDataFactory = calculator.ttDataFactory;
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -231,7 +239,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		this.aggregator = new TimeSlotComputation(this.numSlots, this.timeSlice);
 		this.travelTimeGetter = new AveragingTravelTimeGetter( this.aggregator ) ;
 		this.ttDataFactory = new TravelTimeDataArrayFactory(network, this.numSlots);
+		this.linkTtDataFactory = this.ttDataFactory;
 		if (this.calculateLinkTravelTimes){
+			// (concurrent, not an IdMap: the data containers may be created by router threads while others read the map)
 			this.linkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4));
 
 			/*
@@ -245,13 +255,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			 * cdobler, oct'13
 			 */
 			//		this.dataContainerProvider = new MapBasedDataContainerProvider(linkData, ttDataFactory);
-			this.dataContainerProvider = new ArrayBasedDataContainerProvider(linkData, ttDataFactory, network);
+			// (look up the factory on each call, it may still be replaced by the flat arrays when the calculator is configured)
+			this.dataContainerProvider = new ArrayBasedDataContainerProvider(linkData, linkId -> this.linkTtDataFactory.createTravelTimeData(linkId), network);
 		} else this.dataContainerProvider = null;
 		if (this.calculateLinkToLinkTravelTimes){
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterTimes = new LinkEnterTimes();
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
@@ -268,26 +279,24 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			TravelTimeData data = getLinkToLinkTravelTimeData(fromToLink );
-			double enterTime = oldEvent.getTime();
+		Id<Link> oldLinkId = this.linkEnterTimes.getLinkId(e.getVehicleId());
+		if ((oldLinkId != null) && this.calculateLinkToLinkTravelTimes) {
+			TravelTimeData data = getLinkToLinkTravelTimeData(oldLinkId, e.getLinkId());
+			double enterTime = this.linkEnterTimes.getTime(e.getVehicleId());
 
 			final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 			data.addTravelTime(timeSlot, e.getTime() - enterTime );
 			data.setNeedsConsolidation( true );
 		}
-		this.linkEnterEvents.put(e.getVehicleId(), e);
+		this.linkEnterTimes.put(e.getVehicleId(), e.getLinkId(), e.getTime());
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			if (this.linkEnterTimes.getLinkId(e.getVehicleId()) != null) {
 				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				double enterTime = oldEvent.getTime();
+				double enterTime = this.linkEnterTimes.getTime(e.getVehicleId());
 
 				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 				data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -311,7 +320,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.remove(event.getVehicleId());
 
 		// try to remove vehicles from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
@@ -322,14 +331,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.remove(event.getVehicleId());
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		Id<Link> enteredLinkId = this.linkEnterTimes.remove(event.getVehicleId());
+		if (enteredLinkId != null) {
+			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(enteredLinkId, true);
 			data.setNeedsConsolidation( true );
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
@@ -348,7 +357,15 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
 	}
 
-	private TravelTimeData getLinkToLinkTravelTimeData( Tuple<Id<Link>, Id<Link>> fromLinkToLink ) {
+	private TravelTimeData getLinkToLinkTravelTimeData( Id<Link> fromLinkId, Id<Link> toLinkId ) {
+		if (this.ttDataFactory instanceof TravelTimeDataFlatArrayFactory) {
+			// turns of the network are looked up without creating a key
+			TravelTimeData data = ((TravelTimeDataFlatArrayFactory) this.ttDataFactory).getLinkToLinkTravelTimeData(fromLinkId, toLinkId);
+			if (data != null) {
+				return data;
+			}
+		}
+		Tuple<Id<Link>, Id<Link>> fromLinkToLink = new Tuple<>(fromLinkId, toLinkId);
 		TravelTimeData data = this.linkToLinkData.get(fromLinkToLink);
 		if ( null == data ) {
 			data = this.ttDataFactory.createTravelTimeData(fromLinkToLink.getFirst()) ;
@@ -411,7 +428,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			throw new IllegalStateException("No link to link travel time is available " +
 									    "if calculation is switched off by config option!");
 		}
-		TravelTimeData data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId) );
+		TravelTimeData data = this.getLinkToLinkTravelTimeData(fromLinkId, toLinkId);
 		if ( data.isNeedingConsolidation() ) {
 			consolidateData(data);
 		}
@@ -431,8 +448,11 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 				data.resetTravelTimes();
 				data.setNeedsConsolidation( false );
 			}
+			if (this.ttDataFactory instanceof TravelTimeDataFlatArrayFactory) {
+				((TravelTimeDataFlatArrayFactory) this.ttDataFactory).resetLinkToLinkTravelTimes();
+			}
 		}
-		this.linkEnterEvents.clear();
+		this.linkEnterTimes.clear();
 		this.vehiclesToIgnore.clear();
 	}
 
@@ -551,6 +571,58 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		};
 	}
 
+	/**
+	 * The link each vehicle last entered and the time it entered it, by the index of the vehicle id. Replaces a map from
+	 * vehicles to their last LinkEnterEvent, so handling an event neither allocates anything nor keeps the event alive.
+	 */
+	private static final class LinkEnterTimes {
+		private Id<Link>[] linkIds;
+		private double[] times;
+
+		@SuppressWarnings("unchecked")
+		LinkEnterTimes() {
+			int capacity = Math.max(Id.getNumberOfIds(Vehicle.class), 16);
+			this.linkIds = new Id[capacity];
+			this.times = new double[capacity];
+		}
+
+		/** @return the link the vehicle entered, or <code>null</code> if there is no entry for the vehicle */
+		Id<Link> getLinkId(final Id<Vehicle> vehicleId) {
+			int index = vehicleId.index();
+			return index < this.linkIds.length ? this.linkIds[index] : null;
+		}
+
+		/** only valid if {@link #getLinkId(Id)} returns a link for the vehicle */
+		double getTime(final Id<Vehicle> vehicleId) {
+			return this.times[vehicleId.index()];
+		}
+
+		void put(final Id<Vehicle> vehicleId, final Id<Link> linkId, final double time) {
+			int index = vehicleId.index();
+			if (index >= this.linkIds.length) {
+				int newLength = Math.max(Math.max(this.linkIds.length * 3 / 2, index + 1), Id.getNumberOfIds(Vehicle.class));
+				this.linkIds = Arrays.copyOf(this.linkIds, newLength);
+				this.times = Arrays.copyOf(this.times, newLength);
+			}
+			this.linkIds[index] = linkId;
+			this.times[index] = time;
+		}
+
+		Id<Link> remove(final Id<Vehicle> vehicleId) {
+			int index = vehicleId.index();
+			if (index >= this.linkIds.length) {
+				return null;
+			}
+			Id<Link> linkId = this.linkIds[index];
+			this.linkIds[index] = null;
+			return linkId;
+		}
+
+		void clear() {
+			Arrays.fill(this.linkIds, null);
+		}
+	}
+
 	@Deprecated // use builder.configure(config) instead.  kai, feb'19
 	public void setTtDataFactory( TravelTimeDataFactory ttDataFactory ){
 		// yyyyyy this is currently here for a test, but should be removed.  kai, feb'19
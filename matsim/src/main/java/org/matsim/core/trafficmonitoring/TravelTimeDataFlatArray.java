@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataFlatArray.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Implementation of {@link TravelTimeData} that works like {@link TravelTimeDataArray}, but does not
+ * own its arrays. Instead, it uses one row of a {@link Block} that is shared by all links (or turns),
+ * so there are only three arrays for the whole network instead of three per link.
+ *
+ * @see TravelTimeDataFlatArrayFactory
+ */
+class TravelTimeDataFlatArray extends TravelTimeData {
+
+	/**
+	 * The sums, counts and cached travel times of all rows, row after row.
+	 */
+	static final class Block {
+		final int numSlots;
+		final double[] timeSum;
+		final int[] timeCnt;
+		final double[] travelTimes;
+
+		Block(final int rows, final int numSlots) {
+			long size = (long) rows * numSlots;
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("too many rows (" + rows + ") and time slots (" + numSlots + ") for one block.");
+			}
+			this.numSlots = numSlots;
+			this.timeSum = new double[(int) size];
+			this.timeCnt = new int[(int) size];
+			this.travelTimes = new double[(int) size];
+			Arrays.fill(this.travelTimes, -1.0);
+		}
+	}
+
+	private final Block block;
+	private final int offset;
+	private final Link link;
+
+	TravelTimeDataFlatArray(final Block block, final int row, final Link link) {
+		this.block = block;
+		this.offset = row * block.numSlots;
+		this.link = link;
+	}
+
+	@Override
+	public void resetTravelTimes() {
+		int end = this.offset + this.block.numSlots;
+		for (int i = this.offset; i < end; i++) {
+			this.block.timeSum[i] = 0.0;
+			this.block.timeCnt[i] = 0;
+			this.block.travelTimes[i] = -1.0;
+		}
+	}
+
+	@Override
+	void setTravelTime(final int timeSlot, final double traveltime) {
+		int i = this.offset + timeSlot;
+		this.block.timeSum[i] = traveltime;
+		this.block.timeCnt[i] = 1;
+		this.block.travelTimes[i] = traveltime;
+	}
+
+	@Override
+	void addTravelTime(final int timeSlot, final double traveltime) {
+		int i = this.offset + timeSlot;
+		this.block.timeSum[i] += traveltime;
+		this.block.timeCnt[i]++;
+		this.block.travelTimes[i] = -1.0; // initialize with negative value
+	}
+
+	@Override
+	double getTravelTime(final int timeSlot, final double now) {
+		int i = this.offset + timeSlot;
+		double ttime = this.block.travelTimes[i];
+		if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+		int cnt = this.block.timeCnt[i];
+		if (cnt == 0) {
+			ttime = this.link.getLength() / this.link.getFreespeed(now);
+		} else {
+			ttime = this.block.timeSum[i] / cnt;
+		}
+		this.block.travelTimes[i] = ttime;
+		return ttime;
+	}
+
+}
@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataFlatArrayFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Creates {@link TravelTimeDataFlatArray}s. The data of all links of the network is kept in one
+ * {@link TravelTimeDataFlatArray.Block}, with one row per link. The row of a link is looked up by the
+ * index of its id.
+ * <p></p>
+ * The factory also provides the link-to-link travel time data for all turns of the network, i.e. for all
+ * pairs of a link and an outgoing link of its to-node, in a second block. The turns of a link are stored
+ * next to each other, so looking up a turn only needs to scan the few outgoing links of a node.
+ * <p></p>
+ * Links or turns that were not part of the network when the factory was created get their own
+ * {@link TravelTimeDataArray}, which the {@link TravelTimeCalculator} stores in its maps as before.
+ */
+class TravelTimeDataFlatArrayFactory implements TravelTimeDataFactory {
+
+	private static final int NO_ROW = -1;
+
+	private final Network network;
+	private final int numSlots;
+
+	/** the row of each link, by the index of its id */
+	private final int[] rowByIdIndex;
+	private final TravelTimeDataFlatArray.Block linkBlock;
+
+	/** the first turn row of each link row, turns of link row r are in [turnOffsets[r], turnOffsets[r+1]) */
+	private final int[] turnOffsets;
+	private final Id<Link>[] turnToLinkIds;
+	private final TravelTimeData[] turnData;
+	private final TravelTimeDataFlatArray.Block turnBlock;
+
+	@SuppressWarnings("unchecked")
+	public TravelTimeDataFlatArrayFactory(final Network network, final int numSlots, final boolean withLinkToLinkData) {
+		this.network = network;
+		this.numSlots = numSlots;
+
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		this.rowByIdIndex = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.rowByIdIndex, NO_ROW);
+		for (int row = 0; row < links.length; row++) {
+			this.rowByIdIndex[links[row].getId().index()] = row;
+		}
+		this.linkBlock = new TravelTimeDataFlatArray.Block(links.length, numSlots);
+
+		if (withLinkToLinkData) {
+			this.turnOffsets = new int[links.length + 1];
+			int numTurns = 0;
+			for (int row = 0; row < links.length; row++) {
+				this.turnOffsets[row] = numTurns;
+				numTurns += links[row].getToNode().getOutLinks().size();
+			}
+			this.turnOffsets[links.length] = numTurns;
+			this.turnToLinkIds = new Id[numTurns];
+			this.turnData = new TravelTimeData[numTurns];
+			this.turnBlock = new TravelTimeDataFlatArray.Block(numTurns, numSlots);
+			for (int row = 0; row < links.length; row++) {
+				int turn = this.turnOffsets[row];
+				for (Id<Link> toLinkId : links[row].getToNode().getOutLinks().keySet()) {
+					this.turnToLinkIds[turn] = toLinkId;
+					// like TravelTimeDataArrayFactory, the free speed travel time of the from link is used for turns without data
+					this.turnData[turn] = new TravelTimeDataFlatArray(this.turnBlock, turn, links[row]);
+					turn++;
+				}
+			}
+		} else {
+			this.turnOffsets = null;
+			this.turnToLinkIds = null;
+			this.turnData = null;
+			this.turnBlock = null;
+		}
+	}
+
+	@Override
+	public TravelTimeData createTravelTimeData(final Id<Link> linkId) {
+		Link link = this.network.getLinks().get(linkId);
+		int row = getRow(linkId);
+		if (row == NO_ROW) {
+			return new TravelTimeDataArray(link, this.numSlots);
+		}
+		return new TravelTimeDataFlatArray(this.linkBlock, row, link);
+	}
+
+	/**
+	 * @return the data of the turn, or <code>null</code> if the turn is not part of the network
+	 */
+	TravelTimeData getLinkToLinkTravelTimeData(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		int row = getRow(fromLinkId);
+		if (row == NO_ROW || this.turnData == null) {
+			return null;
+		}
+		for (int turn = this.turnOffsets[row], end = this.turnOffsets[row + 1]; turn < end; turn++) {
+			if (this.turnToLinkIds[turn] == toLinkId) {
+				return this.turnData[turn];
+			}
+		}
+		return null;
+	}
+
+	void resetLinkToLinkTravelTimes() {
+		if (this.turnData != null) {
+			Arrays.fill(this.turnBlock.timeSum, 0.0);
+			Arrays.fill(this.turnBlock.timeCnt, 0);
+			Arrays.fill(this.turnBlock.travelTimes, -1.0);
+			for (TravelTimeData data : this.turnData) {
+				data.setNeedsConsolidation(false);
+			}
+		}
+	}
+
+	private int getRow(final Id<Link> linkId) {
+		int index = linkId.index();
+		return index < this.rowByIdIndex.length ? this.rowByIdIndex[index] : NO_ROW;
+	}
+
+}
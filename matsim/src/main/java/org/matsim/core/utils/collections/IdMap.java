@@ -0,0 +1,431 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Map with {@link Id}s as keys, backed by arrays indexed by {@link Id#index()}.
+ * <code>get</code>, <code>put</code> and <code>remove</code> are plain array accesses and
+ * do not allocate any objects per entry. Iteration order is the insertion order, like
+ * in a {@link java.util.LinkedHashMap}; re-inserting an existing key does not change its position.
+ * <p></p>
+ * The arrays start small and grow by doubling up to the largest index in use. As that index is global for
+ * the type, not local to the map, this map is best suited for containers that hold a large share of all ids
+ * of a type, e.g. all links of a network or all persons of a population.
+ * <p></p>
+ * Like most collections, this map is not thread-safe. <code>null</code> keys are not supported,
+ * <code>null</code> values are.
+ *
+ * @param <T> the type of the ids
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final int NOT_SET = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final Class<T> idClass;
+	private Id<T>[] keys;
+	private V[] values;
+	/** position of an index in {@link #order}, only valid if the index is contained */
+	private int[] positions;
+	/** indices in insertion order, removed entries are marked with {@link #NOT_SET} */
+	private int[] order;
+	private int orderSize = 0;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		int capacity = Math.max(initialCapacity, 1);
+		this.keys = new Id[capacity];
+		this.values = (V[]) new Object[capacity];
+		this.positions = new int[capacity];
+		this.order = new int[capacity];
+	}
+
+	public Class<T> getIdClass() {
+		return this.idClass;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		for (int pos = 0; pos < this.orderSize; pos++) {
+			int index = this.order[pos];
+			if (index != NOT_SET && Objects.equals(value, this.values[index])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		return index < 0 ? null : this.values[index];
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = key.index();
+		if (index >= this.keys.length) {
+			ensureIndexCapacity(index);
+		}
+		Id<T> oldKey = this.keys[index];
+		if (oldKey == key) {
+			V oldValue = this.values[index];
+			this.values[index] = value;
+			return oldValue;
+		}
+		if (oldKey != null) {
+			throw new IllegalArgumentException("The id " + key + " has the same index as " + oldKey + ", they must be of different types. Expected type: " + this.idClass.getName());
+		}
+		if (this.orderSize == this.order.length) {
+			ensureOrderCapacity();
+		}
+		this.keys[index] = key;
+		this.values[index] = value;
+		this.positions[index] = this.orderSize;
+		this.order[this.orderSize] = index;
+		this.orderSize++;
+		this.size++;
+		this.modCount++;
+		return null;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		return removeIndex(index);
+	}
+
+	@Override
+	public void clear() {
+		for (int pos = 0; pos < this.orderSize; pos++) {
+			int index = this.order[pos];
+			if (index != NOT_SET) {
+				this.keys[index] = null;
+				this.values[index] = null;
+			}
+		}
+		this.orderSize = 0;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Id<T>> keySet() {
+		return new KeySet();
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new Values();
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	private int indexOf(final Object key) {
+		if (key instanceof Id) {
+			int index = ((Id<?>) key).index();
+			if (index < this.keys.length && this.keys[index] == key) {
+				return index;
+			}
+		}
+		return NOT_SET;
+	}
+
+	private V removeIndex(final int index) {
+		V oldValue = this.values[index];
+		this.order[this.positions[index]] = NOT_SET;
+		this.keys[index] = null;
+		this.values[index] = null;
+		this.size--;
+		this.modCount++;
+		if (this.size == 0) {
+			this.orderSize = 0;
+		}
+		return oldValue;
+	}
+
+	private void ensureIndexCapacity(final int index) {
+		int newLength = Math.max(this.keys.length * 2, index + 1);
+		this.keys = Arrays.copyOf(this.keys, newLength);
+		this.values = Arrays.copyOf(this.values, newLength);
+		this.positions = Arrays.copyOf(this.positions, newLength);
+	}
+
+	/**
+	 * Called when {@link #order} is full. If many entries were removed, the order array is
+	 * compacted in place, otherwise it grows.
+	 */
+	private void ensureOrderCapacity() {
+		if (this.size < this.orderSize - (this.orderSize >> 2)) {
+			int newPos = 0;
+			for (int pos = 0; pos < this.orderSize; pos++) {
+				int index = this.order[pos];
+				if (index != NOT_SET) {
+					this.order[newPos] = index;
+					this.positions[index] = newPos;
+					newPos++;
+				}
+			}
+			this.orderSize = newPos;
+		} else {
+			this.order = Arrays.copyOf(this.order, Math.max(this.order.length + (this.order.length >> 1), this.order.length + 1));
+		}
+	}
+
+	private abstract class OrderIterator<E> implements Iterator<E> {
+
+		private int cursor = 0;
+		private int lastIndex = NOT_SET;
+		private int expectedModCount = IdMap.this.modCount;
+
+		@Override
+		public boolean hasNext() {
+			while (this.cursor < IdMap.this.orderSize && IdMap.this.order[this.cursor] == NOT_SET) {
+				this.cursor++;
+			}
+			return this.cursor < IdMap.this.orderSize;
+		}
+
+		final int nextIndex() {
+			if (this.expectedModCount != IdMap.this.modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.lastIndex = IdMap.this.order[this.cursor];
+			this.cursor++;
+			return this.lastIndex;
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastIndex == NOT_SET) {
+				throw new IllegalStateException();
+			}
+			if (this.expectedModCount != IdMap.this.modCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdMap.this.removeIndex(this.lastIndex);
+			this.lastIndex = NOT_SET;
+			this.expectedModCount = IdMap.this.modCount;
+		}
+	}
+
+	private final class KeySet extends AbstractSet<Id<T>> {
+
+		@Override
+		public Iterator<Id<T>> iterator() {
+			return new OrderIterator<Id<T>>() {
+				@Override
+				public Id<T> next() {
+					return IdMap.this.keys[nextIndex()];
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			return IdMap.this.containsKey(o);
+		}
+
+		@Override
+		public boolean remove(final Object o) {
+			int index = IdMap.this.indexOf(o);
+			if (index < 0) {
+				return false;
+			}
+			IdMap.this.removeIndex(index);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private final class Values extends AbstractCollection<V> {
+
+		@Override
+		public Iterator<V> iterator() {
+			return new OrderIterator<V>() {
+				@Override
+				public V next() {
+					return IdMap.this.values[nextIndex()];
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			return IdMap.this.containsValue(o);
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<Id<T>, V>> {
+
+		@Override
+		public Iterator<Map.Entry<Id<T>, V>> iterator() {
+			return new OrderIterator<Map.Entry<Id<T>, V>>() {
+				@Override
+				public Map.Entry<Id<T>, V> next() {
+					return new IdEntry(nextIndex());
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			int index = IdMap.this.indexOf(e.getKey());
+			return index >= 0 && Objects.equals(IdMap.this.values[index], e.getValue());
+		}
+
+		@Override
+		public boolean remove(final Object o) {
+			if (!contains(o)) {
+				return false;
+			}
+			IdMap.this.removeIndex(IdMap.this.indexOf(((Map.Entry<?, ?>) o).getKey()));
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	/**
+	 * Entry view on one index, writes through to the map.
+	 */
+	private final class IdEntry implements Map.Entry<Id<T>, V> {
+
+		private final int index;
+
+		IdEntry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return IdMap.this.keys[this.index];
+		}
+
+		@Override
+		public V getValue() {
+			return IdMap.this.values[this.index];
+		}
+
+		@Override
+		public V setValue(final V value) {
+			V oldValue = IdMap.this.values[this.index];
+			IdMap.this.values[this.index] = value;
+			return oldValue;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
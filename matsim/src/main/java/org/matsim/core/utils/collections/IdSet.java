@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Set of {@link Id}s, backed by an {@link IdMap} in the same way a {@link java.util.HashSet}
+ * is backed by a {@link java.util.HashMap}. Iterates in insertion order.
+ *
+ * @param <T> the type of the ids
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private static final Object PRESENT = new Object();
+
+	private final IdMap<T, Object> map;
+
+	public IdSet(final Class<T> idClass) {
+		this.map = new IdMap<>(idClass);
+	}
+
+	public IdSet(final Class<T> idClass, final int initialCapacity) {
+		this.map = new IdMap<>(idClass, initialCapacity);
+	}
+
+	@Override
+	public int size() {
+		return this.map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.map.isEmpty();
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		return this.map.containsKey(o);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		return this.map.put(id, PRESENT) == null;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		return this.map.remove(o) == PRESENT;
+	}
+
+	@Override
+	public void clear() {
+		this.map.clear();
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return this.map.keySet().iterator();
+	}
+
+}
@@ -0,0 +1,532 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Coord;
+
+/**
+ * A {@link QuadTree} that is built once from all its entries and cannot be changed afterwards, for the indexes that
+ * are only read after they were created, like those of the facilities or of the transit stops.
+ * <p></p>
+ * The entries are stored as a balanced kd-tree in flat arrays: the entries of a range of the arrays are split at
+ * their median along the longer side of the range, recursively, so the tree needs no node objects and its queries
+ * walk over neighbouring array elements. The queries return the same entries as those of {@link QuadTree}. In
+ * addition, the entries within a distance can be collected into a given collection, see
+ * {@link #getDisk(double, double, double, Collection)}, and the k nearest entries can be found, see
+ * {@link #getKNearest(double, double, int, Collection)}.
+ * <p></p>
+ * {@link #put(double, double, Object)}, {@link #remove(double, double, Object)} and {@link #clear()} throw an
+ * {@link UnsupportedOperationException}; create a new tree instead.
+ *
+ * @param <T> The type of data to be stored in the tree.
+ */
+public final class PackedQuadTree<T> extends QuadTree<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** ranges of at most this many entries are not split, but searched entry by entry */
+	private static final int LEAF_SIZE = 8;
+
+	private final double[] xs;
+	private final double[] ys;
+	private final Object[] values;
+	/** the axis the range with its median at index i is split along, 0 for x and 1 for y */
+	private final byte[] splitAxes;
+
+	/**
+	 * Creates a tree with the entries of the given quad tree, and its bounds.
+	 */
+	public PackedQuadTree(final QuadTree<T> quadTree) {
+		super(quadTree.getMinEasting(), quadTree.getMinNorthing(), quadTree.getMaxEasting(), quadTree.getMaxNorthing());
+		if (quadTree instanceof PackedQuadTree) {
+			PackedQuadTree<T> packed = (PackedQuadTree<T>) quadTree;
+			this.xs = packed.xs;
+			this.ys = packed.ys;
+			this.values = packed.values;
+			this.splitAxes = packed.splitAxes;
+			return;
+		}
+		List<Leaf<T>> leaves = new ArrayList<>();
+		int size = 0;
+		for (Leaf<T> leaf = quadTree.top.firstLeaf(); leaf != null; leaf = quadTree.top.nextLeaf(leaf)) {
+			leaves.add(leaf);
+			size += leaf.value != null ? 1 : leaf.values.size();
+		}
+		this.xs = new double[size];
+		this.ys = new double[size];
+		this.values = new Object[size];
+		this.splitAxes = new byte[size];
+		int i = 0;
+		for (Leaf<T> leaf : leaves) {
+			for (T value : leaf.value != null ? Collections.singletonList(leaf.value) : leaf.values) {
+				this.xs[i] = leaf.x;
+				this.ys[i] = leaf.y;
+				this.values[i] = value;
+				i++;
+			}
+		}
+		build(0, size);
+	}
+
+	private PackedQuadTree(final double minX, final double minY, final double maxX, final double maxY,
+			final double[] xs, final double[] ys, final Object[] values) {
+		super(minX, minY, maxX, maxY);
+		this.xs = xs;
+		this.ys = ys;
+		this.values = values;
+		this.splitAxes = new byte[values.length];
+		build(0, values.length);
+	}
+
+	/**
+	 * Creates a tree of the values at their coordinates. The bounds of the tree are those of the coordinates.
+	 */
+	public static <T> PackedQuadTree<T> create(final Collection<? extends T> values, final Function<? super T, Coord> getCoord) {
+		double[] xs = new double[values.size()];
+		double[] ys = new double[values.size()];
+		Object[] objects = new Object[values.size()];
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		int i = 0;
+		for (T value : values) {
+			Coord coord = getCoord.apply(value);
+			xs[i] = coord.getX();
+			ys[i] = coord.getY();
+			objects[i] = value;
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+			i++;
+		}
+		return new PackedQuadTree<>(minX, minY, maxX, maxY, xs, ys, objects);
+	}
+
+	/**
+	 * Orders the entries from <code>from</code> to <code>to - 1</code> such that the median along the longer side of
+	 * their bounds is in the middle, the entries before it are not greater and the ones after it are not smaller than
+	 * the median along that axis, and continues with both halves.
+	 */
+	private void build(final int from, final int to) {
+		if (to - from <= LEAF_SIZE) {
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			minX = Math.min(minX, this.xs[i]);
+			minY = Math.min(minY, this.ys[i]);
+			maxX = Math.max(maxX, this.xs[i]);
+			maxY = Math.max(maxY, this.ys[i]);
+		}
+		byte axis = maxX - minX >= maxY - minY ? (byte) 0 : (byte) 1;
+		int median = (from + to) >>> 1;
+		select(from, to, median, axis == 0 ? this.xs : this.ys);
+		this.splitAxes[median] = axis;
+		build(from, median);
+		build(median + 1, to);
+	}
+
+	/**
+	 * Quickselect with a three-way partition, so many entries with the same coordinate, e.g. on a grid, do not
+	 * slow it down.
+	 */
+	private void select(int from, int to, final int k, final double[] coords) {
+		while (to - from > 1) {
+			double pivot = coords[(from + to) >>> 1];
+			int lt = from;
+			int gt = to;
+			int i = from;
+			while (i < gt) {
+				if (coords[i] < pivot) {
+					swap(lt++, i++);
+				} else if (coords[i] > pivot) {
+					swap(i, --gt);
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				to = lt;
+			} else if (k >= gt) {
+				from = gt;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		double x = this.xs[i];
+		this.xs[i] = this.xs[j];
+		this.xs[j] = x;
+		double y = this.ys[i];
+		this.ys[i] = this.ys[j];
+		this.ys[j] = y;
+		Object value = this.values[i];
+		this.values[i] = this.values[j];
+		this.values[j] = value;
+	}
+
+	/** @return how far the query point is on the upper side of the split at <code>median</code>, negative if on the lower side */
+	private double splitDistance(final int median, final double x, final double y) {
+		return this.splitAxes[median] == 0 ? x - this.xs[median] : y - this.ys[median];
+	}
+
+	@SuppressWarnings("unchecked")
+	private T value(final int i) {
+		return (T) this.values[i];
+	}
+
+	@Override
+	public boolean put(final double x, final double y, final T value) {
+		throw new UnsupportedOperationException("A PackedQuadTree cannot be changed, create a new one instead.");
+	}
+
+	@Override
+	public boolean remove(final double x, final double y, final T value) {
+		throw new UnsupportedOperationException("A PackedQuadTree cannot be changed, create a new one instead.");
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("A PackedQuadTree cannot be changed, create a new one instead.");
+	}
+
+	@Override
+	public T getClosest(final double x, final double y) {
+		if (this.values.length == 0) {
+			return null;
+		}
+		Nearest nearest = new Nearest(1);
+		getNearest(0, this.values.length, x, y, nearest);
+		return value(nearest.indices[0]);
+	}
+
+	/**
+	 * Gets the k objects closest to x/y.
+	 *
+	 * @param k the number of objects to find
+	 * @return the k objects closest to x/y, ordered by their distance, or all objects if there are fewer than k
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		return getKNearest(x, y, k, new ArrayList<>(k));
+	}
+
+	/**
+	 * Adds the k objects closest to x/y to the given collection, ordered by their distance, or all objects if there
+	 * are fewer than k.
+	 *
+	 * @return the given collection
+	 */
+	public <C extends Collection<? super T>> C getKNearest(final double x, final double y, final int k, final C values) {
+		if (k <= 0 || this.values.length == 0) {
+			return values;
+		}
+		Nearest nearest = new Nearest(Math.min(k, this.values.length));
+		getNearest(0, this.values.length, x, y, nearest);
+		for (int i : nearest.sortedIndices()) {
+			values.add(value(i));
+		}
+		return values;
+	}
+
+	private void getNearest(final int from, final int to, final double x, final double y, final Nearest nearest) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				nearest.offer(i, distanceSquared(i, x, y));
+			}
+			return;
+		}
+		int median = (from + to) >>> 1;
+		nearest.offer(median, distanceSquared(median, x, y));
+		double splitDistance = splitDistance(median, x, y);
+		if (splitDistance < 0) {
+			getNearest(from, median, x, y, nearest);
+			if (splitDistance * splitDistance < nearest.maxDistanceSquared()) {
+				getNearest(median + 1, to, x, y, nearest);
+			}
+		} else {
+			getNearest(median + 1, to, x, y, nearest);
+			if (splitDistance * splitDistance < nearest.maxDistanceSquared()) {
+				getNearest(from, median, x, y, nearest);
+			}
+		}
+	}
+
+	private double distanceSquared(final int i, final double x, final double y) {
+		double dx = this.xs[i] - x;
+		double dy = this.ys[i] - y;
+		return dx * dx + dy * dy;
+	}
+
+	private double distance(final int i, final double x, final double y) {
+		return Math.sqrt(distanceSquared(i, x, y));
+	}
+
+	@Override
+	public Collection<T> getDisk(final double x, final double y, final double distance) {
+		return getDisk(x, y, distance, new ArrayList<>());
+	}
+
+	@Override
+	public Collection<T> getDisk(final double x, final double y, final double distance, final Collection<T> values) {
+		getRing(0, this.values.length, x, y, Double.NEGATIVE_INFINITY, distance, values);
+		return values;
+	}
+
+	@Override
+	public Collection<T> getRing(final double x, final double y, final double r_min, final double r_max) {
+		Collection<T> values = new ArrayList<>();
+		getRing(0, this.values.length, x, y, r_min, r_max, values);
+		return values;
+	}
+
+	private void getRing(final int from, final int to, final double x, final double y, final double rMin, final double rMax,
+			final Collection<T> values) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				double distance = distance(i, x, y);
+				if (distance <= rMax && distance >= rMin) {
+					values.add(value(i));
+				}
+			}
+			return;
+		}
+		int median = (from + to) >>> 1;
+		double splitDistance = splitDistance(median, x, y);
+		if (splitDistance <= rMax) {
+			getRing(from, median, x, y, rMin, rMax, values);
+		}
+		double distance = distance(median, x, y);
+		if (distance <= rMax && distance >= rMin) {
+			values.add(value(median));
+		}
+		if (-splitDistance <= rMax) {
+			getRing(median + 1, to, x, y, rMin, rMax, values);
+		}
+	}
+
+	@Override
+	public Collection<T> getElliptical(final double x1, final double y1, final double x2, final double y2, final double distance) {
+		if (Math.pow(distance, 2) < Math.pow((x1 - x2), 2) + Math.pow((y1 - y2), 2)) {
+			throw new IllegalArgumentException("wrong ellipse specification: distance must be greater than distance between foci."
+					+ " x1=" + x1 + " y1=" + y1 + " x2=" + x2 + " y2=" + y2 + " distance=" + distance);
+		}
+		Collection<T> values = new ArrayList<>();
+		getElliptical(0, this.values.length, x1, y1, x2, y2, distance, values);
+		return values;
+	}
+
+	private void getElliptical(final int from, final int to, final double x1, final double y1, final double x2, final double y2,
+			final double maxDistance, final Collection<T> values) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				addIfInEllipse(i, x1, y1, x2, y2, maxDistance, values);
+			}
+			return;
+		}
+		int median = (from + to) >>> 1;
+		// lower bounds of the distances of the entries on each side of the split to the foci
+		double splitDistance1 = splitDistance(median, x1, y1);
+		double splitDistance2 = splitDistance(median, x2, y2);
+		if (Math.max(0, splitDistance1) + Math.max(0, splitDistance2) <= maxDistance) {
+			getElliptical(from, median, x1, y1, x2, y2, maxDistance, values);
+		}
+		addIfInEllipse(median, x1, y1, x2, y2, maxDistance, values);
+		if (Math.max(0, -splitDistance1) + Math.max(0, -splitDistance2) <= maxDistance) {
+			getElliptical(median + 1, to, x1, y1, x2, y2, maxDistance, values);
+		}
+	}
+
+	private void addIfInEllipse(final int i, final double x1, final double y1, final double x2, final double y2,
+			final double maxDistance, final Collection<T> values) {
+		double distance1 = distance(i, x1, y1);
+		if (distance1 <= maxDistance && distance1 + distance(i, x2, y2) <= maxDistance) {
+			values.add(value(i));
+		}
+	}
+
+	@Override
+	public Collection<T> getRectangle(final Rect bounds, final Collection<T> values) {
+		getRectangle(0, this.values.length, bounds, values);
+		return values;
+	}
+
+	private void getRectangle(final int from, final int to, final Rect bounds, final Collection<T> values) {
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				if (bounds.containsOrEquals(this.xs[i], this.ys[i])) {
+					values.add(value(i));
+				}
+			}
+			return;
+		}
+		int median = (from + to) >>> 1;
+		boolean isX = this.splitAxes[median] == 0;
+		double split = isX ? this.xs[median] : this.ys[median];
+		if ((isX ? bounds.minX : bounds.minY) <= split) {
+			getRectangle(from, median, bounds, values);
+		}
+		if (bounds.containsOrEquals(this.xs[median], this.ys[median])) {
+			values.add(value(median));
+		}
+		if ((isX ? bounds.maxX : bounds.maxY) >= split) {
+			getRectangle(median + 1, to, bounds, values);
+		}
+	}
+
+	/**
+	 * Executes executor on all objects inside a certain boundary, or on all objects if the boundary is <code>null</code>.
+	 */
+	@Override
+	public int execute(final Rect bounds, final Executor<T> executor) {
+		if (bounds == null) {
+			for (int i = 0; i < this.values.length; i++) {
+				executor.execute(this.xs[i], this.ys[i], value(i));
+			}
+			return this.values.length;
+		}
+		return execute(0, this.values.length, bounds, executor);
+	}
+
+	private int execute(final int from, final int to, final Rect bounds, final Executor<T> executor) {
+		int count = 0;
+		if (to - from <= LEAF_SIZE) {
+			for (int i = from; i < to; i++) {
+				if (bounds.contains(this.xs[i], this.ys[i])) {
+					executor.execute(this.xs[i], this.ys[i], value(i));
+					count++;
+				}
+			}
+			return count;
+		}
+		int median = (from + to) >>> 1;
+		boolean isX = this.splitAxes[median] == 0;
+		double split = isX ? this.xs[median] : this.ys[median];
+		if ((isX ? bounds.minX : bounds.minY) <= split) {
+			count += execute(from, median, bounds, executor);
+		}
+		if (bounds.contains(this.xs[median], this.ys[median])) {
+			executor.execute(this.xs[median], this.ys[median], value(median));
+			count++;
+		}
+		if ((isX ? bounds.maxX : bounds.maxY) >= split) {
+			count += execute(median + 1, to, bounds, executor);
+		}
+		return count;
+	}
+
+	@Override
+	public int size() {
+		return this.values.length;
+	}
+
+	/**
+	 * @return the values of the tree, in the order they are stored in
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Collection<T> values() {
+		return Collections.unmodifiableList(Arrays.asList((T[]) this.values));
+	}
+
+	/**
+	 * The k nearest entries found so far, in a max-heap by their distance.
+	 */
+	private static final class Nearest {
+
+		private final int[] indices;
+		private final double[] distancesSquared;
+		private int size = 0;
+
+		Nearest(final int k) {
+			this.indices = new int[k];
+			this.distancesSquared = new double[k];
+		}
+
+		double maxDistanceSquared() {
+			return this.size < this.indices.length ? Double.POSITIVE_INFINITY : this.distancesSquared[0];
+		}
+
+		void offer(final int index, final double distanceSquared) {
+			if (this.size < this.indices.length) {
+				int i = this.size++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (this.distancesSquared[parent] >= distanceSquared) {
+						break;
+					}
+					this.indices[i] = this.indices[parent];
+					this.distancesSquared[i] = this.distancesSquared[parent];
+					i = parent;
+				}
+				this.indices[i] = index;
+				this.distancesSquared[i] = distanceSquared;
+			} else if (distanceSquared < this.distancesSquared[0]) {
+				int i = 0;
+				while (true) {
+					int child = 2 * i + 1;
+					if (child >= this.size) {
+						break;
+					}
+					if (child + 1 < this.size && this.distancesSquared[child + 1] > this.distancesSquared[child]) {
+						child++;
+					}
+					if (this.distancesSquared[child] <= distanceSquared) {
+						break;
+					}
+					this.indices[i] = this.indices[child];
+					this.distancesSquared[i] = this.distancesSquared[child];
+					i = child;
+				}
+				this.indices[i] = index;
+				this.distancesSquared[i] = distanceSquared;
+			}
+		}
+
+		/** @return the indices of the entries, ordered by their distance */
+		int[] sortedIndices() {
+			Integer[] order = new Integer[this.size];
+			for (int i = 0; i < this.size; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Double.compare(this.distancesSquared[a], this.distancesSquared[b]));
+			int[] sorted = new int[this.size];
+			for (int i = 0; i < this.size; i++) {
+				sorted[i] = this.indices[order[i]];
+			}
+			return sorted;
+		}
+	}
+
+}
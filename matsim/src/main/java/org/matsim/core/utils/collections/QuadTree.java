@@ -143,6 +143,19 @@ public class QuadTree<T> implements Serializable {
 		return this.top.get(x, y, distance, new ArrayList<>());
 	}
 
+	/**
+	 * Adds all objects within a certain distance around x/y to the given collection, so it can be reused for many queries.
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param distance the maximal distance returned objects can be away from x/y
+	 * @param values1 A collection to store the found objects in.
+	 * @return the collection with the objects found within distance to x/y
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance, final Collection<T> values1) {
+		return this.top.get(x, y, distance, values1);
+	}
+
 	/**
 	 * Gets all objects within a linear ring (including borders).
 	 *
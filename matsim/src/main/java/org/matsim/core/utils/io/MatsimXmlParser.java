@@ -34,6 +34,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.EmptyStackException;
 import java.util.Stack;
 import java.util.zip.GZIPInputStream;
 
@@ -53,8 +55,9 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 
 	private static final Logger log = Logger.getLogger(MatsimXmlParser.class);
 
-	private final Stack<StringBuffer> buffers = new Stack<>();
-	private final Stack<String> theContext = new Stack<>();
+	/* the character content of the open elements, by depth; the builders are re-used for all elements of a file */
+	private StringBuilder[] buffers = new StringBuilder[16];
+	private final Stack<String> theContext = new ContextStack();
 
 	private boolean isValidating = true;
 	private boolean isNamespaceAware = true;
@@ -331,9 +334,9 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	public void characters(final char[] ch, final int start, final int length) throws SAXException {
 		// has to be non-final since otherwise the events parser does not work.  Probably ok (this here is just a default implementation). kai, jul'16
 		
-		StringBuffer buffer = this.buffers.peek();
-		if (buffer != null) {
-			buffer.append(ch, start, length);
+		int depth = this.theContext.size();
+		if (depth > 0) {
+			this.buffers[depth - 1].append(ch, start, length);
 		}
 	}
 
@@ -342,7 +345,16 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		// I have not good intuition if making this one non-final might be ok.  kai, jul'16
 
 		String tag = (uri.length() == 0) ? qName : localName;
-		this.buffers.push(new StringBuffer());
+		int depth = this.theContext.size();
+		if (depth == this.buffers.length) {
+			this.buffers = Arrays.copyOf(this.buffers, depth * 2);
+		}
+		StringBuilder buffer = this.buffers[depth];
+		if (buffer == null) {
+			this.buffers[depth] = new StringBuilder();
+		} else {
+			buffer.setLength(0);
+		}
 		this.startTag(tag, atts, this.theContext);
 		this.theContext.push(tag);
 	}
@@ -353,8 +365,8 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		
 		String tag = (uri.length() == 0) ? qName : localName;
 		this.theContext.pop();
-		StringBuffer buffer = this.buffers.pop();
-		this.endTag(tag, buffer.toString(), this.theContext);
+		StringBuilder buffer = this.buffers[this.theContext.size()];
+		this.endTag(tag, buffer.length() == 0 ? "" : buffer.toString(), this.theContext);
 	}
 
 	/* implement ErrorHandler */
@@ -398,4 +410,54 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		return this.theSource;
 	}
 
+
+	/**
+	 * The context is only accessed by the thread parsing the file, so the stack operations called for every
+	 * element do not need to be synchronized like the ones of {@link Stack}. The context is still a {@link Stack},
+	 * as this is what {@link #startTag} and {@link #endTag} expect.
+	 */
+	/*package*/ static final class ContextStack extends Stack<String> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String push(final String item) {
+			if (this.elementCount == this.elementData.length) {
+				ensureCapacity(this.elementCount + 1);
+			}
+			this.elementData[this.elementCount++] = item;
+			this.modCount++;
+			return item;
+		}
+
+		@Override
+		public String pop() {
+			String item = peek();
+			this.elementData[--this.elementCount] = null;
+			this.modCount++;
+			return item;
+		}
+
+		@Override
+		public String peek() {
+			if (this.elementCount == 0) {
+				throw new EmptyStackException();
+			}
+			return (String) this.elementData[this.elementCount - 1];
+		}
+
+		@Override
+		public boolean empty() {
+			return this.elementCount == 0;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return this.elementCount == 0;
+		}
+
+		@Override
+		public int size() {
+			return this.elementCount;
+		}
+	}
 }
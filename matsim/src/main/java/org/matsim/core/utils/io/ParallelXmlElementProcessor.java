@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelXmlElementProcessor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Interprets {@link XmlElementBuffer}s on several threads, while the thread parsing the xml file goes on
+ * recording the next elements.
+ * <p></p>
+ * Each thread gets its own {@link Worker}, so workers, which typically wrap a reader for the file format,
+ * need not be thread-safe. The results of the workers are passed to the result handler on the parsing
+ * thread, in the order the buffers were submitted. This way readers can add the objects they read, e.g.
+ * persons or links, to their container in the order of the file, and the containers need not be
+ * thread-safe either.
+ *
+ * @param <R> the type of the results of the workers
+ */
+public final class ParallelXmlElementProcessor<R> {
+
+	public interface Worker<R> {
+		R process(XmlElementBuffer elements);
+	}
+
+	private final int maxPending;
+	private final ExecutorService executor;
+	private final ThreadLocal<Worker<R>> workers;
+	private final Consumer<R> resultHandler;
+	private final Deque<Future<R>> pending = new ArrayDeque<>();
+
+	/**
+	 * @param workerFactory called once by every thread, when it processes its first buffer.
+	 */
+	public ParallelXmlElementProcessor(final int numberOfThreads, final String threadName,
+			final Supplier<? extends Worker<R>> workerFactory, final Consumer<R> resultHandler) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.maxPending = 2 * numberOfThreads;
+		this.executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.workers = ThreadLocal.withInitial(workerFactory);
+		this.resultHandler = resultHandler;
+	}
+
+	/**
+	 * Hands the buffer over to the threads. If many buffers are waiting already, the results of the oldest
+	 * ones are handled first, so that the parsing thread does not get too far ahead of the workers.
+	 */
+	public void submit(final XmlElementBuffer elements) {
+		while (this.pending.size() >= this.maxPending) {
+			handleNextResult();
+		}
+		this.pending.add(this.executor.submit(() -> this.workers.get().process(elements)));
+	}
+
+	/**
+	 * Waits until all submitted buffers are processed and their results are handled. Further buffers
+	 * can be submitted afterwards.
+	 */
+	public void awaitAll() {
+		while (!this.pending.isEmpty()) {
+			handleNextResult();
+		}
+	}
+
+	/**
+	 * Handles the results of all submitted buffers and stops the threads.
+	 */
+	public void finish() {
+		try {
+			awaitAll();
+		} finally {
+			this.executor.shutdownNow();
+		}
+	}
+
+	private void handleNextResult() {
+		R result;
+		try {
+			result = this.pending.poll().get();
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		this.resultHandler.accept(result);
+	}
+
+}
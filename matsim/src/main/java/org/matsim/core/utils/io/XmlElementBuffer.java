@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * XmlElementBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.util.Arrays;
+import java.util.Stack;
+
+import org.xml.sax.Attributes;
+
+/**
+ * Records the tags a {@link MatsimXmlParser} is called with, so that they can be handed over to another
+ * parser later, possibly on another thread. This is what the parallel readers use: the thread parsing the
+ * file records the elements, e.g. a few hundred persons, and another thread interprets them by
+ * {@link #replay replaying} the tags to a reader for the file format.
+ * <p></p>
+ * The attributes of all tags are stored as strings in one array, so recording a tag does not create an
+ * {@link Attributes} object. When the tags are replayed, a single {@link Attributes} object is re-used for all
+ * of them, just like the SAX parser does.
+ */
+public final class XmlElementBuffer {
+
+	private final String[] baseContext;
+
+	private int size = 0;
+	private String[] names = new String[64];
+	private boolean[] isEndTag = new boolean[64];
+	/** the values of tag i are in [valueOffsets[i], valueOffsets[i+1]): pairs of name and value for start tags, the content for end tags */
+	private int[] valueOffsets = new int[65];
+	private String[] values = new String[256];
+	private int numberOfValues = 0;
+
+	/**
+	 * @param context the context of the first tag that will be recorded
+	 */
+	public XmlElementBuffer(final Stack<String> context) {
+		this.baseContext = context.toArray(new String[context.size()]);
+	}
+
+	public void startTag(final String name, final Attributes atts) {
+		int length = atts.getLength();
+		ensureValueCapacity(2 * length);
+		for (int i = 0; i < length; i++) {
+			this.values[this.numberOfValues++] = atts.getQName(i);
+			this.values[this.numberOfValues++] = atts.getValue(i);
+		}
+		addTag(name, false);
+	}
+
+	public void endTag(final String name, final String content) {
+		ensureValueCapacity(1);
+		this.values[this.numberOfValues++] = content;
+		addTag(name, true);
+	}
+
+	/**
+	 * @return the number of recorded start and end tags
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Calls {@link MatsimXmlParser#startTag} and {@link MatsimXmlParser#endTag} of the parser for all recorded tags,
+	 * in the order they were recorded, with the same context the tags were recorded with.
+	 */
+	public void replay(final MatsimXmlParser parser) {
+		Stack<String> context = new MatsimXmlParser.ContextStack();
+		for (String name : this.baseContext) {
+			context.push(name);
+		}
+		RecordedAttributes atts = new RecordedAttributes(this.values);
+		for (int i = 0; i < this.size; i++) {
+			String name = this.names[i];
+			if (this.isEndTag[i]) {
+				context.pop();
+				parser.endTag(name, this.values[this.valueOffsets[i]], context);
+			} else {
+				atts.set(this.valueOffsets[i], this.valueOffsets[i + 1]);
+				parser.startTag(name, atts, context);
+				context.push(name);
+			}
+		}
+	}
+
+	private void addTag(final String name, final boolean endTag) {
+		if (this.size == this.names.length) {
+			int newLength = this.size * 2;
+			this.names = Arrays.copyOf(this.names, newLength);
+			this.isEndTag = Arrays.copyOf(this.isEndTag, newLength);
+			this.valueOffsets = Arrays.copyOf(this.valueOffsets, newLength + 1);
+		}
+		this.names[this.size] = name;
+		this.isEndTag[this.size] = endTag;
+		this.size++;
+		this.valueOffsets[this.size] = this.numberOfValues;
+	}
+
+	private void ensureValueCapacity(final int additional) {
+		if (this.numberOfValues + additional > this.values.length) {
+			this.values = Arrays.copyOf(this.values, Math.max(this.numberOfValues + additional, this.values.length * 2));
+		}
+	}
+
+	/**
+	 * The attributes of one recorded start tag, a view on the recorded values.
+	 */
+	private static final class RecordedAttributes implements Attributes {
+		private static final String CDATA = "CDATA";
+
+		private final String[] values;
+		private int from = 0;
+		private int length = 0;
+
+		RecordedAttributes(final String[] values) {
+			this.values = values;
+		}
+
+		void set(final int from, final int to) {
+			this.from = from;
+			this.length = (to - from) / 2;
+		}
+
+		@Override
+		public int getLength() {
+			return this.length;
+		}
+
+		@Override
+		public String getURI(final int index) {
+			return index >= 0 && index < this.length ? "" : null;
+		}
+
+		@Override
+		public String getLocalName(final int index) {
+			return getQName(index);
+		}
+
+		@Override
+		public String getQName(final int index) {
+			return index >= 0 && index < this.length ? this.values[this.from + 2 * index] : null;
+		}
+
+		@Override
+		public String getType(final int index) {
+			return index >= 0 && index < this.length ? CDATA : null;
+		}
+
+		@Override
+		public String getValue(final int index) {
+			return index >= 0 && index < this.length ? this.values[this.from + 2 * index + 1] : null;
+		}
+
+		@Override
+		public int getIndex(final String uri, final String localName) {
+			return getIndex(localName);
+		}
+
+		@Override
+		public int getIndex(final String qName) {
+			for (int i = 0; i < this.length; i++) {
+				if (this.values[this.from + 2 * i].equals(qName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(final String uri, final String localName) {
+			return getType(getIndex(localName));
+		}
+
+		@Override
+		public String getType(final String qName) {
+			return getType(getIndex(qName));
+		}
+
+		@Override
+		public String getValue(final String uri, final String localName) {
+			return getValue(getIndex(localName));
+		}
+
+		@Override
+		public String getValue(final String qName) {
+			return getValue(getIndex(qName));
+		}
+	}
+
+}
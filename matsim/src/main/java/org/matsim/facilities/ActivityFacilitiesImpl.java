@@ -24,6 +24,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.utils.collections.PackedQuadTree;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.utils.objectattributes.ObjectAttributes;
 import org.matsim.utils.objectattributes.attributable.Attributes;
@@ -175,27 +176,10 @@ public class ActivityFacilitiesImpl implements ActivityFacilities, SearchableAct
 			return;
 		}
 		double startTime = System.currentTimeMillis();
-		double minx = Double.POSITIVE_INFINITY;
-		double miny = Double.POSITIVE_INFINITY;
-		double maxx = Double.NEGATIVE_INFINITY;
-		double maxy = Double.NEGATIVE_INFINITY;
-		for ( ActivityFacility n : this.facilities.values()) {
-			if (n.getCoord().getX() < minx) { minx = n.getCoord().getX(); }
-			if (n.getCoord().getY() < miny) { miny = n.getCoord().getY(); }
-			if (n.getCoord().getX() > maxx) { maxx = n.getCoord().getX(); }
-			if (n.getCoord().getY() > maxy) { maxy = n.getCoord().getY(); }
-		}
-		minx -= 1.0;
-		miny -= 1.0;
-		maxx += 1.0;
-		maxy += 1.0;
-		// yy the above four lines are problematic if the coordinate values are much smaller than one. kai, oct'15
-
-		log.info("building QuadTree for nodes: xrange(" + minx + "," + maxx + "); yrange(" + miny + "," + maxy + ")");
-		QuadTree<ActivityFacility> quadTree = new QuadTree<>(minx, miny, maxx, maxy);
-		for (ActivityFacility n : this.facilities.values()) {
-			quadTree.put(n.getCoord().getX(), n.getCoord().getY(), n);
-		}
+		// facilities added later are not added to the quadTree, so it need not be changeable
+		QuadTree<ActivityFacility> quadTree = PackedQuadTree.create(this.facilities.values(), ActivityFacility::getCoord);
+		log.info("built QuadTree for facilities: xrange(" + quadTree.getMinEasting() + "," + quadTree.getMaxEasting() + "); yrange("
+				+ quadTree.getMinNorthing() + "," + quadTree.getMaxNorthing() + ")");
 		/* assign the quadTree at the very end, when it is complete.
 		 * otherwise, other threads may already start working on an incomplete quadtree
 		 */
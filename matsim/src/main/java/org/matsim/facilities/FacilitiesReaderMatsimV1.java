@@ -43,7 +43,7 @@ import java.util.Stack;
  * @author mrieser
  * @author balmermi
  */
-final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
+class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
     private static Logger log = Logger.getLogger(FacilitiesReaderMatsimV1.class);
 
     private final static String FACILITIES = "facilities";
@@ -79,6 +79,22 @@ final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
         }
     }
 
+    /**
+     * Creates a reader that transforms all coordinates with the given transformation, independent of the
+     * coordinate reference system given in the file. Used by {@link ParallelFacilitiesReaderMatsimV1} for the
+     * readers of its threads, which only read facilities.
+     */
+    FacilitiesReaderMatsimV1(
+            final CoordinateTransformation coordinateTransformation,
+            final ActivityFacilities facilities) {
+        this(null, null, facilities);
+        this.coordinateTransformation = coordinateTransformation;
+    }
+
+    CoordinateTransformation getCoordinateTransformation() {
+        return this.coordinateTransformation;
+    }
+
     public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
         this.attributesReader.putAttributeConverter(clazz, converter);
     }
@@ -171,10 +187,18 @@ final class FacilitiesReaderMatsimV1 extends MatsimXmlParser {
             }
         }
 
-        this.facilities.addActivityFacility(this.currfacility);
+        addActivityFacility(this.currfacility);
         ((ActivityFacilityImpl) this.currfacility).setDesc(atts.getValue("desc"));
     }
 
+    /**
+     * Called for every facility that is read. {@link ParallelFacilitiesReaderMatsimV1} overrides this to collect the
+     * facilities its threads read.
+     */
+    void addActivityFacility(final ActivityFacility facility) {
+        this.facilities.addActivityFacility(facility);
+    }
+
     private void startActivity(final Attributes atts) {
         this.curractivity = this.factory.createActivityOption(atts.getValue("type"));
         this.currfacility.addActivityOption(this.curractivity);
@@ -67,6 +67,7 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
     private final ActivityFacilities facilities;
     private MatsimXmlParser delegate = null;
     private Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+    private int numberOfThreads = 1;
 
     /**
      * Creates a new reader for MATSim facilities files.
@@ -109,6 +110,14 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
         this.facilities = facilities;
     }
 
+    /**
+     * Sets the number of threads that create the facilities, while the calling thread parses the file. With the
+     * default of one thread, the file is read sequentially.
+     */
+    public void setNumberOfThreads(final int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
     public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
         this.attributeConverters.put(clazz, converter);
     }
@@ -132,8 +141,12 @@ public class MatsimFacilitiesReader extends MatsimXmlParser {
         super.setDoctype(doctype);
         // Currently the only facilities-type is v1
         if (FACILITIES_V1.equals(doctype)) {
-            this.delegate = new FacilitiesReaderMatsimV1(this.externalInputCRS, this.targetCRS, this.facilities);
-            ((FacilitiesReaderMatsimV1)this.delegate).putAttributeConverters(this.attributeConverters);
+            if (this.numberOfThreads > 1) {
+                this.delegate = new ParallelFacilitiesReaderMatsimV1(this.externalInputCRS, this.targetCRS, this.facilities, this.numberOfThreads, this.attributeConverters);
+            } else {
+                this.delegate = new FacilitiesReaderMatsimV1(this.externalInputCRS, this.targetCRS, this.facilities);
+                ((FacilitiesReaderMatsimV1)this.delegate).putAttributeConverters(this.attributeConverters);
+            }
             log.info("using facilities_v1-reader.");
         } else {
             throw new IllegalArgumentException("Doctype \"" + doctype + "\" not known.");
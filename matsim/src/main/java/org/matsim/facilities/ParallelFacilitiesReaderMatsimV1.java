@@ -0,0 +1,163 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelFacilitiesReaderMatsimV1.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.facilities;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.ParallelXmlElementProcessor;
+import org.matsim.core.utils.io.XmlElementBuffer;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * Parallel implementation of the {@link FacilitiesReaderMatsimV1}.
+ * <p></p>
+ * The main thread only parses the file. It records the tags of the facilities, including their activity options
+ * and attributes, and hands them over to the threads, where {@link FacilitiesReaderMatsimV1}s create the facilities.
+ * The main thread adds them to the facilities in the order of the file, and creates their ids, so the indices of
+ * the ids do not depend on the threads.
+ */
+final class ParallelFacilitiesReaderMatsimV1 extends MatsimXmlParser {
+
+    private final static String FACILITY = "facility";
+
+    private static final int FACILITIES_PER_BUFFER = 500;
+
+    private final FacilitiesReaderMatsimV1 reader;
+    private final ActivityFacilities facilities;
+    private final int numberOfThreads;
+    private final Map<Class<?>, AttributeConverter<?>> converters;
+
+    private ParallelXmlElementProcessor<List<ActivityFacility>> processor = null;
+    private XmlElementBuffer buffer = null;
+    private int facilitiesInBuffer = 0;
+    private boolean inFacility = false;
+
+    ParallelFacilitiesReaderMatsimV1(
+            final String externalInputCRS,
+            final String targetCRS,
+            final ActivityFacilities facilities,
+            final int numberOfThreads,
+            final Map<Class<?>, AttributeConverter<?>> converters) {
+        this.reader = new FacilitiesReaderMatsimV1(externalInputCRS, targetCRS, facilities);
+        this.reader.putAttributeConverters(converters);
+        this.facilities = facilities;
+        this.numberOfThreads = numberOfThreads;
+        this.converters = converters;
+    }
+
+    @Override
+    public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+        if (!this.inFacility && FACILITY.equals(name) && context.size() == 1) {
+            this.inFacility = true;
+            if (this.buffer == null) {
+                this.buffer = new XmlElementBuffer(context);
+            }
+            Id.create(atts.getValue("id"), ActivityFacility.class);
+        }
+        if (this.inFacility) {
+            this.buffer.startTag(name, atts);
+        } else {
+            awaitFacilities();
+            this.reader.startTag(name, atts, context);
+        }
+    }
+
+    @Override
+    public void endTag(final String name, final String content, final Stack<String> context) {
+        if (this.inFacility) {
+            this.buffer.endTag(name, content);
+            if (FACILITY.equals(name) && context.size() == 1) {
+                this.inFacility = false;
+                this.facilitiesInBuffer++;
+                if (this.facilitiesInBuffer == FACILITIES_PER_BUFFER) {
+                    submitBuffer();
+                }
+            }
+        } else {
+            awaitFacilities();
+            this.reader.endTag(name, content, context);
+        }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        if (this.processor != null) {
+            this.processor.finish();
+            this.processor = null;
+        }
+        this.reader.endDocument();
+    }
+
+    private void submitBuffer() {
+        if (this.processor == null) {
+            // the threads' readers are created now, after the attributes of the facilities were read
+            this.processor = new ParallelXmlElementProcessor<>(this.numberOfThreads, "ParallelFacilitiesReader",
+                    FacilitiesWorker::new, read -> read.forEach(this.facilities::addActivityFacility));
+        }
+        this.processor.submit(this.buffer);
+        this.buffer = null;
+        this.facilitiesInBuffer = 0;
+    }
+
+    /**
+     * Makes sure all facilities read so far are added before a tag is passed to the reader of the main thread.
+     */
+    private void awaitFacilities() {
+        if (this.buffer != null) {
+            submitBuffer();
+        }
+        if (this.processor != null) {
+            this.processor.awaitAll();
+        }
+    }
+
+    private final class FacilitiesWorker implements ParallelXmlElementProcessor.Worker<List<ActivityFacility>> {
+        private final List<ActivityFacility> read = new ArrayList<>();
+        private final FacilitiesReaderMatsimV1 workerReader;
+
+        FacilitiesWorker() {
+            this.workerReader = new FacilitiesReaderMatsimV1(ParallelFacilitiesReaderMatsimV1.this.reader.getCoordinateTransformation(),
+                    ParallelFacilitiesReaderMatsimV1.this.facilities) {
+                @Override
+                void addActivityFacility(final ActivityFacility facility) {
+                    FacilitiesWorker.this.read.add(facility);
+                }
+            };
+            this.workerReader.putAttributeConverters(ParallelFacilitiesReaderMatsimV1.this.converters);
+        }
+
+        @Override
+        public List<ActivityFacility> process(final XmlElementBuffer elements) {
+            elements.replay(this.workerReader);
+            List<ActivityFacility> result = new ArrayList<>(this.read);
+            this.read.clear();
+            return result;
+        }
+    }
+
+}
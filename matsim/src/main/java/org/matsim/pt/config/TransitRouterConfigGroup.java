@@ -27,15 +27,19 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 
 	public static final String GROUP_NAME = "transitRouter";
 
+	public enum RoutingAlgorithmType { Dijkstra, Raptor }
+
 	/*package*/ static final String SEARCH_RADIUS = "searchRadius";
 	/*package*/ static final String EXTENSION_RADIUS = "extensionRadius";
 	/*package*/ static final String MAX_BEELINE_WALK_CONNECTION_DISTANCE = "maxBeelineWalkConnectionDistance";
 	/*package*/ static final String ADDITIONAL_TRANSFER_TIME = "additionalTransferTime";
+	/*package*/ static final String ROUTING_ALGORITHM_TYPE = "routingAlgorithmType";
 
 	private double searchRadius = 1000.0;
 	private double extensionRadius = 200.0;
 	private double maxBeelineWalkConnectionDistance = 100.0;
 	private double additionalTransferTime = 0.0;
+	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.Dijkstra;
 
 	private double directWalkFactor = 1. ;
 	
@@ -56,6 +60,9 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		comments.put(MAX_BEELINE_WALK_CONNECTION_DISTANCE, "maximum beeline distance between stops that agents could transfer to by walking");
 		comments.put(ADDITIONAL_TRANSFER_TIME, "additional time the router allocates when a line switch happens. Can be interpreted as a 'safety' time that agents need to safely transfer from one line to another");
 		comments.put(DIRECT_WALK_FACTOR, DIRECT_WALK_FACTOR_CMT);
+		comments.put(ROUTING_ALGORITHM_TYPE, "The algorithm of the transit router, one of " + RoutingAlgorithmType.Dijkstra + " (a least cost path "
+				+ "tree on the transit router network) and " + RoutingAlgorithmType.Raptor + " (round based, on arrays shared by all threads). "
+				+ "Both minimize the same disutility.");
 		return comments;
 	}
 
@@ -118,6 +125,17 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		this.directWalkFactor = directWalkFactor;
 	}
 	
+	@StringGetter( ROUTING_ALGORITHM_TYPE )
+	public RoutingAlgorithmType getRoutingAlgorithmType() {
+		return this.routingAlgorithmType;
+	}
+
+	@StringSetter( ROUTING_ALGORITHM_TYPE )
+	public void setRoutingAlgorithmType(final RoutingAlgorithmType routingAlgorithmType) {
+		testForLocked() ;
+		this.routingAlgorithmType = routingAlgorithmType;
+	}
+
 	public boolean isCacheTree() {
 		return cacheTree;
 	}
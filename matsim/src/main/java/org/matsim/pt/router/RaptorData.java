@@ -0,0 +1,280 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.utils.collections.PackedQuadTree;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The transit schedule in the form the {@link RaptorTransitRouter} works on: the stops, the stops of every route, the
+ * sorted departures of every route and the transfers between stops, all in flat arrays indexed by numbers instead of
+ * maps indexed by ids. It is built once and never changed, so all routers of all threads share the same instance.
+ * <p></p>
+ * A <em>route stop</em> is a stop of a route, i.e. a node of the {@link TransitRouterNetwork}. The route stops of a
+ * route are numbered consecutively, from <code>routeStopsStart[route]</code> to
+ * <code>routeStopsStart[route + 1] - 1</code>. The transfers are the transfer links of the
+ * {@link TransitRouterNetwork}, but between stops instead of between route stops, and include the transfer from a
+ * stop to itself. Only their distances are stored; the travel times and costs are computed by the router from its
+ * {@link TransitRouterConfig}, as the {@link TransitRouterNetworkTravelTimeAndDisutility} does for the transfer links.
+ */
+public final class RaptorData {
+
+	private static final Logger log = Logger.getLogger(RaptorData.class);
+
+	final PreparedTransitSchedule preparedTransitSchedule;
+
+	// stops
+	final TransitStopFacility[] stops;
+	final Map<Id<TransitStopFacility>, Integer> stopIndices;
+	/** the route stops at a stop, i.e. its nodes in the {@link TransitRouterNetwork} */
+	final int[] stopRouteStopsStart;
+	final int[] stopRouteStops;
+	/** whether a route arrives at the stop, i.e. one of its route stops has in-links */
+	final boolean[] stopHasArrivals;
+	/** whether a route departs from the stop, i.e. one of its route stops has out-links */
+	final boolean[] stopHasDepartures;
+	final QuadTree<Integer> stopsQuadTree;
+
+	// transfers
+	final int[] transfersStart;
+	final int[] transferToStops;
+	final double[] transferDistances;
+
+	// routes
+	final TransitLine[] routeLines;
+	final TransitRoute[] routes;
+	final int[] routeLineIndices;
+	final int[] routeStopsStart;
+	/** the departure times at the first stop, sorted */
+	final double[][] routeDepartures;
+
+	// route stops
+	final int[] routeStopRoutes;
+	final int[] routeStopStops;
+	/** the arrival offset, or the departure offset if no arrival offset is given */
+	final double[] routeStopArrivalOffsets;
+	final double[] routeStopDepartureOffsets;
+	/** the beeline distance to the next stop of the route */
+	final double[] routeStopDistances;
+
+	private RaptorData(final TransitSchedule schedule, final TransitRouterConfig config, final List<TransitStopFacility> stops,
+			final Map<TransitStopFacility, List<Integer>> routeStopsByStop, final List<TransitLine> lines,
+			final List<TransitRoute> routes, final List<TransitRouteStop> routeStops, final int[] routeLineIndices,
+			final int[] routeStopsStart, final int[] routeStopRoutes) {
+		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
+		int nStops = stops.size();
+		this.stops = stops.toArray(new TransitStopFacility[nStops]);
+		this.stopIndices = new HashMap<>();
+		for (int s = 0; s < nStops; s++) {
+			this.stopIndices.put(this.stops[s].getId(), s);
+		}
+
+		int nRoutes = routes.size();
+		this.routeLines = new TransitLine[nRoutes];
+		this.routes = routes.toArray(new TransitRoute[nRoutes]);
+		this.routeLineIndices = routeLineIndices;
+		this.routeStopsStart = routeStopsStart;
+		this.routeDepartures = new double[nRoutes][];
+		for (int r = 0; r < nRoutes; r++) {
+			this.routeLines[r] = lines.get(routeLineIndices[r]);
+			Collection<Departure> departures = this.routes[r].getDepartures().values();
+			double[] times = new double[departures.size()];
+			int i = 0;
+			for (Departure departure : departures) {
+				times[i++] = departure.getDepartureTime();
+			}
+			Arrays.sort(times);
+			this.routeDepartures[r] = times;
+		}
+
+		int nRouteStops = routeStops.size();
+		this.routeStopRoutes = routeStopRoutes;
+		this.routeStopStops = new int[nRouteStops];
+		this.routeStopArrivalOffsets = new double[nRouteStops];
+		this.routeStopDepartureOffsets = new double[nRouteStops];
+		this.routeStopDistances = new double[nRouteStops];
+		this.stopHasArrivals = new boolean[nStops];
+		this.stopHasDepartures = new boolean[nStops];
+		for (int rs = 0; rs < nRouteStops; rs++) {
+			TransitRouteStop routeStop = routeStops.get(rs);
+			int stop = this.stopIndices.get(routeStop.getStopFacility().getId());
+			this.routeStopStops[rs] = stop;
+			this.routeStopArrivalOffsets[rs] = routeStop.getArrivalOffset() != Time.UNDEFINED_TIME ? routeStop.getArrivalOffset() : routeStop.getDepartureOffset();
+			this.routeStopDepartureOffsets[rs] = routeStop.getDepartureOffset();
+			int route = routeStopRoutes[rs];
+			boolean first = rs == routeStopsStart[route];
+			boolean last = rs == routeStopsStart[route + 1] - 1;
+			if (!last) {
+				this.routeStopDistances[rs] = CoordUtils.calcEuclideanDistance(routeStop.getStopFacility().getCoord(),
+						routeStops.get(rs + 1).getStopFacility().getCoord());
+				this.stopHasDepartures[stop] = true;
+			}
+			if (!first) {
+				this.stopHasArrivals[stop] = true;
+			}
+		}
+
+		this.stopRouteStopsStart = new int[nStops + 1];
+		this.stopRouteStops = new int[nRouteStops];
+		int i = 0;
+		for (int s = 0; s < nStops; s++) {
+			this.stopRouteStopsStart[s] = i;
+			for (int rs : routeStopsByStop.get(this.stops[s])) {
+				this.stopRouteStops[i++] = rs;
+			}
+		}
+		this.stopRouteStopsStart[nStops] = i;
+
+		this.stopsQuadTree = createQuadTree(this.stops);
+
+		this.transfersStart = new int[nStops + 1];
+		List<Integer> toStops = new ArrayList<>();
+		List<Double> distances = new ArrayList<>();
+		double maxDistance = config.getBeelineWalkConnectionDistance();
+		for (int s = 0; s < nStops; s++) {
+			this.transfersStart[s] = toStops.size();
+			if (!this.stopHasArrivals[s]) {
+				continue;
+			}
+			Coord coord = this.stops[s].getCoord();
+			for (int toStop : this.stopsQuadTree.getDisk(coord.getX(), coord.getY(), maxDistance)) {
+				if (this.stopHasDepartures[toStop]) {
+					toStops.add(toStop);
+					distances.add(CoordUtils.calcEuclideanDistance(this.stops[toStop].getCoord(), coord));
+				}
+			}
+		}
+		this.transfersStart[nStops] = toStops.size();
+		this.transferToStops = new int[toStops.size()];
+		this.transferDistances = new double[toStops.size()];
+		for (int t = 0; t < this.transferToStops.length; t++) {
+			this.transferToStops[t] = toStops.get(t);
+			this.transferDistances[t] = distances.get(t);
+		}
+		log.info("raptor data: " + nStops + " stops, " + nRoutes + " routes, " + nRouteStops + " route stops, "
+				+ this.transferToStops.length + " transfers");
+	}
+
+	private static QuadTree<Integer> createQuadTree(final TransitStopFacility[] stops) {
+		if (stops.length == 0) {
+			return null;
+		}
+		List<Integer> stopIndices = new ArrayList<>(stops.length);
+		for (int s = 0; s < stops.length; s++) {
+			stopIndices.add(s);
+		}
+		return PackedQuadTree.create(stopIndices, s -> stops[s].getCoord());
+	}
+
+	public static RaptorData create(final TransitSchedule schedule, final TransitRouterConfig config) {
+		log.info("start creating raptor data");
+		Map<TransitStopFacility, List<Integer>> stopRouteStops = new LinkedHashMap<>();
+		List<TransitLine> lines = new ArrayList<>();
+		List<TransitRoute> routes = new ArrayList<>();
+		List<Integer> routeLineIndices = new ArrayList<>();
+		List<Integer> routeStopsStart = new ArrayList<>();
+		List<TransitRouteStop> routeStops = new ArrayList<>();
+		List<Integer> routeStopRoutes = new ArrayList<>();
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			lines.add(line);
+			for (TransitRoute route : line.getRoutes().values()) {
+				int r = routes.size();
+				routes.add(route);
+				routeLineIndices.add(lines.size() - 1);
+				routeStopsStart.add(routeStops.size());
+				for (TransitRouteStop stop : route.getStops()) {
+					stopRouteStops.computeIfAbsent(stop.getStopFacility(), k -> new ArrayList<>()).add(routeStops.size());
+					routeStops.add(stop);
+					routeStopRoutes.add(r);
+				}
+			}
+		}
+		routeStopsStart.add(routeStops.size());
+		return new RaptorData(schedule, config, new ArrayList<>(stopRouteStops.keySet()), stopRouteStops, lines, routes, routeStops,
+				toArray(routeLineIndices), toArray(routeStopsStart), toArray(routeStopRoutes));
+	}
+
+	private static int[] toArray(final List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	int getNumberOfRouteStops(final int stop) {
+		return this.stopRouteStopsStart[stop + 1] - this.stopRouteStopsStart[stop];
+	}
+
+	/**
+	 * The same as {@link PreparedTransitSchedule#getNextDepartureTime(TransitRoute, TransitRouteStop, double)}, so
+	 * the schedule repeats every day as well.
+	 *
+	 * @return the next departure at the route stop, not earlier than <code>time</code>, or
+	 * {@link Double#POSITIVE_INFINITY} if the route has no departures
+	 */
+	double getNextDepartureTime(final int routeStop, final double time) {
+		double[] departures = this.routeDepartures[this.routeStopRoutes[routeStop]];
+		if (departures.length == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double departureOffset = this.routeStopDepartureOffsets[routeStop];
+		double earliestDepartureTimeAtTerminus = time - departureOffset;
+		if (earliestDepartureTimeAtTerminus >= TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			earliestDepartureTimeAtTerminus = earliestDepartureTimeAtTerminus % TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		if (earliestDepartureTimeAtTerminus < 0) {
+			earliestDepartureTimeAtTerminus += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		int pos = Arrays.binarySearch(departures, earliestDepartureTimeAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		if (pos >= departures.length) {
+			pos = 0;
+		}
+		double bestDepartureTime = departures[pos] + departureOffset;
+		while (bestDepartureTime < time) {
+			bestDepartureTime += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		return bestDepartureTime;
+	}
+
+}
@@ -0,0 +1,569 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * A {@link TransitRouter} based on RAPTOR (round-based public transit routing, Delling, Pajor and Werneck, 2012).
+ * Instead of building a least cost path tree over the {@link TransitRouterNetwork} for every request, it scans the
+ * routes of the schedule round by round: every round, the routes are scanned from the stops whose boarding cost
+ * improved in the round before, and then the transfers from the stops whose arrival cost improved. It minimizes the
+ * same generalized cost as {@link TransitRouterImpl} with {@link TransitRouterNetworkTravelTimeAndDisutility},
+ * computed with the same formulas, and so finds the same routes, except that ties between routes of equal cost may
+ * be broken differently. Person dependent {@link TransitTravelDisutility}s are not supported.
+ * <p></p>
+ * The schedule is held in a {@link RaptorData}, which can be shared by any number of routers. The router itself has
+ * no state besides that, so one instance can be used by several threads at the same time; the state of a search is
+ * kept in arrays over the stops and route stops that are created per request.
+ * <p></p>
+ * Besides the requests of the {@link TransitRouter} interface, it answers requests for a departure time window, see
+ * {@link #calcRoutes(Facility, Facility, double, double, Person)}, and requests with given access and egress stops,
+ * e.g. reached by bike or car, see {@link #calcRoute(List, List, double, Person)}.
+ */
+public class RaptorTransitRouter extends AbstractTransitRouter implements TransitRouter {
+
+	/**
+	 * A stop where a request starts or ends, together with the cost and time to get there from the start or from
+	 * there to the destination, and the legs to do so.
+	 */
+	public static final class InitialStop {
+		private final TransitStopFacility stop;
+		private final double cost;
+		private final double travelTime;
+		private final List<Leg> legs;
+
+		public InitialStop(final TransitStopFacility stop, final double cost, final double travelTime, final List<Leg> legs) {
+			this.stop = stop;
+			this.cost = cost;
+			this.travelTime = travelTime;
+			this.legs = legs;
+		}
+
+		public TransitStopFacility getStop() {
+			return this.stop;
+		}
+
+		public double getCost() {
+			return this.cost;
+		}
+
+		public double getTravelTime() {
+			return this.travelTime;
+		}
+
+		public List<Leg> getLegs() {
+			return this.legs;
+		}
+	}
+
+	private static final int ACCESS = 0;
+	private static final int TRANSFER = 1;
+	private static final int RIDE = 2;
+
+	/**
+	 * The cost and time of reaching a stop, with the label it was reached from. Immutable, so the chains of labels
+	 * stay consistent when the labels of the stops are replaced by better ones.
+	 */
+	private static final class Label {
+		final int type;
+		final double cost;
+		final double time;
+		final int stop;
+		/** for {@link #RIDE}: the route stop where the vehicle is left; for {@link #TRANSFER}: the transfer */
+		final int index;
+		final Label previous;
+
+		Label(final int type, final double cost, final double time, final int stop, final int index, final Label previous) {
+			this.type = type;
+			this.cost = cost;
+			this.time = time;
+			this.stop = stop;
+			this.index = index;
+			this.previous = previous;
+		}
+	}
+
+	/**
+	 * The state of one search.  <code>boardingLabels</code> are the labels from which a vehicle may be boarded, i.e.
+	 * reached by access or transfer; <code>arrivalLabels</code> are the labels of leaving a vehicle. As the best
+	 * boarding label may be the transfer from a vehicle to the same stop, which does not allow to board the same line
+	 * again, <code>otherBoardingLabels</code> keeps the best boarding label that is not such a transfer.
+	 * <p></p>
+	 * As the costs only grow along a route, labels that cost more than the best route to an egress stop found so far,
+	 * <code>maxCost</code>, are not kept, so the search ends once there are no cheaper labels left, as a least cost
+	 * path search ends once the destination is reached.
+	 */
+	private static final class Search {
+		final Label[] boardingLabels;
+		final Label[] otherBoardingLabels;
+		final Label[] arrivalLabels;
+		final double[] routeStopCosts;
+		final int[] firstRouteStops;
+		final BitSet markedStops;
+		final BitSet markedRoutes;
+		final BitSet improvedArrivals;
+		final BitSet improvedTransfers;
+		final double[] egressCosts;
+		double maxCost = Double.POSITIVE_INFINITY;
+
+		Search(final RaptorData data) {
+			this.boardingLabels = new Label[data.stops.length];
+			this.otherBoardingLabels = new Label[data.stops.length];
+			this.arrivalLabels = new Label[data.stops.length];
+			this.routeStopCosts = new double[data.routeStopStops.length];
+			Arrays.fill(this.routeStopCosts, Double.POSITIVE_INFINITY);
+			this.firstRouteStops = new int[data.routes.length];
+			Arrays.fill(this.firstRouteStops, Integer.MAX_VALUE);
+			this.markedStops = new BitSet(data.stops.length);
+			this.markedRoutes = new BitSet(data.routes.length);
+			this.improvedArrivals = new BitSet(data.stops.length);
+			this.improvedTransfers = new BitSet(data.stops.length);
+			this.egressCosts = new double[data.stops.length];
+			Arrays.fill(this.egressCosts, Double.POSITIVE_INFINITY);
+		}
+
+		void updateMaxCost(final Label label) {
+			this.maxCost = Math.min(this.maxCost, label.cost + this.egressCosts[label.stop]);
+		}
+	}
+
+	private final RaptorData data;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorData data) {
+		super(config, new TransitRouterNetworkTravelTimeAndDisutility(config, data.preparedTransitSchedule));
+		this.data = data;
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility fromFacility, final Facility toFacility, final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		TransitPassengerRoute route = calcPassengerRoute(fromCoord, toCoord, departureTime, person);
+		if (route == null) {
+			return createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+		double directWalkCost = getWalkDisutility(person, fromCoord, toCoord);
+		if (directWalkCost * getConfig().getDirectWalkFactor() < route.getTravelCost()) {
+			return createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+		return convertPassengerRouteToLegList(departureTime, route, fromCoord, toCoord, person);
+	}
+
+	/**
+	 * @return the least cost route between the stops around the coordinates, or <code>null</code> if there is none
+	 */
+	/*package*/ TransitPassengerRoute calcPassengerRoute(final Coord fromCoord, final Coord toCoord, final double departureTime, final Person person) {
+		List<InitialStop> accessStops = locateInitialStops(person, fromCoord);
+		List<InitialStop> egressStops = locateInitialStops(person, toCoord);
+
+		Search search = search(accessStops, egressStops, departureTime, true);
+		Label best = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (InitialStop egressStop : egressStops) {
+			Integer stop = this.data.stopIndices.get(egressStop.stop.getId());
+			if (stop == null) {
+				continue;
+			}
+			Label label = search.arrivalLabels[stop];
+			Label boardingLabel = search.boardingLabels[stop];
+			if (label == null || (boardingLabel != null && boardingLabel.cost < label.cost)) {
+				// the route ends with a transfer, or there is no route but the walk to the stop and from there
+				label = boardingLabel;
+			}
+			if (label != null && label.cost + egressStop.cost < bestCost) {
+				bestCost = label.cost + egressStop.cost;
+				best = label;
+			}
+		}
+		return best == null ? null : createPassengerRoute(best, bestCost);
+	}
+
+	/**
+	 * Finds the routes of a departure time window, i.e. a profile of the connections between two facilities: for
+	 * every departure in the window, the route of {@link #calcRoute(Facility, Facility, double, Person)}, if it
+	 * arrives earlier than the routes of all later departures. Routes without public transport are left out.
+	 * <p></p>
+	 * This is a naive profile query: it runs one full search per departure time that reaches a vehicle at one of the
+	 * access stops just in time. It is not a range RAPTOR (rRAPTOR), which keeps the labels of the later departures as
+	 * bounds for the earlier ones; that needs the arrival time as the criterion of the search, whereas the searches
+	 * here minimize the generalized cost, which depends on the departure time.
+	 *
+	 * @return the routes, ordered by departure time, with the departure times set on the legs
+	 */
+	public List<List<Leg>> calcRoutes(final Facility fromFacility, final Facility toFacility, final double earliestDepartureTime,
+			final double latestDepartureTime, final Person person) {
+		// the departures from the start that reach a vehicle just in time
+		TreeSet<Double> departureTimes = new TreeSet<>();
+		for (InitialStop accessStop : locateInitialStops(person, fromFacility.getCoord())) {
+			Integer stop = this.data.stopIndices.get(accessStop.stop.getId());
+			if (stop == null) {
+				continue;
+			}
+			for (int i = this.data.stopRouteStopsStart[stop]; i < this.data.stopRouteStopsStart[stop + 1]; i++) {
+				int routeStop = this.data.stopRouteStops[i];
+				for (double departure : this.data.routeDepartures[this.data.routeStopRoutes[routeStop]]) {
+					double departureTime = departure + this.data.routeStopDepartureOffsets[routeStop] - accessStop.travelTime;
+					if (departureTime >= earliestDepartureTime && departureTime <= latestDepartureTime) {
+						departureTimes.add(departureTime);
+					}
+				}
+			}
+		}
+		List<List<Leg>> routes = new ArrayList<>();
+		double earliestArrivalTime = Double.POSITIVE_INFINITY;
+		for (double departureTime : departureTimes.descendingSet()) {
+			List<Leg> legs = calcRoute(fromFacility, toFacility, departureTime, person);
+			boolean hasPtLeg = false;
+			double arrivalTime = departureTime;
+			for (Leg leg : legs) {
+				hasPtLeg |= TransportMode.pt.equals(leg.getMode());
+				leg.setDepartureTime(arrivalTime);
+				arrivalTime += leg.getTravelTime();
+			}
+			if (hasPtLeg && arrivalTime < earliestArrivalTime) {
+				earliestArrivalTime = arrivalTime;
+				routes.add(legs);
+			}
+		}
+		Collections.reverse(routes);
+		return routes;
+	}
+
+	/**
+	 * Finds the route between the given access and egress stops, e.g. for intermodal access and egress. The costs
+	 * of the initial stops are added to the cost of the public transport part, so they should be computed with the
+	 * same marginal utilities as the {@link TransitRouterConfig}.
+	 *
+	 * @return the legs of the access stop, the public transport legs and the legs of the egress stop, or
+	 * <code>null</code> if there is no connection
+	 */
+	public List<Leg> calcRoute(final List<InitialStop> accessStops, final List<InitialStop> egressStops, final double departureTime,
+			final Person person) {
+		Search search = search(accessStops, egressStops, departureTime, false);
+		Label best = null;
+		InitialStop bestEgressStop = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (InitialStop egressStop : egressStops) {
+			Integer stop = this.data.stopIndices.get(egressStop.stop.getId());
+			Label label = stop == null ? null : search.arrivalLabels[stop];
+			if (label != null && label.cost + egressStop.cost < bestCost) {
+				bestCost = label.cost + egressStop.cost;
+				best = label;
+				bestEgressStop = egressStop;
+			}
+		}
+		if (best == null) {
+			return null;
+		}
+		TransitPassengerRoute route = createPassengerRoute(best, bestCost);
+		InitialStop accessStop = null;
+		for (InitialStop initialStop : accessStops) {
+			if (initialStop.stop == route.getRoute().get(0).getFromStop() && (accessStop == null || initialStop.cost < accessStop.cost)) {
+				accessStop = initialStop;
+			}
+		}
+		Coord firstStopCoord = route.getRoute().get(0).getFromStop().getCoord();
+		Coord lastStopCoord = route.getRoute().get(route.getRoute().size() - 1).getToStop().getCoord();
+		List<Leg> ptLegs = convertPassengerRouteToLegList(departureTime, route, firstStopCoord, lastStopCoord, person);
+		List<Leg> legs = new ArrayList<>(accessStop.legs);
+		// without the walks to the first and from the last stop, which are of length 0 here
+		legs.addAll(ptLegs.subList(1, ptLegs.size() - 1));
+		legs.addAll(bestEgressStop.legs);
+		return legs;
+	}
+
+	/**
+	 * Finds the stops around the coordinate the same way as {@link TransitRouterImpl}.
+	 */
+	private List<InitialStop> locateInitialStops(final Person person, final Coord coord) {
+		if (this.data.stopsQuadTree == null) {
+			return Collections.emptyList();
+		}
+		Collection<Integer> stops = this.data.stopsQuadTree.getDisk(coord.getX(), coord.getY(), getConfig().getSearchRadius());
+		int numberOfRouteStops = 0;
+		for (int stop : stops) {
+			numberOfRouteStops += this.data.getNumberOfRouteStops(stop);
+		}
+		if (numberOfRouteStops < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			int nearestStop = this.data.stopsQuadTree.getClosest(coord.getX(), coord.getY());
+			double distance = CoordUtils.calcEuclideanDistance(coord, this.data.stops[nearestStop].getCoord());
+			stops = this.data.stopsQuadTree.getDisk(coord.getX(), coord.getY(), distance + getConfig().getExtensionRadius());
+		}
+		List<InitialStop> initialStops = new ArrayList<>(stops.size());
+		for (int stop : stops) {
+			Coord stopCoord = this.data.stops[stop].getCoord();
+			initialStops.add(new InitialStop(this.data.stops[stop], getWalkDisutility(person, coord, stopCoord),
+					getWalkTime(person, coord, stopCoord), null));
+		}
+		return initialStops;
+	}
+
+	private Search search(final List<InitialStop> accessStops, final List<InitialStop> egressStops, final double departureTime,
+			final boolean transfersFromAccessStops) {
+		Search search = new Search(this.data);
+		for (InitialStop egressStop : egressStops) {
+			Integer stop = this.data.stopIndices.get(egressStop.stop.getId());
+			if (stop != null) {
+				search.egressCosts[stop] = Math.min(search.egressCosts[stop], egressStop.cost);
+			}
+		}
+		for (InitialStop accessStop : accessStops) {
+			Integer stop = this.data.stopIndices.get(accessStop.stop.getId());
+			if (stop != null) {
+				improveBoardingLabel(search, new Label(ACCESS, accessStop.cost, accessStop.travelTime + departureTime, stop, -1, null));
+			}
+		}
+		if (transfersFromAccessStops) {
+			// routes may start with a walk to a stop farther away, as in the TransitRouterNetwork
+			search.improvedTransfers.or(search.markedStops);
+			transferOnwards(search);
+		}
+		while (!search.markedStops.isEmpty()) {
+			for (int stop = search.markedStops.nextSetBit(0); stop >= 0; stop = search.markedStops.nextSetBit(stop + 1)) {
+				for (int i = this.data.stopRouteStopsStart[stop]; i < this.data.stopRouteStopsStart[stop + 1]; i++) {
+					int routeStop = this.data.stopRouteStops[i];
+					int route = this.data.routeStopRoutes[routeStop];
+					search.firstRouteStops[route] = Math.min(search.firstRouteStops[route], routeStop);
+					search.markedRoutes.set(route);
+				}
+			}
+			search.markedStops.clear();
+			for (int route = search.markedRoutes.nextSetBit(0); route >= 0; route = search.markedRoutes.nextSetBit(route + 1)) {
+				scanRoute(search, route, search.firstRouteStops[route]);
+				search.firstRouteStops[route] = Integer.MAX_VALUE;
+			}
+			search.markedRoutes.clear();
+			for (int stop = search.improvedArrivals.nextSetBit(0); stop >= 0; stop = search.improvedArrivals.nextSetBit(stop + 1)) {
+				Label arrivalLabel = search.arrivalLabels[stop];
+				for (int t = this.data.transfersStart[stop]; t < this.data.transfersStart[stop + 1]; t++) {
+					transfer(search, arrivalLabel, t);
+				}
+			}
+			search.improvedArrivals.clear();
+			transferOnwards(search);
+		}
+		return search;
+	}
+
+	/**
+	 * Continues the transfers from the stops reached by a transfer, until no stop improves any more. In the
+	 * {@link TransitRouterNetwork}, a transfer link may follow another one, so a route may walk over several stops.
+	 */
+	private void transferOnwards(final Search search) {
+		for (int stop = search.improvedTransfers.nextSetBit(0); stop >= 0; stop = search.improvedTransfers.nextSetBit(0)) {
+			search.improvedTransfers.clear(stop);
+			Label label = search.boardingLabels[stop];
+			for (int t = this.data.transfersStart[stop]; t < this.data.transfersStart[stop + 1]; t++) {
+				if (this.data.transferToStops[t] != stop) {
+					transfer(search, label, t);
+				}
+			}
+		}
+	}
+
+	private void transfer(final Search search, final Label label, final int transfer) {
+		Label transferLabel = new Label(TRANSFER, label.cost + getTransferCost(transfer), label.time + getTransferTime(transfer),
+				this.data.transferToStops[transfer], transfer, label);
+		if (improveBoardingLabel(search, transferLabel)) {
+			search.improvedTransfers.set(transferLabel.stop);
+		}
+	}
+
+	private static boolean improveBoardingLabel(final Search search, final Label label) {
+		if (label.cost >= search.maxCost) {
+			return false;
+		}
+		if (!isTransferAtStop(label)) {
+			Label other = search.otherBoardingLabels[label.stop];
+			if (other == null || label.cost < other.cost) {
+				search.otherBoardingLabels[label.stop] = label;
+				search.markedStops.set(label.stop);
+			}
+		}
+		Label current = search.boardingLabels[label.stop];
+		if (current == null || label.cost < current.cost) {
+			search.boardingLabels[label.stop] = label;
+			search.markedStops.set(label.stop);
+			search.updateMaxCost(label);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The same as the travel time of a transfer link in {@link TransitRouterNetworkTravelTimeAndDisutility}.
+	 */
+	private double getTransferTime(final int transfer) {
+		return this.data.transferDistances[transfer] / getConfig().getBeelineWalkSpeed() + getConfig().getAdditionalTransferTime();
+	}
+
+	/**
+	 * The same as {@link TransitRouterNetworkTravelTimeAndDisutility#defaultTransferCost}.
+	 */
+	private double getTransferCost(final int transfer) {
+		TransitRouterConfig config = getConfig();
+		double waitTime = config.getAdditionalTransferTime();
+		double walkTime = getTransferTime(transfer) - waitTime;
+		return - walkTime * config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+				- this.data.transferDistances[transfer] * config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+				- waitTime * config.getMarginalUtilityOfWaitingPt_utl_s()
+				- config.getUtilityOfLineSwitch_utl();
+	}
+
+	/**
+	 * Follows the route from the given route stop on, like a least cost path search follows the chain of its links in
+	 * the {@link TransitRouterNetwork}: the label of a route stop is the better one of riding on from the route stop
+	 * before and boarding at its stop.
+	 */
+	private void scanRoute(final Search search, final int route, final int firstRouteStop) {
+		int lastRouteStop = this.data.routeStopsStart[route + 1] - 1;
+		int line = this.data.routeLineIndices[route];
+		Label label = null;
+		for (int routeStop = firstRouteStop; routeStop <= lastRouteStop; routeStop++) {
+			int stop = this.data.routeStopStops[routeStop];
+			if (label != null) {
+				label = ride(label, routeStop - 1);
+				if (label != null && label.cost < search.routeStopCosts[routeStop] && label.cost < search.maxCost) {
+					search.routeStopCosts[routeStop] = label.cost;
+					Label arrivalLabel = search.arrivalLabels[stop];
+					if (arrivalLabel == null || label.cost < arrivalLabel.cost) {
+						search.arrivalLabels[stop] = label;
+						search.improvedArrivals.set(stop);
+						search.updateMaxCost(label);
+					}
+				} else {
+					// not better than before, or too expensive, so everything that follows is known already
+					label = null;
+				}
+			}
+			if (routeStop < lastRouteStop) {
+				Label boardingLabel = search.boardingLabels[stop];
+				if (boardingLabel != null && !isBoardingAllowed(boardingLabel, line)) {
+					boardingLabel = search.otherBoardingLabels[stop];
+				}
+				if (boardingLabel != null && boardingLabel.cost < search.routeStopCosts[routeStop]) {
+					search.routeStopCosts[routeStop] = boardingLabel.cost;
+					label = boardingLabel;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The same as the travel time and disutility of a link of a route in
+	 * {@link TransitRouterNetworkTravelTimeAndDisutility}.
+	 *
+	 * @return the label at the next route stop, or <code>null</code> if the route has no departures
+	 */
+	private Label ride(final Label label, final int fromRouteStop) {
+		int toRouteStop = fromRouteStop + 1;
+		double time = label.time;
+		double departureTime = this.data.getNextDepartureTime(fromRouteStop, time);
+		if (departureTime == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+		double departureOffset = this.data.routeStopDepartureOffsets[fromRouteStop];
+		double travelTime = (departureTime - time) + (this.data.routeStopArrivalOffsets[toRouteStop] - departureOffset);
+		if (travelTime < 0) {
+			travelTime += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		double vehicleArrivalTime = departureTime - (departureOffset - this.data.routeStopArrivalOffsets[fromRouteStop]);
+		double offVehicleWaitTime = time < vehicleArrivalTime ? vehicleArrivalTime - time : 0;
+		double inVehicleTime = travelTime - offVehicleWaitTime;
+		TransitRouterConfig config = getConfig();
+		double cost = - inVehicleTime * config.getMarginalUtilityOfTravelTimePt_utl_s()
+				- offVehicleWaitTime * config.getMarginalUtilityOfWaitingPt_utl_s()
+				- this.data.routeStopDistances[fromRouteStop] * config.getMarginalUtilityOfTravelDistancePt_utl_m();
+		return new Label(RIDE, label.cost + cost, time + travelTime, this.data.routeStopStops[toRouteStop], toRouteStop, label);
+	}
+
+	/**
+	 * As in the {@link TransitRouterNetwork}, there is no transfer from a line to the same line at the same stop.
+	 */
+	private boolean isBoardingAllowed(final Label boardingLabel, final int line) {
+		if (!isTransferAtStop(boardingLabel)) {
+			return true;
+		}
+		return this.data.routeLineIndices[this.data.routeStopRoutes[boardingLabel.previous.index]] != line;
+	}
+
+	/**
+	 * @return whether the label is the transfer from a vehicle to the stop where it is left
+	 */
+	private static boolean isTransferAtStop(final Label label) {
+		return label.type == TRANSFER && label.previous.type == RIDE && label.previous.stop == label.stop;
+	}
+
+	/**
+	 * Creates the route segments the same way as {@link TransitLeastCostPathTree#getTransitPassengerRoute(java.util.Map)},
+	 * including the cost of the transfers being counted twice.
+	 *
+	 * @return the route, or <code>null</code> if it does not contain public transport
+	 */
+	private TransitPassengerRoute createPassengerRoute(final Label label, final double cost) {
+		List<RouteSegment> segments = new ArrayList<>();
+		double transferCost = 0.;
+		boolean hasRide = false;
+		Label current = label;
+		while (current.type != ACCESS) {
+			if (current.type == TRANSFER) {
+				// consecutive transfers are one walk
+				Label lastTransfer = current;
+				while (current.type == TRANSFER) {
+					transferCost += getTransferCost(current.index);
+					current = current.previous;
+				}
+				segments.add(0, new RouteSegment(this.data.stops[current.stop], this.data.stops[lastTransfer.stop],
+						lastTransfer.time - current.time, null, null));
+			} else {
+				Label alighting = current;
+				while (current.type == RIDE) {
+					current = current.previous;
+				}
+				int route = this.data.routeStopRoutes[alighting.index];
+				segments.add(0, new RouteSegment(this.data.stops[current.stop], this.data.stops[alighting.stop],
+						alighting.time - current.time, this.data.routeLines[route].getId(), this.data.routes[route].getId()));
+				hasRide = true;
+			}
+		}
+		if (!hasRide) {
+			return null;
+		}
+		return new TransitPassengerRoute(cost + transferCost, segments);
+	}
+
+}
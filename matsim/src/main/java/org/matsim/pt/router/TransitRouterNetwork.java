@@ -35,6 +35,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.utils.collections.IdentifiableArrayMap;
+import org.matsim.core.utils.collections.PackedQuadTree;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.geometry.CoordUtils;
@@ -326,33 +327,8 @@ public final class TransitRouterNetwork implements Network {
 	}
 
 	public void finishInit() {
-		double minX = Double.POSITIVE_INFINITY;
-		double minY = Double.POSITIVE_INFINITY;
-		double maxX = Double.NEGATIVE_INFINITY;
-		double maxY = Double.NEGATIVE_INFINITY;
-
-		for (TransitRouterNetworkNode node : this.nodes.values()) {
-			Coord c = node.stop.getStopFacility().getCoord();
-			if (c.getX() < minX) {
-				minX = c.getX();
-			}
-			if (c.getY() < minY) {
-				minY = c.getY();
-			}
-			if (c.getX() > maxX) {
-				maxX = c.getX();
-			}
-			if (c.getY() > maxY) {
-				maxY = c.getY();
-			}
-		}
-
-		QuadTree<TransitRouterNetworkNode> quadTree = new QuadTree<TransitRouterNetworkNode>(minX, minY, maxX, maxY);
-		for (TransitRouterNetworkNode node : this.nodes.values()) {
-			Coord c = node.stop.getStopFacility().getCoord();
-			quadTree.put(c.getX(), c.getY(), node);
-		}
-		this.qtNodes = quadTree;
+		// the nodes do not change after this, so the index of the stops need not be changeable
+		this.qtNodes = PackedQuadTree.create(this.nodes.values(), node -> node.stop.getStopFacility().getCoord());
 	}
 
 	public Collection<TransitRouterNetworkNode> getNearestNodes(final Coord coord, final double distance) {
@@ -67,7 +67,42 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		int before = Id.getNumberOfIds(TFacility.class);
+		Id<TFacility> facId1 = Id.create("index-1", TFacility.class);
+		Id<TFacility> facId2 = Id.create("index-2", TFacility.class);
+		Id<TFacility> facId1again = Id.create("index-1", TFacility.class);
+		
+		Assert.assertEquals(before, facId1.index());
+		Assert.assertEquals(before + 1, facId2.index());
+		Assert.assertEquals(facId1.index(), facId1again.index());
+		Assert.assertEquals(before + 2, Id.getNumberOfIds(TFacility.class));
+		
+		Assert.assertSame(facId1, Id.get(facId1.index(), TFacility.class));
+		Assert.assertSame(facId2, Id.get(facId2.index(), TFacility.class));
+		
+		try {
+			Id.get(before + 2, TFacility.class);
+			Assert.fail("expected exception, got none");
+		} catch (IndexOutOfBoundsException e) {
+			// expected exception
+		}
+	}
+	
+	@Test
+	public void testEquals_identity() {
+		Id<TLink> linkId1 = Id.create("1", TLink.class);
+		Id<TLink> linkId1again = Id.create("1", TLink.class);
+		Id<TNode> nodeId1 = Id.create("1", TNode.class);
+		
+		Assert.assertTrue(linkId1.equals(linkId1again));
+		Assert.assertFalse(linkId1.equals(nodeId1));
+		Assert.assertFalse(linkId1.equals("1"));
+	}
+	
 	private static class TLink {}
 	private static class TNode {}
+	private static class TFacility {}
 	
 }
@@ -22,7 +22,12 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.handler.EventHandler;
 
@@ -63,6 +68,43 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_DifferentHandlersForSameEvent() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		LinkCountingHandler handler1 = new LinkCountingHandler();
+		LinkEnterCountingHandler handler2 = new LinkEnterCountingHandler();
+		manager.addHandler(handler1);
+		manager.addHandler(handler2);
+		manager.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId("v1"), Id.createLinkId("l1")));
+		manager.processEvent(new LinkLeaveEvent(2.0, Id.createVehicleId("v1"), Id.createLinkId("l1")));
+		manager.processEvent(new LinkEnterEvent(3.0, Id.createVehicleId("v1"), Id.createLinkId("l2")));
+		Assert.assertEquals(2, handler1.enterCounter);
+		Assert.assertEquals(1, handler1.leaveCounter);
+		Assert.assertEquals(2, handler2.counter);
+
+		manager.removeHandler(handler1);
+		manager.processEvent(new LinkEnterEvent(4.0, Id.createVehicleId("v1"), Id.createLinkId("l3")));
+		Assert.assertEquals(2, handler1.enterCounter);
+		Assert.assertEquals(3, handler2.counter);
+	}
+
+	@Test
+	public void testProcessEvent_ExceptionInCoreEventHandler() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(final LinkEnterEvent event) {
+				throw new IllegalStateException("expected");
+			}
+		});
+		try {
+			manager.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId("v1"), Id.createLinkId("l1")));
+			Assert.fail("expected exception, but got none.");
+		} catch (final IllegalStateException e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -102,4 +144,25 @@ public class EventsManagerImplTest {
 			System.out.println(i);
 		}
 	}
+
+	/*package*/ static class LinkCountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		/*package*/ int enterCounter = 0;
+		/*package*/ int leaveCounter = 0;
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			this.enterCounter++;
+		}
+		@Override
+		public void handleEvent(final LinkLeaveEvent event) {
+			this.leaveCounter++;
+		}
+	}
+
+	/*package*/ static class LinkEnterCountingHandler implements LinkEnterEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			this.counter++;
+		}
+	}
 }
@@ -0,0 +1,148 @@
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferParallelEventsManagerImplTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(2);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testManyEventsFromSeveralThreads() throws InterruptedException {
+		// a tiny buffer, so the producers have to wait for the processing threads
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(3, true, 16);
+		CountingHandler[] handlers = new CountingHandler[5];
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i] = new CountingHandler();
+			events.addHandler(handlers[i]);
+		}
+
+		final int numOfProducers = 4;
+		final int eventsPerStep = 250;
+		final int numOfSteps = 20;
+		for (int iteration = 0; iteration < 2; iteration++) {
+			events.resetHandlers(iteration);
+			events.initProcessing();
+			for (int step = 0; step < numOfSteps; step++) {
+				final double time = step;
+				List<Thread> producers = new ArrayList<>();
+				for (int p = 0; p < numOfProducers; p++) {
+					Thread producer = new Thread(() -> {
+						for (int i = 0; i < eventsPerStep; i++) {
+							events.processEvent(new LinkEnterEvent(time, Id.createVehicleId(i), Id.createLinkId(0)));
+						}
+					});
+					producers.add(producer);
+					producer.start();
+				}
+				for (Thread producer : producers) {
+					producer.join();
+				}
+				events.processEvent(new LinkLeaveEvent(time, Id.createVehicleId(0), Id.createLinkId(0)));
+				events.afterSimStep(time);
+
+				// all events of the time step must have been handled
+				for (CountingHandler handler : handlers) {
+					Assert.assertEquals((step + 1) * numOfProducers * eventsPerStep, handler.enterCount);
+					Assert.assertEquals(step + 1, handler.leaveCount);
+				}
+			}
+			events.finishProcessing();
+		}
+	}
+
+	@Test
+	public void testExceptionInEventHandler() {
+		RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(2);
+		events.addHandler(new CountingHandler());
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				throw new IllegalStateException("expected");
+			}
+		});
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		/*package*/ int enterCount = 0;
+		/*package*/ int leaveCount = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.enterCount++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.leaveCount++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.enterCount = 0;
+			this.leaveCount = 0;
+		}
+	}
+
+}
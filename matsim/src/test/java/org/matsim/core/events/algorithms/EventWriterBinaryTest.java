@@ -0,0 +1,135 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsConverterXML;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead_manyBlocks() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		EventsCollector written = new EventsCollector();
+		for (int i = 0; i < 50000; i++) {
+			Event event;
+			if (i % 3 == 0) {
+				event = new LinkLeaveEvent(i / 10, Id.create("vehicle\"" + (i % 100), Vehicle.class), Id.create("link<" + (i % 7), Link.class));
+			} else {
+				GenericEvent genericEvent = new GenericEvent("test" + (i % 2), i * 0.1);
+				// values that are always different are not kept in the dictionary
+				genericEvent.getAttributes().put("x", Double.toString(i * 1.5));
+				genericEvent.getAttributes().put("mode", i % 2 == 0 ? "car" : "fahrradäöü");
+				genericEvent.getAttributes().put("empty", "");
+				event = genericEvent;
+			}
+			written.handleEvent(event);
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new EventsReaderBinary(events, 3).readFile(filename);
+
+		assertSameEvents(written.getEvents(), collector.getEvents());
+	}
+
+	@Test
+	public void testNullAttribute() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+
+		GenericEvent event = new GenericEvent("TEST", 3600.0);
+		event.getAttributes().put("dummy", null);
+		writer.handleEvent(event);
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
+		// like with xml events
+		Assert.assertEquals("null", collector.getEvents().get(0).getAttributes().get("dummy"));
+	}
+
+	@Test
+	public void testConvertXmlToBinaryAndBack() {
+		URL equil = ExamplesUtils.getTestScenarioURL("equil");
+		String xmlFilename = this.utils.getOutputDirectory() + "events.xml.gz";
+		String binaryFilename = this.utils.getOutputDirectory() + "events.bin";
+		String xmlFilename2 = this.utils.getOutputDirectory() + "events2.xml.gz";
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector original = new EventsCollector();
+		events.addHandler(original);
+		EventWriterXML xmlWriter = new EventWriterXML(xmlFilename);
+		events.addHandler(xmlWriter);
+		// (the events of equil are old and need to be completed first)
+		new EventsConverterXML(events).readURL(IOUtils.newUrl(equil, "output_events.xml.gz"));
+		xmlWriter.closeFile();
+
+		EventsConverterXML.convertXmlToBinary(xmlFilename, binaryFilename);
+		Assert.assertTrue("binary events should be smaller than compressed xml events",
+				new File(binaryFilename).length() < new File(xmlFilename).length());
+		EventsConverterXML.convertBinaryToXml(binaryFilename, xmlFilename2);
+
+		EventsManager events2 = EventsUtils.createEventsManager();
+		EventsCollector converted = new EventsCollector();
+		events2.addHandler(converted);
+		new MatsimEventsReader(events2).readFile(xmlFilename2);
+
+		assertSameEvents(original.getEvents(), converted.getEvents());
+	}
+
+	private static void assertSameEvents(final List<Event> expected, final List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+}
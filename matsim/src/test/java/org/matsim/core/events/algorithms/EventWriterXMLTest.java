@@ -20,17 +20,33 @@
 package org.matsim.core.events.algorithms;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.testcases.utils.EventsCollector;
 import org.matsim.vehicles.Vehicle;
@@ -92,4 +108,62 @@ public class EventWriterXMLTest {
 		
 		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
 	}
+
+	/**
+	 * Events writing themselves must produce the same output as writing their attributes.
+	 */
+	@Test
+	public void testWriteAsXML_sameAsAttributes() {
+		Id<Person> person = Id.create("person&1", Person.class);
+		Id<Link> link = Id.create("link<1>", Link.class);
+		Id<Vehicle> vehicle = Id.create("veh\"1", Vehicle.class);
+		double[] times = {0.0, -0.0, 3600.0, 7.5, 1.0E-4, 9999999.0, 1.0E7, 123456789.5, -3.0, Double.NaN, Double.POSITIVE_INFINITY};
+		for (double time : times) {
+			List<Event> events = new ArrayList<>();
+			events.add(new LinkEnterEvent(time, vehicle, link));
+			events.add(new LinkLeaveEvent(time, vehicle, link));
+			events.add(new VehicleEntersTrafficEvent(time, person, link, vehicle, "car", time));
+			events.add(new VehicleEntersTrafficEvent(time, person, null, null, null, 1.0));
+			events.add(new VehicleLeavesTrafficEvent(time, person, link, vehicle, "car", 0.25));
+			events.add(new VehicleLeavesTrafficEvent(time, person, null, null, null, 1.0));
+			events.add(new PersonEntersVehicleEvent(time, person, vehicle));
+			events.add(new PersonLeavesVehicleEvent(time, person, vehicle));
+			events.add(new PersonDepartureEvent(time, person, link, "walk"));
+			events.add(new PersonDepartureEvent(time, person, null, null));
+			events.add(new PersonArrivalEvent(time, person, link, "pt"));
+			events.add(new PersonArrivalEvent(time, person, null, null));
+			events.add(new ActivityStartEvent(time, person, link, Id.create("f1", ActivityFacility.class), "home"));
+			events.add(new ActivityStartEvent(time, person, null, null, "w<ork>"));
+			events.add(new ActivityEndEvent(time, person, link, Id.create("f1", ActivityFacility.class), "home"));
+			events.add(new ActivityEndEvent(time, person, null, null, "w<ork>"));
+			events.add(new PersonStuckEvent(time, person, link, "car"));
+			// a subclass that has additional attributes
+			events.add(new LinkEnterEvent(time, vehicle, link) {
+				@Override
+				public Map<String, String> getAttributes() {
+					Map<String, String> attr = super.getAttributes();
+					attr.put("extra", "1");
+					return attr;
+				}
+			});
+			for (Event event : events) {
+				StringBuilder written = new StringBuilder();
+				event.writeAsXML(written);
+				Assert.assertEquals(writeAttributes(event), written.toString());
+			}
+		}
+	}
+
+	/** how events used to be written */
+	private static String writeAttributes(final Event event) {
+		StringBuilder out = new StringBuilder("\t<event ");
+		for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+			out.append(entry.getKey());
+			out.append("=\"");
+			out.append(entry.getValue() == null ? null : entry.getValue().replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;"));
+			out.append("\" ");
+		}
+		out.append(" />\n");
+		return out.toString();
+	}
 }
@@ -20,8 +20,12 @@
 
 package org.matsim.core.gbl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.testcases.MatsimTestCase;
 
 /**
@@ -109,6 +113,67 @@ public class MatsimRandomTest extends MatsimTestCase {
 		assertTrue(Math.abs(value1 - value2b) > EPSILON);
 	}
 
+	/**
+	 * Tests that a reseeded random number generator draws the same numbers for the same key, whatever it drew before,
+	 * and that the keys of ids do not depend on the order the ids were created in.
+	 */
+	public void testReseed() {
+		MatsimRandom.reset(123L);
+		Random rng1 = new Random();
+		Random rng2 = MatsimRandom.getLocalInstance();
+		rng2.nextDouble();
+		long key = MatsimRandom.getKey(3, Id.create("reseed-b", Person.class));
+		MatsimRandom.reseed(rng1, key);
+		MatsimRandom.reseed(rng2, key);
+		assertEqualRandomNumberGenerators(rng1, rng2);
+		MatsimRandom.reseed(rng1, key);
+		double value1 = rng1.nextDouble();
+
+		assertEquals(key, MatsimRandom.getKey(3, Id.create("reseed-b", Person.class)));
+		assertFalse(key == MatsimRandom.getKey(4, Id.create("reseed-b", Person.class)));
+		assertFalse(key == MatsimRandom.getKey(3, Id.create("reseed-a", Person.class)));
+		// "Aa" and "BB" have the same String.hashCode()
+		assertFalse(MatsimRandom.getKey(3, Id.create("Aa", Person.class)) == MatsimRandom.getKey(3, Id.create("BB", Person.class)));
+
+		// the numbers depend on the seed of the reset, too
+		MatsimRandom.reset(234L);
+		MatsimRandom.reseed(rng1, key);
+		assertTrue(Math.abs(value1 - rng1.nextDouble()) > EPSILON);
+	}
+
+	/**
+	 * Tests that only the thread with a random number generator of its own gets it from MatsimRandom.getRandom().
+	 */
+	public void testRandomOfThread() throws InterruptedException {
+		Random rng = new Random(42);
+		MatsimRandom.setRandomOfThread(rng);
+		try {
+			assertSame(rng, MatsimRandom.getRandom());
+			List<Random> ofOtherThread = new ArrayList<>();
+			Thread thread = new Thread(() -> ofOtherThread.add(MatsimRandom.getRandom()));
+			thread.start();
+			thread.join();
+			assertNotSame(rng, ofOtherThread.get(0));
+		} finally {
+			MatsimRandom.removeRandomOfThread();
+		}
+		assertNotSame(rng, MatsimRandom.getRandom());
+	}
+
+	/**
+	 * Tests that the local instances a supplier gets are collected.
+	 */
+	public void testCollectLocalInstances() {
+		List<Random> localInstances = new ArrayList<>();
+		Random outer = MatsimRandom.getLocalInstance();
+		Random inner = MatsimRandom.collectLocalInstances(MatsimRandom::getLocalInstance, localInstances);
+		assertEquals(1, localInstances.size());
+		assertSame(inner, localInstances.get(0));
+		assertNotSame(outer, inner);
+		MatsimRandom.getLocalInstance();
+		assertEquals(1, localInstances.size());
+	}
+
 	/** Test that two (Pseudo)Random Number Generators are equil by
 	 * drawing a series of random numbers and comparing those.
 	 *
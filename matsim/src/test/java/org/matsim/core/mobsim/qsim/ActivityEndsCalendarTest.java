@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.misc.Time;
+
+public class ActivityEndsCalendarTest {
+
+	@Test
+	public void testPollDue_order() {
+		ActivityEndsCalendar<TestAgent> calendar = new ActivityEndsCalendar<>();
+		TestAgent a1 = new TestAgent("1");
+		TestAgent a2 = new TestAgent("2");
+		TestAgent a3 = new TestAgent("3");
+		TestAgent a4 = new TestAgent("4");
+		calendar.add(a1, 10.0);
+		calendar.add(a2, 10.0);
+		calendar.add(a3, 9.5);
+		calendar.add(a4, 11.0);
+		Assert.assertEquals(4, calendar.size());
+
+		List<TestAgent> agents = new ArrayList<>();
+		calendar.pollDue(9.0, agents);
+		Assert.assertTrue(agents.isEmpty());
+
+		// same end time: the agent with the larger id comes first
+		calendar.pollDue(10.0, agents);
+		Assert.assertEquals(Arrays.asList(a3, a2, a1), agents);
+		Assert.assertEquals(1, calendar.size());
+
+		agents.clear();
+		calendar.pollDue(11.0, agents);
+		Assert.assertEquals(Arrays.asList(a4), agents);
+		Assert.assertEquals(0, calendar.size());
+	}
+
+	@Test
+	public void testPollDue_specialTimes() {
+		ActivityEndsCalendar<TestAgent> calendar = new ActivityEndsCalendar<>();
+		TestAgent undefined = new TestAgent("undefined");
+		TestAgent late = new TestAgent("late");
+		TestAgent fraction = new TestAgent("fraction");
+		calendar.add(undefined, Time.UNDEFINED_TIME);
+		calendar.add(late, ActivityEndsCalendar.MAX_BUCKETS + 100.0);
+		calendar.add(fraction, 5.25);
+
+		List<TestAgent> agents = new ArrayList<>();
+		calendar.pollDue(0.0, agents);
+		Assert.assertEquals(Arrays.asList(undefined), agents);
+
+		// non-integer time steps
+		agents.clear();
+		calendar.pollDue(5.0, agents);
+		Assert.assertTrue(agents.isEmpty());
+		calendar.pollDue(5.2, agents);
+		Assert.assertTrue(agents.isEmpty());
+		calendar.pollDue(5.4, agents);
+		Assert.assertEquals(Arrays.asList(fraction), agents);
+
+		// activity ends in the past are due right away
+		TestAgent past = new TestAgent("past");
+		calendar.add(past, 3.0);
+		agents.clear();
+		calendar.pollDue(6.0, agents);
+		Assert.assertEquals(Arrays.asList(past), agents);
+
+		agents.clear();
+		calendar.pollDue(ActivityEndsCalendar.MAX_BUCKETS + 100.0, agents);
+		Assert.assertEquals(Arrays.asList(late), agents);
+		Assert.assertEquals(0, calendar.size());
+	}
+
+	@Test
+	public void testRemoveAndClear() {
+		ActivityEndsCalendar<TestAgent> calendar = new ActivityEndsCalendar<>();
+		TestAgent a1 = new TestAgent("1");
+		TestAgent a2 = new TestAgent("2");
+		TestAgent a3 = new TestAgent("3");
+		calendar.add(a1, 100.0);
+		calendar.add(a2, 100.0);
+		calendar.add(a3, 200.0);
+
+		Assert.assertEquals(100.0, calendar.remove(a1), 0.0);
+		Assert.assertNull(calendar.remove(a1));
+		Assert.assertEquals(2, calendar.size());
+
+		// reschedule
+		calendar.add(a1, 50.0);
+		List<ActivityEndsCalendar.Entry<TestAgent>> remaining = calendar.clear();
+		Assert.assertEquals(3, remaining.size());
+		Assert.assertSame(a1, remaining.get(0).agent);
+		Assert.assertEquals(50.0, remaining.get(0).activityEndTime, 0.0);
+		Assert.assertSame(a2, remaining.get(1).agent);
+		Assert.assertSame(a3, remaining.get(2).agent);
+		Assert.assertEquals(0, calendar.size());
+		Assert.assertNull(calendar.remove(a2));
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		ActivityEndsCalendar<TestAgent> calendar = new ActivityEndsCalendar<>();
+		PriorityQueue<ActivityEndsCalendar.Entry<TestAgent>> reference = new PriorityQueue<>((arg0, arg1) -> {
+			int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
+			return cmp != 0 ? cmp : arg1.agent.getId().compareTo(arg0.agent.getId());
+		});
+		Random r = new Random(20190301);
+		TestAgent[] agents = new TestAgent[500];
+		for (int i = 0; i < agents.length; i++) {
+			agents[i] = new TestAgent("agent" + i);
+			double endTime = r.nextInt(4) == 0 ? r.nextInt(3600) + r.nextDouble() : r.nextInt(3600);
+			calendar.add(agents[i], endTime);
+			reference.add(new ActivityEndsCalendar.Entry<>(agents[i], endTime, 0));
+		}
+
+		List<TestAgent> polled = new ArrayList<>();
+		for (int time = 0; time <= 3600; time++) {
+			// reschedule some agents, like within-day replanning would
+			for (int i = 0; i < 3; i++) {
+				TestAgent agent = agents[r.nextInt(agents.length)];
+				if (calendar.remove(agent) != null) {
+					reference.removeIf(e -> e.agent == agent);
+					double endTime = time + r.nextInt(600);
+					calendar.add(agent, endTime);
+					reference.add(new ActivityEndsCalendar.Entry<>(agent, endTime, 0));
+				}
+			}
+			calendar.pollDue(time, polled);
+			for (TestAgent agent : polled) {
+				Assert.assertSame(reference.poll().agent, agent);
+			}
+			polled.clear();
+			if (!reference.isEmpty()) {
+				Assert.assertTrue(reference.peek().activityEndTime > time);
+			}
+			Assert.assertEquals(reference.size(), calendar.size());
+		}
+	}
+
+	private static class TestAgent implements Identifiable<Person> {
+		private final Id<Person> id;
+
+		TestAgent(String id) {
+			this.id = Id.createPersonId(id);
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+	}
+
+}
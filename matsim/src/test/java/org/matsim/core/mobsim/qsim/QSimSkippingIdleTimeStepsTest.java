@@ -0,0 +1,117 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.NextTimeOfInterestProvider;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+public class QSimSkippingIdleTimeStepsTest {
+
+	@Test
+	public void testSameEvents() {
+		StepCounter fixed = new SkippableStepCounter();
+		StepCounter skipping = new SkippableStepCounter();
+		List<String> expected = simulateEquil(false, false, fixed);
+		List<String> actual = simulateEquil(true, false, skipping);
+		Assert.assertEquals(expected, actual);
+		Assert.assertTrue("no time step skipped", skipping.steps < fixed.steps / 2);
+	}
+
+	@Test
+	public void testSameEvents_timeVariantNetwork() {
+		StepCounter fixed = new SkippableStepCounter();
+		StepCounter skipping = new SkippableStepCounter();
+		List<String> expected = simulateEquil(false, true, fixed);
+		List<String> actual = simulateEquil(true, true, skipping);
+		Assert.assertEquals(expected, actual);
+		Assert.assertTrue("no time step skipped", skipping.steps < fixed.steps / 2);
+	}
+
+	@Test
+	public void testNoSkipping_withOtherListener() {
+		StepCounter fixed = new StepCounter();
+		StepCounter skipping = new StepCounter();
+		simulateEquil(false, false, fixed);
+		simulateEquil(true, false, skipping);
+		Assert.assertEquals(fixed.steps, skipping.steps);
+	}
+
+	private static List<String> simulateEquil(boolean skippingIdleTimeSteps, boolean timeVariantNetwork, StepCounter counter) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans100.xml");
+		config.qsim().setSkippingIdleTimeSteps(skippingIdleTimeSteps);
+		config.network().setTimeVariantNetwork(timeVariantNetwork);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		if (timeVariantNetwork) {
+			// the bottleneck gets slower while the agents drive through it
+			NetworkChangeEvent changeEvent = new NetworkChangeEvent(6 * 3600 + 900);
+			changeEvent.addLink(scenario.getNetwork().getLinks().get(Id.create("6", Link.class)));
+			changeEvent.setFreespeedChange(new NetworkChangeEvent.ChangeValue(NetworkChangeEvent.ChangeType.FACTOR, 0.2));
+			NetworkUtils.addNetworkChangeEvent(scenario.getNetwork(), changeEvent);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		List<String> result = new ArrayList<>();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) (Event event) -> result.add(event.toString()));
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		qsim.addQueueSimulationListeners(counter);
+		qsim.run();
+		Assert.assertFalse(result.isEmpty());
+		return result;
+	}
+
+	private static class StepCounter implements MobsimBeforeSimStepListener {
+		int steps = 0;
+
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+			this.steps++;
+		}
+	}
+
+	private static class SkippableStepCounter extends StepCounter implements NextTimeOfInterestProvider {
+		@Override
+		public double getNextTimeOfInterest() {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimScheduling;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+public class QNetsimEngineRunnerForWorkStealingTest {
+
+	@Test
+	public void testSimulation_sameAsFixedAssignment() {
+		List<String> expected = simulateEquil(3, NetsimScheduling.fixedAssignment, NetsimPartitioning.roundRobin);
+		Assert.assertEquals(expected, simulateEquil(3, NetsimScheduling.workStealing, NetsimPartitioning.roundRobin));
+		Assert.assertEquals(expected, simulateEquil(3, NetsimScheduling.workStealing, NetsimPartitioning.coordinateBisection));
+	}
+
+	@Test
+	public void testSimulation_sameArrivalsAsSingleThread() {
+		List<String> singleThread = simulateEquil(1, NetsimScheduling.fixedAssignment, NetsimPartitioning.roundRobin);
+		List<String> workStealing = simulateEquil(1, NetsimScheduling.workStealing, NetsimPartitioning.roundRobin);
+		Assert.assertEquals(singleThread, workStealing);
+	}
+
+	/**
+	 * @return the link enter and arrival events, sorted, as the order within a time step depends on the threads
+	 */
+	private static List<String> simulateEquil(int numberOfThreads, NetsimScheduling scheduling, NetsimPartitioning partitioning) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setNetsimScheduling(scheduling);
+		config.qsim().setNetsimPartitioning(partitioning);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		List<String> result = new ArrayList<>();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((LinkEnterEventHandler) (LinkEnterEvent event) -> result.add(event.toString()));
+		events.addHandler((PersonArrivalEventHandler) (PersonArrivalEvent event) -> result.add(event.toString()));
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+		Assert.assertFalse(result.isEmpty());
+		Collections.sort(result);
+		return result;
+	}
+
+}
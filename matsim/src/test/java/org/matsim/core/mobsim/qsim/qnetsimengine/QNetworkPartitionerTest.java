@@ -0,0 +1,181 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+public class QNetworkPartitionerTest {
+
+	@Test
+	public void testCoordinateBisection_uniformGrid() {
+		Network network = createGrid(20, 1000);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		int[] parts = QNetworkPartitioner.partition(nodes, NetsimPartitioning.coordinateBisection, 4);
+
+		int[] nodesPerPart = new int[4];
+		for (int part : parts) {
+			nodesPerPart[part]++;
+		}
+		for (int count : nodesPerPart) {
+			Assert.assertEquals(100, count);
+		}
+		// the four quadrants, so only the links along the two dividing lines connect different parts
+		Assert.assertEquals(4 * 20, countBoundaryLinks(network, nodes, parts));
+		Assert.assertTrue(countBoundaryLinks(network, nodes, QNetworkPartitioner.partition(nodes, NetsimPartitioning.roundRobin, 4)) > 4 * 20);
+	}
+
+	@Test
+	public void testCoordinateBisection_weightedByCapacity() {
+		Network network = createGrid(20, 1000);
+		for (Link link : network.getLinks().values()) {
+			if (link.getToNode().getCoord().getX() < 500) {
+				link.setCapacity(9000);
+			}
+		}
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		int[] parts = QNetworkPartitioner.partition(nodes, NetsimPartitioning.coordinateBisection, 3);
+
+		double[] weightPerPart = new double[3];
+		double total = 0;
+		for (int n = 0; n < nodes.size(); n++) {
+			for (Link inLink : nodes.get(n).getInLinks().values()) {
+				weightPerPart[parts[n]] += inLink.getCapacity();
+				total += inLink.getCapacity();
+			}
+		}
+		for (double weight : weightPerPart) {
+			Assert.assertEquals(total / 3, weight, total * 0.05);
+		}
+		// the high capacity nodes are split among more parts than the others
+		int[] nodesPerPart = new int[3];
+		for (int part : parts) {
+			nodesPerPart[part]++;
+		}
+		Assert.assertTrue(nodesPerPart[0] < 100);
+	}
+
+	@Test
+	public void testCoordinateBisection_moreRunnersThanNodes() {
+		Network network = createGrid(2, 1000);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		int[] parts = QNetworkPartitioner.partition(nodes, NetsimPartitioning.coordinateBisection, 8);
+		Assert.assertEquals(4, parts.length);
+		for (int part : parts) {
+			Assert.assertTrue(part >= 0 && part < 8);
+		}
+	}
+
+	@Test
+	public void testSimulation_sameArrivalsAsSingleThread() {
+		int arrivals = simulateEquil(1, NetsimPartitioning.roundRobin, false);
+		Assert.assertEquals(arrivals, simulateEquil(3, NetsimPartitioning.coordinateBisection, false));
+		Assert.assertEquals(arrivals, simulateEquil(3, NetsimPartitioning.coordinateBisection, true));
+	}
+
+	private static int simulateEquil(int numberOfThreads, NetsimPartitioning partitioning, boolean usingThreadpool) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setNetsimPartitioning(partitioning);
+		config.qsim().setUsingThreadpool(usingThreadpool);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		int[] arrivals = new int[1];
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((PersonArrivalEventHandler) (PersonArrivalEvent event) -> arrivals[0]++);
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+		return arrivals[0];
+	}
+
+	private static Network createGrid(int size, double capacity) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+				network.addNode(nodes[x][y]);
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], capacity);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], capacity);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node a, Node b, double capacity) {
+		for (Node[] fromTo : new Node[][] {{a, b}, {b, a}}) {
+			Link link = network.getFactory().createLink(Id.createLinkId(fromTo[0].getId() + "-" + fromTo[1].getId()), fromTo[0], fromTo[1]);
+			link.setCapacity(capacity);
+			link.setLength(100);
+			link.setFreespeed(10);
+			network.addLink(link);
+		}
+	}
+
+	private static int countBoundaryLinks(Network network, List<Node> nodes, int[] parts) {
+		Map<Id<Node>, Integer> partOfNode = new HashMap<>();
+		for (int n = 0; n < nodes.size(); n++) {
+			partOfNode.put(nodes.get(n).getId(), parts[n]);
+		}
+		int boundaryLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partOfNode.get(link.getFromNode().getId()).equals(partOfNode.get(link.getToNode().getId()))) {
+				boundaryLinks++;
+			}
+		}
+		return boundaryLinks;
+	}
+
+}
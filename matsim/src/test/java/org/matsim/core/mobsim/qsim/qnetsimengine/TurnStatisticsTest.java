@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.AbstractQSimModule;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class TurnStatisticsTest {
+
+	@Test
+	public void testCountsSameAsEvents() {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans100.xml");
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		TurnStatistics turnStatistics = new TurnStatistics();
+		EventsManager events = EventsUtils.createEventsManager();
+		TurnCounter counter = new TurnCounter();
+		events.addHandler(counter);
+		new QSimBuilder(config).useDefaults().addOverridingQSimModule(new AbstractQSimModule() {
+			@Override
+			protected void configureQSim() {
+				bind(QNetworkFactory.class).toProvider(new Provider<QNetworkFactory>() {
+					@Inject private EventsManager events;
+					@Override
+					public QNetworkFactory get() {
+						ConfigurableQNetworkFactory factory = new ConfigurableQNetworkFactory(events, scenario);
+						factory.setTurnStatistics(turnStatistics);
+						return factory;
+					}
+				});
+			}
+		}).build(scenario, events).run();
+
+		Assert.assertFalse(counter.counts.isEmpty());
+		long total = 0;
+		for (Link from : scenario.getNetwork().getLinks().values()) {
+			Node node = from.getToNode();
+			for (Link to : node.getOutLinks().values()) {
+				Integer expected = counter.counts.get(from.getId() + ">" + to.getId());
+				Assert.assertEquals("turn " + from.getId() + " > " + to.getId(), expected == null ? 0 : expected.longValue(),
+						turnStatistics.getCount(node.getId(), from.getId(), to.getId()));
+			}
+		}
+		for (Node node : scenario.getNetwork().getNodes().values()) {
+			total += turnStatistics.getCount(node.getId());
+		}
+		Assert.assertEquals(counter.total, total);
+
+		turnStatistics.reset();
+		for (Node node : scenario.getNetwork().getNodes().values()) {
+			Assert.assertEquals(0, turnStatistics.getCount(node.getId()));
+		}
+	}
+
+	private static class TurnCounter implements LinkLeaveEventHandler, LinkEnterEventHandler {
+		final Map<Id<Vehicle>, Id<Link>> lastLeft = new HashMap<>();
+		final Map<String, Integer> counts = new HashMap<>();
+		int total = 0;
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.lastLeft.put(event.getVehicleId(), event.getLinkId());
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			Id<Link> from = this.lastLeft.remove(event.getVehicleId());
+			if (from != null) {
+				this.counts.merge(from + ">" + event.getLinkId(), 1, Integer::sum);
+				this.total++;
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayFIFOVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleImpl;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleUtils;
+
+public class ArrayFIFOVehicleQTest {
+
+	@Test
+	public void testSameAsFIFOVehicleQ() {
+		VehicleQ<QVehicle> expected = new FIFOVehicleQ();
+		VehicleQ<QVehicle> actual = new ArrayFIFOVehicleQ();
+		Random r = new Random(4711);
+		List<QVehicle> vehicles = createVehicles(50);
+		for (int i = 0; i < 10000; i++) {
+			int op = r.nextInt(10);
+			QVehicle vehicle = vehicles.get(r.nextInt(vehicles.size()));
+			if (op < 4) {
+				expected.add(vehicle);
+				actual.add(vehicle);
+			} else if (op < 5) {
+				expected.addFirst(vehicle);
+				actual.addFirst(vehicle);
+			} else if (op < 9) {
+				Assert.assertSame(expected.poll(), actual.poll());
+			} else {
+				Assert.assertEquals(expected.remove(vehicle), actual.remove(vehicle));
+			}
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertSame(expected.peek(), actual.peek());
+		}
+		Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+	}
+
+	@Test
+	public void testGrowAndWrapAround() {
+		VehicleQ<QVehicle> queue = new ArrayFIFOVehicleQ();
+		Assert.assertNull(queue.peek());
+		Assert.assertNull(queue.poll());
+		List<QVehicle> vehicles = createVehicles(20);
+		queue.add(vehicles.get(1));
+		queue.add(vehicles.get(2));
+		Assert.assertSame(vehicles.get(1), queue.poll());
+		for (int i = 3; i < vehicles.size(); i++) {
+			queue.add(vehicles.get(i));
+		}
+		queue.addFirst(vehicles.get(0));
+		List<QVehicle> inOrder = new ArrayList<>();
+		for (QVehicle vehicle : queue) {
+			inOrder.add(vehicle);
+		}
+		List<QVehicle> expected = new ArrayList<>(vehicles);
+		expected.remove(1);
+		Assert.assertEquals(expected, inOrder);
+
+		queue.clear();
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.poll());
+	}
+
+	static List<QVehicle> createVehicles(int n) {
+		List<QVehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			Vehicle vehicle = VehicleUtils.getFactory().createVehicle(Id.create(i, Vehicle.class), VehicleUtils.getDefaultVehicleType());
+			vehicles.add(new QVehicleImpl(vehicle));
+		}
+		return vehicles;
+	}
+
+}
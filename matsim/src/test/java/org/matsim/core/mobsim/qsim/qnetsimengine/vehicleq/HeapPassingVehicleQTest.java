@@ -0,0 +1,239 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HeapPassingVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.AbstractQSimModule;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.mobsim.qsim.qnetsimengine.ConfigurableQNetworkFactory;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkFactory;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.pt.utils.CreateVehiclesForSchedule;
+
+public class HeapPassingVehicleQTest {
+
+	@Test
+	public void testSameAsPassingVehicleQ() {
+		VehicleQ<QVehicle> expected = new PassingVehicleQ();
+		VehicleQ<QVehicle> actual = new HeapPassingVehicleQ();
+		Random r = new Random(4711);
+		List<QVehicle> vehicles = ArrayFIFOVehicleQTest.createVehicles(100);
+		List<QVehicle> outside = new ArrayList<>(vehicles);
+		for (int i = 0; i < 10000; i++) {
+			int op = r.nextInt(11);
+			if (op < 5 && !outside.isEmpty()) {
+				QVehicle vehicle = outside.remove(r.nextInt(outside.size()));
+				// few distinct exit times, so the order of vehicles with the same exit time is tested as well
+				vehicle.setEarliestLinkExitTime(r.nextInt(20));
+				if (op == 0) {
+					expected.addFirst(vehicle);
+					actual.addFirst(vehicle);
+				} else {
+					expected.add(vehicle);
+					actual.add(vehicle);
+				}
+			} else if (op < 9) {
+				QVehicle vehicle = expected.poll();
+				Assert.assertSame(vehicle, actual.poll());
+				if (vehicle != null) {
+					outside.add(vehicle);
+				}
+			} else if (op == 10) {
+				// as a transit vehicle at a blocking stop
+				QVehicle head = expected.peek();
+				if (head != null) {
+					head.setEarliestLinkExitTime(head.getEarliestLinkExitTime() + r.nextInt(20));
+				}
+			} else {
+				QVehicle vehicle = vehicles.get(r.nextInt(vehicles.size()));
+				boolean removed = expected.remove(vehicle);
+				Assert.assertEquals(removed, actual.remove(vehicle));
+				if (removed) {
+					outside.add(vehicle);
+				}
+			}
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertSame(expected.peek(), actual.peek());
+		}
+		Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+	}
+
+	/**
+	 * Transit vehicles at blocking stops get a later exit time while they are at the head of the queue.
+	 */
+	@Test
+	public void testSameAsPassingVehicleQ_exitTimeChangedInQueue() {
+		VehicleQ<QVehicle> expected = new PassingVehicleQ();
+		VehicleQ<QVehicle> actual = new HeapPassingVehicleQ();
+		List<QVehicle> vehicles = ArrayFIFOVehicleQTest.createVehicles(10);
+		for (int i = 0; i < 5; i++) {
+			vehicles.get(i).setEarliestLinkExitTime(i == 0 ? 10 : 50 + i);
+			expected.add(vehicles.get(i));
+			actual.add(vehicles.get(i));
+		}
+		expected.peek().setEarliestLinkExitTime(100);
+		for (int i = 5; i < 10; i++) {
+			vehicles.get(i).setEarliestLinkExitTime(20 + i);
+			expected.add(vehicles.get(i));
+			actual.add(vehicles.get(i));
+			// (not assertSame, its message would need the driver of the vehicles)
+			Assert.assertTrue(expected.peek() == actual.peek());
+		}
+		while (!expected.isEmpty()) {
+			Assert.assertTrue(expected.poll() == actual.poll());
+		}
+		Assert.assertTrue(actual.isEmpty());
+	}
+
+	@Test
+	public void testSameEventsAsPassingVehicleQ_blockingTransitStop() {
+		List<String> expected = simulate(PassingVehicleQ::new);
+		List<String> actual = simulate(HeapPassingVehicleQ::new);
+		Assert.assertTrue(expected.size() > 100);
+		Assert.assertEquals(expected, actual);
+	}
+
+	/**
+	 * A bus waits for its departure time at a blocking stop on the middle link. The cars enter the link after the bus,
+	 * so they meet it at the head of the queue.
+	 */
+	private static List<String> simulate(final VehicleQ.Factory<QVehicle> vehicleQFactory) {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		config.qsim().setLinkDynamics(LinkDynamics.PassingQ);
+		config.qsim().setEndTime(8 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node[] nodes = new Node[4];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = network.getFactory().createNode(Id.createNodeId(i), new Coord(i * 1000, 0));
+			network.addNode(nodes[i]);
+		}
+		Link[] links = new Link[3];
+		for (int i = 0; i < links.length; i++) {
+			links[i] = network.getFactory().createLink(Id.createLinkId(i), nodes[i], nodes[i + 1]);
+			links[i].setLength(1000);
+			links[i].setFreespeed(10 + i);
+			links[i].setCapacity(3600);
+			links[i].setNumberOfLanes(1);
+			network.addLink(links[i]);
+		}
+
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory sf = schedule.getFactory();
+		TransitStopFacility start = sf.createTransitStopFacility(Id.create("start", TransitStopFacility.class), new Coord(1000, 0), false);
+		start.setLinkId(links[0].getId());
+		TransitStopFacility blocking = sf.createTransitStopFacility(Id.create("blocking", TransitStopFacility.class), new Coord(2000, 0), true);
+		blocking.setLinkId(links[1].getId());
+		TransitStopFacility end = sf.createTransitStopFacility(Id.create("end", TransitStopFacility.class), new Coord(3000, 0), false);
+		end.setLinkId(links[2].getId());
+		schedule.addStopFacility(start);
+		schedule.addStopFacility(blocking);
+		schedule.addStopFacility(end);
+		TransitRouteStop waiting = sf.createTransitRouteStop(blocking, 100, 400);
+		waiting.setAwaitDepartureTime(true);
+		TransitRoute route = sf.createTransitRoute(Id.create("bus", TransitRoute.class),
+				RouteUtils.createLinkNetworkRouteImpl(links[0].getId(), Arrays.asList(links[1].getId()), links[2].getId()),
+				Arrays.asList(sf.createTransitRouteStop(start, 0, 0), waiting, sf.createTransitRouteStop(end, 500, 500)), "bus");
+		for (int i = 0; i < 3; i++) {
+			Departure departure = sf.createDeparture(Id.create(i, Departure.class), 6 * 3600 + i * 600);
+			route.addDeparture(departure);
+		}
+		TransitLine line = sf.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(route);
+		schedule.addTransitLine(line);
+		new CreateVehiclesForSchedule(schedule, scenario.getTransitVehicles()).run();
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 300; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("h", links[0].getId());
+			home.setEndTime(6 * 3600 + 120 + i * 7);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(links[0].getId(), Arrays.asList(links[1].getId()), links[2].getId()));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("w", links[2].getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<String> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) event -> events.add(event.toString()));
+		new QSimBuilder(config).useDefaults().addOverridingQSimModule(new AbstractQSimModule() {
+			@Override
+			protected void configureQSim() {
+				bind(QNetworkFactory.class).toProvider(new Provider<QNetworkFactory>() {
+					@Inject private EventsManager events;
+					@Override
+					public QNetworkFactory get() {
+						ConfigurableQNetworkFactory factory = new ConfigurableQNetworkFactory(events, scenario);
+						factory.setVehicleQFactory(vehicleQFactory);
+						return factory;
+					}
+				});
+			}
+		}).build(scenario, eventsManager).run();
+		return events;
+	}
+
+}
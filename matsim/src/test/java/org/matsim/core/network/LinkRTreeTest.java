@@ -0,0 +1,277 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+public class LinkRTreeTest {
+
+	@Test
+	public void testGetNearest() {
+		Network network = NetworkUtils.createNetwork();
+		LinkRTree tree = new LinkRTree();
+		Link foo = createLink(network, "foo", 100, 200, 800, 500);
+		Link bar = createLink(network, "bar", 400, 300, 500, 400);
+		Link fbr = createLink(network, "fbr", 800, 1400, 1400, 800);
+		Link a = createLink(network, "a", 1100, 1100, 1200, 1200);
+		Link b = createLink(network, "b", 1100, 1100, 1200, 1100);
+		Link c = createLink(network, "c", 1200, 1200, 1200, 1100);
+		for (Link link : Arrays.asList(foo, bar, fbr, a, b, c)) {
+			tree.put(link);
+		}
+
+		Assert.assertEquals(6, tree.size());
+		Assert.assertEquals(foo, tree.getNearest(200, 200));
+		Assert.assertEquals(foo, tree.getNearest(300, 300));
+		Assert.assertEquals(bar, tree.getNearest(390, 300));
+		Assert.assertEquals(fbr, tree.getNearest(1000, 1100));
+		Assert.assertEquals(foo, tree.getNearest(-50, -50));
+		Assert.assertEquals(a, tree.getNearest(1105, 1104));
+		Assert.assertEquals(a, tree.getNearest(1105, 1103));
+		Assert.assertEquals(b, tree.getNearest(1105, 1102));
+		Assert.assertEquals(b, tree.getNearest(1105, 1101));
+		Assert.assertEquals(c, tree.getNearest(1205, 1101));
+		Assert.assertNull(new LinkRTree().getNearest(0, 0));
+	}
+
+	/**
+	 * Of links at the same distance, the longer one is returned, and of links as long the one put in first, as the
+	 * LinkQuadTree did for the two directions of a link and for the links at a node of the equil network.
+	 */
+	@Test
+	public void testGetNearest_sameDistance() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Link ab = createLink(network, "ab", 100, 100, 400, 100);
+		Link ba = factory.createLink(Id.createLinkId("ba"), ab.getToNode(), ab.getFromNode());
+		network.addLink(ba);
+		Link other = createLink(network, "other", 100, 300, 400, 300);
+		// meets ab at its from node, and is longer
+		Link longer = factory.createLink(Id.createLinkId("longer"), createNode(network, "longer", 100, 900), ab.getFromNode());
+		network.addLink(longer);
+
+		for (List<Link> links : Arrays.asList(Arrays.asList(ab, ba, other, longer), Arrays.asList(longer, other, ba, ab))) {
+			LinkRTree tree = new LinkRTree();
+			LinkQuadTree quadTree = new LinkQuadTree(0, 0, 1000, 1000);
+			for (Link link : links) {
+				tree.put(link);
+				quadTree.put(link);
+			}
+			Link first = links.indexOf(ab) < links.indexOf(ba) ? ab : ba;
+			Assert.assertEquals(first, tree.getNearest(300, 150));
+			Assert.assertEquals(quadTree.getNearest(300, 150), tree.getNearest(300, 150));
+			Assert.assertEquals(first, tree.getKNearest(300, 150, 1, null).get(0));
+			// at the same distance to both directions and the other link, which are all as long
+			Assert.assertEquals(links.get(0) == longer ? other : links.get(0), tree.getNearest(300, 200));
+			// at the same distance to ab, ba and the longer link
+			Assert.assertEquals(longer, tree.getNearest(50, 50));
+			Assert.assertEquals(quadTree.getNearest(50, 50), tree.getNearest(50, 50));
+		}
+
+		// the network puts its links in the order they were added
+		Assert.assertEquals(ab, NetworkUtils.getNearestLinkExactly(network, new Coord(300, 150)));
+		network.removeLink(ab.getId());
+		network.addLink(ab);
+		Assert.assertEquals(ba, NetworkUtils.getNearestLinkExactly(network, new Coord(300, 150)));
+	}
+
+	@Test
+	public void testGetKNearest_sameAsAllLinks() {
+		Network network = createRandomNetwork(2000);
+		LinkRTree tree = new LinkRTree();
+		for (Link link : network.getLinks().values()) {
+			tree.put(link);
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			Coord coord = new Coord(random.nextDouble() * 12000 - 1000, random.nextDouble() * 12000 - 1000);
+			for (String mode : Arrays.asList(null, TransportMode.car, TransportMode.bike)) {
+				List<Link> expected = new ArrayList<>();
+				for (Link link : network.getLinks().values()) {
+					if (mode == null || link.getAllowedModes().contains(mode)) {
+						expected.add(link);
+					}
+				}
+				expected.sort((l1, l2) -> Double.compare(distance(l1, coord), distance(l2, coord)));
+				List<Link> nearest = tree.getKNearest(coord.getX(), coord.getY(), 10, mode);
+				Assert.assertEquals(10, nearest.size());
+				// compare the distances only, the two directions of a link may be in either order
+				for (int k = 0; k < 10; k++) {
+					Assert.assertEquals(distance(expected.get(k), coord), distance(nearest.get(k), coord), 1e-6);
+				}
+				Assert.assertEquals(nearest.get(0), tree.getNearest(coord.getX(), coord.getY(), mode));
+			}
+		}
+		Assert.assertNull(tree.getNearest(0, 0, TransportMode.pt));
+		Assert.assertEquals(Collections.emptyList(), tree.getKNearest(0, 0, 10, TransportMode.pt));
+	}
+
+	@Test
+	public void testRemove() {
+		Network network = createRandomNetwork(500);
+		LinkRTree tree = new LinkRTree();
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		for (Link link : links) {
+			tree.put(link);
+		}
+		Collections.shuffle(links, new Random(42));
+		Coord coord = new Coord(5000, 5000);
+		for (int i = 0; i < links.size(); i++) {
+			Link nearest = tree.getNearest(coord.getX(), coord.getY());
+			Assert.assertTrue(tree.remove(links.get(i)));
+			Assert.assertFalse(tree.remove(links.get(i)));
+			Assert.assertEquals(links.size() - i - 1, tree.size());
+			if (nearest != links.get(i)) {
+				Assert.assertEquals(nearest, tree.getNearest(coord.getX(), coord.getY()));
+			}
+		}
+		Assert.assertNull(tree.getNearest(coord.getX(), coord.getY()));
+		tree.put(links.get(0));
+		Assert.assertEquals(links.get(0), tree.getNearest(coord.getX(), coord.getY()));
+	}
+
+	@Test
+	public void testNetwork_getNearestLinkExactly_afterAddLink() {
+		Network network = NetworkUtils.createNetwork();
+		Link near = createLink(network, "near", 0, 0, 100, 0);
+		Assert.assertEquals(near, NetworkUtils.getNearestLinkExactly(network, new Coord(50, 50)));
+		// far outside the links so far, which used to invalidate the index of the network
+		Link far = createLink(network, "far", 100000, 100000, 100100, 100000);
+		Assert.assertEquals(far, NetworkUtils.getNearestLinkExactly(network, new Coord(100050, 100050)));
+		Assert.assertEquals(near, NetworkUtils.getNearestLinkExactly(network, new Coord(50, 50)));
+		Assert.assertNull(NetworkUtils.getNearestLinkExactly(network, new Coord(50, 50), TransportMode.pt));
+		network.removeLink(near.getId());
+		Assert.assertEquals(far, NetworkUtils.getNearestLinkExactly(network, new Coord(50, 50)));
+	}
+
+	@Test
+	public void testNetwork_getNearestLinkByMode_afterLinkChanged() {
+		Network network = NetworkUtils.createNetwork();
+		Link near = createLink(network, "near", 0, 0, 100, 0);
+		Link far = createLink(network, "far", 0, 1000, 100, 1000);
+		Coord coord = new Coord(20, 50);
+		Assert.assertNull(NetworkUtils.getNearestLinkExactly(network, coord, TransportMode.pt));
+		near.setAllowedModes(new HashSet<>(Arrays.asList(TransportMode.car, TransportMode.pt)));
+		Assert.assertEquals(near, NetworkUtils.getNearestLinkExactly(network, coord, TransportMode.pt));
+		Assert.assertEquals(near.getFromNode(), NetworkUtils.getNearestNode(network, coord, TransportMode.pt));
+		near.setAllowedModes(Collections.singleton(TransportMode.pt));
+		Assert.assertEquals(far, NetworkUtils.getNearestLinkExactly(network, coord, TransportMode.car));
+		Assert.assertEquals(far.getFromNode(), NetworkUtils.getNearestNode(network, coord, TransportMode.car));
+		// moved far away from the coordinate
+		near.setFromNode(createNode(network, "away", 5000, 5000));
+		near.setToNode(createNode(network, "away2", 5100, 5000));
+		Assert.assertEquals(far, NetworkUtils.getNearestLinkExactly(network, coord));
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testNetwork_getLinkQuadTree() {
+		Network network = NetworkUtils.createNetwork();
+		Link near = createLink(network, "near", 0, 0, 100, 0);
+		LinkQuadTree quadTree = ((SearchableNetwork) network).getLinkQuadTree();
+		Assert.assertEquals(near, quadTree.getNearest(50, 50));
+		Link nearer = createLink(network, "nearer", 0, 40, 100, 40);
+		Assert.assertEquals(nearer, ((SearchableNetwork) network).getLinkQuadTree().getNearest(50, 50));
+		network.removeLink(nearer.getId());
+		Assert.assertEquals(near, ((SearchableNetwork) network).getLinkQuadTree().getNearest(50, 50));
+	}
+
+	@Test
+	public void testNetwork_getNearestLinkByMode_sameAsFilteredNetwork() {
+		Network network = createRandomNetwork(2000);
+		Network carNetwork = NetworkUtils.createNetwork();
+		new TransportModeNetworkFilter(network).filter(carNetwork, Collections.singleton(TransportMode.car));
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Coord coord = new Coord(random.nextDouble() * 12000 - 1000, random.nextDouble() * 12000 - 1000);
+			Assert.assertEquals(NetworkUtils.getNearestNode(carNetwork, coord).getId(),
+					NetworkUtils.getNearestNode(network, coord, TransportMode.car).getId());
+			Assert.assertEquals(NetworkUtils.getNearestLink(carNetwork, coord).getId(),
+					NetworkUtils.getNearestLink(network, coord, TransportMode.car).getId());
+		}
+	}
+
+	private static double distance(Link link, Coord coord) {
+		return CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord);
+	}
+
+	/**
+	 * Random nodes with links to their successors, in both directions; every third link only allows bike, the others
+	 * car as well.
+	 */
+	private static Network createRandomNetwork(int numberOfNodes) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Random random = new Random(4711);
+		Node[] nodes = new Node[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++) {
+			nodes[i] = factory.createNode(Id.createNodeId(i), new Coord(random.nextDouble() * 10000, random.nextDouble() * 10000));
+			network.addNode(nodes[i]);
+		}
+		for (int i = 0; i < numberOfNodes; i++) {
+			Node to = nodes[random.nextInt(numberOfNodes)];
+			if (to == nodes[i]) {
+				continue;
+			}
+			for (Link link : Arrays.asList(factory.createLink(Id.createLinkId(i + "f"), nodes[i], to),
+					factory.createLink(Id.createLinkId(i + "b"), to, nodes[i]))) {
+				link.setAllowedModes(new HashSet<>(i % 3 == 0
+						? Collections.singleton(TransportMode.bike) : Arrays.asList(TransportMode.car, TransportMode.bike)));
+				network.addLink(link);
+			}
+		}
+		return network;
+	}
+
+	private static Node createNode(Network network, String id, double x, double y) {
+		Node node = network.getFactory().createNode(Id.createNodeId(id), new Coord(x, y));
+		network.addNode(node);
+		return node;
+	}
+
+	private static Link createLink(Network network, String id, double fromX, double fromY, double toX, double toY) {
+		NetworkFactory factory = network.getFactory();
+		Node from = factory.createNode(Id.createNodeId(id + "-from"), new Coord(fromX, fromY));
+		Node to = factory.createNode(Id.createNodeId(id + "-to"), new Coord(toX, toY));
+		network.addNode(from);
+		network.addNode(to);
+		Link link = factory.createLink(Id.createLinkId(id), from, to);
+		network.addLink(link);
+		return link;
+	}
+
+}
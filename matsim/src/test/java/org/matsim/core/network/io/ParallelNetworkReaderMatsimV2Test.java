@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelNetworkReaderMatsimV2Test {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testRead_sameAsSequential() throws IOException {
+		Network network = NetworkUtils.createNetwork();
+		network.setCapacityPeriod(7200.0);
+		network.getAttributes().putAttribute("name", "grid");
+		NetworkFactory factory = network.getFactory();
+		int size = 60;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = factory.createNode(Id.createNodeId(size * size - (x * size + y)), new Coord(x * 100, y * 100));
+				if ((x + y) % 5 == 0) {
+					node.getAttributes().putAttribute("signal", true);
+				}
+				network.addNode(node);
+			}
+		}
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < nodes.length; i++) {
+			Link link = factory.createLink(Id.createLinkId("l" + (nodes.length - i)), nodes[i], nodes[(i + 1) % nodes.length]);
+			link.setCapacity(1000 + i);
+			link.setFreespeed(10 + i % 7);
+			link.setNumberOfLanes(1 + i % 3);
+			link.setAllowedModes(new HashSet<>(i % 2 == 0 ? Arrays.asList("car") : Arrays.asList("car", "bike")));
+			link.getAttributes().putAttribute("osm:way", (long) i * 1000);
+			network.addLink(link);
+		}
+		String filename = this.utils.getOutputDirectory() + "network.xml";
+		new NetworkWriter(network).writeFileV2(filename);
+
+		Network sequential = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(sequential).readFile(filename);
+		Network parallel = NetworkUtils.createNetwork();
+		MatsimNetworkReader reader = new MatsimNetworkReader(parallel);
+		reader.setNumberOfThreads(4);
+		reader.readFile(filename);
+
+		Assert.assertEquals(size * size, parallel.getNodes().size());
+		Assert.assertEquals(size * size, parallel.getLinks().size());
+		Assert.assertEquals(new ArrayList<>(sequential.getLinks().keySet()), new ArrayList<>(parallel.getLinks().keySet()));
+		for (Node node : parallel.getNodes().values()) {
+			Node sequentialNode = sequential.getNodes().get(node.getId());
+			Assert.assertEquals(sequentialNode.getOutLinks().keySet(), node.getOutLinks().keySet());
+			Assert.assertEquals(sequentialNode.getInLinks().keySet(), node.getInLinks().keySet());
+		}
+
+		String sequentialFile = this.utils.getOutputDirectory() + "sequential.xml";
+		String parallelFile = this.utils.getOutputDirectory() + "parallel.xml";
+		new NetworkWriter(sequential).writeFileV2(sequentialFile);
+		new NetworkWriter(parallel).writeFileV2(parallelFile);
+		Assert.assertTrue("the networks read in parallel and sequentially differ",
+				Arrays.equals(Files.readAllBytes(Paths.get(sequentialFile)), Files.readAllBytes(Paths.get(parallelFile))));
+	}
+
+}
@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.PopulationWriter;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class PackedPopulationTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testPackedPlans_writtenAsUnpacked() throws IOException {
+		Config config = ConfigUtils.createConfig();
+		Population unpacked = PopulationUtils.createPopulation(config);
+		config.plans().setPackingNonSelectedPlans(true);
+		Population packed = PopulationUtils.createPopulation(config);
+		fillPopulation(unpacked);
+		fillPopulation(packed);
+
+		int packedPlans = 0;
+		for (Person person : packed.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				Assert.assertEquals(plan != person.getSelectedPlan(), ((PackedPlan) plan).isPacked());
+				packedPlans += ((PackedPlan) plan).isPacked() ? 1 : 0;
+			}
+		}
+		Assert.assertEquals(2 * 50, packedPlans);
+
+		String unpackedFile = this.utils.getOutputDirectory() + "unpacked.xml";
+		String packedFile = this.utils.getOutputDirectory() + "packed.xml";
+		new PopulationWriter(unpacked).write(unpackedFile);
+		new PopulationWriter(packed).write(packedFile);
+		Assert.assertTrue("the packed plans differ from the unpacked ones",
+				Arrays.equals(readAllBytes(unpackedFile), readAllBytes(packedFile)));
+	}
+
+	@Test
+	public void testSelectingAnotherPlan_packedByPackPlans() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setPackingNonSelectedPlans(true);
+		Population population = PopulationUtils.createPopulation(config);
+		fillPopulation(population);
+		Person person = population.getPersons().get(Id.createPersonId(7));
+		Plan first = person.getPlans().get(0);
+		Plan second = person.getPlans().get(1);
+		Assert.assertSame(first, person.getSelectedPlan());
+		Assert.assertTrue(((PackedPlan) second).isPacked());
+		Assert.assertEquals(Double.valueOf(7.1), second.getScore());
+
+		person.setSelectedPlan(second);
+		// selecting does not pack, the plans are packed after the replanning
+		Assert.assertFalse(((PackedPlan) first).isPacked());
+		Assert.assertEquals(5, second.getPlanElements().size());
+		Assert.assertFalse(((PackedPlan) second).isPacked());
+		PopulationUtils.packPlans(population);
+		Assert.assertTrue(((PackedPlan) first).isPacked());
+		Assert.assertFalse(((PackedPlan) second).isPacked());
+		Assert.assertEquals(Double.valueOf(7.0), first.getScore());
+
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof PackedPlan);
+		Assert.assertFalse(((PackedPlan) second).isPacked());
+		PopulationUtils.packPlans(population);
+		Assert.assertTrue(((PackedPlan) second).isPacked());
+		Assert.assertFalse(((PackedPlan) copy).isPacked());
+		Assert.assertEquals("w", ((Activity) copy.getPlanElements().get(2)).getType());
+		Assert.assertSame(second, person.getPlans().get(1));
+	}
+
+	@Test
+	public void testPlanWithAttributes_notPacked() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setPackingNonSelectedPlans(true);
+		Population population = PopulationUtils.createPopulation(config);
+		fillPopulation(population);
+		Person person = population.getPersons().get(Id.createPersonId(3));
+		Plan plan = person.getPlans().get(2);
+		person.setSelectedPlan(plan);
+		((Activity) plan.getPlanElements().get(0)).getAttributes().putAttribute("parking", "street");
+		person.setSelectedPlan(person.getPlans().get(0));
+		PopulationUtils.packPlans(population);
+		Assert.assertFalse(((PackedPlan) plan).isPacked());
+		Assert.assertEquals("street", ((Activity) plan.getPlanElements().get(0)).getAttributes().getAttribute("parking"));
+	}
+
+	@Test
+	public void testRun_sameAsUnpacked() throws IOException {
+		String unpackedPlans = runEquil(false);
+		String packedPlans = runEquil(true);
+		Assert.assertTrue("the runs with packed and unpacked plans differ",
+				Arrays.equals(readAllBytes(unpackedPlans), readAllBytes(packedPlans)));
+	}
+
+	private String runEquil(final boolean packing) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(5);
+		config.controler().setOutputDirectory(this.utils.getOutputDirectory() + (packing ? "packed" : "unpacked"));
+		config.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setCreateGraphs(false);
+		config.plans().setPackingNonSelectedPlans(packing);
+		new Controler(config).run();
+		return config.controler().getOutputDirectory() + "/output_plans.xml.gz";
+	}
+
+	private static void fillPopulation(final Population population) {
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < 50; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			for (int p = 0; p < 3; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore(i + p / 10.0);
+				if (p == 2) {
+					plan.setType("car-free");
+				}
+				Activity home = factory.createActivityFromCoord("h", new Coord(100.5 * i, -20 * p));
+				home.setLinkId(Id.createLinkId(i % 7));
+				home.setFacilityId(Id.create("home" + i, ActivityFacility.class));
+				home.setEndTime(6 * 3600 + 60 * i + 0.25 * p);
+				plan.addActivity(home);
+
+				Leg leg = factory.createLeg(p == 2 ? "pt" : "car");
+				leg.setDepartureTime(home.getEndTime());
+				leg.setTravelTime(900 + p);
+				Route route;
+				if (p == 2) {
+					route = factory.getRouteFactories().createRoute(Route.class, Id.createLinkId(i % 7), Id.createLinkId(30 + i % 3));
+					route.setRouteDescription("bus 4 with übergang");
+				} else {
+					NetworkRoute networkRoute = factory.getRouteFactories().createRoute(NetworkRoute.class, Id.createLinkId(i % 7), Id.createLinkId(30 + i % 3));
+					networkRoute.setLinkIds(networkRoute.getStartLinkId(),
+							Arrays.asList(Id.createLinkId(12), Id.createLinkId(10 + p), Id.createLinkId(25)), networkRoute.getEndLinkId());
+					networkRoute.setVehicleId(Id.create(i, Vehicle.class));
+					networkRoute.setTravelCost(12.5);
+					route = networkRoute;
+				}
+				route.setDistance(1234.5 * p);
+				route.setTravelTime(900 + p);
+				leg.setRoute(route);
+				plan.addLeg(leg);
+
+				Activity work = factory.createActivityFromLinkId("w", Id.createLinkId(30 + i % 3));
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(work);
+
+				Leg legBack = factory.createLeg("walk");
+				plan.addLeg(legBack);
+
+				Activity homeAgain = factory.createActivityFromCoord("h", new Coord(100.5 * i, -20 * p, 3.5));
+				plan.addActivity(homeAgain);
+				person.addPlan(plan);
+			}
+			population.addPerson(person);
+		}
+	}
+
+	private static byte[] readAllBytes(final String filename) throws IOException {
+		try (InputStream in = IOUtils.getInputStream(filename)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+}
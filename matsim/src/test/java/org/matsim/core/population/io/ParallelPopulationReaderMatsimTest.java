@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testReadV6_sameAsSequential() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "population_v6.xml";
+		new PopulationWriter(createPopulation()).writeV6(filename);
+		assertSameAsSequential(filename);
+	}
+
+	@Test
+	public void testReadV5_sameAsSequential() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "population_v5.xml";
+		new PopulationWriter(createPopulation()).writeV5(filename);
+		assertSameAsSequential(filename);
+	}
+
+	private void assertSameAsSequential(final String filename) throws IOException {
+		Scenario sequential = readPopulation(filename, 1);
+		Scenario parallel = readPopulation(filename, 4);
+
+		Assert.assertEquals(1234, parallel.getPopulation().getPersons().size());
+		List<Id<Person>> sequentialOrder = new ArrayList<>(sequential.getPopulation().getPersons().keySet());
+		List<Id<Person>> parallelOrder = new ArrayList<>(parallel.getPopulation().getPersons().keySet());
+		Assert.assertEquals(sequentialOrder, parallelOrder);
+
+		String sequentialFile = this.utils.getOutputDirectory() + "sequential.xml";
+		String parallelFile = this.utils.getOutputDirectory() + "parallel.xml";
+		new PopulationWriter(sequential.getPopulation()).writeV6(sequentialFile);
+		new PopulationWriter(parallel.getPopulation()).writeV6(parallelFile);
+		Assert.assertTrue("the populations read in parallel and sequentially differ",
+				Arrays.equals(Files.readAllBytes(Paths.get(sequentialFile)), Files.readAllBytes(Paths.get(parallelFile))));
+	}
+
+	private static Scenario readPopulation(final String filename, final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		config.global().setParallelReading(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new PopulationReader(scenario).readFile(filename);
+		return scenario;
+	}
+
+	private static Population createPopulation() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		Id<Link> link1 = Id.createLinkId("1");
+		Id<Link> link2 = Id.createLinkId("2");
+		Id<Link> link3 = Id.createLinkId("3");
+		for (int i = 0; i < 1234; i++) {
+			// not in the order of the ids, to see that the order of the file is kept
+			Person person = factory.createPerson(Id.createPersonId((i * 7919) % 1234));
+			person.getAttributes().putAttribute("income", i * 10.5);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore(i + p * 0.5);
+				Activity home = factory.createActivityFromCoord("home", new Coord(i, -i));
+				home.setLinkId(link1);
+				home.setEndTime(6 * 3600 + i);
+				plan.addActivity(home);
+				Leg car = factory.createLeg("car");
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(link1, Arrays.asList(link2), link3);
+				route.setTravelTime(600 + p);
+				car.setRoute(route);
+				plan.addLeg(car);
+				Activity work = factory.createActivityFromLinkId("work", link3);
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(work);
+				Leg walk = factory.createLeg("walk");
+				walk.setTravelTime(i);
+				plan.addLeg(walk);
+				plan.addActivity(factory.createActivityFromCoord("home", new Coord(i, -i)));
+				person.addPlan(plan);
+				if (p == 0) {
+					person.setSelectedPlan(plan);
+				}
+			}
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
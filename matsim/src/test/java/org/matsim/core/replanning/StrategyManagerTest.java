@@ -33,12 +33,17 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.modules.AbstractMultithreadedModule;
 import org.matsim.core.replanning.selectors.BestPlanSelector;
+import org.matsim.core.replanning.selectors.ExpBetaPlanSelector;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.scenario.ScenarioUtils;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -373,6 +378,78 @@ public class StrategyManagerTest {
 		Assert.assertEquals(1.0, weights.get(2), 1e-8);
 	}
 	
+	/**
+	 * With threads, every person draws from random numbers seeded for the person in the selection, and every plan from
+	 * ones seeded for its position in the modules, so the result must not depend on the number of threads of the
+	 * manager or of the modules.
+	 */
+	@Test
+	public void testNumberOfThreads_sameResultForAnyNumber() {
+		List<String> expected = runWithThreads(1, 1);
+		Assert.assertEquals(expected, runWithThreads(4, 3));
+		Assert.assertEquals(expected, runWithThreads(2, 0));
+		Assert.assertEquals(expected, runWithThreads(3, 2));
+	}
+
+	/**
+	 * @return per person, its plans with their scores, the selected one marked
+	 */
+	private static List<String> runWithThreads(final int numberOfThreads, final int numberOfModuleThreads) {
+		MatsimRandom.reset(4711);
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			for (int j = 0; j < 4; j++) {
+				PersonUtils.createAndAddPlan(person, j == 0).setScore(random.nextDouble() * 10);
+			}
+			population.addPerson(person);
+		}
+
+		StrategyManager manager = new StrategyManager();
+		manager.setNumberOfThreads(numberOfThreads);
+		manager.setMaxPlansPerAgent(3);
+		manager.setPlanSelectorForRemoval(new ExpBetaPlanSelector<>(-1.0));
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl(new ExpBetaPlanSelector<>(1.0)), 0.5);
+		PlanStrategyImpl innovation = new PlanStrategyImpl(new RandomPlanSelector<>());
+		innovation.addStrategyModule(new RandomScoreModule(numberOfModuleThreads));
+		innovation.addStrategyModule(new RandomScoreModule(numberOfModuleThreads));
+		manager.addStrategyForDefaultSubpopulation(innovation, 0.5);
+
+		for (int iteration = 0; iteration < 3; iteration++) {
+			final int currentIteration = iteration;
+			manager.run(population, iteration, () -> currentIteration);
+		}
+
+		List<String> result = new ArrayList<>();
+		for (Person person : population.getPersons().values()) {
+			StringBuilder plans = new StringBuilder(person.getId().toString());
+			for (Plan plan : person.getPlans()) {
+				plans.append(plan == person.getSelectedPlan() ? " *" : " ").append(plan.getScore());
+			}
+			result.add(plans.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a random number to the score of the plan, drawn from a local instance of {@link MatsimRandom}, like
+	 * the random modules do.
+	 */
+	static private class RandomScoreModule extends AbstractMultithreadedModule {
+
+		RandomScoreModule(final int numOfThreads) {
+			super(numOfThreads);
+		}
+
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			Random random = MatsimRandom.getLocalInstance();
+			return plan -> plan.setScore(plan.getScore() + random.nextDouble());
+		}
+
+	}
+
 	/**
 	 * A simple extension to the PlanStrategy which counts how often it was
 	 * called.
@@ -23,10 +23,23 @@ package org.matsim.core.replanning.modules;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.ReplanningContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 /**
  * @author mrieser
@@ -60,6 +73,106 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testReusingPlanAlgoInstances() {
+		for (boolean reusing : new boolean[] {false, true}) {
+			CountingModule testee = new CountingModule(3);
+			testee.setReusingPlanAlgoInstances(reusing);
+			for (int iteration = 0; iteration < 4; iteration++) {
+				final int it = iteration;
+				testee.prepareReplanning(() -> it);
+				for (int i = 0; i < 10; i++) {
+					testee.handlePlan(PopulationUtils.createPlan());
+				}
+				testee.finishReplanning();
+			}
+			Assert.assertEquals(reusing ? 3 : 12, testee.instances);
+			Assert.assertEquals(40, testee.handledPlans.size());
+			// the plans are handled in the workers, not in the threads of the modules
+			for (String threadName : testee.threadNames) {
+				Assert.assertTrue(threadName, threadName.startsWith(testee.getLabel() + ":CountingPlanAlgo."));
+			}
+		}
+	}
+
+	@Test
+	public void testRandomNumbersIndependentOfThreads() {
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		Map<Plan, Double> expected = null;
+		for (int threads : new int[] {0, 1, 3}) {
+			MatsimRandom.reset();
+			RandomModule testee = new RandomModule(threads);
+			testee.prepareReplanning(new ParallelReplanningContext(2));
+			for (Plan plan : plans) {
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+			Assert.assertEquals(plans.size(), testee.numbers.size());
+			if (expected == null) {
+				expected = testee.numbers;
+			} else {
+				for (Plan plan : plans) {
+					Assert.assertEquals("with " + threads + " threads", expected.get(plan), testee.numbers.get(plan));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRandomNumbersRoundRobinWithoutParallelReplanning() {
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		MatsimRandom.reset();
+		Random[] expectedRandoms = {MatsimRandom.getLocalInstance(), MatsimRandom.getLocalInstance()};
+		MatsimRandom.reset();
+		RandomModule testee = new RandomModule(2);
+		testee.prepareReplanning(() -> 2);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+		// every plan algorithm draws for every second plan, in order, as before the parallel replanning
+		for (int i = 0; i < plans.size(); i++) {
+			Assert.assertEquals(expectedRandoms[i % 2].nextDouble(), testee.numbers.get(plans.get(i)), 0);
+		}
+	}
+
+	@Test
+	public void testThroughputInStopWatch() {
+		IterationStopWatch stopWatch = new IterationStopWatch();
+		stopWatch.beginIteration(5);
+		CountingModule testee = new CountingModule(2);
+		testee.prepareReplanning(new ReplanningContext() {
+			@Override
+			public int getIteration() {
+				return 5;
+			}
+			@Override
+			public IterationStopWatch getStopWatch() {
+				return stopWatch;
+			}
+		});
+		for (int i = 0; i < 100; i++) {
+			testee.handlePlan(PopulationUtils.createPlan());
+		}
+		testee.finishReplanning();
+		CountingModule other = new CountingModule(2);
+		other.prepareReplanning(() -> 5);
+		other.finishReplanning();
+
+		String name = "[" + testee.getLabel() + ":CountingPlanAlgo]";
+		Assert.assertTrue(stopWatch.getValue(5, name + " plans/s") > 0);
+		Assert.assertTrue(stopWatch.getValue(5, name + " queue wait [ms]") >= 0);
+		// every module has its own values
+		Assert.assertNotEquals(testee.getLabel(), other.getLabel());
+		Assert.assertTrue(testee.getLabel().startsWith("CountingModule#"));
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -80,6 +193,59 @@ public class AbstractMultithreadedModuleTest {
 		}
 	}
 
+	private static class CountingModule extends AbstractMultithreadedModule {
+		int instances = 0;
+		final Set<Plan> handledPlans = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+		final Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+		public CountingModule(final int nOfThreads) {
+			super(nOfThreads);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			this.instances++;
+			return new CountingPlanAlgo(this);
+		}
+	}
+
+	private static class ParallelReplanningContext implements ReplanningContext {
+		private final int iteration;
+		ParallelReplanningContext(final int iteration) {
+			this.iteration = iteration;
+		}
+		@Override
+		public int getIteration() {
+			return this.iteration;
+		}
+		@Override
+		public boolean isReplanningInParallel() {
+			return true;
+		}
+	}
+
+	private static class RandomModule extends AbstractMultithreadedModule {
+		final Map<Plan, Double> numbers = Collections.synchronizedMap(new IdentityHashMap<>());
+		public RandomModule(final int nOfThreads) {
+			super(nOfThreads);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			Random random = MatsimRandom.getLocalInstance();
+			return plan -> this.numbers.put(plan, random.nextDouble());
+		}
+	}
+
+	private static class CountingPlanAlgo implements PlanAlgorithm {
+		private final CountingModule module;
+		CountingPlanAlgo(final CountingModule module) {
+			this.module = module;
+		}
+		@Override
+		public void run(Plan plan) {
+			this.module.handledPlans.add(plan);
+			this.module.threadNames.add(Thread.currentThread().getName());
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
@@ -0,0 +1,282 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import com.google.inject.Guice;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Routing randomness with the default sigma of the config. The randomizing travel disutility does not accept
+	 * to be asked without a person, as the customization of the hierarchy did.
+	 */
+	public void testControler_routingRandomness() {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setRoutingAlgorithmType(RoutingAlgorithmType.ContractionHierarchies);
+		config.controler().setLastIteration(3);
+		config.controler().setOutputDirectory(getOutputDirectory());
+		config.controler().setCreateGraphs(false);
+		Controler controler = new Controler(config);
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addTravelDisutilityFactoryBinding(TransportMode.car).toInstance(
+						new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, config.planCalcScore())
+								.setSigma(config.plansCalcRoute().getRoutingRandomness()));
+			}
+		});
+		controler.run();
+
+		Network network = controler.getScenario().getNetwork();
+		int routes = 0;
+		for (Person person : controler.getScenario().getPopulation().getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				for (Leg leg : TripStructureUtils.getLegs(plan)) {
+					NetworkRoute route = (NetworkRoute) leg.getRoute();
+					if (route.getStartLinkId().equals(route.getEndLinkId())) {
+						continue;
+					}
+					Link previous = network.getLinks().get(route.getStartLinkId());
+					for (Id<Link> linkId : route.getLinkIds()) {
+						Link link = network.getLinks().get(linkId);
+						assertSame(previous.getToNode(), link.getFromNode());
+						previous = link;
+					}
+					assertSame(previous.getToNode(), network.getLinks().get(route.getEndLinkId()).getFromNode());
+					routes++;
+				}
+			}
+		}
+		assertTrue(routes > 200);
+	}
+
+	public void testCalcLeastCostPath_sameAsFastDijkstra() {
+		Network network = createNetwork(20, new Random(4711));
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new FastDijkstraFactory().createPathCalculator(network, freespeed, freespeed);
+		LeastCostPathCalculator hierarchies = new ContractionHierarchiesFactory().createPathCalculator(network, freespeed, freespeed);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		int found = 0;
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path path = hierarchies.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expected == null) {
+				assertNull(path);
+				continue;
+			}
+			found++;
+			assertEquals(expected.travelCost, path.travelCost, 1e-9);
+			assertEquals(expected.travelTime, path.travelTime, 1e-9);
+			assertEquals(expected.links, path.links);
+			assertEquals(expected.nodes, path.nodes);
+		}
+		// the one-way links must not make most pairs unreachable
+		assertTrue(found > 400);
+	}
+
+	public void testCalcLeastCostPath_timeBins() {
+		Network network = createNetwork(10, new Random(4711));
+		Link slowLink = network.getLinks().get(Id.createLinkId("4_4-5_4"));
+		// the slow link is congested from 8:00 to 9:00. FastDijkstra passes the links of its routing network, so they are compared by id.
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+				double freespeedTime = link.getLength() / link.getFreespeed();
+				return link.getId().equals(slowLink.getId()) && time >= 8 * 3600 && time < 9 * 3600 ? 100 * freespeedTime : freespeedTime;
+			}
+		};
+		TravelDisutility travelDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(final Link link) {
+				return link.getLength() / link.getFreespeed();
+			}
+		};
+		LeastCostPathCalculator dijkstra = new FastDijkstraFactory().createPathCalculator(network, travelDisutility, travelTime);
+		LeastCostPathCalculator hierarchies = new ContractionHierarchiesFactory(3600, 30 * 3600).createPathCalculator(network,
+				travelDisutility, travelTime);
+
+		Node from = slowLink.getFromNode();
+		Node to = slowLink.getToNode();
+		for (double time : new double[] { 7 * 3600, 7.5 * 3600, 8 * 3600, 8.5 * 3600, 9 * 3600, 40 * 3600 }) {
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path path = hierarchies.calcLeastCostPath(from, to, time, null, null);
+			assertEquals(expected.links, path.links);
+			assertEquals(expected.travelCost, path.travelCost, 1e-9);
+			assertEquals(time >= 8 * 3600 && time < 9 * 3600, !path.links.contains(slowLink));
+		}
+	}
+
+	/**
+	 * Disutilities of the same type with different parameters, e.g. those of two modes, must not share their weights.
+	 */
+	public void testCalcLeastCostPath_disutilitiesOfSameTypeInIteration() {
+		Network network = createNetwork(10, new Random(4711));
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+				return (link.getId().index() % 7 + 1) * link.getLength() / link.getFreespeed();
+			}
+		};
+		PlanCalcScoreConfigGroup scoring = new PlanCalcScoreConfigGroup();
+		scoring.getOrCreateModeParams(TransportMode.car).setMarginalUtilityOfDistance(0);
+		scoring.getOrCreateModeParams(TransportMode.ride).setMarginalUtilityOfDistance(-0.01);
+		TravelDisutility carDisutility = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, scoring)
+				.createTravelDisutility(travelTime);
+		TravelDisutility rideDisutility = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.ride, scoring)
+				.createTravelDisutility(travelTime);
+		ContractionHierarchiesFactory factory = Guice.createInjector(binder -> {
+			binder.bind(TravelTimeCalculatorConfigGroup.class).toInstance(new TravelTimeCalculatorConfigGroup());
+			binder.bind(IterationCounter.class).toInstance(() -> 0);
+		}).getInstance(ContractionHierarchiesFactory.class);
+
+		LeastCostPathCalculator carHierarchies = factory.createPathCalculator(network, carDisutility, travelTime);
+		LeastCostPathCalculator rideHierarchies = factory.createPathCalculator(network, rideDisutility, travelTime);
+		LeastCostPathCalculator carDijkstra = new FastDijkstraFactory().createPathCalculator(network, carDisutility, travelTime);
+		LeastCostPathCalculator rideDijkstra = new FastDijkstraFactory().createPathCalculator(network, rideDisutility, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		int different = 0;
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expectedCar = carDijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path expectedRide = rideDijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path car = carHierarchies.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path ride = rideHierarchies.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expectedCar == null) {
+				assertNull(car);
+				assertNull(ride);
+				continue;
+			}
+			assertEquals(expectedCar.travelCost, car.travelCost, 1e-9);
+			assertEquals(expectedRide.travelCost, ride.travelCost, 1e-9);
+			if (!expectedCar.links.equals(expectedRide.links)) {
+				different++;
+			}
+		}
+		assertTrue(different > 0);
+	}
+
+	public void testCalcLeastCostPath_noRoute() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node a = factory.createNode(Id.createNodeId("a"), new Coord(0, 0));
+		Node b = factory.createNode(Id.createNodeId("b"), new Coord(100, 0));
+		Node c = factory.createNode(Id.createNodeId("c"), new Coord(200, 0));
+		network.addNode(a);
+		network.addNode(b);
+		network.addNode(c);
+		network.addLink(factory.createLink(Id.createLinkId("ab"), a, b));
+		network.addLink(factory.createLink(Id.createLinkId("cb"), c, b));
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator hierarchies = new ContractionHierarchiesFactory().createPathCalculator(network, freespeed, freespeed);
+
+		assertNull(hierarchies.calcLeastCostPath(a, c, 0, null, null));
+		assertEquals(1, hierarchies.calcLeastCostPath(c, b, 0, null, null).links.size());
+	}
+
+	/**
+	 * A grid with links of random length, some of them one-way.
+	 */
+	private static Network createNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				network.addNode(factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100)));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId((x + 1) + "_" + y)), random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId(x + "_" + (y + 1))), random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Node a, final Node b, final Random random) {
+		boolean oneWay = random.nextDouble() < 0.1;
+		for (Node[] nodes : new Node[][] { { a, b }, { b, a } }) {
+			if (oneWay && nodes[0] == b) {
+				continue;
+			}
+			Link link = network.getFactory().createLink(Id.createLinkId(nodes[0].getId() + "-" + nodes[1].getId()), nodes[0], nodes[1]);
+			link.setLength(100 + random.nextInt(1000));
+			link.setFreespeed(5 + random.nextInt(20));
+			link.setCapacity(1000);
+			network.addLink(link);
+		}
+	}
+
+}
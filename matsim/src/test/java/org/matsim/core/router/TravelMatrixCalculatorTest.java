@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class TravelMatrixCalculatorTest {
+
+	@Test
+	public void testCalcMatrix_sameAsDijkstra() {
+		Network network = createNetwork(15, new Random(4711));
+		// slower in the morning peak, so the times at which the links are entered matter
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+				double freespeedTime = link.getLength() / link.getFreespeed();
+				return time < 8 * 3600 ? freespeedTime : 3 * freespeedTime;
+			}
+		};
+		TravelDisutility travelDisutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()) {
+			@Override
+			public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle) + link.getLength() / 1000;
+			}
+		};
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		List<Node> origins = new ArrayList<>();
+		List<Node> destinations = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			origins.add(nodes.get(random.nextInt(nodes.size())));
+			destinations.add(nodes.get(random.nextInt(nodes.size())));
+		}
+		// the same node twice, and an origin as destination
+		destinations.add(destinations.get(0));
+		destinations.add(origins.get(0));
+
+		double departureTime = 8 * 3600 - 300;
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, travelDisutility, travelTime);
+		for (int numberOfThreads : new int[] { 1, 4 }) {
+			TravelMatrix matrix = new TravelMatrixCalculator(network, travelTime, travelDisutility, numberOfThreads)
+					.calcMatrix(origins, destinations, departureTime);
+			Assert.assertEquals(origins, matrix.getOrigins());
+			Assert.assertEquals(destinations, matrix.getDestinations());
+			int reachable = 0;
+			for (int o = 0; o < origins.size(); o++) {
+				for (int d = 0; d < destinations.size(); d++) {
+					Path path = dijkstra.calcLeastCostPath(origins.get(o), destinations.get(d), departureTime, null, null);
+					if (path == null) {
+						Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getCost(o, d), 0);
+						Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getTravelTime(o, d), 0);
+						continue;
+					}
+					reachable++;
+					double distance = 0;
+					for (Link link : path.links) {
+						distance += link.getLength();
+					}
+					Assert.assertEquals(path.travelCost, matrix.getCost(o, d), 1e-5 * path.travelCost);
+					Assert.assertEquals(path.travelTime, matrix.getTravelTime(o, d), 1e-5 * path.travelTime);
+					Assert.assertEquals(distance, matrix.getDistance(o, d), 1e-5 * distance);
+					Assert.assertEquals(matrix.getCost(o, d), matrix.getCosts(o)[d], 0);
+				}
+			}
+			Assert.assertTrue(reachable > 300);
+			Assert.assertEquals(0, matrix.getTravelTime(0, destinations.size() - 1), 0);
+		}
+	}
+
+	@Test
+	public void testCalcMatrix_unreachable() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		Node a = factory.createNode(Id.createNodeId("a"), new Coord(0, 0));
+		Node b = factory.createNode(Id.createNodeId("b"), new Coord(100, 0));
+		Node c = factory.createNode(Id.createNodeId("c"), new Coord(200, 0));
+		network.addNode(a);
+		network.addNode(b);
+		network.addNode(c);
+		Link ab = factory.createLink(Id.createLinkId("ab"), a, b);
+		ab.setLength(100);
+		ab.setFreespeed(10);
+		network.addLink(ab);
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		TravelMatrix matrix = new TravelMatrixCalculator(network, freespeed, freespeed, 2).calcMatrix(Arrays.asList(a, c),
+				Arrays.asList(b, c), 0);
+		Assert.assertEquals(10, matrix.getTravelTime(0, 0), 1e-6);
+		Assert.assertEquals(100, matrix.getDistance(0, 0), 1e-6);
+		Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getTravelTime(0, 1), 0);
+		Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getDistance(1, 0), 0);
+		Assert.assertEquals(0, matrix.getCost(1, 1), 0);
+	}
+
+	/**
+	 * The randomizing disutility of the controler does not accept <code>null</code> as person.
+	 */
+	@Test
+	public void testCalcMatrix_routingRandomness() {
+		Network network = createNetwork(5, new Random(4711));
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		PlanCalcScoreConfigGroup scoring = new PlanCalcScoreConfigGroup();
+		TravelMatrix expected = new TravelMatrixCalculator(network, freespeed,
+				new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, scoring).setSigma(0).createTravelDisutility(freespeed), 2)
+				.calcMatrix(nodes, nodes, 0);
+		TravelMatrix actual = new TravelMatrixCalculator(network, freespeed,
+				new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, scoring).setSigma(3).createTravelDisutility(freespeed), 2)
+				.calcMatrix(nodes, nodes, 0);
+		for (int o = 0; o < nodes.size(); o++) {
+			Assert.assertArrayEquals(expected.getCosts(o), actual.getCosts(o), 0);
+		}
+	}
+
+	/**
+	 * A grid with links of random length, some of them one-way.
+	 */
+	private static Network createNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				network.addNode(factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100)));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId((x + 1) + "_" + y)), random);
+				}
+				if (y + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId(x + "_" + (y + 1))), random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Node a, final Node b, final Random random) {
+		boolean oneWay = random.nextDouble() < 0.1;
+		for (Node[] nodes : new Node[][] { { a, b }, { b, a } }) {
+			if (oneWay && nodes[0] == b) {
+				continue;
+			}
+			Link link = network.getFactory().createLink(Id.createLinkId(nodes[0].getId() + "-" + nodes[1].getId()), nodes[0], nodes[1]);
+			link.setLength(100 + random.nextInt(1000));
+			link.setFreespeed(5 + random.nextInt(20));
+			link.setCapacity(1000);
+			network.addLink(link);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+
+public class RoutingNetworkCacheTest {
+
+	@Test
+	public void testSharedPerNetwork() {
+		Network network = createNetwork(5);
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		PreProcessDijkstra dijkstra = RoutingNetworkCache.getPreProcessDijkstra(network);
+		Assert.assertSame(dijkstra, RoutingNetworkCache.getPreProcessDijkstra(network));
+		PreProcessLandmarks landmarks = RoutingNetworkCache.getPreProcessLandmarks(network, costs, 1);
+		Assert.assertSame(landmarks, RoutingNetworkCache.getPreProcessLandmarks(network,
+				new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()), 1));
+
+		RoutingNetwork withLandmarks = RoutingNetworkCache.getRoutingNetwork(network, landmarks);
+		Assert.assertSame(withLandmarks, RoutingNetworkCache.getRoutingNetwork(network, landmarks));
+		Assert.assertSame(landmarks.getNodeData(network.getNodes().get(Id.createNodeId("0_0"))),
+				withLandmarks.getNodes().get(Id.createNodeId("0_0")).getDeadEndData());
+		// the nodes refer to the data, so other data needs its own routing network
+		RoutingNetwork withDeadEnds = RoutingNetworkCache.getRoutingNetwork(network, dijkstra);
+		Assert.assertNotSame(withLandmarks, withDeadEnds);
+		Assert.assertSame(dijkstra.getNodeData(network.getNodes().get(Id.createNodeId("0_0"))),
+				withDeadEnds.getNodes().get(Id.createNodeId("0_0")).getDeadEndData());
+		// but routers without data can use any
+		RoutingNetwork withoutData = RoutingNetworkCache.getRoutingNetwork(network, null);
+		Assert.assertTrue(withoutData == withLandmarks || withoutData == withDeadEnds);
+
+		Network other = createNetwork(5);
+		Assert.assertNotSame(dijkstra, RoutingNetworkCache.getPreProcessDijkstra(other));
+		Assert.assertNotSame(withoutData, RoutingNetworkCache.getRoutingNetwork(other, null));
+	}
+
+	@Test
+	public void testChangedNetwork() {
+		Network network = createNetwork(3);
+		PreProcessDijkstra dijkstra = RoutingNetworkCache.getPreProcessDijkstra(network);
+		RoutingNetwork routingNetwork = RoutingNetworkCache.getRoutingNetwork(network, null);
+
+		Node node = network.getFactory().createNode(Id.createNodeId("new"), new Coord(-100, -100));
+		network.addNode(node);
+		network.addLink(network.getFactory().createLink(Id.createLinkId("new"), node, network.getNodes().get(Id.createNodeId("0_0"))));
+
+		Assert.assertNotSame(dijkstra, RoutingNetworkCache.getPreProcessDijkstra(network));
+		RoutingNetwork changed = RoutingNetworkCache.getRoutingNetwork(network, null);
+		Assert.assertNotSame(routingNetwork, changed);
+		Assert.assertEquals(network.getNodes().size(), changed.getNodes().size());
+	}
+
+	@Test
+	public void testChangedLinks() {
+		Network network = createNetwork(3);
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks landmarks = RoutingNetworkCache.getPreProcessLandmarks(network, costs, 1);
+		ContractionHierarchy hierarchy = RoutingNetworkCache.getContractionHierarchy(network);
+
+		// same number of nodes and links, but other attributes
+		Link link = network.getLinks().values().iterator().next();
+		link.setFreespeed(link.getFreespeed() * 2);
+		PreProcessLandmarks changedLandmarks = RoutingNetworkCache.getPreProcessLandmarks(network, costs, 1);
+		Assert.assertNotSame(landmarks, changedLandmarks);
+		Assert.assertNotSame(hierarchy, RoutingNetworkCache.getContractionHierarchy(network));
+		Assert.assertSame(changedLandmarks, RoutingNetworkCache.getPreProcessLandmarks(network, costs, 1));
+
+		// same numbers again, but another link
+		PreProcessDijkstra dijkstra = RoutingNetworkCache.getPreProcessDijkstra(network);
+		network.removeLink(link.getId());
+		network.addLink(network.getFactory().createLink(Id.createLinkId("other"), link.getToNode(), link.getFromNode()));
+		Assert.assertNotSame(dijkstra, RoutingNetworkCache.getPreProcessDijkstra(network));
+	}
+
+	private static Network createNetwork(final int size) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory factory = network.getFactory();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				network.addNode(factory.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100)));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId((x + 1) + "_" + y)));
+				}
+				if (y + 1 < size) {
+					addLinks(network, node, network.getNodes().get(Id.createNodeId(x + "_" + (y + 1))));
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(final Network network, final Node a, final Node b) {
+		for (Node[] nodes : new Node[][] { { a, b }, { b, a } }) {
+			Link link = network.getFactory().createLink(Id.createLinkId(nodes[0].getId() + "-" + nodes[1].getId()), nodes[0], nodes[1]);
+			link.setLength(100);
+			link.setFreespeed(10);
+			link.setCapacity(1000);
+			network.addLink(link);
+		}
+	}
+
+}
@@ -20,6 +20,9 @@
 
 package org.matsim.core.scoring;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
@@ -30,6 +33,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
@@ -58,6 +62,34 @@ public class EventsToScoreTest extends MatsimTestCase {
 		assertEquals(3.4, e2s.getAgentScore(person.getId()));
 	}
 
+	/**
+	 * Tests that the scores do not change when the events are scored with several threads.
+	 */
+	public void testNumberOfScoringThreads() {
+		Map<Id<Person>, Double> expectedScores = new HashMap<>();
+		for (int numberOfThreads : new int[] { 1, 4 }) {
+			Config config = loadConfig("test/scenarios/equil/config.xml");
+			config.planCalcScore().setNumberOfScoringThreads(numberOfThreads);
+			Scenario scenario = ScenarioUtils.loadScenario(config);
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsToScore e2s = EventsToScore.createWithoutScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), events);
+			e2s.beginIteration(0);
+			new MatsimEventsReader(events).readFile("test/input/org/matsim/examples/EquilTest/testEquil/events.xml.gz");
+			e2s.finish();
+
+			for (Person person : scenario.getPopulation().getPersons().values()) {
+				Double score = e2s.getAgentScore(person.getId());
+				if (numberOfThreads == 1) {
+					assertTrue(score != 0.0);
+					expectedScores.put(person.getId(), score);
+				} else {
+					assertEquals(expectedScores.get(person.getId()), score);
+				}
+			}
+		}
+		assertEquals(100, expectedScores.size());
+	}
+
 	public void testMsaAveraging() {
 		Config config = ConfigUtils.createConfig() ;
 		
@@ -27,6 +27,8 @@ import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
@@ -40,6 +42,14 @@ public class LinkToLinkTravelTimeCalculatorTest extends MatsimTestCase {
 	 * @author mrieser 
 	 */
 	public void testLongTravelTimeInEmptySlot() {
+		doTestLongTravelTimeInEmptySlot(null);
+	}
+
+	public void testLongTravelTimeInEmptySlot_FlatArray() {
+		doTestLongTravelTimeInEmptySlot(TravelTimeCalculatorType.TravelTimeCalculatorFlatArray);
+	}
+
+	private void doTestLongTravelTimeInEmptySlot(TravelTimeCalculatorType type) {
 		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(loadConfig(null));
     scenario.getConfig().travelTimeCalculator().setCalculateLinkToLinkTravelTimes(true);
 		Network network = (Network) scenario.getNetwork();
@@ -59,7 +69,16 @@ public class LinkToLinkTravelTimeCalculatorTest extends MatsimTestCase {
 		Link link3 = NetworkUtils.createAndAddLink(network,Id.create(3, Link.class), fromNode2, toNode2, 1000.0, 100.0, 3600.0, 1.0 );
 
 		int timeBinSize = 15*60;
-		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		TravelTimeCalculator ttcalc;
+		if (type == null) {
+			ttcalc = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		} else {
+			TravelTimeCalculatorConfigGroup ttConfig = scenario.getConfig().travelTimeCalculator();
+			ttConfig.setTraveltimeBinSize(timeBinSize);
+			ttConfig.setMaxTime(12*3600);
+			ttConfig.setTravelTimeCalculatorType(type.name());
+			ttcalc = TravelTimeCalculator.create(network, ttConfig);
+		}
 
 		Id<Vehicle> vehId1 = Id.create(11, Vehicle.class);
 		Id<Vehicle> vehId2 = Id.create(12, Vehicle.class);
@@ -129,6 +129,24 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
 	}
 
+	public final void testTravelTimeCalculator_FlatArray_Optimistic() throws IOException {
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		// by default: averaging travel times
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		// the factory needs the links up front, the scenario's network is only read by the test itself
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile(getClassInputDirectory() + "link10_network.xml");
+		TimeSlotComputation travelTimeAggregator = new TimeSlotComputation( numSlots, binSize );
+		TravelTimeGetter travelTimeGetter = new AveragingTravelTimeGetter( travelTimeAggregator ) ;
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataFlatArrayFactory(network, numSlots, false),
+				travelTimeAggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
+	}
+
 //	public final void testTravelTimeCalculator_HashMap_Pessimistic() throws IOException {
 //		String compareFile;
 //		MutableScenario scenario;
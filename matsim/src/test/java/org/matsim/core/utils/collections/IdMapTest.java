@@ -0,0 +1,182 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Map<Id<TO>, String> map = new IdMap<>(TO.class, 2);
+		Id<TO> id1 = Id.create("map-1", TO.class);
+		Id<TO> id2 = Id.create("map-2", TO.class);
+		Id<TO> id3 = Id.create("map-3", TO.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id2, "two"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals(3, map.size());
+
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertEquals("two", map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertTrue(map.containsKey(id2));
+		Assert.assertTrue(map.containsValue("two"));
+		Assert.assertFalse(map.containsValue("four"));
+
+		Assert.assertEquals("two", map.put(id2, "zwei"));
+		Assert.assertEquals(3, map.size());
+		Assert.assertEquals("zwei", map.get(id2));
+
+		Assert.assertEquals("zwei", map.remove(id2));
+		Assert.assertEquals(2, map.size());
+		Assert.assertNull(map.get(id2));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertNull(map.remove(id2));
+
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertNull(map.get(id1));
+	}
+
+	@Test
+	public void testGet_otherKeyTypes() {
+		Map<Id<TO>, String> map = new IdMap<>(TO.class);
+		Id<TO> id1 = Id.create("other-1", TO.class);
+		map.put(id1, "one");
+
+		// create an id of another type with the same index
+		while (Id.getNumberOfIds(TOther.class) <= id1.index()) {
+			Id.create("other-" + Id.getNumberOfIds(TOther.class), TOther.class);
+		}
+		Id<TOther> otherId = Id.get(id1.index(), TOther.class);
+		Assert.assertEquals(id1.index(), otherId.index());
+		Assert.assertNull(map.get(otherId));
+		Assert.assertFalse(map.containsKey(otherId));
+		Assert.assertNull(map.get("other-1"));
+		Assert.assertNull(map.get(null));
+	}
+
+	@Test
+	public void testIterationOrder() {
+		Map<Id<TO>, String> map = new IdMap<>(TO.class);
+		Map<Id<TO>, String> expected = new LinkedHashMap<>();
+		Id<TO> id1 = Id.create("order-1", TO.class);
+		Id<TO> id2 = Id.create("order-2", TO.class);
+		Id<TO> id3 = Id.create("order-3", TO.class);
+
+		// insert in a different order than the ids were created
+		for (Id<TO> id : new Id[] { id3, id1, id2 }) {
+			map.put(id, id.toString());
+			expected.put(id, id.toString());
+		}
+		Assert.assertArrayEquals(expected.keySet().toArray(), map.keySet().toArray());
+		Assert.assertArrayEquals(expected.values().toArray(), map.values().toArray());
+		Assert.assertEquals(expected, map);
+		Assert.assertEquals(expected.hashCode(), map.hashCode());
+
+		// removing and re-adding moves the entry to the end
+		map.remove(id1);
+		map.put(id1, "again");
+		Iterator<Id<TO>> iter = map.keySet().iterator();
+		Assert.assertEquals(id3, iter.next());
+		Assert.assertEquals(id2, iter.next());
+		Assert.assertEquals(id1, iter.next());
+		Assert.assertFalse(iter.hasNext());
+		try {
+			iter.next();
+			Assert.fail("expected exception, got none");
+		} catch (NoSuchElementException e) {
+			// expected exception
+		}
+	}
+
+	@Test
+	public void testIterator_remove() {
+		Map<Id<TO>, String> map = new IdMap<>(TO.class);
+		for (int i = 0; i < 10; i++) {
+			map.put(Id.create("iterRemove-" + i, TO.class), Integer.toString(i));
+		}
+		Iterator<Map.Entry<Id<TO>, String>> iter = map.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<Id<TO>, String> e = iter.next();
+			if (Integer.parseInt(e.getValue()) % 2 == 0) {
+				iter.remove();
+			} else {
+				e.setValue("odd");
+			}
+		}
+		Assert.assertEquals(5, map.size());
+		for (String value : map.values()) {
+			Assert.assertEquals("odd", value);
+		}
+		Assert.assertNull(map.get(Id.create("iterRemove-4", TO.class)));
+		Assert.assertEquals("odd", map.get(Id.create("iterRemove-5", TO.class)));
+	}
+
+	@Test
+	public void testIterator_concurrentModification() {
+		Map<Id<TO>, String> map = new IdMap<>(TO.class);
+		map.put(Id.create("cme-1", TO.class), "one");
+		map.put(Id.create("cme-2", TO.class), "two");
+		Iterator<String> iter = map.values().iterator();
+		iter.next();
+		map.put(Id.create("cme-3", TO.class), "three");
+		try {
+			iter.next();
+			Assert.fail("expected exception, got none");
+		} catch (ConcurrentModificationException e) {
+			// expected exception
+		}
+	}
+
+	@Test
+	public void testManyRemovalsAndInsertions() {
+		IdMap<TO, Integer> map = new IdMap<>(TO.class, 4);
+		Map<Id<TO>, Integer> expected = new LinkedHashMap<>();
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 100; i++) {
+				Id<TO> id = Id.create("many-" + ((i * 7 + round * 13) % 150), TO.class);
+				if (i % 3 == 0) {
+					Assert.assertEquals(expected.remove(id), map.remove(id));
+				} else {
+					Assert.assertEquals(expected.put(id, i), map.put(id, i));
+				}
+			}
+			Assert.assertEquals(expected.size(), map.size());
+			Assert.assertArrayEquals(expected.keySet().toArray(), map.keySet().toArray());
+			Assert.assertArrayEquals(expected.values().toArray(), map.values().toArray());
+		}
+	}
+
+	private static class TO {}
+	private static class TOther {}
+
+}
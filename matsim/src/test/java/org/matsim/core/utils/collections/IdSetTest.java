@@ -0,0 +1,63 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		Set<Id<TO>> set = new IdSet<>(TO.class);
+		Id<TO> id1 = Id.create("set-1", TO.class);
+		Id<TO> id2 = Id.create("set-2", TO.class);
+		Id<TO> id3 = Id.create("set-3", TO.class);
+
+		Assert.assertTrue(set.add(id2));
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id2));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertTrue(set.contains(id2));
+		Assert.assertFalse(set.contains(id3));
+
+		Iterator<Id<TO>> iter = set.iterator();
+		Assert.assertEquals(id2, iter.next());
+		Assert.assertEquals(id1, iter.next());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertTrue(set.remove(id2));
+		Assert.assertFalse(set.remove(id2));
+		Assert.assertEquals(1, set.size());
+		Assert.assertFalse(set.contains(id2));
+
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertFalse(set.contains(id1));
+	}
+
+	private static class TO {}
+
+}
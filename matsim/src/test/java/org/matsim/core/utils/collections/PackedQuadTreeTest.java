@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree.Rect;
+
+public class PackedQuadTreeTest {
+
+	/**
+	 * Distinct points on a grid, so many of them share their x or y coordinate.
+	 */
+	private static List<Coord> createPoints(final Random random) {
+		Set<Coord> points = new LinkedHashSet<>();
+		while (points.size() < 2000) {
+			points.add(new Coord(random.nextInt(100) * 10.0, random.nextInt(50) * 10.0));
+		}
+		return new ArrayList<>(points);
+	}
+
+	@Test
+	public void testQueries_sameAsQuadTree() {
+		Random random = new Random(4711);
+		List<Coord> points = createPoints(random);
+		QuadTree<Coord> quadTree = new QuadTree<>(0, 0, 990, 490);
+		for (Coord point : points) {
+			quadTree.put(point.getX(), point.getY(), point);
+		}
+		PackedQuadTree<Coord> fromQuadTree = new PackedQuadTree<>(quadTree);
+		PackedQuadTree<Coord> created = PackedQuadTree.create(points, coord -> coord);
+		Assert.assertEquals(quadTree.size(), fromQuadTree.size());
+		Assert.assertEquals(points.size(), created.size());
+		Assert.assertEquals(quadTree.getMaxEasting(), fromQuadTree.getMaxEasting(), 0);
+
+		for (int q = 0; q < 200; q++) {
+			double x = random.nextDouble() * 1100 - 50;
+			double y = random.nextDouble() * 600 - 50;
+			double r = random.nextDouble() * 100;
+			for (PackedQuadTree<Coord> packed : new PackedQuadTree[] { fromQuadTree, created }) {
+				Coord closest = quadTree.getClosest(x, y);
+				Assert.assertEquals(distance(closest, x, y), distance(packed.getClosest(x, y), x, y), 1e-9);
+				assertSameElements(quadTree.getDisk(x, y, r), packed.getDisk(x, y, r));
+				assertSameElements(quadTree.getRing(x, y, r / 2, r), packed.getRing(x, y, r / 2, r));
+				assertSameElements(quadTree.getElliptical(x, y, x + r / 2, y - r / 3, r), packed.getElliptical(x, y, x + r / 2, y - r / 3, r));
+				Rect rect = new Rect(x, y, x + r, y + r / 2);
+				assertSameElements(quadTree.getRectangle(rect, new ArrayList<>()), packed.getRectangle(rect, new ArrayList<>()));
+				List<Coord> executed = new ArrayList<>();
+				List<Coord> packedExecuted = new ArrayList<>();
+				Assert.assertEquals(quadTree.execute(rect, (px, py, value) -> executed.add(value)),
+						packed.execute(rect, (px, py, value) -> packedExecuted.add(value)));
+				assertSameElements(executed, packedExecuted);
+			}
+		}
+		assertSameElements(quadTree.values(), fromQuadTree.values());
+	}
+
+	@Test
+	public void testGetKNearest() {
+		Random random = new Random(42);
+		List<Coord> points = createPoints(random);
+		PackedQuadTree<Coord> packed = PackedQuadTree.create(points, coord -> coord);
+		List<Coord> buffer = new ArrayList<>();
+		for (int q = 0; q < 100; q++) {
+			double x = random.nextDouble() * 1000;
+			double y = random.nextDouble() * 500;
+			int k = 1 + random.nextInt(20);
+			List<Coord> sorted = new ArrayList<>(points);
+			sorted.sort(Comparator.comparingDouble(coord -> distance(coord, x, y)));
+
+			buffer.clear();
+			List<Coord> nearest = packed.getKNearest(x, y, k, buffer);
+			Assert.assertSame(buffer, nearest);
+			Assert.assertEquals(k, nearest.size());
+			for (int i = 0; i < k; i++) {
+				Assert.assertEquals(distance(sorted.get(i), x, y), distance(nearest.get(i), x, y), 1e-9);
+			}
+		}
+		Assert.assertEquals(points.size(), packed.getKNearest(0, 0, points.size() + 10).size());
+	}
+
+	@Test
+	public void testEmpty() {
+		PackedQuadTree<Coord> packed = PackedQuadTree.create(Collections.<Coord>emptyList(), coord -> coord);
+		Assert.assertNull(packed.getClosest(0, 0));
+		Assert.assertTrue(packed.getDisk(0, 0, 100).isEmpty());
+		Assert.assertTrue(packed.getKNearest(0, 0, 3).isEmpty());
+		Assert.assertEquals(0, packed.size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut_unsupported() {
+		PackedQuadTree.create(Collections.singletonList(new Coord(0, 0)), coord -> coord).put(1, 1, new Coord(1, 1));
+	}
+
+	private static double distance(final Coord coord, final double x, final double y) {
+		return Math.sqrt((coord.getX() - x) * (coord.getX() - x) + (coord.getY() - y) * (coord.getY() - y));
+	}
+
+	private static void assertSameElements(final Collection<Coord> expected, final Collection<Coord> actual) {
+		List<Coord> expectedList = new ArrayList<>(expected);
+		List<Coord> actualList = new ArrayList<>(actual);
+		Comparator<Coord> order = Comparator.comparingInt(System::identityHashCode);
+		expectedList.sort(order);
+		actualList.sort(order);
+		Assert.assertEquals(expectedList.size(), actualList.size());
+		for (int i = 0; i < expectedList.size(); i++) {
+			Assert.assertSame(expectedList.get(i), actualList.get(i));
+		}
+	}
+
+}
@@ -1,20 +1,30 @@
 package org.matsim.facilities;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
 
 /**
  * @author mrieser / Senozon AG
  */
 public class MatsimFacilitiesReaderTest {
 
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	public void testReadLinkId() {
 		String str = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
@@ -62,4 +72,40 @@ public class MatsimFacilitiesReaderTest {
 		ActivityFacility fac20 = facilities.getFacilities().get(Id.create(20, ActivityFacility.class));
 		Assert.assertNull(fac20.getLinkId());
 	}
+
+	@Test
+	public void testReadParallel_sameAsSequential() throws IOException {
+		ActivityFacilities facilities = FacilitiesUtils.createActivityFacilities("many facilities");
+		ActivityFacilitiesFactory factory = facilities.getFactory();
+		for (int i = 0; i < 2345; i++) {
+			ActivityFacility facility = factory.createActivityFacility(Id.create(2345 - i, ActivityFacility.class),
+					new Coord(i, 2 * i), Id.create(i % 10, Link.class));
+			ActivityOption home = factory.createActivityOption("home");
+			home.setCapacity(i);
+			facility.addActivityOption(home);
+			ActivityOption work = factory.createActivityOption("work");
+			work.addOpeningTime(new OpeningTimeImpl(8 * 3600, 12 * 3600 + i));
+			facility.addActivityOption(work);
+			facility.getAttributes().putAttribute("size", i);
+			facilities.addActivityFacility(facility);
+		}
+		String filename = this.utils.getOutputDirectory() + "facilities.xml";
+		new FacilitiesWriter(facilities).writeV1(filename);
+
+		ActivityFacilities sequential = FacilitiesUtils.createActivityFacilities();
+		new MatsimFacilitiesReader(null, null, sequential).readFile(filename);
+		ActivityFacilities parallel = FacilitiesUtils.createActivityFacilities();
+		MatsimFacilitiesReader reader = new MatsimFacilitiesReader(null, null, parallel);
+		reader.setNumberOfThreads(4);
+		reader.readFile(filename);
+
+		Assert.assertEquals(2345, parallel.getFacilities().size());
+		Assert.assertEquals(new ArrayList<>(sequential.getFacilities().keySet()), new ArrayList<>(parallel.getFacilities().keySet()));
+		String sequentialFile = this.utils.getOutputDirectory() + "sequential.xml";
+		String parallelFile = this.utils.getOutputDirectory() + "parallel.xml";
+		new FacilitiesWriter(sequential).writeV1(sequentialFile);
+		new FacilitiesWriter(parallel).writeV1(parallelFile);
+		Assert.assertTrue("the facilities read in parallel and sequentially differ",
+				Arrays.equals(Files.readAllBytes(Paths.get(sequentialFile)), Files.readAllBytes(Paths.get(parallelFile))));
+	}
 }
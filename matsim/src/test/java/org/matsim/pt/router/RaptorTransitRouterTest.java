@@ -0,0 +1,255 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.InitialNode;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.router.TransitRouterNetwork.TransitRouterNetworkNode;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class RaptorTransitRouterTest {
+
+	/**
+	 * Both routers minimize the same cost. The {@link TransitLeastCostPathTree} keeps one label per node, so it may miss
+	 * a route that reaches a stop later, but without waiting for the next vehicle; RAPTOR compares both at every stop,
+	 * so its routes may be cheaper, but never more expensive.
+	 */
+	@Test
+	public void testCalcPassengerRoute_sameCostAsTransitLeastCostPathTree() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = createConfig(f);
+		TransitRouterNetwork network = TransitRouterNetwork.createFromSchedule(f.schedule, trConfig.getBeelineWalkConnectionDistance());
+		TransitRouterNetworkTravelTimeAndDisutility disutility = new TransitRouterNetworkTravelTimeAndDisutility(trConfig, new PreparedTransitSchedule(f.schedule));
+		RaptorTransitRouter raptor = new RaptorTransitRouter(trConfig, RaptorData.create(f.schedule, trConfig));
+
+		int routes = 0;
+		int sameCost = 0;
+		for (Coord from : createCoords()) {
+			for (Coord to : createCoords()) {
+				for (double time = 5 * 3600; time < 8 * 3600; time += 7 * 60) {
+					TransitLeastCostPathTree tree = new TransitLeastCostPathTree(network, disutility, disutility,
+							locateNodes(network, trConfig, disutility, from, time), null);
+					TransitPassengerRoute expected = tree.getTransitPassengerRoute(locateNodes(network, trConfig, disutility, to, time));
+					TransitPassengerRoute actual = raptor.calcPassengerRoute(from, to, time, null);
+					String message = from + " -> " + to + " at " + time;
+					Assert.assertEquals(message, expected == null, actual == null);
+					if (actual != null) {
+						Assert.assertTrue(message, actual.getTravelCost() <= expected.getTravelCost() + 1e-8);
+						routes++;
+						sameCost += actual.getTravelCost() >= expected.getTravelCost() - 1e-8 ? 1 : 0;
+					}
+				}
+			}
+		}
+		Assert.assertTrue("too few routes to compare: " + routes, routes > 1000);
+		Assert.assertTrue("only " + sameCost + " of " + routes + " routes cost the same", sameCost > 0.95 * routes);
+	}
+
+	@Test
+	public void testCalcRoute_concurrentRequests() throws Exception {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, RaptorData.create(f.schedule, trConfig));
+		List<Coord> coords = createCoords();
+
+		List<Double> expected = new ArrayList<>();
+		for (Coord from : coords) {
+			for (Coord to : coords) {
+				expected.add(getArrivalTime(router.calcRoute(new FakeFacility(from), new FakeFacility(to), 6 * 3600, null), 6 * 3600));
+			}
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<Double>>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> {
+					List<Double> arrivalTimes = new ArrayList<>();
+					for (Coord from : coords) {
+						for (Coord to : coords) {
+							arrivalTimes.add(getArrivalTime(router.calcRoute(new FakeFacility(from), new FakeFacility(to), 6 * 3600, null), 6 * 3600));
+						}
+					}
+					return arrivalTimes;
+				}));
+			}
+			for (Future<List<Double>> future : futures) {
+				Assert.assertEquals(expected, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCalcRoutes_departureWindow() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, RaptorData.create(f.schedule, trConfig));
+		// from A to E, only served by the blue line, which leaves A every 20 minutes
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(20100, 5050);
+		List<List<Leg>> routes = router.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6 * 3600, 7 * 3600, null);
+
+		Assert.assertEquals(3, routes.size());
+		double previousArrivalTime = Double.NEGATIVE_INFINITY;
+		for (List<Leg> legs : routes) {
+			Assert.assertEquals(3, legs.size());
+			Assert.assertEquals(TransportMode.pt, legs.get(1).getMode());
+			Assert.assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+			// the route of the departure time, as with a single request
+			double departureTime = legs.get(0).getDepartureTime();
+			Assert.assertTrue(departureTime >= 6 * 3600 && departureTime <= 7 * 3600);
+			double arrivalTime = getArrivalTime(legs, departureTime);
+			Assert.assertEquals(arrivalTime, getArrivalTime(router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), departureTime, null), departureTime), 1e-6);
+			Assert.assertTrue(arrivalTime > previousArrivalTime);
+			previousArrivalTime = arrivalTime;
+		}
+	}
+
+	@Test
+	public void testCalcRoute_intermodal() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, RaptorData.create(f.schedule, trConfig));
+		TransitStopFacility stopA = f.schedule.getFacilities().get(Id.create("0", TransitStopFacility.class));
+		TransitStopFacility stopB = f.schedule.getFacilities().get(Id.create("2", TransitStopFacility.class));
+		TransitStopFacility stopE = f.schedule.getFacilities().get(Id.create("8", TransitStopFacility.class));
+		TransitStopFacility stopH = f.schedule.getFacilities().get(Id.create("14", TransitStopFacility.class));
+
+		Leg bikeToA = createLeg(TransportMode.bike, 600);
+		Leg bikeToB = createLeg(TransportMode.bike, 300);
+		Leg carFromE = createLeg(TransportMode.car, 120);
+		List<RaptorTransitRouter.InitialStop> accessStops = new ArrayList<>();
+		accessStops.add(new RaptorTransitRouter.InitialStop(stopA, 1.0, 600, Collections.singletonList(bikeToA)));
+		accessStops.add(new RaptorTransitRouter.InitialStop(stopB, 0.5, 300, Collections.singletonList(bikeToB)));
+		List<RaptorTransitRouter.InitialStop> egressStops = new ArrayList<>();
+		egressStops.add(new RaptorTransitRouter.InitialStop(stopE, 0.2, 120, Collections.singletonList(carFromE)));
+
+		List<Leg> legs = router.calcRoute(accessStops, egressStops, 6 * 3600, null);
+		Assert.assertEquals(3, legs.size());
+		Assert.assertSame(bikeToB, legs.get(0));
+		Assert.assertEquals(TransportMode.pt, legs.get(1).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		Assert.assertEquals(stopB.getId(), ptRoute.getAccessStopId());
+		Assert.assertEquals(stopE.getId(), ptRoute.getEgressStopId());
+		Assert.assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		Assert.assertSame(carFromE, legs.get(2));
+
+		// no connection from H back to A, as the egress stop is only served in the other direction
+		List<RaptorTransitRouter.InitialStop> accessAtH = Collections.singletonList(
+				new RaptorTransitRouter.InitialStop(stopH, 0.0, 0.0, Collections.singletonList(createLeg(TransportMode.bike, 0))));
+		List<RaptorTransitRouter.InitialStop> egressAtA = Collections.singletonList(
+				new RaptorTransitRouter.InitialStop(stopA, 0.0, 0.0, Collections.singletonList(createLeg(TransportMode.bike, 0))));
+		Assert.assertNull(router.calcRoute(accessAtH, egressAtA, 6 * 3600, null));
+	}
+
+	@Test
+	public void testCalcRoute_routerConfigChanges() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = createConfig(f);
+		RaptorData data = RaptorData.create(f.schedule, trConfig);
+		trConfig.setUtilityOfLineSwitch_utl(0);
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, data);
+		Coord fromCoord = new Coord(11900, 5100);
+		Coord toCoord = new Coord(24100, 4950);
+		// from C to F: red line to G and back with the blue line, as in TransitRouterImplTest.testTransferWeights
+		Assert.assertEquals(5, router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6 * 3600 - 5 * 60, null).size());
+
+		// the transfers are weighted with the config of the router, not the one the data was created with
+		TransitRouterConfig expensiveSwitches = createConfig(f);
+		expensiveSwitches.setUtilityOfLineSwitch_utl(300.0 * expensiveSwitches.getMarginalUtilityOfTravelTimePt_utl_s());
+		router = new RaptorTransitRouter(expensiveSwitches, data);
+		Assert.assertEquals(3, router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6 * 3600 - 5 * 60, null).size());
+	}
+
+	private static TransitRouterConfig createConfig(final Fixture f) {
+		return new TransitRouterConfig(f.scenario.getConfig().planCalcScore(), f.scenario.getConfig().plansCalcRoute(),
+				f.scenario.getConfig().transitRouter(), f.scenario.getConfig().vspExperimental());
+	}
+
+	/**
+	 * The same as in {@link TransitRouterImpl}.
+	 */
+	private static Map<Node, InitialNode> locateNodes(final TransitRouterNetwork network, final TransitRouterConfig trConfig,
+			final TransitRouterNetworkTravelTimeAndDisutility disutility, final Coord coord, final double departureTime) {
+		Collection<TransitRouterNetworkNode> nodes = network.getNearestNodes(coord, trConfig.getSearchRadius());
+		if (nodes.size() < 2) {
+			TransitRouterNetworkNode nearestNode = network.getNearestNode(coord);
+			double distance = CoordUtils.calcEuclideanDistance(coord, nearestNode.stop.getStopFacility().getCoord());
+			nodes = network.getNearestNodes(coord, distance + trConfig.getExtensionRadius());
+		}
+		Map<Node, InitialNode> initialNodes = new LinkedHashMap<>();
+		for (TransitRouterNetworkNode node : nodes) {
+			Coord stopCoord = node.stop.getStopFacility().getCoord();
+			initialNodes.put(node, new InitialNode(disutility.getWalkTravelDisutility(null, coord, stopCoord),
+					disutility.getWalkTravelTime(null, coord, stopCoord) + departureTime));
+		}
+		return initialNodes;
+	}
+
+	private static List<Coord> createCoords() {
+		List<Coord> coords = new ArrayList<>();
+		for (int x = -1000; x <= 41000; x += 2800) {
+			for (int y = -500; y <= 10500; y += 2750) {
+				coords.add(new Coord(x, y));
+			}
+		}
+		return coords;
+	}
+
+	private static Leg createLeg(final String mode, final double travelTime) {
+		Leg leg = PopulationUtils.createLeg(mode);
+		leg.setTravelTime(travelTime);
+		return leg;
+	}
+
+	private static double getArrivalTime(final List<Leg> legs, final double departureTime) {
+		double time = departureTime;
+		for (Leg leg : legs) {
+			time += leg.getTravelTime();
+		}
+		return time;
+	}
+
+}